@@ -1,20 +1,212 @@
 package com.amalitech.base;
 
+import com.amalitech.evidence.AppCrashedException;
+import com.amalitech.evidence.CommandLog;
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.metrics.MetricsRegistry;
+import com.amalitech.metrics.PageActionEvent;
+import com.amalitech.metrics.ResourceSampler;
+import com.amalitech.metrics.ScreenTransitions;
+import com.amalitech.metrics.Timeline;
+import com.amalitech.metrics.WaitEvent;
+import com.amalitech.utils.ConfigReader;
+import com.amalitech.utils.FormFiller;
+import com.amalitech.utils.RetryPolicy;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class BasePage {
 
+    // Hold time for a single tap and default gap between taps in a batch
+    protected static final Duration TAP_PRESS_DURATION = Duration.ofMillis(50);
+    protected static final Duration TAP_INTERVAL = Duration.ofMillis(150);
+    // Set by failAction when the innermost page action on this thread swallows a failure
+    private static final ThreadLocal<boolean[]> ACTION_FAILED = new ThreadLocal<>();
+
     protected AndroidDriver driver;
     protected WebDriverWait wait;
+    protected FormFiller formFiller;
+    protected RetryPolicy retryPolicy;
 
     public BasePage(AndroidDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        this.wait = new InstrumentedWait(driver, ConfigReader.getDefaultTimeout());
+        this.formFiller = new FormFiller(driver);
+        this.retryPolicy = RetryPolicy.defaultPolicy();
+    }
+
+    /**
+     * Wait that does not start once the app has crashed, and reports the crash when a wait in
+     * progress is interrupted by the {@link CrashWatcher}. Each wait is recorded by outcome, as a
+     * metric and as a {@link WaitEvent}. While a screen transition is measured it polls at the
+     * transition's finer interval.
+     */
+    private static final class InstrumentedWait extends WebDriverWait {
+
+        private final Duration timeout;
+
+        private InstrumentedWait(WebDriver driver, Duration timeout) {
+            super(driver, timeout);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public <V> V until(Function<? super WebDriver, ? extends V> isTrue) {
+            CrashWatcher.throwIfCrashed();
+            WaitEvent event = new WaitEvent();
+            event.begin();
+            long start = System.nanoTime();
+            String outcome = "met";
+            Duration defaultInterval = interval;
+            Duration transitionInterval = ScreenTransitions.activePollInterval();
+            if (transitionInterval != null) {
+                pollingEvery(transitionInterval);
+            }
+            try (Timeline.Span ignored = Timeline.begin("wait", String.valueOf(isTrue))) {
+                return super.until(isTrue);
+            } catch (RuntimeException e) {
+                outcome = "timeout";
+                CrashWatcher watcher = CrashWatcher.current();
+                if (watcher != null && watcher.getCrash() != null && !(e instanceof AppCrashedException)) {
+                    outcome = "crashed";
+                    throw new AppCrashedException(watcher.getCrash(), e);
+                }
+                throw e;
+            } finally {
+                pollingEvery(defaultInterval);
+                if (!"met".equals(outcome)) {
+                    ScreenTransitions.waitFailed();
+                }
+                MetricsRegistry.getInstance().timer("wait_duration_seconds", "outcome", outcome)
+                        .record((System.nanoTime() - start) / 1000);
+                if (event.shouldCommit()) {
+                    event.condition = String.valueOf(isTrue);
+                    event.outcome = outcome;
+                    event.timeout = timeout.toMillis();
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a page-object method as a {@link PageActionEvent} and a timeline span, so profiles and
+     * the run timeline show which page action the driver calls and allocations belong to. Resource
+     * samples taken meanwhile are tagged with the action.
+     */
+    protected void action(String name, Runnable body) {
+        action(name, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a page-object method that returns a value as a {@link PageActionEvent}. The action
+     * counts as failed if it throws, or if its body reports a failure it handles itself through
+     * {@link #failAction(Exception)}.
+     */
+    protected <T> T action(String name, Supplier<T> body) {
+        PageActionEvent event = new PageActionEvent();
+        event.begin();
+        boolean failed = true;
+        boolean[] swallowed = {false};
+        boolean[] outer = ACTION_FAILED.get();
+        ACTION_FAILED.set(swallowed);
+        String previousStep = ResourceSampler.setStep(getClass().getSimpleName() + "." + name);
+        try (Timeline.Span ignored = Timeline.begin("action", getClass().getSimpleName() + "." + name)) {
+            T result = body.get();
+            failed = false;
+            return result;
+        } finally {
+            ResourceSampler.setStep(previousStep);
+            if (outer != null) {
+                ACTION_FAILED.set(outer);
+            } else {
+                ACTION_FAILED.remove();
+            }
+            if (event.shouldCommit()) {
+                event.page = getClass().getSimpleName();
+                event.action = name;
+                event.failed = failed || swallowed[0];
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Mark the running page action as failed from a catch-all that logs the failure instead of
+     * throwing it; fatal failures still escape as with {@link #rethrowIfFatal(Exception)}
+     */
+    protected static void failAction(Exception e) {
+        rethrowIfFatal(e);
+        boolean[] failed = ACTION_FAILED.get();
+        if (failed != null) {
+            failed[0] = true;
+        }
+    }
+
+    /**
+     * Let a failure that must end the test escape a page method's catch-all: an app crash, any
+     * failure once a crash is recorded, and the interrupt the {@link CrashWatcher} uses to stop the
+     * test thread, whose flag is restored
+     */
+    protected static void rethrowIfFatal(Exception e) {
+        if (e instanceof AppCrashedException) {
+            throw (AppCrashedException) e;
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        CrashWatcher watcher = CrashWatcher.current();
+        if (watcher != null && watcher.getCrash() != null) {
+            throw new AppCrashedException(watcher.getCrash(), e);
+        }
+        if (e instanceof InterruptedException) {
+            throw new IllegalStateException("Interrupted during page action", e);
+        }
+    }
+
+    /**
+     * Measure a screen transition, e.g.
+     * {@code loginPage.measureTransition("LOGIN", "PRODUCTS", loginPage::clickLoginButton, productsPage::waitForProductsPageToLoad)}.
+     * The implicit wait is switched off for the duration so the target page's wait detects the
+     * screen at its own poll interval instead of the server's.
+     * @return the latency, also aggregated in {@link ScreenTransitions}
+     */
+    public Duration measureTransition(String from, String to, Runnable trigger, Runnable waitForTarget) {
+        return withoutImplicitWait(() -> ScreenTransitions.measure(from, to, trigger, waitForTarget));
+    }
+
+    /**
+     * Measure a screen transition like {@link #measureTransition} without aggregating it
+     */
+    public Duration timeTransition(String from, String to, Runnable trigger, Runnable waitForTarget) {
+        return withoutImplicitWait(() -> ScreenTransitions.time(from, to, trigger, waitForTarget));
+    }
+
+    private <T> T withoutImplicitWait(Supplier<T> body) {
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        try {
+            return body.get();
+        } finally {
+            driver.manage().timeouts().implicitlyWait(
+                    ConfigReader.getDuration(ConfigReader.WAIT_TIMEOUT_IMPLICIT, Duration.ofSeconds(10)));
+        }
     }
 
     /**
@@ -113,6 +305,7 @@ public class BasePage {
             driver.findElement(AppiumBy.accessibilityId(accessibilityId));
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -125,55 +318,110 @@ public class BasePage {
             driver.findElement(AppiumBy.androidUIAutomator(uiAutomatorString));
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
 
+    /**
+     * Wait for an element located by any locator
+     */
+    public WebElement find(By locator) {
+        return wait.until(ExpectedConditions.presenceOfElementLocated(locator));
+    }
+
+    /**
+     * Click an element, re-resolving it by locator if it goes stale
+     */
+    public void click(By locator) {
+        retryPolicy.execute("click " + locator, () -> find(locator), element -> {
+            element.click();
+            return null;
+        });
+    }
+
+    /**
+     * Replace the text of an element, re-resolving it by locator if it goes stale
+     */
+    public void type(By locator, String text) {
+        retryPolicy.execute("type into " + locator, () -> find(locator), element -> {
+            formFiller.setValue(element, text);
+            return null;
+        });
+    }
+
+    /**
+     * Read the text of an element, re-resolving it by locator if it goes stale
+     */
+    public String getText(By locator) {
+        return retryPolicy.execute("get text of " + locator, () -> find(locator), WebElement::getText);
+    }
+
     /**
      * Safe click method with retry
      */
     public void safeClick(WebElement element) {
-        int attempts = 0;
-        while (attempts < 3) {
-            try {
-                element.click();
-                break;
-            } catch (Exception e) {
-                attempts++;
-                if (attempts >= 3) {
-                    throw e;
-                }
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
+        retryPolicy.execute("click element", element, target -> {
+            target.click();
+            return null;
+        });
     }
 
     /**
      * Safe send keys method with retry
      */
     public void safeSendKeys(WebElement element, String text) {
-        int attempts = 0;
-        while (attempts < 3) {
-            try {
-                element.clear();
-                element.sendKeys(text);
-                break;
-            } catch (Exception e) {
-                attempts++;
-                if (attempts >= 3) {
-                    throw e;
-                }
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
+        retryPolicy.execute("type into element", element, target -> {
+            formFiller.setValue(target, text);
+            return null;
+        });
+    }
+
+    /**
+     * Click element by accessibility ID
+     */
+    public void clickByAccessibilityId(String accessibilityId) {
+        try {
+            click(AppiumBy.accessibilityId(accessibilityId));
+        } catch (Exception e) {
+            System.err.println("Failed to click element by accessibility ID: " + accessibilityId);
+            throw e;
+        }
+    }
+
+    /**
+     * Tap the centre of an element several times using a single W3C action sequence.
+     * The element rect is resolved once and all taps are sent in one perform() call.
+     */
+    public void tapRepeatedly(WebElement element, int times, Duration interval) {
+        if (times <= 0) {
+            return;
+        }
+        Rectangle rect = element.getRect();
+        int centerX = rect.getX() + rect.getWidth() / 2;
+        int centerY = rect.getY() + rect.getHeight() / 2;
+
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence taps = new Sequence(finger, 0);
+        taps.addAction(finger.createPointerMove(Duration.ZERO,
+                PointerInput.Origin.viewport(), centerX, centerY));
+        for (int i = 0; i < times; i++) {
+            if (i > 0) {
+                taps.addAction(new Pause(finger, interval));
             }
+            taps.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            taps.addAction(new Pause(finger, TAP_PRESS_DURATION));
+            taps.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
         }
+        CommandLog.record("tap x" + times + " at (" + centerX + "," + centerY + ")");
+        driver.perform(Collections.singletonList(taps));
+    }
+
+    /**
+     * Tap the centre of an element several times with the default interval
+     */
+    public void tapRepeatedly(WebElement element, int times) {
+        tapRepeatedly(element, times, TAP_INTERVAL);
     }
 
     // Methods to maintain compatibility with existing CartPage and MenuPage
@@ -186,6 +434,7 @@ public class BasePage {
             WebElement element = findByXPath(xpath);
             return element.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -198,6 +447,7 @@ public class BasePage {
             WebElement element = findByXPath(xpath);
             return element.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "";
         }
     }
@@ -207,8 +457,7 @@ public class BasePage {
      */
     public void clickByXpath(String xpath) {
         try {
-            WebElement element = findByXPath(xpath);
-            safeClick(element);
+            click(AppiumBy.xpath(xpath));
         } catch (Exception e) {
             System.err.println("Failed to click element by XPath: " + xpath);
             throw e;
@@ -223,6 +472,7 @@ public class BasePage {
             WebElement element = findByUIAutomator(uiSelector);
             return element.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -232,8 +482,7 @@ public class BasePage {
      */
     public void clickByUiSelector(String uiSelector) {
         try {
-            WebElement element = findByUIAutomator(uiSelector);
-            safeClick(element);
+            click(AppiumBy.androidUIAutomator(uiSelector));
         } catch (Exception e) {
             System.err.println("Failed to click element by UI Selector: " + uiSelector);
             throw e;
@@ -241,13 +490,41 @@ public class BasePage {
     }
 
     /**
-     * Wait for page to load (general purpose method)
+     * Wait until an element located by UI Selector is present, e.g. the title of the screen a
+     * click leads to
+     */
+    public void waitForUiSelector(String uiSelector) {
+        wait.until(ExpectedConditions.presenceOfElementLocated(AppiumBy.androidUIAutomator(uiSelector)));
+    }
+
+    /**
+     * Wait until the screen stops changing between two polls, e.g. while a swipe's fling is still
+     * moving or a screen is still being laid out
+     */
+    public void waitForScreenToSettle() {
+        wait.until(new ExpectedCondition<Boolean>() {
+            private String previous;
+
+            @Override
+            public Boolean apply(WebDriver webDriver) {
+                String source = webDriver.getPageSource();
+                boolean settled = source.equals(previous);
+                previous = source;
+                return settled;
+            }
+
+            @Override
+            public String toString() {
+                return "screen to settle";
+            }
+        });
+    }
+
+    /**
+     * Wait for page to load (general purpose method); pages that know their target screen wait
+     * for it instead
      */
     public void waitForPageLoad() {
-        try {
-            Thread.sleep(2000); // Generic wait - can be customized per page
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        waitForScreenToSettle();
     }
 }
\ No newline at end of file
@@ -1,26 +1,67 @@
 package com.amalitech.base;
 
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.evidence.LogcatStreamer;
+import com.amalitech.metrics.CommandStats;
+import com.amalitech.metrics.MetricsRegistry;
+import com.amalitech.metrics.ResourceSampler;
+import com.amalitech.metrics.ScreenTransitions;
+import com.amalitech.metrics.SessionCreateEvent;
+import com.amalitech.metrics.SessionQuitEvent;
+import com.amalitech.metrics.Timeline;
+import com.amalitech.metrics.TimedCommandExecutor;
 import com.amalitech.utils.ConfigReader;
+import com.amalitech.utils.ScreenChangeTracker;
+import com.amalitech.utils.ScreenshotPipeline;
 import com.amalitech.utils.WaitUtils;
 import io.appium.java_client.android.AndroidDriver;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BaseTest {
 
     private static final Logger logger = LogManager.getLogger(BaseTest.class);
-    protected static AndroidDriver driver;
-    protected static WaitUtils waitUtils;
+    // Session each thread is using; rows of parallel data providers each take one from SESSIONS
+    private static final ThreadLocal<DeviceSession> SESSION = new ThreadLocal<>();
+    // One session per device of the current class, guarded by itself
+    private static final List<DeviceSession> SESSIONS = new ArrayList<>();
+    private static URL serverUrl;
+
+    /**
+     * A device, its session once started and the watchers of that session. Busy while a test
+     * method runs on it.
+     */
+    private static final class DeviceSession {
+        private final DesiredCapabilities capabilities;
+        private final String device;
+        private AndroidDriver driver;
+        private WaitUtils waitUtils;
+        private CrashWatcher crashWatcher;
+        private ResourceSampler resourceSampler;
+        private boolean busy;
+
+        private DeviceSession(DesiredCapabilities capabilities) {
+            this.capabilities = capabilities;
+            Object udid = capabilities.getCapability("appium:udid");
+            this.device = String.valueOf(udid != null ? udid : capabilities.getCapability("appium:deviceName"));
+        }
+    }
 
     @BeforeClass
     @Parameters({"platformName", "deviceName", "platformVersion"})
@@ -59,10 +100,15 @@ public class BaseTest {
             String appiumServerUrl = ConfigReader.getProperty("appium.server.url", "http://localhost:4723");
             logger.info("Connecting to Appium server: " + appiumServerUrl);
 
-            driver = new AndroidDriver(new URL(appiumServerUrl), caps);
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
-
-            waitUtils = new WaitUtils(driver);
+            serverUrl = new URL(appiumServerUrl);
+            List<DeviceSession> pool = devicePool(caps);
+            synchronized (SESSIONS) {
+                SESSIONS.clear();
+                SESSIONS.addAll(pool);
+            }
+            logger.info("Device pool: " + pool.size() + " device(s)");
+            // Class setup runs on the first device; other devices start when parallel rows need them
+            openSession(pool.get(0));
 
             logger.info("Appium driver initialized successfully");
 
@@ -77,44 +123,261 @@ public class BaseTest {
 
     @AfterClass
     public void tearDown() {
-        if (driver != null) {
-            logger.info("Closing Appium driver...");
+        List<DeviceSession> sessions;
+        synchronized (SESSIONS) {
+            sessions = new ArrayList<>(SESSIONS);
+            SESSIONS.clear();
+        }
+        for (DeviceSession session : sessions) {
+            if (session.driver != null) {
+                logger.info("Closing Appium driver on " + session.device + "...");
+                quitSession(session, "teardown");
+                logger.info("Appium driver closed successfully");
+            }
+        }
+        SESSION.remove();
+    }
+
+    /**
+     * Hold a session for the test method about to run on this thread: the one the thread used
+     * last if it is free, otherwise any free one, starting the device's session if needed.
+     * Waits while every device is busy.
+     */
+    @BeforeMethod(alwaysRun = true)
+    public void acquireSession() throws InterruptedException {
+        DeviceSession session;
+        synchronized (SESSIONS) {
+            if (SESSIONS.isEmpty()) {
+                return;
+            }
+            session = SESSION.get();
+            while (session == null || !SESSIONS.contains(session) || session.busy) {
+                session = freeSession();
+                if (session == null) {
+                    SESSIONS.wait();
+                }
+            }
+            session.busy = true;
+        }
+        if (session.driver == null) {
+            try {
+                openSession(session);
+            } catch (RuntimeException e) {
+                release(session);
+                throw e;
+            }
+        } else {
+            bind(session);
+        }
+    }
+
+    /**
+     * Let other threads use this thread's session. The thread keeps it bound, and takes it
+     * again for its next test method unless another thread has it.
+     */
+    @AfterMethod(alwaysRun = true)
+    public void releaseSession() {
+        DeviceSession session = SESSION.get();
+        if (session != null) {
+            release(session);
+        }
+    }
+
+    private static void release(DeviceSession session) {
+        synchronized (SESSIONS) {
+            session.busy = false;
+            SESSIONS.notifyAll();
+        }
+    }
+
+    // A free session, preferring one already started; called holding the SESSIONS lock
+    private static DeviceSession freeSession() {
+        DeviceSession unstarted = null;
+        for (DeviceSession session : SESSIONS) {
+            if (!session.busy) {
+                if (session.driver != null) {
+                    return session;
+                }
+                if (unstarted == null) {
+                    unstarted = session;
+                }
+            }
+        }
+        return unstarted;
+    }
+
+    /**
+     * The devices to run on: each serial in {@code device.pool} with its own UiAutomator2 port,
+     * or the device the capabilities name when the pool is empty
+     */
+    private static List<DeviceSession> devicePool(DesiredCapabilities caps) {
+        List<DeviceSession> pool = new ArrayList<>();
+        int systemPort = ConfigReader.getInt("device.pool.system.port", 8200);
+        for (String serial : ConfigReader.getProperty("device.pool", "").split(",")) {
+            if (!serial.trim().isEmpty()) {
+                DesiredCapabilities deviceCaps = new DesiredCapabilities(caps);
+                deviceCaps.setCapability("appium:udid", serial.trim());
+                deviceCaps.setCapability("appium:systemPort", systemPort + pool.size());
+                pool.add(new DeviceSession(deviceCaps));
+            }
+        }
+        if (pool.isEmpty()) {
+            pool.add(new DeviceSession(caps));
+        }
+        return pool;
+    }
+
+    /**
+     * Create the session of a device, start the logcat stream, crash watcher and resource
+     * sampler for it and make it the calling thread's session
+     */
+    private static void openSession(DeviceSession session) {
+        Timeline.setLane(session.device);
+        ScreenTransitions.setDevice(session.device);
+        SessionCreateEvent event = new SessionCreateEvent();
+        event.begin();
+        long start = System.nanoTime();
+        AndroidDriver driver = null;
+        try (Timeline.Span ignored = Timeline.begin("session", "create session")) {
+            driver = ConfigReader.getBoolean("metrics.commands.enabled", true)
+                    ? new AndroidDriver(new TimedCommandExecutor(serverUrl), session.capabilities)
+                    : new AndroidDriver(serverUrl, session.capabilities);
+            event.succeeded = true;
+        } finally {
+            MetricsRegistry.getInstance().recordTime("session_create_duration_seconds",
+                    Duration.ofNanos(System.nanoTime() - start));
+            if (event.shouldCommit()) {
+                event.server = serverUrl.toString();
+                event.device = event.succeeded ? LogcatStreamer.deviceId(driver) : null;
+                event.sessionId = event.succeeded ? String.valueOf(driver.getSessionId()) : null;
+                event.commit();
+            }
+        }
+        driver.manage().timeouts().implicitlyWait(
+                ConfigReader.getDuration(ConfigReader.WAIT_TIMEOUT_IMPLICIT, Duration.ofSeconds(10)));
+
+        session.driver = driver;
+        session.waitUtils = new WaitUtils(driver);
+
+        String appPackage = ConfigReader.getProperty("app.package", "com.swaglabsmobileapp");
+        if (ConfigReader.getBoolean("logcat.stream.enabled", true)) {
+            LogcatStreamer.startForDevice(LogcatStreamer.deviceId(driver), appPackage);
+        }
+        if (ConfigReader.getBoolean("crash.watch.enabled", true)) {
+            session.crashWatcher = CrashWatcher.startForSession(driver, appPackage,
+                    ConfigReader.getDuration("crash.watch.poll.interval", Duration.ofSeconds(2)));
+        }
+        if (ConfigReader.getBoolean("resource.sampler.enabled", true)) {
+            session.resourceSampler = ResourceSampler.startForSession(driver, LogcatStreamer.deviceId(driver),
+                    appPackage, ConfigReader.getDuration("resource.sampler.interval", Duration.ofSeconds(2)),
+                    Paths.get(ConfigReader.getProperty("resource.sampler.dir", "target/resource-samples")),
+                    "appium".equals(ConfigReader.getProperty("resource.sampler.source", "adb")));
+        }
+        bind(session);
+    }
+
+    // Make a session the calling thread's, along with its watchers and timeline lane
+    private static void bind(DeviceSession session) {
+        SESSION.set(session);
+        Timeline.setLane(session.device);
+        ScreenTransitions.setDevice(session.device);
+        CrashWatcher.bind(session.crashWatcher);
+        ResourceSampler.bind(session.resourceSampler);
+    }
+
+    /**
+     * Replace this thread's session, whose app crashed, with a fresh one on the same device, so
+     * later tests start from a relaunched app. The old session is quit on a best-effort basis.
+     */
+    public static void recycleSession() {
+        DeviceSession session = SESSION.get();
+        if (session == null) {
+            return;
+        }
+        logger.warn("Recycling Appium session on " + session.device + " after app crash");
+        if (session.driver != null) {
+            try {
+                quitSession(session, "app crash");
+            } catch (RuntimeException e) {
+                logger.warn("Could not quit crashed session: " + e.getMessage());
+            }
+        }
+        try {
+            openSession(session);
+        } catch (RuntimeException e) {
+            logger.error("Failed to start a new session after app crash", e);
+        }
+    }
+
+    /**
+     * Stop the session's watchers, log its command latency and quit it
+     */
+    private static void quitSession(DeviceSession session, String reason) {
+        AndroidDriver driver = session.driver;
+        session.driver = null;
+        session.waitUtils = null;
+        if (session.crashWatcher != null) {
+            session.crashWatcher.close();
+            session.crashWatcher = null;
+        }
+        if (session.resourceSampler != null) {
+            session.resourceSampler.close();
+            session.resourceSampler = null;
+        }
+        if (SESSION.get() == session) {
+            // Drop the closed watchers from this thread
+            bind(session);
+        }
+        Timeline.setLane(session.device);
+        String device = LogcatStreamer.deviceId(driver);
+        String sessionId = String.valueOf(driver.getSessionId());
+        LogcatStreamer.stopForDevice(device);
+        SessionQuitEvent event = new SessionQuitEvent();
+        event.begin();
+        try (Timeline.Span ignored = Timeline.begin("session", "quit session (" + reason + ")")) {
             driver.quit();
-            logger.info("Appium driver closed successfully");
+        } finally {
+            if (event.shouldCommit()) {
+                event.device = device;
+                event.sessionId = sessionId;
+                event.reason = reason;
+                event.commit();
+            }
+            ScreenChangeTracker.removeSession(sessionId);
+            ScreenshotPipeline.getInstance().removeSession(sessionId);
+            CommandStats commands = TimedCommandExecutor.removeSession(sessionId);
+            if (commands != null) {
+                logger.info("Command latency for session " + sessionId + ":" + System.lineSeparator() + commands.summary());
+            }
         }
     }
 
     /**
-     * Get the current driver instance
-     * @return AndroidDriver instance
+     * Get the driver of the session this thread holds
+     * @return AndroidDriver instance, or null if the thread has no session
      */
     public static AndroidDriver getDriver() {
-        return driver;
+        DeviceSession session = SESSION.get();
+        return session != null ? session.driver : null;
     }
 
     /**
-     * Get wait utils instance
-     * @return WaitUtils instance
+     * Get wait utils for the session this thread holds
+     * @return WaitUtils instance, or null if the thread has no session
      */
     public static WaitUtils getWaitUtils() {
-        return waitUtils;
+        DeviceSession session = SESSION.get();
+        return session != null ? session.waitUtils : null;
     }
 
     /**
-     * Take screenshot for reporting
+     * Take screenshot for reporting. Returns as soon as the image is fetched;
+     * it is written and attached to Allure in the background.
      * @param testName name of the test
-     * @return screenshot path
+     * @return screenshot path, or null if no screenshot was taken
      */
     protected String captureScreenshot(String testName) {
-        try {
-            // Implementation for screenshot capture
-            // This can be enhanced based on your reporting needs
-            String screenshotPath = "screenshots/" + testName + "_" + System.currentTimeMillis() + ".png";
-            logger.info("Screenshot captured: " + screenshotPath);
-            return screenshotPath;
-        } catch (Exception e) {
-            logger.error("Failed to capture screenshot", e);
-            return null;
-        }
+        Path screenshot = ScreenshotPipeline.getInstance().capture(getDriver(), testName, ScreenshotPipeline.Kind.STEP);
+        return screenshot != null ? screenshot.toString() : null;
     }
-}
\ No newline at end of file
+}
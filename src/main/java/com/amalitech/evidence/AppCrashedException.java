@@ -0,0 +1,20 @@
+package com.amalitech.evidence;
+
+/**
+ * Thrown when the app under test crashed or stopped responding while a test was running
+ */
+public class AppCrashedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CrashWatcher.Crash crash;
+
+    public AppCrashedException(CrashWatcher.Crash crash, Throwable cause) {
+        super("App crashed: " + crash, cause);
+        this.crash = crash;
+    }
+
+    public CrashWatcher.Crash getCrash() {
+        return crash;
+    }
+}
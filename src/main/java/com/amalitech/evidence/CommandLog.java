@@ -0,0 +1,86 @@
+package com.amalitech.evidence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring buffer of recent page actions.
+ * Recording is a counter increment and an array store, so it is cheap enough to run on every
+ * action; the buffer is only read when a test fails.
+ */
+public final class CommandLog {
+
+    private static final int CAPACITY = 256;
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final AtomicReferenceArray<Entry> ENTRIES = new AtomicReferenceArray<>(CAPACITY);
+
+    private CommandLog() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * One recorded action
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final long timestampMillis;
+        private final String thread;
+        private final String text;
+
+        private Entry(long sequence, long timestampMillis, String thread, String text) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.thread = thread;
+            this.text = text;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(timestampMillis) + " [" + thread + "] " + text;
+        }
+    }
+
+    public static void record(String text) {
+        long sequence = SEQUENCE.getAndIncrement();
+        ENTRIES.set((int) (sequence % CAPACITY), new Entry(sequence, System.currentTimeMillis(),
+                Thread.currentThread().getName(), text));
+    }
+
+    /**
+     * Position of the next entry, to mark the start of a test
+     */
+    public static long position() {
+        return SEQUENCE.get();
+    }
+
+    /**
+     * Entries recorded since a position, oldest first. Entries already overwritten are skipped.
+     */
+    public static List<Entry> since(long position) {
+        long end = SEQUENCE.get();
+        long start = Math.max(position, end - CAPACITY);
+        List<Entry> entries = new ArrayList<>();
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = ENTRIES.get((int) (sequence % CAPACITY));
+            if (entry != null && entry.sequence == sequence) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
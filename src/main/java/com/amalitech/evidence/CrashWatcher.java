@@ -0,0 +1,344 @@
+package com.amalitech.evidence;
+
+import com.amalitech.utils.RetryPolicy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.appmanagement.ApplicationState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Detects an app crash or ANR while a session is in use.
+ * Two signals are watched: the app state is polled with queryAppState, and a filtered logcat
+ * stream of AndroidRuntime and ActivityManager errors is scanned for "FATAL EXCEPTION" and
+ * "ANR in" as the lines arrive. On the first signal the crash is recorded and the watched test
+ * thread is interrupted, so a wait in progress ends at once instead of running to its timeout.
+ * The thread is interrupted again on every poll until it is unwatched.
+ * <p>
+ * Code that stops the app on purpose, such as a cold start benchmark, suspends the app state
+ * polling around it with {@link #suspendCurrent()}.
+ */
+public class CrashWatcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(CrashWatcher.class);
+    private static final int LOGCAT_CAPACITY = 64 * 1024;
+
+    // Watcher of the session each test thread is using
+    private static final ThreadLocal<CrashWatcher> CURRENT = new ThreadLocal<>();
+
+    private final String appPackage;
+    private final Supplier<ApplicationState> appState;
+    private final Duration pollInterval;
+    private final AtomicReference<Crash> crash = new AtomicReference<>();
+    private final AtomicReference<Thread> watched = new AtomicReference<>();
+    private ScheduledExecutorService poller;
+    private LogcatStreamer logcat;
+    private volatile boolean seenRunning;
+    // Odd while app state polling is suspended; bumped on every suspend and resume
+    private final AtomicLong suspension = new AtomicLong();
+    private int suspensions;
+    private String pendingFatal;
+
+    /**
+     * Handle that resumes app state polling when closed
+     */
+    public interface Suspension extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * What was detected, and when
+     */
+    public static final class Crash implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String source;
+        private final String cause;
+        private final long timestampMillis;
+
+        private Crash(String source, String cause, long timestampMillis) {
+            this.source = source;
+            this.cause = cause;
+            this.timestampMillis = timestampMillis;
+        }
+
+        /**
+         * "logcat" or "app state"
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public String getCause() {
+            return cause;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        @Override
+        public String toString() {
+            return cause + " (" + source + " at " + Instant.ofEpochMilli(timestampMillis) + ")";
+        }
+    }
+
+    /**
+     * @param appPackage package of the app under test, or null to accept crashes of any app
+     * @param appState current state of the app, polled in the background
+     * @param pollInterval time between app state polls
+     */
+    public CrashWatcher(String appPackage, Supplier<ApplicationState> appState, Duration pollInterval) {
+        this.appPackage = appPackage;
+        this.appState = appState;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Watch the app of a session and make it the calling thread's watcher. The logcat stream is
+     * optional: without a device serial only the app state is polled.
+     */
+    public static CrashWatcher startForSession(AndroidDriver driver, String appPackage, Duration pollInterval) {
+        CrashWatcher watcher = new CrashWatcher(appPackage, () -> driver.queryAppState(appPackage), pollInterval);
+        String udid = LogcatStreamer.deviceId(driver);
+        if (udid != null) {
+            watcher.streamLogcat(new LogcatStreamer(Arrays.asList("adb", "-s", udid, "logcat", "-v", "epoch",
+                    "-T", "1", "-b", "main,system,crash", "AndroidRuntime:E", "ActivityManager:E", "*:S"),
+                    LOGCAT_CAPACITY));
+        }
+        watcher.start();
+        CURRENT.set(watcher);
+        return watcher;
+    }
+
+    /**
+     * Watcher of the session the calling thread is using, or null
+     */
+    public static CrashWatcher current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Make a watcher the calling thread's, e.g. when the thread takes over another session
+     * @param watcher the watcher, or null for none
+     */
+    public static void bind(CrashWatcher watcher) {
+        if (watcher != null) {
+            CURRENT.set(watcher);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Close the calling thread's watcher
+     */
+    public static void stopCurrent() {
+        CrashWatcher previous = CURRENT.get();
+        CURRENT.remove();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Suspend the current watcher's app state polling, or do nothing if there is no watcher
+     */
+    public static Suspension suspendCurrent() {
+        CrashWatcher watcher = CURRENT.get();
+        return watcher != null ? watcher.suspend() : () -> { };
+    }
+
+    /**
+     * Stop taking the app's state for a crash until the returned handle is closed, e.g. around an
+     * intentional terminateApp. Afterwards the app must be seen running again before its absence
+     * counts. Logcat is still scanned, since stopping an app does not log a fatal exception.
+     */
+    public synchronized Suspension suspend() {
+        if (suspensions++ == 0) {
+            suspension.incrementAndGet();
+        }
+        return new Suspension() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                synchronized (CrashWatcher.this) {
+                    if (!closed) {
+                        closed = true;
+                        if (--suspensions == 0) {
+                            seenRunning = false;
+                            suspension.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Fail fast with the recorded crash, if the current session has one
+     */
+    public static void throwIfCrashed() {
+        CrashWatcher watcher = CURRENT.get();
+        Crash recorded = watcher != null ? watcher.getCrash() : null;
+        if (recorded != null) {
+            throw new AppCrashedException(recorded, null);
+        }
+    }
+
+    /**
+     * Feed the lines of a logcat stream to {@link #onLogLine(String)}
+     */
+    public void streamLogcat(LogcatStreamer streamer) {
+        streamer.addLineListener(this::onLogLine);
+        try {
+            streamer.start();
+            logcat = streamer;
+        } catch (IOException e) {
+            logger.warn("Cannot stream logcat for crash detection, polling app state only: " + e.getMessage());
+        }
+    }
+
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crash-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupt this thread when a crash is detected, typically the thread running the current test
+     */
+    public void watch(Thread thread) {
+        watched.set(thread);
+        if (crash.get() != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Stop interrupting the watched thread and clear an interrupt left by this watcher
+     * @return the crash, or null if none was detected
+     */
+    public Crash unwatch() {
+        synchronized (watched) {
+            Thread thread = watched.getAndSet(null);
+            Crash recorded = crash.get();
+            if (recorded != null && thread == Thread.currentThread()) {
+                Thread.interrupted();
+            }
+            return recorded;
+        }
+    }
+
+    public Crash getCrash() {
+        return crash.get();
+    }
+
+    /**
+     * Check one logcat line. A fatal exception counts once the following "Process:" line names
+     * the app; an ANR counts when the ActivityManager line names it.
+     */
+    public void onLogLine(String line) {
+        if (line.contains("ANR in ") && mentionsApp(line.substring(line.indexOf("ANR in ")))) {
+            fire("logcat", line.trim());
+            return;
+        }
+        if (line.contains("FATAL EXCEPTION")) {
+            pendingFatal = line.trim();
+            return;
+        }
+        if (pendingFatal != null && line.contains("Process: ")) {
+            String fatal = pendingFatal;
+            pendingFatal = null;
+            if (mentionsApp(line.substring(line.indexOf("Process: ")))) {
+                fire("logcat", fatal + " | " + line.substring(line.indexOf("Process: ")).trim());
+            }
+        }
+    }
+
+    private boolean mentionsApp(String text) {
+        return appPackage == null || text.contains(appPackage);
+    }
+
+    private void poll() {
+        Crash recorded = crash.get();
+        if (recorded != null) {
+            interruptWatched();
+            return;
+        }
+        long generation = suspension.get();
+        if (generation % 2 == 1) {
+            return;
+        }
+        try {
+            ApplicationState state = appState.get();
+            if (suspension.get() != generation) {
+                // Suspended while the state was queried; the answer may be an intentional stop
+                return;
+            }
+            if (state == ApplicationState.RUNNING_IN_FOREGROUND || state == ApplicationState.RUNNING_IN_BACKGROUND
+                    || state == ApplicationState.RUNNING_IN_BACKGROUND_SUSPENDED) {
+                seenRunning = true;
+            } else if (seenRunning) {
+                // Only after the app was seen running, so a slow launch is not taken for a crash
+                fire("app state", "app is " + state);
+            }
+        } catch (RuntimeException e) {
+            if (RetryPolicy.classify(e) == RetryPolicy.FailureCause.SESSION_DEAD) {
+                fire("app state", "session lost: " + e.getClass().getSimpleName());
+            } else {
+                logger.debug("App state poll failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void fire(String source, String cause) {
+        Crash detected = new Crash(source, cause, System.currentTimeMillis());
+        if (!crash.compareAndSet(null, detected)) {
+            return;
+        }
+        logger.error("App crash detected: " + detected);
+        CommandLog.record("app crash detected: " + cause);
+        interruptWatched();
+    }
+
+    private void interruptWatched() {
+        synchronized (watched) {
+            Thread thread = watched.get();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        if (logcat != null) {
+            logcat.close();
+            logcat = null;
+        }
+    }
+}
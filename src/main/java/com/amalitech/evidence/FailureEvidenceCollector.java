@@ -0,0 +1,352 @@
+package com.amalitech.evidence;
+
+import com.amalitech.utils.ScreenshotPipeline;
+import com.amalitech.utils.UiSnapshot;
+import io.appium.java_client.android.AndroidDriver;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.logging.LogEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Collects a failure-evidence bundle for a test.
+ * While a test runs only cheap markers are kept: the command log position, the start time used as
+ * the logcat offset and the hash of the last page source the test parsed. Only when the test fails
+ * are page source, screenshot and logcat fetched, in parallel, and written as one zip attached to
+ * Allure. Passing tests never touch the device for evidence.
+ * <p>
+ * The failing test's thread only starts the fetches and reserves the Allure attachment, so the
+ * bundle lands on the right test. The screenshot goes through {@link ScreenshotPipeline}; waiting
+ * for the sources, zipping and writing happen on a background writer, and {@link #drain} waits
+ * for bundles still in progress at the end of the suite.
+ * <p>
+ * Logcat comes from the device's {@link LogcatStreamer} when one is running, otherwise from the
+ * Appium logcat log.
+ */
+public class FailureEvidenceCollector {
+
+    private static final Logger logger = LogManager.getLogger(FailureEvidenceCollector.class);
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+    private static final int LOGCAT_FALLBACK_LINES = 500;
+
+    private static volatile FailureEvidenceCollector instance;
+
+    private final Path outputDirectory;
+    private final ExecutorService fetchers;
+    private final ExecutorService writer;
+    private final Set<CompletableFuture<Path>> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Marker> markers = new ThreadLocal<>();
+
+    /**
+     * Cheap pointers taken when a test starts
+     */
+    private static final class Marker {
+        private final String testId;
+        private final long startMillis;
+        private final long commandPosition;
+
+        private Marker(String testId, long startMillis, long commandPosition) {
+            this.testId = testId;
+            this.startMillis = startMillis;
+            this.commandPosition = commandPosition;
+        }
+    }
+
+    public FailureEvidenceCollector(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchers = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "evidence-fetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "evidence-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static FailureEvidenceCollector getInstance() {
+        FailureEvidenceCollector collector = instance;
+        if (collector == null) {
+            synchronized (FailureEvidenceCollector.class) {
+                collector = instance;
+                if (collector == null) {
+                    collector = new FailureEvidenceCollector(Paths.get("target", "evidence"));
+                    instance = collector;
+                }
+            }
+        }
+        return collector;
+    }
+
+    /**
+     * Mark the start of a test on the current thread
+     */
+    public void testStarted(String testId) {
+        markers.set(new Marker(testId, System.currentTimeMillis(), CommandLog.position()));
+    }
+
+    /**
+     * Drop the marker of a test that finished without needing evidence
+     */
+    public void testFinished() {
+        markers.remove();
+    }
+
+    /**
+     * Start fetching evidence from the session and write the bundle in the background
+     * @return completes with the bundle path, or with null if nothing could be written
+     */
+    public CompletableFuture<Path> collect(AndroidDriver driver, String testId, Throwable failure) {
+        if (driver == null) {
+            return collect(testId, failure, null, null, null);
+        }
+        long since = currentMarker(testId).startMillis;
+        LogcatStreamer streamer = LogcatStreamer.forDevice(LogcatStreamer.deviceId(driver));
+        Supplier<List<String>> logcat = streamer != null
+                ? () -> streamer.slice(since, System.currentTimeMillis())
+                : () -> readLogcat(driver, since);
+        CompletableFuture<String> sourceFuture = fetch(driver::getPageSource);
+        CompletableFuture<List<String>> logcatFuture = fetch(logcat);
+
+        // The pipeline fetches the screenshot on this thread while the other sources are in flight,
+        // then decodes, writes and attaches it in the background
+        ScreenshotPipeline pipeline = ScreenshotPipeline.getInstance();
+        CompletableFuture<byte[]> screenshotFuture = pipeline.isEnabled()
+                ? pipeline.captureFailure(driver, "Failure screenshot - " + testId)
+                        .thenApplyAsync(FailureEvidenceCollector::readScreenshot, fetchers)
+                : fetch(() -> driver.getScreenshotAs(OutputType.BYTES));
+        return bundle(testId, failure, sourceFuture, screenshotFuture, logcatFuture);
+    }
+
+    /**
+     * Fetch the given evidence in parallel and write the bundle in the background. A source that
+     * is null, fails or times out is recorded in the bundle as an error instead.
+     */
+    public CompletableFuture<Path> collect(String testId, Throwable failure, Supplier<String> pageSource,
+                                           Supplier<byte[]> screenshot, Supplier<List<String>> logcat) {
+        return bundle(testId, failure, fetch(pageSource), fetch(screenshot), fetch(logcat));
+    }
+
+    /**
+     * Wait for bundles that are still being written
+     * @return false if the timeout expired first
+     */
+    public boolean drain(Duration timeout) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Failure evidence not written within " + timeout.toMillis() + " ms: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private CompletableFuture<Path> bundle(String testId, Throwable failure, CompletableFuture<String> sourceFuture,
+                                           CompletableFuture<byte[]> screenshotFuture,
+                                           CompletableFuture<List<String>> logcatFuture) {
+        Marker marker = currentMarker(testId);
+        markers.remove();
+        long start = System.nanoTime();
+
+        // Taken on the test thread: the summary reads its last page source hash and the
+        // attachment has to be reserved while the test case is still open
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("summary.txt", utf8(summary(marker, failure)));
+        files.put("commands.txt", utf8(commands(marker)));
+        String attachmentSource = prepareAttachment(testId);
+
+        CompletableFuture<Path> bundle = CompletableFuture.supplyAsync(() -> {
+            String source = await("page source", sourceFuture, files);
+            if (source != null) {
+                files.put("page-source.xml", utf8(source));
+            }
+            byte[] png = await("screenshot", screenshotFuture, files);
+            if (png != null) {
+                files.put("screenshot.png", png);
+            }
+            List<String> logLines = await("logcat", logcatFuture, files);
+            if (logLines != null) {
+                files.put("logcat.txt", utf8(String.join(System.lineSeparator(), logLines)));
+            }
+            try {
+                byte[] zip = zip(files);
+                if (attachmentSource != null) {
+                    Allure.getLifecycle().writeAttachment(attachmentSource, new ByteArrayInputStream(zip));
+                }
+                Path written = write(testId, zip);
+                logger.info("Failure evidence for " + testId + " written to " + written + " in "
+                        + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+                return written;
+            } catch (IOException e) {
+                logger.error("Failed to write failure evidence for " + testId, e);
+                return null;
+            }
+        }, writer);
+        pending.add(bundle);
+        bundle.whenComplete((path, error) -> pending.remove(bundle));
+        return bundle;
+    }
+
+    private Marker currentMarker(String testId) {
+        Marker marker = markers.get();
+        if (marker == null || !marker.testId.equals(testId)) {
+            // No start marker, e.g. a configuration failure: keep only what is still in the buffers
+            marker = new Marker(testId, System.currentTimeMillis() - FETCH_TIMEOUT.toMillis(),
+                    Math.max(0, CommandLog.position() - 50));
+        }
+        return marker;
+    }
+
+    private <T> CompletableFuture<T> fetch(Supplier<T> source) {
+        if (source == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(source, fetchers);
+    }
+
+    private static <T> T await(String name, CompletableFuture<T> future, Map<String, byte[]> files) {
+        try {
+            return future.get(FETCH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            files.put(name.replace(' ', '-') + ".error.txt", utf8("Interrupted while fetching " + name));
+        } catch (ExecutionException e) {
+            files.put(name.replace(' ', '-') + ".error.txt", utf8(stackTrace(e.getCause())));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            files.put(name.replace(' ', '-') + ".error.txt",
+                    utf8("Timed out after " + FETCH_TIMEOUT.toMillis() + " ms fetching " + name));
+        }
+        return null;
+    }
+
+    /**
+     * Logcat lines since the test started. The device clock can drift from the host, so when the
+     * time filter leaves nothing the tail of the buffer is kept instead.
+     */
+    private static List<String> readLogcat(AndroidDriver driver, long sinceMillis) {
+        List<LogEntry> entries = driver.manage().logs().get("logcat").getAll();
+        List<String> lines = new ArrayList<>();
+        for (LogEntry entry : entries) {
+            if (entry.getTimestamp() >= sinceMillis) {
+                lines.add(entry.getMessage());
+            }
+        }
+        if (lines.isEmpty()) {
+            for (int i = Math.max(0, entries.size() - LOGCAT_FALLBACK_LINES); i < entries.size(); i++) {
+                lines.add(entries.get(i).getMessage());
+            }
+        }
+        return lines;
+    }
+
+    private static String summary(Marker marker, Throwable failure) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("test: ").append(marker.testId).append(System.lineSeparator());
+        summary.append("started: ").append(Instant.ofEpochMilli(marker.startMillis)).append(System.lineSeparator());
+        summary.append("failed: ").append(Instant.now()).append(System.lineSeparator());
+        summary.append("last page source hash: ").append(Integer.toHexString(UiSnapshot.getLastCaptureHash()))
+                .append(System.lineSeparator());
+        if (failure != null) {
+            summary.append(System.lineSeparator()).append(stackTrace(failure));
+        }
+        return summary.toString();
+    }
+
+    private static String commands(Marker marker) {
+        StringBuilder commands = new StringBuilder();
+        for (CommandLog.Entry entry : CommandLog.since(marker.commandPosition)) {
+            commands.append(entry).append(System.lineSeparator());
+        }
+        return commands.toString();
+    }
+
+    private static byte[] zip(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path write(String testId, byte[] zip) throws IOException {
+        Files.createDirectories(outputDirectory);
+        Path bundle = outputDirectory.resolve(testId.replaceAll("[^A-Za-z0-9._-]", "_")
+                + "_" + System.currentTimeMillis() + ".zip");
+        Path temp = bundle.resolveSibling(bundle.getFileName() + ".tmp");
+        Files.write(temp, zip);
+        Files.move(temp, bundle, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bundle;
+    }
+
+    private static String prepareAttachment(String testId) {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        if (!lifecycle.getCurrentTestCaseOrStep().isPresent()) {
+            return null;
+        }
+        return lifecycle.prepareAttachment("Failure evidence - " + testId, "application/zip", ".zip");
+    }
+
+    private static byte[] readScreenshot(Path file) {
+        if (file == null) {
+            throw new IllegalStateException("Failure screenshot was dropped or not written, see the log");
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String stackTrace(Throwable failure) {
+        StringWriter trace = new StringWriter();
+        failure.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+}
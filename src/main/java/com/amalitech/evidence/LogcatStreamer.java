@@ -0,0 +1,434 @@
+package com.amalitech.evidence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams logcat from a background process into a fixed-size byte ring buffer.
+ * Memory stays constant however long the run is: the reader copies raw bytes into one
+ * preallocated array and the oldest output is overwritten. Lines are only decoded when a
+ * time-windowed slice is requested, typically when a test fails.
+ * <p>
+ * Devices are streamed with {@code adb logcat -v epoch --pid <app pid>}, so every line starts with
+ * its epoch timestamp; {@code -v threadtime} lines are understood as well. The app's PID is checked
+ * in the background and the stream is restarted into the same buffer when the app is relaunched,
+ * e.g. by terminateApp and activateApp, since --pid would keep following the dead process.
+ * <p>
+ * Line listeners see each complete line as it arrives, on the reader thread, for consumers that
+ * must react immediately rather than slice the buffer later.
+ */
+public class LogcatStreamer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(LogcatStreamer.class);
+    private static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+    private static final Pattern EPOCH = Pattern.compile("^\\s*(\\d{9,})\\.(\\d{3})");
+    private static final Pattern THREADTIME = Pattern.compile(
+            "^(\\d{2})-(\\d{2}) (\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{3})");
+    private static final Map<String, LogcatStreamer> DEVICES = new ConcurrentHashMap<>();
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final Duration PID_CHECK_INTERVAL = Duration.ofSeconds(2);
+
+    private List<String> command;
+    private final byte[] ring;
+    private final List<Consumer<String>> lineListeners = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream pendingLine = new ByteArrayOutputStream();
+    private long written;
+    private Process process;
+    private Thread reader;
+    private boolean closed;
+    private ScheduledExecutorService pidCheck;
+
+    /**
+     * @param command process whose standard output is logcat-formatted text
+     * @param capacityBytes size of the ring buffer
+     */
+    public LogcatStreamer(List<String> command, int capacityBytes) {
+        this.command = command;
+        this.ring = new byte[capacityBytes];
+    }
+
+    /**
+     * Start streaming the app's logcat on a device, replacing any previous streamer for it.
+     * Returns null if adb or the app process is not available.
+     */
+    public static LogcatStreamer startForDevice(String udid, String appPackage) {
+        stopForDevice(udid);
+        String pid = appPid(udid, appPackage);
+        if (pid == null) {
+            logger.warn("No running process for " + appPackage + " on " + udid + ", streaming full logcat");
+        }
+        LogcatStreamer streamer = new LogcatStreamer(appCommand(udid, pid, "1"), DEFAULT_CAPACITY);
+        try {
+            streamer.start();
+        } catch (IOException e) {
+            logger.warn("Cannot stream logcat for " + udid + ": " + e.getMessage());
+            return null;
+        }
+        streamer.followPid(udid, appPackage, pid);
+        DEVICES.put(udid, streamer);
+        return streamer;
+    }
+
+    private static List<String> appCommand(String udid, String pid, String since) {
+        List<String> command = new ArrayList<>(Arrays.asList("adb", "-s", udid, "logcat", "-v", "epoch", "-T", since));
+        if (pid != null) {
+            command.add("--pid=" + pid);
+        }
+        return command;
+    }
+
+    /**
+     * Restart the stream whenever the app runs under a new PID. The new stream starts at the last
+     * line already buffered, so the first lines of the relaunched process are kept.
+     */
+    private void followPid(String udid, String appPackage, String initialPid) {
+        String[] followed = {initialPid};
+        ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "logcat-pid-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (this) {
+            if (closed) {
+                checker.shutdownNow();
+                return;
+            }
+            pidCheck = checker;
+        }
+        checker.scheduleWithFixedDelay(() -> {
+            String pid = appPid(udid, appPackage);
+            if (pid == null || pid.equals(followed[0])) {
+                return;
+            }
+            followed[0] = pid;
+            try {
+                restart(appCommand(udid, pid, since()));
+                logger.info("App " + appPackage + " on " + udid + " restarted as PID " + pid + ", logcat follows it");
+            } catch (IOException e) {
+                logger.warn("Cannot restart logcat for " + udid + ": " + e.getMessage());
+            }
+        }, PID_CHECK_INTERVAL.toMillis(), PID_CHECK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Timestamp of the newest buffered line as a logcat -T argument, or "1" for just the last line
+     */
+    private String since() {
+        List<String> lines = lines();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            long timestamp = timestamp(lines.get(i));
+            if (timestamp != Long.MIN_VALUE) {
+                return String.format("%d.%03d", timestamp / 1000, timestamp % 1000);
+            }
+        }
+        return "1";
+    }
+
+    /**
+     * Running streamer of a device, or null
+     */
+    public static LogcatStreamer forDevice(String udid) {
+        return udid != null ? DEVICES.get(udid) : null;
+    }
+
+    /**
+     * Device serial of a session, as used by adb -s: the udid capability, the deviceUDID
+     * reported by UiAutomator2, or the device name
+     */
+    public static String deviceId(HasCapabilities driver) {
+        Capabilities caps = driver.getCapabilities();
+        for (String name : new String[]{"appium:udid", "udid", "deviceUDID", "appium:deviceName", "deviceName"}) {
+            Object value = caps.getCapability(name);
+            if (value != null && !value.toString().isEmpty()) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    public static void stopForDevice(String udid) {
+        LogcatStreamer previous = udid != null ? DEVICES.remove(udid) : null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Receive every complete line from now on. Listeners run on the reader thread and must be quick.
+     */
+    public void addLineListener(Consumer<String> listener) {
+        lineListeners.add(listener);
+    }
+
+    public synchronized void start() throws IOException {
+        if (process != null || closed) {
+            return;
+        }
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        InputStream output = process.getInputStream();
+        reader = new Thread(() -> pump(output), "logcat-reader");
+        reader.setDaemon(true);
+        reader.start();
+        logger.info("Streaming logcat: " + String.join(" ", command));
+    }
+
+    /**
+     * Replace the logcat process with a new command, keeping everything already buffered
+     */
+    void restart(List<String> newCommand) throws IOException {
+        Thread previous;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+            previous = reader;
+        }
+        // The old reader appends under this lock, so wait for it outside
+        if (previous != null) {
+            try {
+                previous.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            command = newCommand;
+            pendingLine.reset();
+            start();
+        }
+    }
+
+    public boolean isRunning() {
+        Process current = process;
+        return current != null && current.isAlive();
+    }
+
+    /**
+     * Wait for the process to exit and its output to be buffered, e.g. for finite test sources
+     */
+    public boolean awaitEnd(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread current = reader;
+        if (current == null) {
+            return true;
+        }
+        current.join(unit.toMillis(timeout));
+        return !current.isAlive();
+    }
+
+    private void pump(InputStream output) {
+        byte[] chunk = new byte[8192];
+        try {
+            int read;
+            while ((read = output.read(chunk)) != -1) {
+                append(chunk, read);
+                if (!lineListeners.isEmpty()) {
+                    dispatchLines(chunk, read);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Logcat stream closed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Split a chunk into lines for the listeners, carrying an unfinished line over to the next chunk
+     */
+    private void dispatchLines(byte[] chunk, int length) {
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (chunk[i] != '\n') {
+                continue;
+            }
+            pendingLine.write(chunk, lineStart, i - lineStart);
+            String line = new String(pendingLine.toByteArray(), StandardCharsets.UTF_8);
+            pendingLine.reset();
+            lineStart = i + 1;
+            for (Consumer<String> listener : lineListeners) {
+                try {
+                    listener.accept(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+                } catch (RuntimeException e) {
+                    logger.warn("Logcat line listener failed: " + e.getMessage());
+                }
+            }
+        }
+        if (pendingLine.size() + length - lineStart <= MAX_LINE_BYTES) {
+            pendingLine.write(chunk, lineStart, length - lineStart);
+        }
+    }
+
+    private synchronized void append(byte[] chunk, int length) {
+        int offset = 0;
+        if (length > ring.length) {
+            offset = length - ring.length;
+            written += offset;
+        }
+        while (offset < length) {
+            int position = (int) (written % ring.length);
+            int count = Math.min(length - offset, ring.length - position);
+            System.arraycopy(chunk, offset, ring, position, count);
+            offset += count;
+            written += count;
+        }
+    }
+
+    /**
+     * Bytes currently held, oldest first. Once the ring has wrapped, the line cut by the
+     * overwrite is skipped.
+     */
+    private synchronized byte[] contents() {
+        int size = (int) Math.min(written, ring.length);
+        byte[] copy = new byte[size];
+        int start = (int) ((written - size) % ring.length);
+        int first = Math.min(size, ring.length - start);
+        System.arraycopy(ring, start, copy, 0, first);
+        System.arraycopy(ring, 0, copy, first, size - first);
+        if (written <= ring.length) {
+            return copy;
+        }
+        int lineStart = 0;
+        while (lineStart < size && copy[lineStart++] != '\n') {
+            // skip the partial line
+        }
+        return Arrays.copyOfRange(copy, lineStart, size);
+    }
+
+    /**
+     * Complete lines held in the buffer, oldest first
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader text = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(contents()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = text.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read logcat buffer", e);
+        }
+        return lines;
+    }
+
+    /**
+     * Lines logged between two instants. Lines without a timestamp, such as stack trace
+     * continuations, belong to the line before them.
+     */
+    public List<String> slice(long fromMillis, long toMillis) {
+        List<String> slice = new ArrayList<>();
+        long current = Long.MIN_VALUE;
+        for (String line : lines()) {
+            long timestamp = timestamp(line);
+            if (timestamp != Long.MIN_VALUE) {
+                current = timestamp;
+            }
+            if (current >= fromMillis && current <= toMillis) {
+                slice.add(line);
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * Write the lines logged between two instants to a file
+     * @return number of lines written
+     */
+    public int flush(Path file, long fromMillis, long toMillis) throws IOException {
+        List<String> slice = slice(fromMillis, toMillis);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, slice, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return slice.size();
+    }
+
+    /**
+     * Total bytes received since start, including those already overwritten
+     */
+    public synchronized long getBytesReceived() {
+        return written;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (pidCheck != null) {
+            pidCheck.shutdownNow();
+            pidCheck = null;
+        }
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+    }
+
+    /**
+     * Epoch millis of a logcat line, or Long.MIN_VALUE if it has none.
+     * threadtime lines carry no year, so the current year in the local zone is assumed.
+     */
+    static long timestamp(String line) {
+        Matcher epoch = EPOCH.matcher(line);
+        if (epoch.find()) {
+            return Long.parseLong(epoch.group(1)) * 1000 + Integer.parseInt(epoch.group(2));
+        }
+        Matcher threadtime = THREADTIME.matcher(line);
+        if (threadtime.find()) {
+            LocalDateTime time = LocalDateTime.of(Year.now().getValue(),
+                    Integer.parseInt(threadtime.group(1)), Integer.parseInt(threadtime.group(2)),
+                    Integer.parseInt(threadtime.group(3)), Integer.parseInt(threadtime.group(4)),
+                    Integer.parseInt(threadtime.group(5)), Integer.parseInt(threadtime.group(6)) * 1_000_000);
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static String appPid(String udid, String appPackage) {
+        try {
+            Process pidof = new ProcessBuilder("adb", "-s", udid, "shell", "pidof", appPackage)
+                    .redirectErrorStream(true).start();
+            byte[] output = pidof.getInputStream().readAllBytes();
+            if (!pidof.waitFor(5, TimeUnit.SECONDS) || pidof.exitValue() != 0) {
+                return null;
+            }
+            String pid = new String(output, StandardCharsets.UTF_8).trim();
+            return pid.matches("\\d+") ? pid : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
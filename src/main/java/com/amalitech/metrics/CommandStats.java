@@ -0,0 +1,92 @@
+package com.amalitech.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, payload size and error counts per WebDriver command, e.g. "findElement by accessibility id"
+ */
+public class CommandStats {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Aggregates of one command
+     */
+    public static final class Entry {
+        private final String command;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder payloadBytes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private Entry(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getPayloadBytes() {
+            return payloadBytes.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+
+    public void record(String command, long nanos, long payloadBytes, boolean failed) {
+        Entry entry = entries.computeIfAbsent(command, Entry::new);
+        entry.latency.record(nanos / 1000);
+        entry.payloadBytes.add(payloadBytes);
+        if (failed) {
+            entry.errors.increment();
+        }
+    }
+
+    public Entry get(String command) {
+        return entries.get(command);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Entries with the largest total time first
+     */
+    public List<Entry> getEntries() {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingDouble((Entry entry) ->
+                entry.latency.getMeanMicros() * entry.latency.getCount()).reversed());
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * One line per command: count, p50/p95/p99/max in ms, mean payload and errors
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%-48s %6s %9s %9s %9s %9s %9s %6s%n",
+                "command", "count", "p50_ms", "p95_ms", "p99_ms", "max_ms", "avg_bytes", "errors"));
+        for (Entry entry : getEntries()) {
+            LatencyHistogram latency = entry.latency;
+            summary.append(String.format("%-48s %6d %9.1f %9.1f %9.1f %9.1f %9d %6d%n",
+                    entry.command, latency.getCount(),
+                    latency.getPercentileMicros(50) / 1000.0, latency.getPercentileMicros(95) / 1000.0,
+                    latency.getPercentileMicros(99) / 1000.0, latency.getMaxMicros() / 1000.0,
+                    latency.getCount() == 0 ? 0 : entry.getPayloadBytes() / latency.getCount(),
+                    entry.getErrors()));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * One Java Flight Recorder recording per run, written as a single .jfr file.
+ * The JDK "profile" settings add CPU samples and allocation profiling to the framework's own
+ * events ({@link PageActionEvent}, {@link WaitEvent}, {@link SessionCreateEvent},
+ * {@link SessionQuitEvent} and {@link TestEvent}), so both line up on one time axis.
+ * Without a recording the events are disabled and cost a field check.
+ */
+public class FlightRecording implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(FlightRecording.class);
+
+    private final Recording recording;
+    private final Path file;
+
+    private FlightRecording(Recording recording, Path file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    /**
+     * Start recording into a timestamped file in the directory
+     * @param settings JDK settings name, "default" or "profile"
+     */
+    public static FlightRecording start(Path directory, String settings) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR settings " + settings, e);
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve("run-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".jfr");
+        Recording recording = new Recording(configuration);
+        recording.setName("appium-tests");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        for (Class<? extends Event> event : Arrays.asList(PageActionEvent.class, WaitEvent.class,
+                SessionCreateEvent.class, SessionQuitEvent.class, TestEvent.class)) {
+            recording.enable(event).withThreshold(Duration.ZERO);
+        }
+        recording.start();
+        logger.info("Flight recording to " + file.toAbsolutePath());
+        return new FlightRecording(recording, file);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Stop the recording and write the file
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+        logger.info("Flight recording written to " + file.toAbsolutePath());
+    }
+}
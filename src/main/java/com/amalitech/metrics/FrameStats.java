@@ -0,0 +1,78 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Frame statistics of an app as reported by {@code dumpsys gfxinfo <package>} since its last reset.
+ * Only the process-wide summary at the top of the output is read; the per-window and GPU sections
+ * further down repeat similar lines and are ignored.
+ */
+public class FrameStats {
+
+    private static final Pattern TOTAL_FRAMES = Pattern.compile("Total frames rendered:\\s+(\\d+)");
+    private static final Pattern JANKY_FRAMES = Pattern.compile("Janky frames:\\s+(\\d+)");
+    private static final Pattern PERCENTILE = Pattern.compile("(?m)^\\s*(\\d+)th percentile:\\s+(\\d+)ms");
+
+    private final long frames;
+    private final long jankyFrames;
+    private final Map<Integer, Duration> percentiles;
+
+    public FrameStats(long frames, long jankyFrames, Map<Integer, Duration> percentiles) {
+        this.frames = frames;
+        this.jankyFrames = jankyFrames;
+        this.percentiles = Collections.unmodifiableMap(new TreeMap<>(percentiles));
+    }
+
+    public static FrameStats parse(String gfxinfo) {
+        Matcher total = TOTAL_FRAMES.matcher(gfxinfo);
+        Matcher janky = JANKY_FRAMES.matcher(gfxinfo);
+        Map<Integer, Duration> percentiles = new TreeMap<>();
+        Matcher percentile = PERCENTILE.matcher(gfxinfo);
+        while (percentile.find()) {
+            percentiles.putIfAbsent(Integer.parseInt(percentile.group(1)),
+                    Duration.ofMillis(Long.parseLong(percentile.group(2))));
+        }
+        return new FrameStats(total.find() ? Long.parseLong(total.group(1)) : 0,
+                janky.find() ? Long.parseLong(janky.group(1)) : 0, percentiles);
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getJankyFrames() {
+        return jankyFrames;
+    }
+
+    /**
+     * Janky frames as a percentage of all frames, zero if nothing was rendered
+     */
+    public double getJankPercent() {
+        return frames == 0 ? 0 : 100.0 * jankyFrames / frames;
+    }
+
+    /**
+     * Frame time at a percentile gfxinfo reports (50, 90, 95 or 99), or null if it reported none
+     */
+    public Duration getPercentile(int percentile) {
+        return percentiles.get(percentile);
+    }
+
+    public Map<Integer, Duration> getPercentiles() {
+        return percentiles;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("%d frames, %d janky (%.1f%%)",
+                frames, jankyFrames, getJankPercent()));
+        percentiles.forEach((percentile, time) ->
+                text.append(", p").append(percentile).append('=').append(time.toMillis()).append("ms"));
+        return text.toString();
+    }
+}
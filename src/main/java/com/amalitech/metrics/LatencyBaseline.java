@@ -0,0 +1,245 @@
+package com.amalitech.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw latency samples of a benchmark run, stored as JSON so a later run can be compared against
+ * them. Keeping every sample rather than a summary lets the comparison test for significance
+ * with {@link LatencyComparison} instead of judging a single number. Unitless per-run values,
+ * such as the share of janky frames, can be stored next to the latency samples as ratios.
+ */
+public class LatencyBaseline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, String> attributes;
+    private final Map<String, List<Duration>> samples;
+    private final Map<String, List<Double>> ratios;
+
+    /**
+     * Result of comparing one metric against the baseline
+     */
+    public static final class Check {
+        private final LatencyComparison comparison;
+        private final double medianChange;
+        private final boolean regressed;
+
+        private Check(LatencyComparison comparison, double tolerance, double alpha) {
+            this.comparison = comparison;
+            long baselineMedian = comparison.getBaselineMedian().toNanos();
+            this.medianChange = baselineMedian == 0 ? 0
+                    : (double) (comparison.getCandidateMedian().toNanos() - baselineMedian) / baselineMedian;
+            this.regressed = comparison.isSlower(alpha) && medianChange > tolerance;
+        }
+
+        public LatencyComparison getComparison() {
+            return comparison;
+        }
+
+        /**
+         * Relative change of the median, e.g. 0.25 for 25% slower
+         */
+        public double getMedianChange() {
+            return medianChange;
+        }
+
+        /**
+         * Significantly slower and the median grew by more than the tolerance
+         */
+        public boolean isRegressed() {
+            return regressed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, median %+.1f%%%s", comparison, medianChange * 100, regressed ? " REGRESSED" : "");
+        }
+    }
+
+    /**
+     * Result of comparing the median of one ratio against the baseline
+     */
+    public static final class RatioCheck {
+        private final String metric;
+        private final double baselineMedian;
+        private final double currentMedian;
+        private final boolean regressed;
+
+        private RatioCheck(String metric, List<Double> baseline, List<Double> current, double tolerance) {
+            this.metric = metric;
+            this.baselineMedian = median(baseline);
+            this.currentMedian = median(current);
+            this.regressed = currentMedian - baselineMedian > tolerance;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public double getBaselineMedian() {
+            return baselineMedian;
+        }
+
+        public double getCurrentMedian() {
+            return currentMedian;
+        }
+
+        /**
+         * The median rose by more than the tolerance
+         */
+        public boolean isRegressed() {
+            return regressed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: median %.2f -> %.2f (%+.2f)%s", metric, baselineMedian, currentMedian,
+                    currentMedian - baselineMedian, regressed ? " REGRESSED" : "");
+        }
+    }
+
+    /**
+     * @param attributes context of the run, e.g. device and app version
+     * @param samples metric name to samples, in report order
+     */
+    public LatencyBaseline(Map<String, String> attributes, Map<String, List<Duration>> samples) {
+        this(attributes, samples, Collections.emptyMap());
+    }
+
+    /**
+     * @param ratios metric name to unitless per-run values, e.g. janky frame percentages
+     */
+    public LatencyBaseline(Map<String, String> attributes, Map<String, List<Duration>> samples,
+                           Map<String, List<Double>> ratios) {
+        this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        this.samples = Collections.unmodifiableMap(new LinkedHashMap<>(samples));
+        this.ratios = Collections.unmodifiableMap(new LinkedHashMap<>(ratios));
+    }
+
+    public static LatencyBaseline read(Path file) throws IOException {
+        JsonNode root = MAPPER.readTree(file.toFile());
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = root.path("attributes").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            attributes.put(field.getKey(), field.getValue().asText());
+        }
+        Map<String, List<Duration>> samples = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> metrics = root.path("samplesMillis").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            List<Duration> values = new ArrayList<>();
+            for (JsonNode value : metric.getValue()) {
+                values.add(Duration.ofNanos(Math.round(value.asDouble() * 1e6)));
+            }
+            samples.put(metric.getKey(), values);
+        }
+        Map<String, List<Double>> ratios = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> ratioFields = root.path("ratios").fields();
+        while (ratioFields.hasNext()) {
+            Map.Entry<String, JsonNode> metric = ratioFields.next();
+            List<Double> values = new ArrayList<>();
+            for (JsonNode value : metric.getValue()) {
+                values.add(value.asDouble());
+            }
+            ratios.put(metric.getKey(), values);
+        }
+        return new LatencyBaseline(attributes, samples, ratios);
+    }
+
+    /**
+     * Write the samples in milliseconds, replacing the file atomically
+     */
+    public void write(Path file) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("recordedAt", Instant.now().toString());
+        ObjectNode attributeNode = root.putObject("attributes");
+        attributes.forEach(attributeNode::put);
+        ObjectNode samplesNode = root.putObject("samplesMillis");
+        for (Map.Entry<String, List<Duration>> metric : samples.entrySet()) {
+            ArrayNode values = samplesNode.putArray(metric.getKey());
+            for (Duration sample : metric.getValue()) {
+                values.add(sample.toNanos() / 1e6);
+            }
+        }
+        if (!ratios.isEmpty()) {
+            ObjectNode ratiosNode = root.putObject("ratios");
+            for (Map.Entry<String, List<Double>> metric : ratios.entrySet()) {
+                ArrayNode values = ratiosNode.putArray(metric.getKey());
+                metric.getValue().forEach(values::add);
+            }
+        }
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), root);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public Map<String, List<Duration>> getSamples() {
+        return samples;
+    }
+
+    public Map<String, List<Double>> getRatios() {
+        return ratios;
+    }
+
+    /**
+     * Compare every metric present in both runs, treating this as the baseline
+     * @param tolerance relative median increase accepted even when significant, e.g. 0.1
+     * @param alpha significance level of the Mann-Whitney test
+     */
+    public List<Check> compare(LatencyBaseline current, double tolerance, double alpha) {
+        List<Check> checks = new ArrayList<>();
+        for (Map.Entry<String, List<Duration>> metric : samples.entrySet()) {
+            List<Duration> candidate = current.samples.get(metric.getKey());
+            if (candidate != null && !candidate.isEmpty() && !metric.getValue().isEmpty()) {
+                checks.add(new Check(LatencyComparison.compare(metric.getKey(), metric.getValue(), candidate),
+                        tolerance, alpha));
+            }
+        }
+        return checks;
+    }
+
+    /**
+     * Compare the median of every ratio present in both runs, treating this as the baseline
+     * @param tolerance absolute increase of the median accepted, in the ratio's own unit
+     */
+    public List<RatioCheck> compareRatios(LatencyBaseline current, double tolerance) {
+        List<RatioCheck> checks = new ArrayList<>();
+        for (Map.Entry<String, List<Double>> metric : ratios.entrySet()) {
+            List<Double> candidate = current.ratios.get(metric.getKey());
+            if (candidate != null && !candidate.isEmpty() && !metric.getValue().isEmpty()) {
+                checks.add(new RatioCheck(metric.getKey(), metric.getValue(), candidate, tolerance));
+            }
+        }
+        return checks;
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+}
@@ -0,0 +1,242 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the latency samples of one step between a baseline and a candidate, e.g. the
+ * standard user against the performance glitch user.
+ * The delta distribution is the set of all pairwise differences candidate - baseline; its median
+ * is the Hodges-Lehmann shift estimate. Significance comes from a two-sided Mann-Whitney U test,
+ * which assumes nothing about the shape of latency distributions: exact for small samples
+ * without ties, otherwise the normal approximation with tie and continuity correction.
+ */
+public class LatencyComparison {
+
+    private static final int EXACT_MAX_SAMPLES = 40;
+
+    private final String step;
+    private final long[] baseline;
+    private final long[] candidate;
+    private final long[] deltas;
+    private final double u;
+    private final double pValue;
+
+    private LatencyComparison(String step, long[] baseline, long[] candidate) {
+        this.step = step;
+        this.baseline = baseline;
+        this.candidate = candidate;
+        this.deltas = new long[baseline.length * candidate.length];
+        int index = 0;
+        double wins = 0;
+        for (long b : baseline) {
+            for (long c : candidate) {
+                deltas[index++] = c - b;
+                wins += c > b ? 1 : c == b ? 0.5 : 0;
+            }
+        }
+        Arrays.sort(deltas);
+        this.u = wins;
+        this.pValue = pValue(baseline, candidate, wins);
+    }
+
+    /**
+     * @throws IllegalArgumentException if either side has no samples
+     */
+    public static LatencyComparison compare(String step, List<Duration> baseline, List<Duration> candidate) {
+        if (baseline.isEmpty() || candidate.isEmpty()) {
+            throw new IllegalArgumentException("No samples to compare for " + step + ": baseline="
+                    + baseline.size() + " candidate=" + candidate.size());
+        }
+        return new LatencyComparison(step, micros(baseline), micros(candidate));
+    }
+
+    public String getStep() {
+        return step;
+    }
+
+    public int getBaselineCount() {
+        return baseline.length;
+    }
+
+    public int getCandidateCount() {
+        return candidate.length;
+    }
+
+    public Duration getBaselineMedian() {
+        return Duration.ofNanos(median(baseline) * 1000);
+    }
+
+    public Duration getCandidateMedian() {
+        return Duration.ofNanos(median(candidate) * 1000);
+    }
+
+    /**
+     * Percentile (0-100) of the pairwise differences candidate - baseline
+     */
+    public Duration getDeltaPercentile(double percentile) {
+        int rank = (int) Math.ceil(deltas.length * Math.min(100, Math.max(0, percentile)) / 100.0);
+        return Duration.ofNanos(deltas[Math.max(0, rank - 1)] * 1000);
+    }
+
+    /**
+     * Hodges-Lehmann estimate of how much slower the candidate is; negative when faster
+     */
+    public Duration getShift() {
+        return Duration.ofNanos(median(deltas) * 1000);
+    }
+
+    /**
+     * Probability that a random candidate sample is slower than a random baseline sample, ties counting half
+     */
+    public double getProbabilitySlower() {
+        return u / deltas.length;
+    }
+
+    public double getU() {
+        return u;
+    }
+
+    /**
+     * Two-sided p-value of the Mann-Whitney U test
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    public boolean isSignificant(double alpha) {
+        return pValue < alpha;
+    }
+
+    /**
+     * Candidate significantly slower than the baseline
+     */
+    public boolean isSlower(double alpha) {
+        return isSignificant(alpha) && getShift().compareTo(Duration.ZERO) > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d/%d median %d -> %d ms, shift %+d ms, p=%.4f", step, baseline.length,
+                candidate.length, getBaselineMedian().toMillis(), getCandidateMedian().toMillis(),
+                getShift().toMillis(), pValue);
+    }
+
+    /**
+     * One row per step: sample counts, medians, the delta distribution and the test result
+     */
+    public static String table(List<LatencyComparison> comparisons, double alpha) {
+        StringBuilder table = new StringBuilder(String.format("%-44s %5s %5s %9s %9s %9s %9s %9s %8s %6s %s%n",
+                "step", "n_b", "n_c", "base_p50", "cand_p50", "delta_p5", "delta_p50", "delta_p95", "p_value",
+                "P(c>b)", "result"));
+        for (LatencyComparison comparison : comparisons) {
+            table.append(String.format("%-44s %5d %5d %9.1f %9.1f %9.1f %9.1f %9.1f %8.4f %6.2f %s%n",
+                    comparison.step, comparison.baseline.length, comparison.candidate.length,
+                    millis(comparison.getBaselineMedian()), millis(comparison.getCandidateMedian()),
+                    millis(comparison.getDeltaPercentile(5)), millis(comparison.getShift()),
+                    millis(comparison.getDeltaPercentile(95)), comparison.pValue, comparison.getProbabilitySlower(),
+                    comparison.isSlower(alpha) ? "SLOWER" : comparison.isSignificant(alpha) ? "FASTER" : "same"));
+        }
+        return table.toString();
+    }
+
+    private static double pValue(long[] baseline, long[] candidate, double u) {
+        int n1 = baseline.length;
+        int n2 = candidate.length;
+        long[] pooled = new long[n1 + n2];
+        System.arraycopy(baseline, 0, pooled, 0, n1);
+        System.arraycopy(candidate, 0, pooled, n1, n2);
+        Arrays.sort(pooled);
+        double tieTerm = 0;
+        for (int i = 0; i < pooled.length; ) {
+            int j = i;
+            while (j < pooled.length && pooled[j] == pooled[i]) {
+                j++;
+            }
+            double t = j - i;
+            tieTerm += t * t * t - t;
+            i = j;
+        }
+        if (tieTerm == 0 && n1 + n2 <= EXACT_MAX_SAMPLES) {
+            return exactPValue(n1, n2, (long) u);
+        }
+        int n = n1 + n2;
+        double mean = n1 * (double) n2 / 2;
+        double variance = n1 * (double) n2 / 12 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = Math.max(0, Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1, erfc(z / Math.sqrt(2)));
+    }
+
+    /**
+     * Two-sided p-value from the exact null distribution of U, counted by the recurrence
+     * N(m, n, u) = N(m - 1, n, u - n) + N(m, n - 1, u)
+     */
+    private static double exactPValue(int n1, int n2, long u) {
+        double[][][] counts = new double[n1 + 1][n2 + 1][];
+        for (int m = 0; m <= n1; m++) {
+            for (int n = 0; n <= n2; n++) {
+                double[] current = new double[m * n + 1];
+                if (m == 0 || n == 0) {
+                    current[0] = 1;
+                } else {
+                    double[] fewerBaseline = counts[m - 1][n];
+                    double[] fewerCandidate = counts[m][n - 1];
+                    for (int value = 0; value < current.length; value++) {
+                        current[value] = (value < fewerCandidate.length ? fewerCandidate[value] : 0)
+                                + (value >= n && value - n < fewerBaseline.length ? fewerBaseline[value - n] : 0);
+                    }
+                }
+                counts[m][n] = current;
+            }
+        }
+        double[] distribution = counts[n1][n2];
+        double total = 0;
+        double atOrBelow = 0;
+        double atOrAbove = 0;
+        for (int value = 0; value < distribution.length; value++) {
+            total += distribution[value];
+            if (value <= u) {
+                atOrBelow += distribution[value];
+            }
+            if (value >= u) {
+                atOrAbove += distribution[value];
+            }
+        }
+        return Math.min(1, 2 * Math.min(atOrBelow, atOrAbove) / total);
+    }
+
+    /**
+     * Complementary error function, Numerical Recipes erfcc, accurate to 1.2e-7
+     */
+    static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double result = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2 - result;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static long[] micros(List<Duration> samples) {
+        long[] micros = new long[samples.size()];
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = samples.get(i).toNanos() / 1000;
+        }
+        return micros;
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+}
@@ -0,0 +1,88 @@
+package com.amalitech.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes a {@link MetricsRegistry} to prometheusData.txt and influxDbData.txt,
+ * the file names Allure uses for its export. Each file is written to a temporary file and moved
+ * into place, so a collector polling the directory never reads half a file.
+ */
+public class MetricsExporter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MetricsExporter.class);
+    public static final String PROMETHEUS_FILE = "prometheusData.txt";
+    public static final String INFLUX_FILE = "influxDbData.txt";
+
+    private final MetricsRegistry registry;
+    private final Path directory;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsExporter(MetricsRegistry registry, Path directory, Duration interval) {
+        this.registry = registry;
+        this.directory = directory;
+        this.interval = interval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        logger.info("Exporting metrics to " + directory.toAbsolutePath() + " every " + interval.getSeconds() + "s");
+    }
+
+    /**
+     * Write both files now
+     */
+    public synchronized void write() throws IOException {
+        Files.createDirectories(directory);
+        writeAtomically(directory.resolve(PROMETHEUS_FILE), registry.toPrometheus());
+        writeAtomically(directory.resolve(INFLUX_FILE), registry.toInfluxLineProtocol(System.currentTimeMillis()));
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to export metrics: " + e.getMessage());
+        }
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stop the schedule and write a final snapshot
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        writeQuietly();
+    }
+}
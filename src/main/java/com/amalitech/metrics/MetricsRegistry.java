@@ -0,0 +1,233 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of framework and app performance metrics.
+ * Timers are {@link LatencyHistogram}s, counters are LongAdders and gauges are read when exported,
+ * so recording never blocks. Metrics are identified by name and label pairs and rendered in the
+ * Prometheus text format and the InfluxDB line protocol, the formats of Allure's own export.
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private enum Type {
+        TIMER("summary"),
+        COUNTER("counter"),
+        GAUGE("gauge");
+
+        private final String prometheusType;
+
+        Type(String prometheusType) {
+            this.prometheusType = prometheusType;
+        }
+    }
+
+    private static final class Metric {
+        private final String name;
+        private final SortedMap<String, String> labels;
+        private final Type type;
+        private final Object value;
+
+        private Metric(String name, SortedMap<String, String> labels, Type type, Object value) {
+            this.name = name;
+            this.labels = labels;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Timer in microseconds, exported in seconds, e.g. timer("wait_duration_seconds", "outcome", "met")
+     * @param labels alternating label names and values
+     */
+    public LatencyHistogram timer(String name, String... labels) {
+        return (LatencyHistogram) register(name, Type.TIMER, labels, LatencyHistogram::new).value;
+    }
+
+    public void recordTime(String name, Duration duration, String... labels) {
+        timer(name, labels).record(duration.toNanos() / 1000);
+    }
+
+    public LongAdder counter(String name, String... labels) {
+        return (LongAdder) register(name, Type.COUNTER, labels, LongAdder::new).value;
+    }
+
+    /**
+     * Register a value read at export time. The first registration of a name and labels wins.
+     */
+    public void gauge(String name, DoubleSupplier value, String... labels) {
+        register(name, Type.GAUGE, labels, () -> value);
+    }
+
+    private Metric register(String name, Type type, String[] labels, Supplier<Object> value) {
+        SortedMap<String, String> labelMap = labels(labels);
+        Metric metric = metrics.computeIfAbsent(key(name, labelMap),
+                key -> new Metric(name, labelMap, type, value.get()));
+        if (metric.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + metric.type);
+        }
+        return metric;
+    }
+
+    private static SortedMap<String, String> labels(String[] pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        SortedMap<String, String> labels = new TreeMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            labels.put(pairs[i], pairs[i + 1] != null ? pairs[i + 1] : "");
+        }
+        return Collections.unmodifiableSortedMap(labels);
+    }
+
+    private static String key(String name, Map<String, String> labels) {
+        return name + labels;
+    }
+
+    /**
+     * Metrics sorted by name then labels, so related series are grouped in the output
+     */
+    private List<Metric> sorted() {
+        List<Metric> sorted = new ArrayList<>(metrics.values());
+        sorted.sort((first, second) -> key(first.name, first.labels).compareTo(key(second.name, second.labels)));
+        return sorted;
+    }
+
+    /**
+     * Prometheus text exposition format, suitable for the node_exporter textfile collector
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        String lastName = null;
+        for (Metric metric : sorted()) {
+            if (!metric.name.equals(lastName)) {
+                out.append("# TYPE ").append(metric.name).append(' ').append(metric.type.prometheusType).append('\n');
+                lastName = metric.name;
+            }
+            switch (metric.type) {
+                case TIMER:
+                    LatencyHistogram histogram = (LatencyHistogram) metric.value;
+                    for (double quantile : QUANTILES) {
+                        out.append(metric.name).append(prometheusLabels(metric.labels, "quantile", format(quantile)))
+                                .append(' ').append(format(seconds(histogram.getPercentileMicros(quantile * 100))))
+                                .append('\n');
+                    }
+                    out.append(metric.name).append("_sum").append(prometheusLabels(metric.labels, null, null))
+                            .append(' ').append(format(seconds(histogram.getTotalMicros()))).append('\n');
+                    out.append(metric.name).append("_count").append(prometheusLabels(metric.labels, null, null))
+                            .append(' ').append(histogram.getCount()).append('\n');
+                    break;
+                case COUNTER:
+                    out.append(metric.name).append(prometheusLabels(metric.labels, null, null))
+                            .append(' ').append(((LongAdder) metric.value).sum()).append('\n');
+                    break;
+                default:
+                    out.append(metric.name).append(prometheusLabels(metric.labels, null, null))
+                            .append(' ').append(format(((DoubleSupplier) metric.value).getAsDouble())).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * InfluxDB line protocol, one line per series, all stamped with the given time
+     */
+    public String toInfluxLineProtocol(long epochMillis) {
+        String timestamp = " " + epochMillis + "000000\n";
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : sorted()) {
+            out.append(influxEscape(metric.name, false));
+            for (Map.Entry<String, String> label : metric.labels.entrySet()) {
+                if (!label.getValue().isEmpty()) {
+                    out.append(',').append(influxEscape(label.getKey(), true))
+                            .append('=').append(influxEscape(label.getValue(), true));
+                }
+            }
+            out.append(' ');
+            switch (metric.type) {
+                case TIMER:
+                    LatencyHistogram histogram = (LatencyHistogram) metric.value;
+                    out.append("count=").append(histogram.getCount()).append('i')
+                            .append(",mean=").append(format(histogram.getMeanMicros() / 1_000_000.0))
+                            .append(",p50=").append(format(seconds(histogram.getPercentileMicros(50))))
+                            .append(",p95=").append(format(seconds(histogram.getPercentileMicros(95))))
+                            .append(",p99=").append(format(seconds(histogram.getPercentileMicros(99))))
+                            .append(",max=").append(format(seconds(histogram.getMaxMicros())));
+                    break;
+                case COUNTER:
+                    out.append("value=").append(((LongAdder) metric.value).sum()).append('i');
+                    break;
+                default:
+                    out.append("value=").append(format(((DoubleSupplier) metric.value).getAsDouble()));
+            }
+            out.append(timestamp);
+        }
+        return out.toString();
+    }
+
+    private static String prometheusLabels(Map<String, String> labels, String extraName, String extraValue) {
+        if (labels.isEmpty() && extraName == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            out.append(label.getKey()).append("=\"").append(prometheusEscape(label.getValue())).append('"');
+        }
+        if (extraName != null) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            out.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private static String prometheusEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Escape a measurement name, or a tag key or value which also needs '=' escaped
+     */
+    private static String influxEscape(String value, boolean tag) {
+        String escaped = value.replace("\\", "\\\\").replace(",", "\\,").replace(" ", "\\ ").replace("\n", "\\n");
+        return tag ? escaped.replace("=", "\\=") : escaped;
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1_000_000.0;
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "0";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,26 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one page-object method, e.g. ProductsPage.addFirstItemToCart
+ */
+@Name("com.amalitech.PageAction")
+@Label("Page Action")
+@Category({"Appium Tests", "Page Objects"})
+@Description("A page-object method and the driver calls it made")
+public class PageActionEvent extends Event {
+
+    @Label("Page")
+    public String page;
+
+    @Label("Action")
+    public String action;
+
+    @Label("Failed")
+    public boolean failed;
+}
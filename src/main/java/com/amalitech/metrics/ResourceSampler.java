@@ -0,0 +1,515 @@
+package com.amalitech.metrics;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Samples the app's CPU, memory and frame statistics in the background while tests run.
+ * Each sample reads {@code dumpsys cpuinfo}, {@code dumpsys meminfo} and {@code dumpsys gfxinfo},
+ * the same sources as Appium's getPerformanceData, and is tagged with the test and page action
+ * running at that moment. Samples are appended to a CSV file as they are taken, so memory stays
+ * flat however long the session is.
+ * <p>
+ * Sampling runs on its own thread. By default it goes straight to adb rather than through the
+ * Appium session, so it never queues behind the test's commands on the server. Benchmarks whose
+ * timings the dumpsys calls would disturb pause it with {@link #pauseCurrent()}.
+ */
+public class ResourceSampler implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ResourceSampler.class);
+    private static final String HEADER =
+            "epoch_ms,test,step,cpu_pct,pss_kb,java_heap_kb,native_heap_kb,frames,janky_frames";
+    private static final Pattern TOTAL_PSS = Pattern.compile("(?m)^\\s*TOTAL(?: PSS:)?\\s+(\\d+)");
+    private static final Pattern JAVA_HEAP = Pattern.compile("Java Heap:\\s+(\\d+)");
+    private static final Pattern NATIVE_HEAP = Pattern.compile("Native Heap:\\s+(\\d+)");
+    private static final Pattern TOTAL_FRAMES = Pattern.compile("Total frames rendered:\\s+(\\d+)");
+    private static final Pattern JANKY_FRAMES = Pattern.compile("Janky frames:\\s+(\\d+)");
+
+    // Sampler of the session each test thread is using, and of each device for the gauges
+    private static final ThreadLocal<ResourceSampler> CURRENT = new ThreadLocal<>();
+    private static final Map<String, ResourceSampler> DEVICES = new ConcurrentHashMap<>();
+
+    private final String appPackage;
+    private final Function<List<String>, String> shell;
+    private final Duration interval;
+    private final Path output;
+    private final Pattern cpuLine;
+    private final ScheduledExecutorService executor;
+    // Held while a background sample runs, so pausing waits for one in flight
+    private final Object sampling = new Object();
+    private int pauses;
+    private BufferedWriter writer;
+    private String device = "";
+    private volatile String test = "";
+    private volatile String step = "";
+    // PSS trend kept as running sums, so the sampler holds no per-sample state
+    private int pssCount;
+    private long pssFirst;
+    private long pssLast;
+    private long pssPeak;
+    private long pssFirstEpoch;
+    private double pssMeanMinutes;
+    private double pssMeanKb;
+    private double pssCovariance;
+    private double pssVariance;
+    private long lastFrames = -1;
+    private long lastJanky = -1;
+    private volatile Sample latest;
+    private int failures;
+
+    /**
+     * Handle of a pause; closing it resumes sampling
+     */
+    public interface Pause extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * One reading of the app's resources
+     */
+    public static final class Sample {
+        private final long epochMillis;
+        private final String test;
+        private final String step;
+        private final double cpuPercent;
+        private final long pssKb;
+        private final long javaHeapKb;
+        private final long nativeHeapKb;
+        private final long frames;
+        private final long jankyFrames;
+
+        Sample(long epochMillis, String test, String step, double cpuPercent, long pssKb, long javaHeapKb,
+               long nativeHeapKb, long frames, long jankyFrames) {
+            this.epochMillis = epochMillis;
+            this.test = test;
+            this.step = step;
+            this.cpuPercent = cpuPercent;
+            this.pssKb = pssKb;
+            this.javaHeapKb = javaHeapKb;
+            this.nativeHeapKb = nativeHeapKb;
+            this.frames = frames;
+            this.jankyFrames = jankyFrames;
+        }
+
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        public String getTest() {
+            return test;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public double getCpuPercent() {
+            return cpuPercent;
+        }
+
+        public long getPssKb() {
+            return pssKb;
+        }
+
+        public long getJavaHeapKb() {
+            return javaHeapKb;
+        }
+
+        public long getNativeHeapKb() {
+            return nativeHeapKb;
+        }
+
+        /**
+         * Frames rendered since the previous sample
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * Janky frames since the previous sample
+         */
+        public long getJankyFrames() {
+            return jankyFrames;
+        }
+
+        String toCsv() {
+            return epochMillis + "," + csv(test) + "," + csv(step) + "," + String.format("%.1f", cpuPercent) + ","
+                    + pssKb + "," + javaHeapKb + "," + nativeHeapKb + "," + frames + "," + jankyFrames;
+        }
+
+        private static String csv(String value) {
+            return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+        }
+    }
+
+    /**
+     * @param shell runs a device shell command given as arguments and returns its output
+     * @param output CSV file the samples are appended to
+     */
+    public ResourceSampler(String appPackage, Function<List<String>, String> shell, Duration interval, Path output) {
+        this.appPackage = appPackage;
+        this.shell = shell;
+        this.interval = interval;
+        this.output = output;
+        this.cpuLine = Pattern.compile("(?m)^\\s*([\\d.]+)%\\s+\\d+/" + Pattern.quote(appPackage) + "\\b");
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sample the app of a session and make it the calling thread's sampler
+     * @param viaAppium read through getPerformanceData on the session instead of adb
+     */
+    public static ResourceSampler startForSession(AndroidDriver driver, String udid, String appPackage,
+                                                  Duration interval, Path directory, boolean viaAppium) {
+        Function<List<String>, String> shell = viaAppium
+                ? args -> appiumShell(driver, appPackage, args)
+                : args -> adbShell(udid, args);
+        String name = "resources-" + String.valueOf(udid).replaceAll("[^A-Za-z0-9._-]", "_") + "-"
+                + driver.getSessionId() + ".csv";
+        ResourceSampler sampler = new ResourceSampler(appPackage, shell, interval, directory.resolve(name));
+        try {
+            sampler.start();
+        } catch (IOException e) {
+            logger.warn("Cannot write resource samples to " + sampler.output + ": " + e.getMessage());
+            return null;
+        }
+        String device = String.valueOf(udid);
+        sampler.device = device;
+        // Gauges are registered once per device, so they read the device's latest sampler
+        // rather than holding on to the first one
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("app_memory_pss_kb", () -> latestValue(device, sample -> (double) sample.pssKb),
+                "device", device);
+        registry.gauge("app_cpu_percent", () -> latestValue(device, Sample::getCpuPercent), "device", device);
+        DEVICES.put(device, sampler);
+        CURRENT.set(sampler);
+        return sampler;
+    }
+
+    /**
+     * Sampler of the session the calling thread is using, or null
+     */
+    public static ResourceSampler current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Make a sampler the calling thread's, so its samples are tagged with the thread's tests
+     * @param sampler the sampler, or null for none
+     */
+    public static void bind(ResourceSampler sampler) {
+        if (sampler != null) {
+            CURRENT.set(sampler);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Close the calling thread's sampler
+     */
+    public static void stopCurrent() {
+        ResourceSampler previous = CURRENT.get();
+        CURRENT.remove();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Pause the current sampler, or do nothing if there is none
+     */
+    public static Pause pauseCurrent() {
+        ResourceSampler sampler = CURRENT.get();
+        return sampler != null ? sampler.pause() : () -> { };
+    }
+
+    /**
+     * Take no background samples until the returned handle is closed, e.g. while a benchmark
+     * measures frames or launch times. Returns once a sample already running has finished.
+     */
+    public Pause pause() {
+        synchronized (sampling) {
+            pauses++;
+        }
+        return new Pause() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                synchronized (sampling) {
+                    if (!closed) {
+                        closed = true;
+                        pauses--;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Tag following samples of the calling thread's sampler with a test, clearing the step
+     */
+    public static void setTest(String test) {
+        ResourceSampler sampler = CURRENT.get();
+        if (sampler != null) {
+            sampler.test = test != null ? test : "";
+            sampler.step = "";
+        }
+    }
+
+    /**
+     * Tag following samples of the calling thread's sampler with a step
+     * @return the previous step, to restore when the step ends
+     */
+    public static String setStep(String step) {
+        ResourceSampler sampler = CURRENT.get();
+        if (sampler == null) {
+            return "";
+        }
+        String previous = sampler.step;
+        sampler.step = step != null ? step : "";
+        return previous;
+    }
+
+    public synchronized void start() throws IOException {
+        if (writer != null) {
+            return;
+        }
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        writer.newLine();
+        writer.flush();
+        executor.scheduleWithFixedDelay(this::sampleQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Sampling resources of " + appPackage + " every " + interval.toMillis() + " ms to " + output);
+    }
+
+    private void sampleQuietly() {
+        synchronized (sampling) {
+            if (pauses > 0) {
+                return;
+            }
+            try {
+                sample();
+                failures = 0;
+            } catch (RuntimeException e) {
+                if (++failures == 3) {
+                    logger.warn("Resource sampling failing repeatedly, stopping: " + e.getMessage());
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Take one sample now and append it to the file
+     */
+    public Sample sample() {
+        String test = this.test;
+        String step = this.step;
+        long epochMillis = System.currentTimeMillis();
+        String cpu = shell.apply(Arrays.asList("dumpsys", "cpuinfo"));
+        String memory = shell.apply(Arrays.asList("dumpsys", "meminfo", appPackage));
+        String frames = shell.apply(Arrays.asList("dumpsys", "gfxinfo", appPackage));
+
+        Matcher cpuMatch = cpuLine.matcher(cpu);
+        long totalFrames = first(TOTAL_FRAMES, frames);
+        long totalJanky = first(JANKY_FRAMES, frames);
+        Sample sample;
+        synchronized (this) {
+            // Counters restart with the process or a gfxinfo reset; count from zero then
+            long newFrames = lastFrames < 0 ? 0 : totalFrames >= lastFrames ? totalFrames - lastFrames : totalFrames;
+            long newJanky = lastJanky < 0 ? 0 : totalJanky >= lastJanky ? totalJanky - lastJanky : totalJanky;
+            lastFrames = totalFrames;
+            lastJanky = totalJanky;
+            sample = new Sample(epochMillis, test, step, cpuMatch.find() ? Double.parseDouble(cpuMatch.group(1)) : 0,
+                    first(TOTAL_PSS, memory), first(JAVA_HEAP, memory), first(NATIVE_HEAP, memory),
+                    newFrames, newJanky);
+            if (sample.pssKb > 0) {
+                addPss(epochMillis, sample.pssKb);
+            }
+            write(sample);
+        }
+        latest = sample;
+        return sample;
+    }
+
+    /**
+     * Fold a PSS reading into the running least-squares fit, with time in minutes since the
+     * first reading and the means updated incrementally so long sessions lose no precision
+     */
+    private void addPss(long epochMillis, long pssKb) {
+        if (pssCount == 0) {
+            pssFirst = pssKb;
+            pssFirstEpoch = epochMillis;
+        }
+        pssCount++;
+        pssLast = pssKb;
+        pssPeak = Math.max(pssPeak, pssKb);
+        double minutes = (epochMillis - pssFirstEpoch) / 60_000.0;
+        double dx = minutes - pssMeanMinutes;
+        pssMeanMinutes += dx / pssCount;
+        pssMeanKb += (pssKb - pssMeanKb) / pssCount;
+        pssCovariance += dx * (pssKb - pssMeanKb);
+        pssVariance += dx * (minutes - pssMeanMinutes);
+    }
+
+    private void write(Sample sample) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(sample.toCsv());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write resource sample", e);
+        }
+    }
+
+    public Sample getLatest() {
+        return latest;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    /**
+     * Least-squares growth of PSS over the session in KB per minute; a steady positive slope
+     * over a long session suggests a leak
+     */
+    public synchronized double getPssSlopeKbPerMinute() {
+        return pssCount < 2 || pssVariance == 0 ? 0 : pssCovariance / pssVariance;
+    }
+
+    /**
+     * First, last and peak PSS and its growth rate, e.g. for the session log
+     */
+    public synchronized String summary() {
+        if (pssCount == 0) {
+            return "no memory samples";
+        }
+        return String.format("%d samples, PSS %d -> %d KB (peak %d KB), %+.1f KB/min", pssCount,
+                pssFirst, pssLast, pssPeak, getPssSlopeKbPerMinute());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    logger.warn("Cannot close " + output + ": " + e.getMessage());
+                }
+                writer = null;
+                logger.info("Resources of " + appPackage + ": " + summary() + ", written to " + output);
+            }
+        }
+        DEVICES.remove(device, this);
+    }
+
+    /**
+     * Value of the device's sampler's latest sample, or 0 if it is not being sampled
+     */
+    private static double latestValue(String device, ToDoubleFunction<Sample> value) {
+        ResourceSampler sampler = DEVICES.get(device);
+        Sample sample = sampler != null ? sampler.latest : null;
+        return sample != null ? value.applyAsDouble(sample) : 0;
+    }
+
+    private static long first(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private static String adbShell(String udid, List<String> args) {
+        List<String> command = new ArrayList<>(Arrays.asList("adb", "-s", udid, "shell"));
+        command.addAll(args);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            byte[] output = process.getInputStream().readAllBytes();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("Timed out: " + String.join(" ", command));
+            }
+            return new String(output, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot run " + String.join(" ", command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted running " + String.join(" ", command), e);
+        }
+    }
+
+    /**
+     * Answer the sampler's dumpsys calls through the session. cpuinfo and memoryinfo come from
+     * getPerformanceData and are rebuilt into dumpsys-like lines; gfxinfo needs mobile: shell.
+     */
+    private static String appiumShell(AndroidDriver driver, String appPackage, List<String> args) {
+        String service = args.get(1);
+        if ("gfxinfo".equals(service)) {
+            return String.valueOf(driver.executeScript("mobile: shell",
+                    Map.of("command", "dumpsys", "args", args.subList(1, args.size()))));
+        }
+        String dataType = "cpuinfo".equals(service) ? "cpuinfo" : "memoryinfo";
+        List<List<Object>> table = driver.getPerformanceData(appPackage, dataType, 5);
+        if (table.size() < 2) {
+            return "";
+        }
+        List<Object> names = table.get(0);
+        List<Object> values = table.get(1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < names.size() && i < values.size(); i++) {
+            Object name = names.get(i);
+            Object value = values.get(i);
+            if ("user".equals(name)) {
+                int kernel = names.indexOf("kernel");
+                double total = Double.parseDouble(String.valueOf(value))
+                        + (kernel >= 0 ? Double.parseDouble(String.valueOf(values.get(kernel))) : 0);
+                text.append(total).append("% 0/").append(appPackage).append(": app\n");
+            } else if ("totalPss".equals(name)) {
+                text.append("TOTAL PSS: ").append(value).append('\n');
+            } else if ("dalvikPss".equals(name)) {
+                text.append("Java Heap: ").append(value).append('\n');
+            } else if ("nativePss".equals(name)) {
+                text.append("Native Heap: ").append(value).append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Distribution statistics of a small set of latency samples, e.g. one benchmark's launches.
+ * Percentiles use the nearest-rank method on the exact samples, so no histogram error is added.
+ */
+public class SampleStats {
+
+    private final long[] sortedMicros;
+
+    public SampleStats(List<Duration> samples) {
+        sortedMicros = new long[samples.size()];
+        for (int i = 0; i < sortedMicros.length; i++) {
+            sortedMicros[i] = samples.get(i).toNanos() / 1000;
+        }
+        Arrays.sort(sortedMicros);
+    }
+
+    public int getCount() {
+        return sortedMicros.length;
+    }
+
+    public Duration getMin() {
+        return sortedMicros.length == 0 ? Duration.ZERO : micros(sortedMicros[0]);
+    }
+
+    public Duration getMax() {
+        return sortedMicros.length == 0 ? Duration.ZERO : micros(sortedMicros[sortedMicros.length - 1]);
+    }
+
+    public Duration getMean() {
+        return micros(Math.round(meanMicros()));
+    }
+
+    /**
+     * Sample standard deviation, zero for fewer than two samples
+     */
+    public Duration getStandardDeviation() {
+        if (sortedMicros.length < 2) {
+            return Duration.ZERO;
+        }
+        double mean = meanMicros();
+        double squares = 0;
+        for (long value : sortedMicros) {
+            squares += (value - mean) * (value - mean);
+        }
+        return micros(Math.round(Math.sqrt(squares / (sortedMicros.length - 1))));
+    }
+
+    /**
+     * Value at a percentile between 0 and 100, zero if there are no samples
+     */
+    public Duration getPercentile(double percentile) {
+        if (sortedMicros.length == 0) {
+            return Duration.ZERO;
+        }
+        int rank = (int) Math.ceil(sortedMicros.length * Math.min(100, Math.max(0, percentile)) / 100.0);
+        return micros(sortedMicros[Math.max(0, rank - 1)]);
+    }
+
+    public Duration getMedian() {
+        return getPercentile(50);
+    }
+
+    /**
+     * Column headings matching {@link #toRow(String)}
+     */
+    public static String header() {
+        return String.format("%-36s %5s %9s %9s %9s %9s %9s %9s%n",
+                "metric", "n", "min_ms", "p50_ms", "p90_ms", "max_ms", "mean_ms", "stdev_ms");
+    }
+
+    public String toRow(String name) {
+        return String.format("%-36s %5d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, getCount(),
+                millis(getMin()), millis(getMedian()), millis(getPercentile(90)), millis(getMax()),
+                millis(getMean()), millis(getStandardDeviation()));
+    }
+
+    private double meanMicros() {
+        if (sortedMicros.length == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (long value : sortedMicros) {
+            total += value;
+        }
+        return total / sortedMicros.length;
+    }
+
+    private static Duration micros(long micros) {
+        return Duration.ofNanos(micros * 1000);
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+}
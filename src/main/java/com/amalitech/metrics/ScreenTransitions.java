@@ -0,0 +1,261 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency of screen transitions such as LOGIN -> PRODUCTS, aggregated per device over the run.
+ * A measurement runs from just before the triggering action until the target screen's wait first
+ * succeeds. While it runs, page waits on the same thread poll at {@link #getPollInterval()}
+ * instead of the default 500 ms, so detection adds at most one poll and one find round trip.
+ * <p>
+ * Tests assert SLOs on the aggregate, e.g.
+ * {@code ScreenTransitions.transition("LOGIN", "PRODUCTS").assertPercentileBelow(95, Duration.ofMillis(1500))}.
+ */
+public final class ScreenTransitions {
+
+    /**
+     * Device label under which every device's measurements are aggregated together
+     */
+    public static final String ALL_DEVICES = "all";
+
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(50);
+    private static final Map<String, Transition> TRANSITIONS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Measurement> ACTIVE = new ThreadLocal<>();
+    private static final ThreadLocal<String> DEVICE = new ThreadLocal<>();
+
+    private static volatile Duration pollInterval = DEFAULT_POLL_INTERVAL;
+
+    private ScreenTransitions() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * State of the measurement running on a thread
+     */
+    private static final class Measurement {
+        private boolean waitingForTarget;
+        private boolean waitFailed;
+    }
+
+    /**
+     * Aggregated latency of one transition on one device
+     */
+    public static final class Transition {
+        private final String from;
+        private final String to;
+        private final String device;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Transition(String from, String to, String device) {
+            this.from = from;
+            this.to = to;
+            this.device = device;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public Duration getPercentile(double percentile) {
+            return Duration.ofNanos(latency.getPercentileMicros(percentile) * 1000);
+        }
+
+        public Duration getP50() {
+            return getPercentile(50);
+        }
+
+        public Duration getP95() {
+            return getPercentile(95);
+        }
+
+        public Duration getP99() {
+            return getPercentile(99);
+        }
+
+        public Duration getMax() {
+            return Duration.ofNanos(latency.getMaxMicros() * 1000);
+        }
+
+        /**
+         * Fail unless the transition was measured and the percentile is under the limit
+         * @throws AssertionError naming the transition and its percentiles
+         */
+        public Transition assertPercentileBelow(double percentile, Duration limit) {
+            if (getCount() == 0) {
+                throw new AssertionError("No measurements of " + this);
+            }
+            if (getPercentile(percentile).compareTo(limit) >= 0) {
+                throw new AssertionError("SLO missed: " + name() + " p" + format(percentile) + " "
+                        + getPercentile(percentile).toMillis() + " ms >= " + limit.toMillis() + " ms (" + this + ")");
+            }
+            return this;
+        }
+
+        private String name() {
+            return from + "->" + to + " on " + device;
+        }
+
+        /**
+         * e.g. "LOGIN->PRODUCTS on emulator-5554: n=20 p50=640ms p95=910ms p99=1020ms max=1020ms"
+         */
+        @Override
+        public String toString() {
+            return name() + ": n=" + getCount() + " p50=" + getP50().toMillis() + "ms p95=" + getP95().toMillis()
+                    + "ms p99=" + getP99().toMillis() + "ms max=" + getMax().toMillis() + "ms";
+        }
+    }
+
+    /**
+     * Device the current thread's measurements are recorded under
+     */
+    public static void setDevice(String device) {
+        DEVICE.set(device);
+    }
+
+    public static String getDevice() {
+        return DEVICE.get() != null ? DEVICE.get() : "unknown";
+    }
+
+    public static Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public static void setPollInterval(Duration interval) {
+        pollInterval = interval;
+    }
+
+    /**
+     * Poll interval page waits should use on this thread, or null when no transition is being measured
+     */
+    public static Duration activePollInterval() {
+        return ACTIVE.get() != null ? pollInterval : null;
+    }
+
+    /**
+     * Report that a page wait gave up while a transition is measured. Some page waits log and
+     * swallow their timeout, so the measurement cannot rely on an exception alone. Waits inside
+     * the trigger are ignored: a trigger either recovers from them or throws.
+     */
+    public static void waitFailed() {
+        Measurement measurement = ACTIVE.get();
+        if (measurement != null && measurement.waitingForTarget) {
+            measurement.waitFailed = true;
+        }
+    }
+
+    /**
+     * Run the trigger, then wait for the target screen, and record the time in between.
+     * Nothing is recorded if either step fails or a wait timed out.
+     * @return the measured latency
+     * @throws IllegalStateException if the target screen was not detected
+     */
+    public static Duration measure(String from, String to, Runnable trigger, Runnable waitForTarget) {
+        Duration latency = time(from, to, trigger, waitForTarget);
+        record(from, to, latency);
+        return latency;
+    }
+
+    /**
+     * Time a transition like {@link #measure} without adding it to the aggregates, for callers
+     * that keep their own samples, e.g. to compare users
+     */
+    public static Duration time(String from, String to, Runnable trigger, Runnable waitForTarget) {
+        if (ACTIVE.get() != null) {
+            throw new IllegalStateException("Screen transitions cannot be nested: " + from + "->" + to);
+        }
+        Measurement measurement = new Measurement();
+        ACTIVE.set(measurement);
+        long start;
+        long end;
+        try (Timeline.Span ignored = Timeline.begin("transition", from + "->" + to)) {
+            start = System.nanoTime();
+            trigger.run();
+            measurement.waitingForTarget = true;
+            waitForTarget.run();
+            end = System.nanoTime();
+        } finally {
+            ACTIVE.remove();
+        }
+        if (measurement.waitFailed) {
+            MetricsRegistry.getInstance().counter("screen_transition_failures_total", "from", from, "to", to).increment();
+            throw new IllegalStateException("Screen " + to + " was not detected after leaving " + from);
+        }
+        return Duration.ofNanos(end - start);
+    }
+
+    /**
+     * Record an externally measured transition on the current thread's device
+     */
+    public static void record(String from, String to, Duration latency) {
+        String device = getDevice();
+        long micros = latency.toNanos() / 1000;
+        get(from, to, device).latency.record(micros);
+        get(from, to, ALL_DEVICES).latency.record(micros);
+        MetricsRegistry.getInstance().timer("screen_transition_latency_seconds", "from", from, "to", to,
+                "device", device).record(micros);
+    }
+
+    /**
+     * Aggregate of a transition over all devices
+     */
+    public static Transition transition(String from, String to) {
+        return transition(from, to, ALL_DEVICES);
+    }
+
+    public static Transition transition(String from, String to, String device) {
+        return get(from, to, device);
+    }
+
+    /**
+     * Every measured transition per device, sorted by name
+     */
+    public static List<Transition> all() {
+        List<Transition> transitions = new ArrayList<>();
+        for (Transition transition : TRANSITIONS.values()) {
+            if (!ALL_DEVICES.equals(transition.device) && transition.getCount() > 0) {
+                transitions.add(transition);
+            }
+        }
+        transitions.sort((first, second) -> first.name().compareTo(second.name()));
+        return transitions;
+    }
+
+    /**
+     * One line per measured transition and device
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Transition transition : all()) {
+            summary.append(transition).append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    public static void clear() {
+        TRANSITIONS.clear();
+    }
+
+    private static Transition get(String from, String to, String device) {
+        return TRANSITIONS.computeIfAbsent(from + "->" + to + "@" + device, key -> new Transition(from, to, device));
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
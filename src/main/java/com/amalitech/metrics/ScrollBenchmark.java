@@ -0,0 +1,132 @@
+package com.amalitech.metrics;
+
+import com.amalitech.evidence.CrashWatcher;
+import io.appium.java_client.android.AndroidDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how smoothly a list renders while it is flung. Every run resets the app's gfxinfo
+ * counters, performs a fixed script of flings at one speed, alternating towards the end and back
+ * to the start, and then reads the frame statistics gathered during the script. The same script at
+ * the same speeds makes runs comparable across builds. The resource sampler and the crash watcher's
+ * app state polls are paused during a script; logcat still reports a crash.
+ */
+public class ScrollBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(ScrollBenchmark.class);
+
+    /**
+     * How long the finger takes to cross the list; a shorter gesture flings faster
+     */
+    public enum Speed {
+        SLOW(Duration.ofMillis(600)), MEDIUM(Duration.ofMillis(250)), FAST(Duration.ofMillis(100));
+
+        private final Duration gestureTime;
+
+        Speed(Duration gestureTime) {
+            this.gestureTime = gestureTime;
+        }
+
+        public Duration getGestureTime() {
+            return gestureTime;
+        }
+    }
+
+    /**
+     * One fling over the list under test
+     */
+    @FunctionalInterface
+    public interface Fling {
+        void fling(boolean towardsEnd, Duration gestureTime);
+    }
+
+    private final AndroidDriver driver;
+    private final String appPackage;
+    private final Fling fling;
+    private final int flingsPerRun;
+    private final Duration settleTime;
+
+    /**
+     * @param flingsPerRun flings in one run, half of them towards the end of the list
+     * @param settleTime pause after each fling so its momentum ends before the next one
+     */
+    public ScrollBenchmark(AndroidDriver driver, String appPackage, Fling fling, int flingsPerRun, Duration settleTime) {
+        this.driver = driver;
+        this.appPackage = appPackage;
+        this.fling = fling;
+        this.flingsPerRun = flingsPerRun;
+        this.settleTime = settleTime;
+    }
+
+    /**
+     * Run the script the given number of times at one speed, after one unrecorded run to warm up
+     * the list's views and the app's compiled code
+     */
+    public List<FrameStats> run(Speed speed, int runs) {
+        List<FrameStats> results = new ArrayList<>();
+        script(speed);
+        for (int i = 0; i < runs; i++) {
+            FrameStats stats = script(speed);
+            logger.info(speed + " fling run " + (i + 1) + ": " + stats);
+            results.add(stats);
+        }
+        return results;
+    }
+
+    private FrameStats script(Speed speed) {
+        String name = speed.name().toLowerCase();
+        // Background dumpsys and app state calls cost the device frames, so none run during a script
+        try (CrashWatcher.Suspension noStatePolls = CrashWatcher.suspendCurrent();
+             ResourceSampler.Pause noSampling = ResourceSampler.pauseCurrent();
+             Timeline.Span ignored = Timeline.begin("scroll", name + " flings")) {
+            gfxinfo("reset");
+            for (int i = 0; i < flingsPerRun; i++) {
+                fling.fling(i % 2 == 0, speed.getGestureTime());
+                pause(settleTime);
+            }
+            FrameStats stats = FrameStats.parse(gfxinfo());
+            MetricsRegistry registry = MetricsRegistry.getInstance();
+            registry.counter("scroll_frames_total", "speed", name).add(stats.getFrames());
+            registry.counter("scroll_janky_frames_total", "speed", name).add(stats.getJankyFrames());
+            return stats;
+        }
+    }
+
+    private String gfxinfo(String... options) {
+        List<String> args = new ArrayList<>(Arrays.asList("gfxinfo", appPackage));
+        args.addAll(Arrays.asList(options));
+        return String.valueOf(driver.executeScript("mobile: shell", Map.of("command", "dumpsys", "args", args)));
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during scroll benchmark", e);
+        }
+    }
+
+    /**
+     * Run results in order, per metric: "fast p90_frame" samples and "fast jank_pct" ratios, and
+     * so on for every speed. Percentiles gfxinfo did not report are left out.
+     */
+    public static void collect(Speed speed, List<FrameStats> runs, Map<String, List<Duration>> samples,
+                               Map<String, List<Double>> ratios) {
+        String name = speed.name().toLowerCase();
+        for (FrameStats stats : runs) {
+            for (Map.Entry<Integer, Duration> percentile : stats.getPercentiles().entrySet()) {
+                samples.computeIfAbsent(name + " p" + percentile.getKey() + "_frame", key -> new ArrayList<>())
+                        .add(percentile.getValue());
+            }
+            ratios.computeIfAbsent(name + " jank_pct", key -> new ArrayList<>()).add(stats.getJankPercent());
+        }
+    }
+}
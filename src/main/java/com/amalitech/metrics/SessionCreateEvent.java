@@ -0,0 +1,27 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the creation of an Appium session
+ */
+@Name("com.amalitech.SessionCreate")
+@Label("Session Create")
+@Category({"Appium Tests", "Sessions"})
+public class SessionCreateEvent extends Event {
+
+    @Label("Server")
+    public String server;
+
+    @Label("Device")
+    public String device;
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
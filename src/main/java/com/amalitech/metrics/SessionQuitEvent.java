@@ -0,0 +1,24 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the end of an Appium session
+ */
+@Name("com.amalitech.SessionQuit")
+@Label("Session Quit")
+@Category({"Appium Tests", "Sessions"})
+public class SessionQuitEvent extends Event {
+
+    @Label("Device")
+    public String device;
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Reason")
+    public String reason;
+}
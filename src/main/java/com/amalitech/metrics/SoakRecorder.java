@@ -0,0 +1,206 @@
+package com.amalitech.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Records one row per iteration of a soak run: the latency of every journey step, the app's
+ * memory, and the framework's own heap and thread count. Rows are appended to a CSV file as they
+ * are recorded, and at the end each series is checked for a monotonic rise with {@link Trend},
+ * which is how leaks show up: app memory creeping, or heap and threads growing with every session
+ * or element reference the framework fails to release.
+ */
+public class SoakRecorder implements AutoCloseable {
+
+    public static final String APP_PSS = "app_pss_kb";
+    public static final String JVM_HEAP = "jvm_heap_used_kb";
+    public static final String JVM_THREADS = "jvm_threads";
+    private static final Logger logger = LogManager.getLogger(SoakRecorder.class);
+
+    private final String device;
+    private final List<String> steps;
+    private final LongSupplier appMemoryKb;
+    private final boolean collectBeforeHeap;
+    private final Path output;
+    private final Map<String, List<Double>> series = new LinkedHashMap<>();
+    private final Map<String, Duration> current = new LinkedHashMap<>();
+    private BufferedWriter writer;
+    private int iterations;
+    private int failures;
+
+    /**
+     * @param steps journey steps in order, one latency column each
+     * @param appMemoryKb app PSS in KB, or a negative value when it is not known
+     * @param collectBeforeHeap run a full GC before reading the heap, so only live objects count
+     * @param output CSV file, or null to keep the series in memory only
+     */
+    public SoakRecorder(String device, List<String> steps, LongSupplier appMemoryKb, boolean collectBeforeHeap,
+                        Path output) {
+        this.device = device;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.appMemoryKb = appMemoryKb;
+        this.collectBeforeHeap = collectBeforeHeap;
+        this.output = output;
+        for (String step : steps) {
+            series.put(step + "_ms", new ArrayList<>());
+        }
+        series.put(APP_PSS, new ArrayList<>());
+        series.put(JVM_HEAP, new ArrayList<>());
+        series.put(JVM_THREADS, new ArrayList<>());
+    }
+
+    /**
+     * App PSS from the session's resource sampler, or -1 if it is not sampling
+     */
+    public static long sampledAppMemoryKb() {
+        ResourceSampler sampler = ResourceSampler.current();
+        ResourceSampler.Sample sample = sampler != null ? sampler.getLatest() : null;
+        return sample != null && sample.getPssKb() > 0 ? sample.getPssKb() : -1;
+    }
+
+    /**
+     * Run a step of the current iteration and record how long it took, even if it fails
+     */
+    public void time(String step, Runnable action) {
+        long start = System.nanoTime();
+        try (Timeline.Span ignored = Timeline.begin("soak", step)) {
+            action.run();
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            current.put(step, duration);
+            MetricsRegistry.getInstance().recordTime("soak_step_duration_seconds", duration,
+                    "step", step, "device", device);
+        }
+    }
+
+    /**
+     * Close the current iteration: sample memory and threads and append the row. Only iterations
+     * that completed every step feed the step latency series.
+     */
+    public void endIteration(boolean succeeded) {
+        iterations++;
+        if (!succeeded) {
+            failures++;
+            MetricsRegistry.getInstance().counter("soak_iteration_failures_total", "device", device).increment();
+        }
+        long appKb = appMemoryKb.getAsLong();
+        if (collectBeforeHeap) {
+            System.gc();
+        }
+        long heapKb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024;
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        boolean complete = succeeded && current.keySet().containsAll(steps);
+        StringBuilder row = new StringBuilder();
+        row.append(System.currentTimeMillis()).append(',').append(iterations).append(',').append(succeeded);
+        for (String step : steps) {
+            Duration duration = current.get(step);
+            row.append(',').append(duration != null ? String.valueOf(duration.toMillis()) : "");
+            if (complete) {
+                series.get(step + "_ms").add(duration.toNanos() / 1e6);
+            }
+        }
+        row.append(',').append(appKb >= 0 ? String.valueOf(appKb) : "").append(',').append(heapKb)
+                .append(',').append(threads);
+        if (appKb >= 0) {
+            series.get(APP_PSS).add((double) appKb);
+        }
+        series.get(JVM_HEAP).add((double) heapKb);
+        series.get(JVM_THREADS).add((double) threads);
+        current.clear();
+        write(row.toString());
+    }
+
+    private void write(String row) {
+        if (output == null) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                Files.createDirectories(output.toAbsolutePath().getParent());
+                writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+                StringBuilder header = new StringBuilder("epoch_ms,iteration,succeeded");
+                steps.forEach(step -> header.append(',').append(step).append("_ms"));
+                writer.write(header.append(',').append(APP_PSS).append(',').append(JVM_HEAP).append(',')
+                        .append(JVM_THREADS).toString());
+                writer.newLine();
+            }
+            writer.write(row);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write soak iteration to " + output, e);
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    /**
+     * Series name to one value per iteration, e.g. "login_ms" or {@link #APP_PSS}
+     */
+    public Map<String, List<Double>> getSeries() {
+        return Collections.unmodifiableMap(series);
+    }
+
+    /**
+     * Trend of every series that has values, in column order
+     */
+    public List<Trend> trends() {
+        List<Trend> trends = new ArrayList<>();
+        series.forEach((name, values) -> {
+            if (!values.isEmpty()) {
+                trends.add(Trend.of(name, values));
+            }
+        });
+        return trends;
+    }
+
+    /**
+     * One line per series, with rising ones marked
+     */
+    public String report(double alpha, double tolerance, int minIterations) {
+        StringBuilder report = new StringBuilder(String.format("%s: %d iterations, %d failed%n",
+                device, iterations, failures));
+        for (Trend trend : trends()) {
+            report.append(trend).append(trend.isGrowing(alpha, tolerance, minIterations) ? " GROWING" : "")
+                    .append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close " + output + ": " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.amalitech.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ordered per-stage latencies of a multi-step flow, e.g. checkout info -> overview -> complete -> home.
+ */
+public class StageTimings {
+
+    private final String flowName;
+    private final Map<String, Duration> stages = new LinkedHashMap<>();
+
+    public StageTimings(String flowName) {
+        this.flowName = flowName;
+    }
+
+    /**
+     * Run a stage and record how long it took. The stage is recorded even if it fails.
+     */
+    public void time(String stage, Runnable step) {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            record(stage, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Record an externally measured stage
+     */
+    public void record(String stage, Duration duration) {
+        stages.put(stage, duration);
+        MetricsRegistry.getInstance().recordTime("screen_transition_duration_seconds", duration,
+                "flow", flowName, "stage", stage);
+    }
+
+    public String getFlowName() {
+        return flowName;
+    }
+
+    /**
+     * Stage name to duration, in execution order
+     */
+    public Map<String, Duration> getStages() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    public Duration getStage(String stage) {
+        return stages.get(stage);
+    }
+
+    public Duration getTotal() {
+        Duration total = Duration.ZERO;
+        for (Duration duration : stages.values()) {
+            total = total.plus(duration);
+        }
+        return total;
+    }
+
+    /**
+     * Single-line key=value summary, e.g. "flow=checkout info_ms=812 overview_ms=640 total_ms=1452"
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("flow=").append(flowName);
+        for (Map.Entry<String, Duration> stage : stages.entrySet()) {
+            summary.append(' ').append(stage.getKey()).append("_ms=").append(stage.getValue().toMillis());
+        }
+        return summary.append(" total_ms=").append(getTotal().toMillis()).toString();
+    }
+}
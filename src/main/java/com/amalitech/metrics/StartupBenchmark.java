@@ -0,0 +1,235 @@
+package com.amalitech.metrics;
+
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.utils.ConfigReader;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.nativekey.AndroidKey;
+import io.appium.java_client.android.nativekey.KeyEvent;
+import io.appium.java_client.appmanagement.ApplicationState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Launches the app repeatedly and measures how long it takes to start.
+ * Every launch records two numbers: the TotalTime the activity manager reports for
+ * {@code am start -W}, which ends at the first drawn frame, and the time to first interactive,
+ * from sending the start command until the first interactive element is found.
+ * <p>
+ * A cold start force-stops the app first. A warm start backs out of the activity so the process
+ * stays alive and the activity is created again; if the app handles back itself it is sent home
+ * instead, which Android reports as a HOT launch.
+ */
+public class StartupBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(StartupBenchmark.class);
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime:\\s*(\\d+)");
+    private static final Pattern LAUNCH_STATE = Pattern.compile("LaunchState:\\s*(\\w+)");
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+    private static final Duration SETTLE_TIME = Duration.ofSeconds(1);
+
+    public enum Mode {
+        COLD, WARM
+    }
+
+    /**
+     * Timings of one launch
+     */
+    public static final class Launch {
+        private final Mode mode;
+        private final Duration reportedTotalTime;
+        private final String launchState;
+        private final Duration timeToInteractive;
+
+        Launch(Mode mode, Duration reportedTotalTime, String launchState, Duration timeToInteractive) {
+            this.mode = mode;
+            this.reportedTotalTime = reportedTotalTime;
+            this.launchState = launchState;
+            this.timeToInteractive = timeToInteractive;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * TotalTime reported by the activity manager, or null if it reported none
+         */
+        public Duration getReportedTotalTime() {
+            return reportedTotalTime;
+        }
+
+        /**
+         * COLD, WARM or HOT as reported by Android 10 and later, or null
+         */
+        public String getLaunchState() {
+            return launchState;
+        }
+
+        public Duration getTimeToInteractive() {
+            return timeToInteractive;
+        }
+
+        @Override
+        public String toString() {
+            return mode + " launch" + (launchState != null ? " (" + launchState + ")" : "") + ": total_ms="
+                    + (reportedTotalTime != null ? reportedTotalTime.toMillis() : "n/a")
+                    + " tti_ms=" + timeToInteractive.toMillis();
+        }
+    }
+
+    private final AndroidDriver driver;
+    private final String appPackage;
+    private final String activity;
+    private final By interactiveElement;
+    private final Duration timeout;
+
+    /**
+     * @param activity component to launch, e.g. com.swaglabsmobileapp/.SplashActivity
+     * @param interactiveElement element whose appearance marks the app as usable
+     */
+    public StartupBenchmark(AndroidDriver driver, String appPackage, String activity, By interactiveElement) {
+        this.driver = driver;
+        this.appPackage = appPackage;
+        this.activity = activity;
+        this.interactiveElement = interactiveElement;
+        this.timeout = ConfigReader.getDuration(ConfigReader.WAIT_TIMEOUT_LONG, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Benchmark for the app under test, interactive once the username field is shown
+     */
+    public static StartupBenchmark forLoginScreen(AndroidDriver driver) {
+        return new StartupBenchmark(driver,
+                ConfigReader.getProperty("app.package", "com.swaglabsmobileapp"),
+                ConfigReader.getProperty("app.activity", "com.swaglabsmobileapp/.SplashActivity"),
+                AppiumBy.accessibilityId("test-Username"));
+    }
+
+    /**
+     * Launch the app the given number of times, after one unrecorded launch to warm up the
+     * device's caches and the app's compiled code
+     */
+    public List<Launch> run(Mode mode, int iterations) {
+        List<Launch> launches = new ArrayList<>();
+        launch(mode);
+        for (int i = 0; i < iterations; i++) {
+            Launch launch = launch(mode);
+            logger.info(launch.toString());
+            launches.add(launch);
+        }
+        return launches;
+    }
+
+    public Launch launch(Mode mode) {
+        // The app is stopped on purpose until it is interactive again; that is not a crash. The
+        // sampler's dumpsys calls would compete with the launch for the device's CPU.
+        try (CrashWatcher.Suspension noStatePolls = CrashWatcher.suspendCurrent();
+             ResourceSampler.Pause noSampling = ResourceSampler.pauseCurrent()) {
+            if (mode == Mode.COLD) {
+                driver.terminateApp(appPackage);
+            } else {
+                sendToBackground();
+            }
+            pause(SETTLE_TIME);
+            return measureLaunch(mode);
+        }
+    }
+
+    private Launch measureLaunch(Mode mode) {
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        try (Timeline.Span ignored = Timeline.begin("startup", mode.name().toLowerCase() + " start")) {
+            long start = System.nanoTime();
+            String output = startActivity();
+            awaitInteractive(start);
+            Duration timeToInteractive = Duration.ofNanos(System.nanoTime() - start);
+
+            Matcher total = TOTAL_TIME.matcher(output);
+            Matcher state = LAUNCH_STATE.matcher(output);
+            Duration reported = total.find() ? Duration.ofMillis(Long.parseLong(total.group(1))) : null;
+            Launch launch = new Launch(mode, reported, state.find() ? state.group(1) : null, timeToInteractive);
+            MetricsRegistry registry = MetricsRegistry.getInstance();
+            registry.recordTime("app_startup_interactive_seconds", timeToInteractive, "mode", mode.name().toLowerCase());
+            if (reported != null) {
+                registry.recordTime("app_startup_total_time_seconds", reported, "mode", mode.name().toLowerCase());
+            }
+            return launch;
+        } finally {
+            driver.manage().timeouts().implicitlyWait(
+                    ConfigReader.getDuration(ConfigReader.WAIT_TIMEOUT_IMPLICIT, Duration.ofSeconds(10)));
+        }
+    }
+
+    /**
+     * Leave the activity but keep the process: back out of it, or go home if that did not leave the app
+     */
+    private void sendToBackground() {
+        if (driver.queryAppState(appPackage) != ApplicationState.RUNNING_IN_FOREGROUND) {
+            startActivity();
+        }
+        driver.pressKey(new KeyEvent(AndroidKey.BACK));
+        pause(SETTLE_TIME);
+        if (driver.queryAppState(appPackage) == ApplicationState.RUNNING_IN_FOREGROUND) {
+            driver.pressKey(new KeyEvent(AndroidKey.HOME));
+        }
+    }
+
+    /**
+     * Start the activity and wait for its first frame, returning the activity manager's output
+     */
+    private String startActivity() {
+        try {
+            return String.valueOf(driver.executeScript("mobile: startActivity",
+                    Map.of("intent", activity, "wait", true)));
+        } catch (RuntimeException e) {
+            // Older servers lack startActivity; am start needs the adb_shell server feature
+            logger.debug("mobile: startActivity failed, using am start: " + e.getMessage());
+            return String.valueOf(driver.executeScript("mobile: shell",
+                    Map.of("command", "am", "args", List.of("start", "-W", "-n", activity))));
+        }
+    }
+
+    private void awaitInteractive(long startNanos) {
+        long deadline = startNanos + timeout.toNanos();
+        while (driver.findElements(interactiveElement).isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("App was not interactive within " + timeout.toSeconds()
+                        + " s: " + interactiveElement + " not found");
+            }
+            pause(POLL_INTERVAL);
+        }
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during startup benchmark", e);
+        }
+    }
+
+    /**
+     * Launch samples in order, per metric: "cold total_time", "cold interactive", and so on.
+     * Launches without a reported TotalTime are left out of the total_time metric.
+     */
+    public static Map<String, List<Duration>> samples(List<Launch> launches, Map<String, List<Duration>> into) {
+        for (Launch launch : launches) {
+            String mode = launch.getMode().name().toLowerCase();
+            if (launch.getReportedTotalTime() != null) {
+                into.computeIfAbsent(mode + " total_time", key -> new ArrayList<>()).add(launch.getReportedTotalTime());
+            }
+            into.computeIfAbsent(mode + " interactive", key -> new ArrayList<>()).add(launch.getTimeToInteractive());
+        }
+        return into;
+    }
+}
@@ -0,0 +1,21 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one test method, so page actions can be lined up with their test
+ */
+@Name("com.amalitech.Test")
+@Label("Test")
+@Category({"Appium Tests"})
+public class TestEvent extends Event {
+
+    @Label("Test")
+    public String test;
+
+    @Label("Status")
+    public String status;
+}
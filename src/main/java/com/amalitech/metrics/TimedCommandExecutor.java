@@ -0,0 +1,155 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.ScreenChangeTracker;
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Appium command executor that times every WebDriver command.
+ * Each command is recorded under its name, with the locator strategy for element lookups, into
+ * lock-free histograms for its session, for the test running on the calling thread and in the
+ * {@link MetricsRegistry}, and appears on the {@link Timeline} (W3C actions as gestures). Payload size is the
+ * JSON request body plus the response when it is text, such as page source or a screenshot.
+ * <p>
+ * Commands that can change what is on screen also mark the session changed in
+ * {@link ScreenChangeTracker}, so step screenshots are retaken after direct driver interactions too.
+ */
+public class TimedCommandExecutor extends AppiumCommandExecutor {
+
+    private static final Json JSON = new Json();
+    private static final Map<String, CommandStats> SESSIONS = new ConcurrentHashMap<>();
+    // Per thread, so commands sent by background threads such as the crash watcher stay out of
+    // the summary of the test running on the device's test thread
+    private static final ThreadLocal<CommandStats> CURRENT_TEST = new ThreadLocal<>();
+    // App lifecycle commands are protected in MobileCommand, hence the literal names
+    private static final Set<String> SCREEN_CHANGING = new HashSet<>(Arrays.asList(
+            DriverCommand.CLICK_ELEMENT, DriverCommand.SEND_KEYS_TO_ELEMENT, DriverCommand.CLEAR_ELEMENT,
+            DriverCommand.SUBMIT_ELEMENT, DriverCommand.ACTIONS, DriverCommand.GO_BACK, DriverCommand.GO_FORWARD,
+            DriverCommand.REFRESH, DriverCommand.GET, MobileCommand.SET_VALUE, MobileCommand.REPLACE_VALUE,
+            MobileCommand.PRESS_KEY_CODE, MobileCommand.LONG_PRESS_KEY_CODE, MobileCommand.SET_SCREEN_ORIENTATION,
+            "activateApp", "terminateApp", "startActivity", "hideKeyboard", "performTouchAction", "lock", "unlock"));
+    // Appium extension scripts that act on the screen; read-only ones such as "mobile: shell" are left out
+    private static final Pattern SCREEN_CHANGING_SCRIPT = Pattern.compile(
+            "^mobile:\\s*(\\w*Gesture|swipe|scroll|fling|drag|pinch\\w*|\\w*[cC]lick\\w*|type|replaceElementValue"
+                    + "|pressKey|hideKeyboard|activateApp|terminateApp|startActivity|deepLink|backgroundApp)$");
+
+    public TimedCommandExecutor(URL serverUrl) {
+        super(MobileCommand.commandRepository, serverUrl);
+    }
+
+    @Override
+    public Response execute(Command command) throws WebDriverException {
+        String key = commandKey(command);
+        long start = System.nanoTime();
+        Response response = null;
+        try (Timeline.Span ignored = Timeline.begin(
+                DriverCommand.ACTIONS.equals(command.getName()) ? "gesture" : "command", key)) {
+            response = super.execute(command);
+            return response;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            String sessionId = command.getSessionId() != null ? command.getSessionId().toString()
+                    : response != null ? response.getSessionId() : null;
+            boolean failed = response == null || (response.getState() != null && !"success".equals(response.getState()));
+            record(sessionId, key, nanos, payloadBytes(command, response), failed);
+            if (sessionId != null && changesScreen(command)) {
+                ScreenChangeTracker.markChanged(sessionId);
+            }
+        }
+    }
+
+    static boolean changesScreen(Command command) {
+        String name = command.getName();
+        if (DriverCommand.EXECUTE_SCRIPT.equals(name) || DriverCommand.EXECUTE_ASYNC_SCRIPT.equals(name)) {
+            Object script = command.getParameters().get("script");
+            return script != null && SCREEN_CHANGING_SCRIPT.matcher(script.toString().trim()).matches();
+        }
+        return SCREEN_CHANGING.contains(name);
+    }
+
+    static void record(String sessionId, String command, long nanos, long payloadBytes, boolean failed) {
+        if (sessionId != null) {
+            SESSIONS.computeIfAbsent(sessionId, id -> new CommandStats()).record(command, nanos, payloadBytes, failed);
+        }
+        CommandStats test = CURRENT_TEST.get();
+        if (test != null) {
+            test.record(command, nanos, payloadBytes, failed);
+        }
+        MetricsRegistry.getInstance().timer("appium_command_duration_seconds", "command", command).record(nanos / 1000);
+    }
+
+    /**
+     * Command name, qualified by the locator strategy for element lookups
+     */
+    static String commandKey(Command command) {
+        String name = command.getName();
+        if (DriverCommand.FIND_ELEMENT.equals(name) || DriverCommand.FIND_ELEMENTS.equals(name)
+                || DriverCommand.FIND_CHILD_ELEMENT.equals(name) || DriverCommand.FIND_CHILD_ELEMENTS.equals(name)) {
+            Object using = command.getParameters().get("using");
+            if (using != null) {
+                return name + " by " + using;
+            }
+        }
+        return name;
+    }
+
+    private static long payloadBytes(Command command, Response response) {
+        long bytes = 0;
+        if (!command.getParameters().isEmpty()) {
+            try {
+                bytes += JSON.toJson(command.getParameters()).length();
+            } catch (RuntimeException e) {
+                // Not encodable here; the request still went through, only its size is unknown
+            }
+        }
+        if (response != null && response.getValue() instanceof String) {
+            bytes += ((String) response.getValue()).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Statistics of a session, or null if it sent no commands through this executor
+     */
+    public static CommandStats forSession(String sessionId) {
+        return SESSIONS.get(sessionId);
+    }
+
+    /**
+     * Stop keeping statistics for a session that has been quit
+     * @return its statistics, or null if it sent no commands through this executor
+     */
+    public static CommandStats removeSession(String sessionId) {
+        return SESSIONS.remove(sessionId);
+    }
+
+    /**
+     * Start collecting a summary of the commands the calling thread sends for the test about to run
+     */
+    public static void startTest() {
+        CURRENT_TEST.set(new CommandStats());
+    }
+
+    /**
+     * Stop collecting for the calling thread's test
+     * @return the commands it sent, or null if no test was started on this thread
+     */
+    public static CommandStats finishTest() {
+        CommandStats test = CURRENT_TEST.get();
+        CURRENT_TEST.remove();
+        return test;
+    }
+}
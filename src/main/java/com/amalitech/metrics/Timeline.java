@@ -0,0 +1,193 @@
+package com.amalitech.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Step-level timeline of the run: tests, setup methods, page actions, waits, driver commands,
+ * gestures, screenshots and sleeps, each as a span on its device lane.
+ * Spans nest per thread, so a page action contains the waits and commands it made and any time
+ * not covered by them is local work or a sleep. Only threads with a lane are recorded, so the
+ * crash watcher, sampler and other background threads do not add lanes of their own. Recording is
+ * off until enabled, and then costs two clock reads and a queue insert per span.
+ */
+public final class Timeline {
+
+    private static final int MAX_SPANS = 500_000;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long ORIGIN_EPOCH_MILLIS = System.currentTimeMillis();
+
+    private static final Queue<Entry> ENTRIES = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger SIZE = new AtomicInteger();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final ThreadLocal<String> LANE = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+    private static volatile boolean enabled;
+
+    private static final Span NOOP = new Span(null, null, null, null, 0, 0);
+
+    private Timeline() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * One finished span. Times are microseconds since the timeline origin.
+     */
+    public static final class Entry {
+        private final String lane;
+        private final String thread;
+        private final String category;
+        private final String name;
+        private final long startMicros;
+        private final long durationMicros;
+        private final int depth;
+
+        Entry(String lane, String thread, String category, String name, long startMicros, long durationMicros,
+              int depth) {
+            this.lane = lane;
+            this.thread = thread;
+            this.category = category;
+            this.name = name;
+            this.startMicros = startMicros;
+            this.durationMicros = durationMicros;
+            this.depth = depth;
+        }
+
+        public String getLane() {
+            return lane;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStartMicros() {
+            return startMicros;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+
+        public long getEndMicros() {
+            return startMicros + durationMicros;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    /**
+     * An open span, recorded when closed
+     */
+    public static final class Span implements AutoCloseable {
+        private final String lane;
+        private final String thread;
+        private final String category;
+        private final String name;
+        private final long startNanos;
+        private final int depth;
+
+        private Span(String lane, String thread, String category, String name, long startNanos, int depth) {
+            this.lane = lane;
+            this.thread = thread;
+            this.category = category;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.depth = depth;
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP) {
+                return;
+            }
+            long endNanos = System.nanoTime();
+            DEPTH.get()[0] = depth;
+            // A span opened before its thread was given a lane, e.g. the setup that creates the
+            // session, belongs to the lane set meanwhile
+            String spanLane = lane != null ? lane : LANE.get();
+            if (spanLane == null) {
+                return;
+            }
+            if (SIZE.incrementAndGet() > MAX_SPANS) {
+                SIZE.decrementAndGet();
+                DROPPED.increment();
+                return;
+            }
+            ENTRIES.add(new Entry(spanLane, thread, category, name, (startNanos - ORIGIN_NANOS) / 1000,
+                    (endNanos - startNanos) / 1000, depth));
+        }
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Name the lane of the current thread, normally the device its session runs on
+     */
+    public static void setLane(String lane) {
+        LANE.set(lane);
+    }
+
+    /**
+     * Open a span on the current thread. Spans must be closed in reverse order of opening,
+     * which try-with-resources guarantees.
+     * @param category e.g. "test", "setup", "action", "wait", "command", "gesture", "screenshot", "sleep"
+     */
+    public static Span begin(String category, String name) {
+        if (!enabled) {
+            return NOOP;
+        }
+        int[] depth = DEPTH.get();
+        return new Span(LANE.get(), Thread.currentThread().getName(), category, name, System.nanoTime(),
+                depth[0]++);
+    }
+
+    /**
+     * Recorded spans in completion order
+     */
+    public static List<Entry> entries() {
+        return new ArrayList<>(ENTRIES);
+    }
+
+    /**
+     * Spans not recorded because the timeline was full
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Wall-clock time of the timeline origin, for labelling reports
+     */
+    public static long getOriginEpochMillis() {
+        return ORIGIN_EPOCH_MILLIS;
+    }
+
+    /**
+     * Discard recorded spans
+     */
+    public static void clear() {
+        ENTRIES.clear();
+        SIZE.set(0);
+    }
+}
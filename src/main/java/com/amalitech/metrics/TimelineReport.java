@@ -0,0 +1,292 @@
+package com.amalitech.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders {@link Timeline} spans as a self-contained HTML flame chart, one lane per device.
+ * Besides the chart the page lists, per lane, how much of the run it sat idle, and the steps
+ * with the most total and self time. Self time is a span's duration minus its children, so a
+ * page action with large self time is sleeping or working locally rather than waiting on the device.
+ */
+public class TimelineReport {
+
+    private static final int TOP_STEPS = 25;
+
+    private final List<Timeline.Entry> entries;
+    private final Map<Timeline.Entry, Long> selfMicros;
+
+    /**
+     * Time per lane: wall span from first to last activity, and the part covered by top-level spans
+     */
+    public static final class LaneSummary {
+        private final String lane;
+        private final long wallMicros;
+        private final long busyMicros;
+
+        private LaneSummary(String lane, long wallMicros, long busyMicros) {
+            this.lane = lane;
+            this.wallMicros = wallMicros;
+            this.busyMicros = busyMicros;
+        }
+
+        public String getLane() {
+            return lane;
+        }
+
+        public long getWallMicros() {
+            return wallMicros;
+        }
+
+        public long getBusyMicros() {
+            return busyMicros;
+        }
+
+        public long getIdleMicros() {
+            return wallMicros - busyMicros;
+        }
+    }
+
+    /**
+     * All spans with the same category and name
+     */
+    public static final class StepSummary {
+        private final String category;
+        private final String name;
+        private int count;
+        private long totalMicros;
+        private long selfMicros;
+
+        private StepSummary(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        public long getSelfMicros() {
+            return selfMicros;
+        }
+    }
+
+    public TimelineReport(List<Timeline.Entry> entries) {
+        this.entries = new ArrayList<>(entries);
+        this.entries.sort(Comparator.comparingLong(Timeline.Entry::getStartMicros)
+                .thenComparingInt(Timeline.Entry::getDepth));
+        this.selfMicros = computeSelfTimes(this.entries);
+    }
+
+    /**
+     * Self time of every span: its duration minus the spans directly nested in it on the same thread
+     */
+    private static Map<Timeline.Entry, Long> computeSelfTimes(List<Timeline.Entry> sorted) {
+        Map<Timeline.Entry, Long> self = new HashMap<>();
+        Map<String, List<Timeline.Entry>> openByThread = new HashMap<>();
+        for (Timeline.Entry entry : sorted) {
+            self.put(entry, entry.getDurationMicros());
+            List<Timeline.Entry> open = openByThread.computeIfAbsent(entry.getThread(), thread -> new ArrayList<>());
+            while (open.size() > entry.getDepth()) {
+                open.remove(open.size() - 1);
+            }
+            if (entry.getDepth() > 0 && open.size() == entry.getDepth()) {
+                Timeline.Entry parent = open.get(entry.getDepth() - 1);
+                if (parent.getEndMicros() >= entry.getEndMicros()) {
+                    self.put(parent, self.get(parent) - entry.getDurationMicros());
+                }
+            }
+            if (open.size() == entry.getDepth()) {
+                open.add(entry);
+            }
+        }
+        return self;
+    }
+
+    public List<LaneSummary> getLanes() {
+        Map<String, List<Timeline.Entry>> topLevel = new TreeMap<>();
+        for (Timeline.Entry entry : entries) {
+            List<Timeline.Entry> lane = topLevel.computeIfAbsent(entry.getLane(), name -> new ArrayList<>());
+            if (entry.getDepth() == 0) {
+                lane.add(entry);
+            }
+        }
+        List<LaneSummary> lanes = new ArrayList<>();
+        for (Map.Entry<String, List<Timeline.Entry>> lane : topLevel.entrySet()) {
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            long busy = 0;
+            long coveredUntil = Long.MIN_VALUE;
+            for (Timeline.Entry entry : lane.getValue()) {
+                first = Math.min(first, entry.getStartMicros());
+                last = Math.max(last, entry.getEndMicros());
+                long start = Math.max(entry.getStartMicros(), coveredUntil);
+                if (entry.getEndMicros() > start) {
+                    busy += entry.getEndMicros() - start;
+                    coveredUntil = entry.getEndMicros();
+                }
+            }
+            lanes.add(new LaneSummary(lane.getKey(), lane.getValue().isEmpty() ? 0 : last - first, busy));
+        }
+        return lanes;
+    }
+
+    /**
+     * Steps by total time, largest first
+     */
+    public List<StepSummary> getTopSteps(int limit) {
+        Map<String, StepSummary> steps = new LinkedHashMap<>();
+        for (Timeline.Entry entry : entries) {
+            StepSummary step = steps.computeIfAbsent(entry.getCategory() + '\u0000' + entry.getName(),
+                    key -> new StepSummary(entry.getCategory(), entry.getName()));
+            step.count++;
+            step.totalMicros += entry.getDurationMicros();
+            step.selfMicros += selfMicros.get(entry);
+        }
+        List<StepSummary> sorted = new ArrayList<>(steps.values());
+        sorted.sort(Comparator.comparingLong(StepSummary::getTotalMicros).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Write the report, replacing any previous one atomically
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, toHtml().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String toHtml() {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Test run timeline</title>\n")
+                .append("<style>\n")
+                .append("body{font:13px sans-serif;margin:16px;color:#222}\n")
+                .append("table{border-collapse:collapse;margin:8px 0 16px}td,th{padding:2px 10px;border-bottom:1px solid #ddd;text-align:right}\n")
+                .append("td:first-child,th:first-child,td.name{text-align:left}\n")
+                .append("#chart{overflow-x:auto;border:1px solid #ccc;position:relative}\n")
+                .append(".lane{position:relative;border-bottom:2px solid #999;background:#f6f6f6}\n")
+                .append(".label{position:sticky;left:0;z-index:2;background:#fff;padding:2px 4px;font-weight:bold;display:inline-block}\n")
+                .append(".span{position:absolute;height:16px;overflow:hidden;white-space:nowrap;font-size:11px;")
+                .append("line-height:16px;border:1px solid rgba(0,0,0,.25);box-sizing:border-box;padding-left:2px}\n")
+                .append(".test{background:#9ecae1}.setup{background:#fdae6b}.session{background:#c7c7c7}.action{background:#a1d99b}")
+                .append(".wait{background:#fdd0a2}.command{background:#dadaeb}.gesture{background:#bcbddc}")
+                .append(".screenshot{background:#fcbba1}.sleep{background:#ef3b2c;color:#fff}\n")
+                .append("</style></head><body>\n");
+        html.append("<h1>Test run timeline</h1>\n<p>Started ").append(Instant.ofEpochMilli(Timeline.getOriginEpochMillis()))
+                .append(", ").append(entries.size()).append(" spans");
+        if (Timeline.getDroppedCount() > 0) {
+            html.append(", ").append(Timeline.getDroppedCount()).append(" dropped");
+        }
+        html.append(".</p>\n");
+
+        html.append("<h2>Device lanes</h2>\n<table><tr><th>Lane</th><th>Wall s</th><th>Busy s</th><th>Idle s</th><th>Idle %</th></tr>\n");
+        for (LaneSummary lane : getLanes()) {
+            html.append("<tr><td>").append(escape(lane.getLane())).append("</td><td>").append(seconds(lane.getWallMicros()))
+                    .append("</td><td>").append(seconds(lane.getBusyMicros())).append("</td><td>")
+                    .append(seconds(lane.getIdleMicros())).append("</td><td>")
+                    .append(lane.getWallMicros() == 0 ? "0" : String.format("%.1f", 100.0 * lane.getIdleMicros() / lane.getWallMicros()))
+                    .append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+
+        html.append("<h2>Slowest steps</h2>\n<p>Self time is time not spent in nested steps: sleeps and local work.</p>\n")
+                .append("<table><tr><th>Category</th><th>Step</th><th>Count</th><th>Total s</th><th>Self s</th></tr>\n");
+        for (StepSummary step : getTopSteps(TOP_STEPS)) {
+            html.append("<tr><td>").append(escape(step.getCategory())).append("</td><td class=\"name\">")
+                    .append(escape(step.getName())).append("</td><td>").append(step.getCount()).append("</td><td>")
+                    .append(seconds(step.getTotalMicros())).append("</td><td>").append(seconds(step.getSelfMicros()))
+                    .append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+
+        html.append("<h2>Flame chart</h2>\n<p>Zoom <input id=\"zoom\" type=\"range\" min=\"1\" max=\"200\" value=\"1\"> ")
+                .append("<span id=\"scale\"></span></p>\n<div id=\"chart\"></div>\n");
+        html.append("<script>\nconst spans = ").append(spansJson()).append(";\n").append(SCRIPT).append("</script>\n");
+        html.append("</body></html>\n");
+        return html.toString();
+    }
+
+    private String spansJson() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Timeline.Entry entry : entries) {
+            rows.add(new Object[]{entry.getLane(), entry.getCategory(), entry.getName(), entry.getStartMicros(),
+                    entry.getDurationMicros(), entry.getDepth(), selfMicros.get(entry)});
+        }
+        try {
+            // Keep a span name from closing the script element
+            return new ObjectMapper().writeValueAsString(rows).replace("</", "<\\/");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode timeline", e);
+        }
+    }
+
+    private static String seconds(long micros) {
+        return String.format("%.2f", micros / 1_000_000.0);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    // Spans are [lane, category, name, startMicros, durationMicros, depth, selfMicros]
+    private static final String SCRIPT = String.join("\n",
+            "const chart = document.getElementById('chart');",
+            "const zoom = document.getElementById('zoom');",
+            "const end = spans.reduce((max, s) => Math.max(max, s[3] + s[4]), 1);",
+            "const lanes = [...new Set(spans.map(s => s[0]))].sort();",
+            "function esc(t) { return String(t).replace(/[&<>\"]/g, c => ({'&':'&amp;','<':'&lt;','>':'&gt;','\"':'&quot;'})[c]); }",
+            "function render() {",
+            "  const width = chart.clientWidth * zoom.value;",
+            "  const px = width / end;",
+            "  document.getElementById('scale').textContent = (100 / px / 1000).toFixed(1) + ' ms per 100 px';",
+            "  let html = '';",
+            "  for (const lane of lanes) {",
+            "    const own = spans.filter(s => s[0] === lane);",
+            "    const depth = own.reduce((max, s) => Math.max(max, s[5]), 0);",
+            "    html += '<div class=\"lane\" style=\"width:' + width + 'px;height:' + ((depth + 1) * 17 + 22) + 'px\">'",
+            "      + '<span class=\"label\">' + esc(lane) + '</span>';",
+            "    for (const s of own) {",
+            "      const w = s[4] * px;",
+            "      if (w < 0.5) continue;",
+            "      const title = s[1] + ': ' + s[2] + '\\n' + (s[4] / 1000).toFixed(1) + ' ms, self ' + (s[6] / 1000).toFixed(1) + ' ms';",
+            "      html += '<div class=\"span ' + esc(s[1]) + '\" title=\"' + esc(title) + '\" style=\"left:' + (s[3] * px) + 'px;top:'",
+            "        + (22 + s[5] * 17) + 'px;width:' + Math.max(w, 1) + 'px\">' + (w > 30 ? esc(s[2]) : '') + '</div>';",
+            "    }",
+            "    html += '</div>';",
+            "  }",
+            "  chart.innerHTML = html;",
+            "}",
+            "zoom.addEventListener('input', render);",
+            "window.addEventListener('resize', render);",
+            "render();",
+            "");
+}
@@ -0,0 +1,149 @@
+package com.amalitech.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Monotonic trend of a series measured once per iteration, e.g. app memory over a soak run.
+ * The Mann-Kendall test decides whether the series keeps rising rather than merely fluctuating,
+ * and Sen's slope, the median of all pairwise slopes, estimates how fast it rises. Both depend
+ * only on the order of the values, so a few outliers such as a GC pause cannot fake a trend.
+ */
+public final class Trend {
+
+    private final String series;
+    private final int count;
+    private final long s;
+    private final double pValue;
+    private final double slope;
+    private final double start;
+
+    private Trend(String series, int count, long s, double pValue, double slope, double start) {
+        this.series = series;
+        this.count = count;
+        this.s = s;
+        this.pValue = pValue;
+        this.slope = slope;
+        this.start = start;
+    }
+
+    public static Trend of(String series, List<Double> values) {
+        double[] x = new double[values.size()];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = values.get(i);
+        }
+        return of(series, x);
+    }
+
+    public static Trend of(String series, double[] values) {
+        int n = values.length;
+        long s = 0;
+        double[] slopes = new double[n * (n - 1) / 2];
+        int pairs = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                s += Double.compare(values[j], values[i]);
+                slopes[pairs++] = (values[j] - values[i]) / (j - i);
+            }
+        }
+        double slope = median(slopes);
+        double[] intercepts = new double[n];
+        for (int i = 0; i < n; i++) {
+            intercepts[i] = values[i] - slope * i;
+        }
+        return new Trend(series, n, s, pValue(values, s), slope, n == 0 ? 0 : median(intercepts));
+    }
+
+    /**
+     * One-sided p-value for a rising series from the normal approximation of S, with the
+     * variance corrected for tied values and a continuity correction
+     */
+    private static double pValue(double[] values, long s) {
+        int n = values.length;
+        if (n < 3 || s <= 0) {
+            return 1;
+        }
+        double variance = n * (n - 1.0) * (2 * n + 5);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) {
+                j++;
+            }
+            long ties = j - i;
+            variance -= ties * (ties - 1) * (2 * ties + 5);
+            i = j;
+        }
+        variance /= 18;
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = (s - 1) / Math.sqrt(variance);
+        return Math.min(1, 0.5 * LatencyComparison.erfc(z / Math.sqrt(2)));
+    }
+
+    public String getSeries() {
+        return series;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Mann-Kendall S: rising pairs minus falling pairs
+     */
+    public long getS() {
+        return s;
+    }
+
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * Sen's slope in the series' unit per iteration
+     */
+    public double getSlope() {
+        return slope;
+    }
+
+    /**
+     * Value of the fitted line at the first iteration
+     */
+    public double getStart() {
+        return start;
+    }
+
+    /**
+     * Rise of the fitted line over the whole series relative to its start, e.g. 0.2 for 20%
+     */
+    public double getRelativeGrowth() {
+        return start <= 0 || count < 2 ? 0 : slope * (count - 1) / start;
+    }
+
+    /**
+     * Significantly rising and grown by more than the tolerance over the series
+     * @param minCount iterations needed before a trend is trusted at all
+     */
+    public boolean isGrowing(double alpha, double tolerance, int minCount) {
+        return count >= minCount && s > 0 && pValue < alpha && getRelativeGrowth() > tolerance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d S=%d p=%.4f slope=%.4g/iteration start=%.4g growth %+.1f%%",
+                series, count, s, pValue, slope, start, getRelativeGrowth() * 100);
+    }
+
+    private static double median(double[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
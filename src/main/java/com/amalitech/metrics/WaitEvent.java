@@ -0,0 +1,26 @@
+package com.amalitech.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning one explicit wait
+ */
+@Name("com.amalitech.Wait")
+@Label("Wait")
+@Category({"Appium Tests", "Waits"})
+public class WaitEvent extends Event {
+
+    @Label("Condition")
+    public String condition;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Timeout")
+    @Timespan(Timespan.MILLISECONDS)
+    public long timeout;
+}
@@ -0,0 +1,69 @@
+package com.amalitech.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Difference between two cart snapshots, matched by product name
+ */
+public class CartDiff {
+
+    private final List<CartItem> removed = new ArrayList<>();
+    private final List<CartItem> added = new ArrayList<>();
+    private final List<CartItem> quantityChanged = new ArrayList<>();
+
+    CartDiff(CartSnapshot before, CartSnapshot after) {
+        for (CartItem item : before.getItems()) {
+            Optional<CartItem> match = after.findByName(item.getName());
+            if (!match.isPresent()) {
+                removed.add(item);
+            } else if (match.get().getQuantity() != item.getQuantity()) {
+                quantityChanged.add(match.get());
+            }
+        }
+        for (CartItem item : after.getItems()) {
+            if (!before.findByName(item.getName()).isPresent()) {
+                added.add(item);
+            }
+        }
+    }
+
+    /**
+     * Rows present before but not after
+     */
+    public List<CartItem> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * Rows present after but not before
+     */
+    public List<CartItem> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * Rows present in both whose quantity changed, with the new quantity
+     */
+    public List<CartItem> getQuantityChanged() {
+        return Collections.unmodifiableList(quantityChanged);
+    }
+
+    /**
+     * True if exactly one row disappeared and nothing else changed
+     */
+    public boolean isSingleItemRemoved() {
+        return removed.size() == 1 && added.isEmpty() && quantityChanged.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty() && quantityChanged.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "CartDiff{removed=" + removed + ", added=" + added + ", quantityChanged=" + quantityChanged + "}";
+    }
+}
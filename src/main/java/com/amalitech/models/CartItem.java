@@ -0,0 +1,67 @@
+package com.amalitech.models;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * One row of the cart: product name, unit price and quantity
+ */
+public class CartItem {
+
+    private final String name;
+    private final String priceText;
+    private final int quantity;
+
+    public CartItem(String name, String priceText, int quantity) {
+        this.name = name;
+        this.priceText = priceText;
+        this.quantity = quantity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Price as displayed, e.g. "$29.99"
+     */
+    public String getPriceText() {
+        return priceText;
+    }
+
+    /**
+     * Price parsed from the displayed text, or zero if it has no numeric part
+     */
+    public BigDecimal getPrice() {
+        String digits = priceText == null ? "" : priceText.replaceAll("[^0-9.]", "");
+        return digits.isEmpty() ? BigDecimal.ZERO : new BigDecimal(digits);
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CartItem)) {
+            return false;
+        }
+        CartItem item = (CartItem) other;
+        return quantity == item.quantity
+                && Objects.equals(name, item.name)
+                && Objects.equals(priceText, item.priceText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, priceText, quantity);
+    }
+
+    @Override
+    public String toString() {
+        return quantity + " x " + name + " @ " + priceText;
+    }
+}
@@ -0,0 +1,124 @@
+package com.amalitech.models;
+
+import com.amalitech.utils.UiSnapshot;
+import org.w3c.dom.Element;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable view of the cart contents, built from page-source snapshots
+ * instead of one findElements call per queried field.
+ */
+public class CartSnapshot {
+
+    // Accessibility IDs of the cart row and its cells
+    static final String ITEM = "test-Item";
+    static final String AMOUNT = "test-Amount";
+    static final String DESCRIPTION = "test-Description";
+    static final String PRICE = "test-Price";
+
+    private final List<CartItem> items;
+
+    public CartSnapshot(List<CartItem> items) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    /**
+     * Parse the cart rows visible in one page-source snapshot
+     */
+    public static List<CartItem> parseVisibleItems(UiSnapshot snapshot) {
+        List<CartItem> visible = new ArrayList<>();
+        for (Element row : snapshot.findByContentDesc(ITEM)) {
+            CartItem item = parseRow(row);
+            if (item != null) {
+                visible.add(item);
+            }
+        }
+        return visible;
+    }
+
+    private static CartItem parseRow(Element row) {
+        List<String> texts = UiSnapshot.texts(row);
+
+        String name = firstText(row, DESCRIPTION);
+        if (name == null) {
+            name = texts.stream()
+                    .filter(text -> !text.startsWith("$") && !text.matches("\\d+") && !text.equals("REMOVE"))
+                    .findFirst().orElse(null);
+        }
+        if (name == null) {
+            return null;
+        }
+
+        String price = firstText(row, PRICE);
+        if (price == null) {
+            price = texts.stream().filter(text -> text.startsWith("$")).findFirst().orElse("$0.00");
+        }
+
+        String amount = firstText(row, AMOUNT);
+        int quantity = amount != null && amount.matches("\\d+") ? Integer.parseInt(amount) : 1;
+
+        return new CartItem(name, price, quantity);
+    }
+
+    private static String firstText(Element row, String contentDesc) {
+        for (Element cell : UiSnapshot.findDescendantsByContentDesc(row, contentDesc)) {
+            List<String> texts = UiSnapshot.texts(cell);
+            if (!texts.isEmpty()) {
+                return texts.get(0);
+            }
+        }
+        return null;
+    }
+
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public CartItem get(int index) {
+        return items.get(index);
+    }
+
+    public Optional<CartItem> findByName(String name) {
+        return items.stream().filter(item -> item.getName().equals(name)).findFirst();
+    }
+
+    public int getTotalQuantity() {
+        return items.stream().mapToInt(CartItem::getQuantity).sum();
+    }
+
+    /**
+     * Sum of price x quantity over all rows
+     */
+    public BigDecimal getSubtotal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            subtotal = subtotal.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return subtotal;
+    }
+
+    /**
+     * Compare this snapshot (before) with a later one (after)
+     */
+    public CartDiff diff(CartSnapshot after) {
+        return new CartDiff(this, after);
+    }
+
+    @Override
+    public String toString() {
+        return "CartSnapshot" + items;
+    }
+}
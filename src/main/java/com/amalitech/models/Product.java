@@ -0,0 +1,65 @@
+package com.amalitech.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * One product of the catalog as shown on the Products screen
+ */
+public class Product {
+
+    private final String name;
+    private final String priceText;
+
+    @JsonCreator
+    public Product(@JsonProperty("name") String name, @JsonProperty("priceText") String priceText) {
+        this.name = name;
+        this.priceText = priceText;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Price as displayed, e.g. "$29.99"
+     */
+    public String getPriceText() {
+        return priceText;
+    }
+
+    /**
+     * Price parsed from the displayed text, or zero if it has no numeric part
+     */
+    @JsonIgnore
+    public BigDecimal getPrice() {
+        String digits = priceText == null ? "" : priceText.replaceAll("[^0-9.]", "");
+        return digits.isEmpty() ? BigDecimal.ZERO : new BigDecimal(digits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Product)) {
+            return false;
+        }
+        Product product = (Product) other;
+        return Objects.equals(name, product.name) && Objects.equals(priceText, product.priceText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, priceText);
+    }
+
+    @Override
+    public String toString() {
+        return name + " @ " + priceText;
+    }
+}
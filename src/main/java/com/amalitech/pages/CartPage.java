@@ -1,11 +1,14 @@
 package com.amalitech.pages;
 
 import com.amalitech.base.BasePage;
+import com.amalitech.models.CartItem;
+import com.amalitech.models.CartSnapshot;
+import com.amalitech.utils.ListHarvester;
+import com.amalitech.utils.UiSnapshot;
 import com.amalitech.utils.WaitUtils;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.interactions.PointerInput;
 import org.openqa.selenium.interactions.Sequence;
@@ -13,10 +16,15 @@ import org.openqa.selenium.Point;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public class CartPage extends BasePage {
 
+    private static final int MAX_HARVEST_SCROLLS = 10;
+
     private WaitUtils waitUtils;
+    private CartSnapshot cachedSnapshot;
 
     // Exact locators as provided
     private String cartTitle = "new UiSelector().text(\"YOUR CART\")";
@@ -24,8 +32,10 @@ public class CartPage extends BasePage {
     private String descriptionText = "new UiSelector().text(\"DESCRIPTION\")";
     private String removeButton = "new UiSelector().description(\"test-REMOVE\").instance(0)";
     private String removeButton1 = "new UiSelector().description(\"test-REMOVE\").instance(1)";
+    private String removeButtons = "new UiSelector().description(\"test-REMOVE\")";
     private String continueShoppingButton = "new UiSelector().text(\"CONTINUE SHOPPING\")";
     private String checkoutButton = "new UiSelector().text(\"CHECKOUT\")";
+    private String checkoutInfoTitle = "new UiSelector().text(\"CHECKOUT: YOUR INFORMATION\")";
 
     public CartPage(AndroidDriver driver) {
         super(driver);
@@ -36,10 +46,10 @@ public class CartPage extends BasePage {
      * Wait for cart page to load
      */
     public void waitForCartPageToLoad() {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
         wait.until(ExpectedConditions.presenceOfElementLocated(
                 AppiumBy.androidUIAutomator(cartTitle)
         ));
+        invalidateCartSnapshot();
         System.out.println("Cart page loaded successfully");
     }
 
@@ -51,6 +61,7 @@ public class CartPage extends BasePage {
             WebElement titleElement = findByUIAutomator(cartTitle);
             return titleElement.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -63,6 +74,7 @@ public class CartPage extends BasePage {
             WebElement titleElement = findByUIAutomator(cartTitle);
             return titleElement.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "YOUR CART";
         }
     }
@@ -77,6 +89,7 @@ public class CartPage extends BasePage {
             );
             return removeButtons.size();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return 0;
         }
     }
@@ -96,6 +109,7 @@ public class CartPage extends BasePage {
             WebElement button = findByUIAutomator(removeButton);
             return button.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -104,32 +118,44 @@ public class CartPage extends BasePage {
      * Remove first item from cart
      */
     public boolean removeFirstItem() {
-        try {
-            WebElement removeBtn = findByUIAutomator(removeButton);
-            removeBtn.click();
-            Thread.sleep(1000);
-            System.out.println("Removed first item from cart");
-            return true;
-        } catch (Exception e) {
-            System.err.println("Failed to remove first item: " + e.getMessage());
-            return false;
-        }
+        return action("removeFirstItem", () -> {
+            try {
+                removeRow(removeButton);
+                System.out.println("Removed first item from cart");
+                return true;
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to remove first item: " + e.getMessage());
+                return false;
+            }
+        });
     }
 
     /**
      * Remove second item from cart
      */
     public boolean removeSecondItem() {
-        try {
-            WebElement removeBtn = findByUIAutomator(removeButton1);
-            removeBtn.click();
-            Thread.sleep(1000);
-            System.out.println("Removed second item from cart");
-            return true;
-        } catch (Exception e) {
-            System.err.println("Failed to remove second item: " + e.getMessage());
-            return false;
-        }
+        return action("removeSecondItem", () -> {
+            try {
+                removeRow(removeButton1);
+                System.out.println("Removed second item from cart");
+                return true;
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to remove second item: " + e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Tap a row's REMOVE button and wait for the row to go
+     */
+    private void removeRow(String removeButtonSelector) {
+        int rows = driver.findElements(AppiumBy.androidUIAutomator(removeButtons)).size();
+        clickByUiSelector(removeButtonSelector);
+        invalidateCartSnapshot();
+        wait.until(ExpectedConditions.numberOfElementsToBeLessThan(AppiumBy.androidUIAutomator(removeButtons), rows));
     }
 
     /**
@@ -146,6 +172,7 @@ public class CartPage extends BasePage {
                 hasTitle = titleElement.isDisplayed();
                 System.out.println("Cart title found: " + hasTitle);
             } catch (Exception e) {
+                rethrowIfFatal(e);
                 System.out.println("Cart title not found: " + e.getMessage());
             }
 
@@ -156,6 +183,7 @@ public class CartPage extends BasePage {
                 hasQty = qtyElement.isDisplayed();
                 System.out.println("QTY header found: " + hasQty);
             } catch (Exception e) {
+                rethrowIfFatal(e);
                 System.out.println("QTY header not found: " + e.getMessage());
             }
 
@@ -166,6 +194,7 @@ public class CartPage extends BasePage {
                 hasDescription = descElement.isDisplayed();
                 System.out.println("DESCRIPTION header found: " + hasDescription);
             } catch (Exception e) {
+                rethrowIfFatal(e);
                 System.out.println("DESCRIPTION header not found: " + e.getMessage());
             }
 
@@ -180,6 +209,7 @@ public class CartPage extends BasePage {
             return isValid;
 
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Cart validation failed with exception: " + e.getMessage());
             return false;
         }
@@ -194,12 +224,11 @@ public class CartPage extends BasePage {
             Point start = new Point(540, 1500);
             Point end = new Point(540, 800);
             performSwipe(start, end);
-
-            // Wait for scroll to complete
-            Thread.sleep(1000);
+            waitForScreenToSettle();
 
             System.out.println("Scrolled down to reveal bottom buttons");
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to scroll: " + e.getMessage());
         }
     }
@@ -219,6 +248,7 @@ public class CartPage extends BasePage {
             swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
             driver.perform(Arrays.asList(swipe));
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to perform swipe: " + e.getMessage());
         }
     }
@@ -232,6 +262,7 @@ public class CartPage extends BasePage {
             WebElement button = findByUIAutomator(continueShoppingButton);
             return button.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Continue shopping button not visible, scrolling down...");
 
             // Scroll down and try again
@@ -241,6 +272,7 @@ public class CartPage extends BasePage {
                 WebElement button = findByUIAutomator(continueShoppingButton);
                 return button.isDisplayed();
             } catch (Exception e2) {
+                rethrowIfFatal(e2);
                 return false;
             }
         }
@@ -255,6 +287,7 @@ public class CartPage extends BasePage {
             WebElement button = findByUIAutomator(checkoutButton);
             return button.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Checkout button not visible, scrolling down...");
 
             // Scroll down and try again
@@ -264,6 +297,7 @@ public class CartPage extends BasePage {
                 WebElement button = findByUIAutomator(checkoutButton);
                 return button.isDisplayed();
             } catch (Exception e2) {
+                rethrowIfFatal(e2);
                 return false;
             }
         }
@@ -273,52 +307,63 @@ public class CartPage extends BasePage {
      * Click continue shopping button (with scroll if needed)
      */
     public void clickContinueShoppingButton() {
-        try {
-            // First try to find it without scrolling
-            WebElement button = findByUIAutomator(continueShoppingButton);
-            button.click();
-            System.out.println("Clicked continue shopping button");
-        } catch (Exception e) {
-            System.out.println("Continue shopping button not visible, scrolling down...");
-
-            // Scroll down and try again
-            scrollToBottomButtons();
-
+        action("clickContinueShoppingButton", () -> {
             try {
-                WebElement button = findByUIAutomator(continueShoppingButton);
-                button.click();
-                System.out.println("Clicked continue shopping button after scrolling");
-            } catch (Exception e2) {
-                System.err.println("Failed to click continue shopping button: " + e2.getMessage());
+                // First try to find it without scrolling
+                clickByUiSelector(continueShoppingButton);
+                System.out.println("Clicked continue shopping button");
+            } catch (Exception e) {
+                rethrowIfFatal(e);
+                System.out.println("Continue shopping button not visible, scrolling down...");
+
+                // Scroll down and try again
+                scrollToBottomButtons();
+
+                try {
+                    clickByUiSelector(continueShoppingButton);
+                    System.out.println("Clicked continue shopping button after scrolling");
+                } catch (Exception e2) {
+                    failAction(e2);
+                    System.err.println("Failed to click continue shopping button: " + e2.getMessage());
+                }
             }
-        }
+        });
     }
 
     /**
      * Proceed to checkout (with scroll if needed)
      */
     public void proceedToCheckout() {
-        try {
-            // First try to find it without scrolling
-            WebElement checkoutBtn = findByUIAutomator(checkoutButton);
-            checkoutBtn.click();
-            Thread.sleep(2000);
-            System.out.println("Proceeded to checkout");
-        } catch (Exception e) {
-            System.out.println("Checkout button not visible, scrolling down...");
-
-            // Scroll down and try again
-            scrollToBottomButtons();
-
+        action("proceedToCheckout", () -> {
             try {
-                WebElement checkoutBtn = findByUIAutomator(checkoutButton);
-                checkoutBtn.click();
-                Thread.sleep(2000);
-                System.out.println("Proceeded to checkout after scrolling");
-            } catch (Exception e2) {
-                System.err.println("Failed to proceed to checkout: " + e2.getMessage());
+                // First try to find it without scrolling
+                clickByUiSelector(checkoutButton);
+                waitForUiSelector(checkoutInfoTitle);
+                System.out.println("Proceeded to checkout");
+            } catch (Exception e) {
+                rethrowIfFatal(e);
+                System.out.println("Checkout button not visible, scrolling down...");
+
+                // Scroll down and try again
+                scrollToBottomButtons();
+
+                try {
+                    clickByUiSelector(checkoutButton);
+                    waitForUiSelector(checkoutInfoTitle);
+                    System.out.println("Proceeded to checkout after scrolling");
+                } catch (Exception e2) {
+                    failAction(e2);
+                    System.err.println("Failed to proceed to checkout: " + e2.getMessage());
+                }
             }
-        }
+        });
+    }
+
+    /**
+     * Tap CHECKOUT without waiting afterwards, as the trigger of a measured screen transition
+     */
+    public void clickCheckoutButton() {
+        action("clickCheckoutButton", () -> clickByUiSelector(checkoutButton));
     }
 
     /**
@@ -333,14 +378,9 @@ public class CartPage extends BasePage {
      */
     public String getItemNameByIndex(int index) {
         try {
-            List<WebElement> itemNames = driver.findElements(
-                    AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Sauce Labs\")")
-            );
-            if (index < itemNames.size()) {
-                return itemNames.get(index).getText();
-            }
-            return "Product " + index;
+            return itemAt(index).map(CartItem::getName).orElse("Product " + index);
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "Product " + index;
         }
     }
@@ -350,15 +390,59 @@ public class CartPage extends BasePage {
      */
     public String getItemPriceByIndex(int index) {
         try {
-            List<WebElement> prices = driver.findElements(
-                    AppiumBy.androidUIAutomator("new UiSelector().textContains(\"$\")")
-            );
-            if (index < prices.size()) {
-                return prices.get(index).getText();
-            }
-            return "$0.00";
+            return itemAt(index).map(CartItem::getPriceText).orElse("$0.00");
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "$0.00";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Look up a row from the cached snapshot, or scroll only as far as needed to reach it
+     */
+    private Optional<CartItem> itemAt(int index) {
+        if (cachedSnapshot != null) {
+            return index < cachedSnapshot.size() ? Optional.of(cachedSnapshot.get(index)) : Optional.empty();
+        }
+        try (Stream<CartItem> items = cartItemHarvester().stream()) {
+            return items.skip(index).findFirst();
+        }
+    }
+
+    /**
+     * Get the cart contents, reusing the last snapshot until the cart changes
+     */
+    public CartSnapshot getCartSnapshot() {
+        if (cachedSnapshot == null) {
+            cachedSnapshot = captureCartSnapshot();
+        }
+        return cachedSnapshot;
+    }
+
+    /**
+     * Read all cart rows, scrolling while the list overflows the screen,
+     * then scroll back to where the list started
+     */
+    public CartSnapshot captureCartSnapshot() {
+        return action("captureCartSnapshot", () -> {
+            cachedSnapshot = new CartSnapshot(cartItemHarvester().harvestAll());
+            System.out.println("Captured cart snapshot: " + cachedSnapshot);
+            return cachedSnapshot;
+        });
+    }
+
+    private ListHarvester<CartItem> cartItemHarvester() {
+        return new ListHarvester<>(() -> UiSnapshot.capture(driver), CartSnapshot::parseVisibleItems,
+                CartItem::getName, () -> performSwipe(new Point(540, 1500), new Point(540, 800)))
+                .restoreWith(() -> performSwipe(new Point(540, 800), new Point(540, 1500)))
+                .stopWhen(window -> window.containsText("CHECKOUT"))
+                .maxScrolls(MAX_HARVEST_SCROLLS);
+    }
+
+    /**
+     * Drop the cached cart snapshot after the cart changes
+     */
+    public void invalidateCartSnapshot() {
+        cachedSnapshot = null;
+    }
+}
@@ -1,16 +1,19 @@
 package com.amalitech.pages;
 
 import com.amalitech.base.BasePage;
+import com.amalitech.constants.AppConstants;
+import com.amalitech.metrics.StageTimings;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.interactions.PointerInput;
 import org.openqa.selenium.interactions.Sequence;
 import org.openqa.selenium.Point;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class CheckoutPage extends BasePage {
 
@@ -26,6 +29,7 @@ public class CheckoutPage extends BasePage {
     private final String CHECKOUT_COMPLETE_TITLE = "new UiSelector().text(\"CHECKOUT: COMPLETE!\")";
     private final String FINISH_BUTTON_TEXT = "new UiSelector().text(\"FINISH\")";
     private final String CANCEL_BUTTON_TEXT = "new UiSelector().text(\"CANCEL\")";
+    private final String PRODUCTS_TITLE = "new UiSelector().text(\"" + AppConstants.PRODUCTS_PAGE_TITLE + "\")";
 
     public CheckoutPage(AndroidDriver driver) {
         super(driver);
@@ -43,15 +47,29 @@ public class CheckoutPage extends BasePage {
      */
     public void waitForCheckoutCompletePageToLoad() {
         try {
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
             wait.until(ExpectedConditions.presenceOfElementLocated(
                     AppiumBy.androidUIAutomator(CHECKOUT_COMPLETE_TITLE)
             ));
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Checkout complete page failed to load: " + e.getMessage());
         }
     }
 
+    /**
+     * Wait for checkout overview page to load
+     */
+    public void waitForCheckoutOverviewPageToLoad() {
+        waitForScreen(CHECKOUT_OVERVIEW_TITLE);
+    }
+
+    /**
+     * Scroll the overview until FINISH is on screen, so tapping it does not have to search first
+     */
+    public void scrollToFinish() {
+        action("scrollToFinish", this::scrollToFinishButton);
+    }
+
     /**
      * Check if checkout information page is displayed - compatibility method
      */
@@ -60,6 +78,7 @@ public class CheckoutPage extends BasePage {
             WebElement titleElement = findByUIAutomator(CHECKOUT_INFO_TITLE);
             return titleElement.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -72,6 +91,7 @@ public class CheckoutPage extends BasePage {
             WebElement titleElement = findByUIAutomator(CHECKOUT_OVERVIEW_TITLE);
             return titleElement.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -84,6 +104,7 @@ public class CheckoutPage extends BasePage {
             WebElement titleElement = findByUIAutomator(CHECKOUT_COMPLETE_TITLE);
             return titleElement.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -96,6 +117,7 @@ public class CheckoutPage extends BasePage {
             WebElement titleElement = findByUIAutomator(CHECKOUT_INFO_TITLE);
             return titleElement.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "";
         }
     }
@@ -108,6 +130,7 @@ public class CheckoutPage extends BasePage {
             WebElement titleElement = findByUIAutomator(CHECKOUT_COMPLETE_TITLE);
             return titleElement.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "";
         }
     }
@@ -120,6 +143,7 @@ public class CheckoutPage extends BasePage {
             WebElement button = findByAccessibilityId(BACK_HOME_BUTTON);
             return button.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -136,6 +160,7 @@ public class CheckoutPage extends BasePage {
             System.out.println("All checkout information fields validated successfully");
             return true;
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to validate checkout information fields: " + e.getMessage());
             return false;
         }
@@ -149,6 +174,7 @@ public class CheckoutPage extends BasePage {
             fillShippingInfo("John", "Doe", "12345");
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -178,7 +204,6 @@ public class CheckoutPage extends BasePage {
      * Wait for checkout page to load
      */
     public void waitForCheckoutPage() {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
         wait.until(ExpectedConditions.presenceOfElementLocated(
                 AppiumBy.accessibilityId(FIRST_NAME_FIELD)
         ));
@@ -188,78 +213,79 @@ public class CheckoutPage extends BasePage {
      * Fill shipping information
      */
     public void fillShippingInfo(String firstName, String lastName, String zipCode) {
-        try {
-            waitForCheckoutPage();
-
-            WebElement firstNameField = findByAccessibilityId(FIRST_NAME_FIELD);
-            firstNameField.clear();
-            firstNameField.sendKeys(firstName);
-
-            WebElement lastNameField = findByAccessibilityId(LAST_NAME_FIELD);
-            lastNameField.clear();
-            lastNameField.sendKeys(lastName);
+        action("fillShippingInfo", () -> {
+            try {
+                waitForCheckoutPage();
 
-            WebElement zipCodeField = findByAccessibilityId(ZIP_CODE_FIELD);
-            zipCodeField.clear();
-            zipCodeField.sendKeys(zipCode);
+                Map<String, String> shippingInfo = new LinkedHashMap<>();
+                shippingInfo.put(FIRST_NAME_FIELD, firstName);
+                shippingInfo.put(LAST_NAME_FIELD, lastName);
+                shippingInfo.put(ZIP_CODE_FIELD, zipCode);
+                formFiller.fill("shipping info", shippingInfo);
 
-            System.out.println("Filled shipping info: " + firstName + " " + lastName + ", " + zipCode);
-        } catch (Exception e) {
-            System.err.println("Failed to fill shipping info: " + e.getMessage());
-            throw e;
-        }
+                System.out.println("Filled shipping info: " + firstName + " " + lastName + ", " + zipCode);
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to fill shipping info: " + e.getMessage());
+                throw e;
+            }
+        });
     }
 
     /**
      * Click continue button
      */
     public void clickContinue() {
-        try {
-            WebElement continueButton = findByAccessibilityId(CONTINUE_BUTTON);
-            continueButton.click();
-            System.out.println("Clicked continue button");
-        } catch (Exception e) {
-            System.err.println("Failed to click continue: " + e.getMessage());
-            throw e;
-        }
+        action("clickContinue", () -> {
+            try {
+                clickByAccessibilityId(CONTINUE_BUTTON);
+                System.out.println("Clicked continue button");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to click continue: " + e.getMessage());
+                throw e;
+            }
+        });
     }
 
     /**
      * Scroll down to find and click finish button
      */
     public void clickFinish() {
-        try {
-            // First try to find the finish button without scrolling
+        action("clickFinish", () -> {
             try {
-                WebElement finishButton = findByAccessibilityId(FINISH_BUTTON);
-                finishButton.click();
-                System.out.println("Clicked finish button");
-                return;
-            } catch (Exception e) {
-                System.out.println("Finish button not visible, scrolling down...");
-            }
-
-            // If not found, scroll down to reveal the finish button
-            scrollToFinishButton();
+                // First try to find the finish button without scrolling
+                try {
+                    clickByAccessibilityId(FINISH_BUTTON);
+                    System.out.println("Clicked finish button");
+                    return;
+                } catch (Exception e) {
+                    rethrowIfFatal(e);
+                    System.out.println("Finish button not visible, scrolling down...");
+                }
+
+                // If not found, scroll down to reveal the finish button
+                scrollToFinishButton();
+
+                // Try again after scrolling
+                clickByAccessibilityId(FINISH_BUTTON);
+                System.out.println("Clicked finish button after scrolling");
 
-            // Try again after scrolling
-            WebElement finishButton = findByAccessibilityId(FINISH_BUTTON);
-            finishButton.click();
-            System.out.println("Clicked finish button after scrolling");
-
-        } catch (Exception e) {
-            System.err.println("Failed to click finish button: " + e.getMessage());
-
-            // Try alternative approach - look for FINISH text
-            try {
-                WebElement finishByText = findByUIAutomator(FINISH_BUTTON_TEXT);
-                finishByText.click();
-                System.out.println("Clicked finish button using text locator");
-            } catch (Exception e2) {
-                System.err.println("Failed with text locator too: " + e2.getMessage());
-                throw e;
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to click finish button: " + e.getMessage());
+
+                // Try alternative approach - look for FINISH text
+                try {
+                    clickByUiSelector(FINISH_BUTTON_TEXT);
+                    System.out.println("Clicked finish button using text locator");
+                } catch (Exception e2) {
+                    failAction(e2);
+                    System.err.println("Failed with text locator too: " + e2.getMessage());
+                    throw e;
+                }
             }
-        }
+        });
     }
 
     /**
@@ -271,12 +297,11 @@ public class CheckoutPage extends BasePage {
             Point start = new Point(540, 1500);
             Point end = new Point(540, 800);
             performSwipe(start, end);
-
-            // Wait a moment for the scroll to complete
-            Thread.sleep(1000);
+            waitForScreenToSettle();
 
             System.out.println("Scrolled down to reveal finish button");
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to scroll: " + e.getMessage());
         }
     }
@@ -296,6 +321,7 @@ public class CheckoutPage extends BasePage {
             swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
             driver.perform(Arrays.asList(swipe));
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to perform swipe: " + e.getMessage());
         }
     }
@@ -304,39 +330,65 @@ public class CheckoutPage extends BasePage {
      * Click back home button
      */
     public void clickBackHome() {
-        try {
-            WebElement backHomeButton = findByAccessibilityId(BACK_HOME_BUTTON);
-            backHomeButton.click();
-            System.out.println("Clicked back home button");
-        } catch (Exception e) {
-            System.err.println("Failed to click back home: " + e.getMessage());
-            throw e;
-        }
+        action("clickBackHome", () -> {
+            try {
+                clickByAccessibilityId(BACK_HOME_BUTTON);
+                System.out.println("Clicked back home button");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to click back home: " + e.getMessage());
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Click CANCEL on the information page to return to the cart
+     */
+    public void clickCancel() {
+        action("clickCancel", () -> clickByUiSelector(CANCEL_BUTTON_TEXT));
     }
 
     /**
      * Complete checkout process
      */
     public void completeCheckout(String firstName, String lastName, String zipCode) {
-        fillShippingInfo(firstName, lastName, zipCode);
-        clickContinue();
-
-        // Wait for overview page and then finish
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        clickFinish();
+        completeCheckoutWithTimings(firstName, lastName, zipCode);
+    }
 
-        // Wait for completion page
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    /**
+     * Complete checkout from the information page back to products, waiting on each
+     * screen transition instead of sleeping, and return the latency of every stage
+     */
+    public StageTimings completeCheckoutWithTimings(String firstName, String lastName, String zipCode) {
+        return action("completeCheckoutWithTimings", () -> {
+            StageTimings timings = new StageTimings("checkout");
+
+            timings.time("info", () -> fillShippingInfo(firstName, lastName, zipCode));
+            timings.time("overview", () -> {
+                clickContinue();
+                waitForScreen(CHECKOUT_OVERVIEW_TITLE);
+            });
+            timings.time("complete", () -> {
+                clickFinish();
+                waitForScreen(CHECKOUT_COMPLETE_TITLE);
+            });
+            timings.time("home", () -> {
+                clickBackHome();
+                waitForScreen(PRODUCTS_TITLE);
+            });
+
+            System.out.println("Checkout stage timings: " + timings);
+            return timings;
+        });
+    }
 
-        clickBackHome();
+    /**
+     * Wait until the screen identified by its title selector is present
+     */
+    private void waitForScreen(String titleSelector) {
+        wait.until(ExpectedConditions.presenceOfElementLocated(
+                AppiumBy.androidUIAutomator(titleSelector)
+        ));
     }
-}
\ No newline at end of file
+}
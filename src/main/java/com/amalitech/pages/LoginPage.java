@@ -1,12 +1,13 @@
 package com.amalitech.pages;
 
 import com.amalitech.base.BasePage;
+import com.amalitech.constants.AppConstants;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class LoginPage extends BasePage {
 
@@ -20,6 +21,7 @@ public class LoginPage extends BasePage {
     private final String USERNAME_FIELD_ALT = "new UiSelector().className(\"android.widget.EditText\").instance(0)";
     private final String PASSWORD_FIELD_ALT = "new UiSelector().className(\"android.widget.EditText\").instance(1)";
     private final String LOGIN_BUTTON_ALT = "new UiSelector().text(\"LOGIN\")";
+    private final String PRODUCTS_TITLE = "new UiSelector().text(\"" + AppConstants.PRODUCTS_PAGE_TITLE + "\")";
 
     public LoginPage(AndroidDriver driver) {
         super(driver);
@@ -36,13 +38,13 @@ public class LoginPage extends BasePage {
      * Wait for login page to be loaded
      */
     public void waitForLoginPage() {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
         try {
             wait.until(ExpectedConditions.or(
                     ExpectedConditions.presenceOfElementLocated(AppiumBy.accessibilityId(USERNAME_FIELD)),
                     ExpectedConditions.presenceOfElementLocated(AppiumBy.androidUIAutomator(USERNAME_FIELD_ALT))
             ));
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Login page elements not found, might need to navigate to login screen");
         }
     }
@@ -61,6 +63,7 @@ public class LoginPage extends BasePage {
         try {
             return findByAccessibilityId(USERNAME_FIELD);
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Primary username locator failed, trying alternative...");
             return findByUIAutomator(USERNAME_FIELD_ALT);
         }
@@ -73,6 +76,7 @@ public class LoginPage extends BasePage {
         try {
             return findByAccessibilityId(PASSWORD_FIELD);
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Primary password locator failed, trying alternative...");
             return findByUIAutomator(PASSWORD_FIELD_ALT);
         }
@@ -85,6 +89,7 @@ public class LoginPage extends BasePage {
         try {
             return findByAccessibilityId(LOGIN_BUTTON);
         } catch (Exception e) {
+            rethrowIfFatal(e);
             System.out.println("Primary login button locator failed, trying alternative...");
             return findByUIAutomator(LOGIN_BUTTON_ALT);
         }
@@ -96,10 +101,10 @@ public class LoginPage extends BasePage {
     public void enterUsername(String username) {
         try {
             WebElement usernameField = getUsernameField();
-            usernameField.clear();
-            usernameField.sendKeys(username);
+            formFiller.setValue(usernameField, username);
             System.out.println("Username entered successfully: " + username);
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to enter username: " + e.getMessage());
             throw e;
         }
@@ -111,44 +116,66 @@ public class LoginPage extends BasePage {
     public void enterPassword(String password) {
         try {
             WebElement passwordField = getPasswordField();
-            passwordField.clear();
-            passwordField.sendKeys(password);
+            formFiller.setValue(passwordField, password);
             System.out.println("Password entered successfully");
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to enter password: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Enter username and password in one form fill, falling back to per-field entry
+     */
+    public void enterCredentials(String username, String password) {
+        action("enterCredentials", () -> {
+            try {
+                Map<String, String> credentials = new LinkedHashMap<>();
+                credentials.put(USERNAME_FIELD, username);
+                credentials.put(PASSWORD_FIELD, password);
+                formFiller.fill("login", credentials);
+                System.out.println("Credentials entered successfully for: " + username);
+            } catch (Exception e) {
+                rethrowIfFatal(e);
+                System.out.println("Form fill failed, entering fields individually: " + e.getMessage());
+                enterUsername(username);
+                enterPassword(password);
+            }
+        });
+    }
+
     /**
      * Click login button with error handling
      */
     public void clickLoginButton() {
-        try {
-            WebElement loginButton = getLoginButton();
-            loginButton.click();
-            System.out.println("Login button clicked successfully");
-        } catch (Exception e) {
-            System.err.println("Failed to click login button: " + e.getMessage());
-            throw e;
-        }
+        action("clickLoginButton", () -> {
+            try {
+                WebElement loginButton = getLoginButton();
+                safeClick(loginButton);
+                System.out.println("Login button clicked successfully");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to click login button: " + e.getMessage());
+                throw e;
+            }
+        });
     }
 
     /**
      * Complete login process
      */
     public void login(String username, String password) {
-        waitForLoginPage();
-        enterUsername(username);
-        enterPassword(password);
-        clickLoginButton();
+        action("login", () -> {
+            waitForLoginPage();
+            enterCredentials(username, password);
+            clickLoginButton();
 
-        // Wait a moment for login to process
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+            // Login has been processed once the products screen or an error shows
+            wait.until(ExpectedConditions.or(
+                    ExpectedConditions.presenceOfElementLocated(AppiumBy.androidUIAutomator(PRODUCTS_TITLE)),
+                    ExpectedConditions.presenceOfElementLocated(AppiumBy.accessibilityId(ERROR_MESSAGE))));
+        });
     }
 
     // Compatibility methods for existing tests
@@ -164,6 +191,10 @@ public class LoginPage extends BasePage {
         login("problem_user", "secret_sauce");
     }
 
+    public void loginWithPerformanceUser() {
+        login("performance_glitch_user", "secret_sauce");
+    }
+
     public void loginWithInvalidCredentials() {
         login("invalid_user", "wrong_password");
     }
@@ -176,6 +207,7 @@ public class LoginPage extends BasePage {
             WebElement errorElement = findByAccessibilityId(ERROR_MESSAGE);
             return errorElement.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -188,6 +220,7 @@ public class LoginPage extends BasePage {
             WebElement errorElement = findByAccessibilityId(ERROR_MESSAGE);
             return errorElement.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "";
         }
     }
@@ -207,6 +240,7 @@ public class LoginPage extends BasePage {
             getUsernameField();
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -219,6 +253,7 @@ public class LoginPage extends BasePage {
             getPasswordField();
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -231,6 +266,7 @@ public class LoginPage extends BasePage {
             getLoginButton();
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -239,23 +275,27 @@ public class LoginPage extends BasePage {
      * Clear all input fields safely
      */
     public void clearAllFields() {
-        try {
-            WebElement usernameField = getUsernameField();
-            if (usernameField != null) {
-                usernameField.clear();
+        action("clearAllFields", () -> {
+            try {
+                WebElement usernameField = getUsernameField();
+                if (usernameField != null) {
+                    usernameField.clear();
+                }
+            } catch (Exception e) {
+                rethrowIfFatal(e);
+                System.out.println("Could not clear username field: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.out.println("Could not clear username field: " + e.getMessage());
-        }
 
-        try {
-            WebElement passwordField = getPasswordField();
-            if (passwordField != null) {
-                passwordField.clear();
+            try {
+                WebElement passwordField = getPasswordField();
+                if (passwordField != null) {
+                    passwordField.clear();
+                }
+            } catch (Exception e) {
+                rethrowIfFatal(e);
+                System.out.println("Could not clear password field: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.out.println("Could not clear password field: " + e.getMessage());
-        }
+        });
     }
 
     /**
@@ -268,6 +308,7 @@ public class LoginPage extends BasePage {
             getLoginButton();
             return true;
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -280,17 +321,13 @@ public class LoginPage extends BasePage {
             System.out.println("Not on login page, attempting to navigate...");
             // Try to find and click menu/logout button if available
             try {
-                WebElement menuButton = findByUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(0)");
-                menuButton.click();
-                Thread.sleep(1000);
-
-                // Look for logout option
-                WebElement logoutButton = findByAccessibilityId("test-LOGOUT");
-                logoutButton.click();
-                Thread.sleep(2000);
+                clickByUiSelector("new UiSelector().className(\"android.widget.ImageView\").instance(0)");
 
+                // The click waits for the logout option to appear, and the login page wait for it to load
+                clickByAccessibilityId("test-LOGOUT");
                 waitForLoginPage();
             } catch (Exception e) {
+                rethrowIfFatal(e);
                 System.out.println("Could not navigate to login page: " + e.getMessage());
             }
         }
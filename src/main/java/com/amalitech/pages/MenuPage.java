@@ -37,7 +37,9 @@ public class MenuPage extends BasePage {
     }
 
     public void openMenu() {
-        clickByUiSelector(menuButton);
+        action("openMenu", () -> {
+            clickByUiSelector(menuButton);
+        });
     }
 
     public void selectAllItems() {
@@ -45,6 +47,7 @@ public class MenuPage extends BasePage {
             clickByUiSelector(allItemsOption);
             waitForPageLoad();
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to select All Items: " + e.getMessage());
         }
     }
@@ -54,26 +57,33 @@ public class MenuPage extends BasePage {
             clickByUiSelector(aboutOption);
             waitForPageLoad();
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to select About: " + e.getMessage());
         }
     }
 
     public void logout() {
-        try {
-            clickByUiSelector(logoutOption);
-            waitForPageLoad();
-        } catch (Exception e) {
-            System.err.println("Failed to logout: " + e.getMessage());
-        }
+        action("logout", () -> {
+            try {
+                clickByUiSelector(logoutOption);
+                waitForPageLoad();
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to logout: " + e.getMessage());
+            }
+        });
     }
 
     public void resetAppState() {
-        try {
-            clickByUiSelector(resetAppStateOption);
-            waitForPageLoad();
-        } catch (Exception e) {
-            System.err.println("Failed to reset app state: " + e.getMessage());
-        }
+        action("resetAppState", () -> {
+            try {
+                clickByUiSelector(resetAppStateOption);
+                waitForPageLoad();
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to reset app state: " + e.getMessage());
+            }
+        });
     }
 
     public void selectWebView() {
@@ -81,17 +91,21 @@ public class MenuPage extends BasePage {
             clickByUiSelector(webViewOption);
             waitForPageLoad();
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to select WebView: " + e.getMessage());
         }
     }
 
     public void closeMenu() {
-        try {
-            clickByUiSelector(closeMenuButton);
-            waitForPageLoad();
-        } catch (Exception e) {
-            System.err.println("Failed to close menu: " + e.getMessage());
-        }
+        action("closeMenu", () -> {
+            try {
+                clickByUiSelector(closeMenuButton);
+                waitForPageLoad();
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to close menu: " + e.getMessage());
+            }
+        });
     }
 
     public boolean isAllItemsOptionDisplayed() {
@@ -118,6 +132,7 @@ public class MenuPage extends BasePage {
         try {
             waitUtils.waitForPageLoad();
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Menu failed to load: " + e.getMessage());
         }
     }
@@ -1,17 +1,24 @@
 package com.amalitech.pages;
 
 import com.amalitech.base.BasePage;
+import com.amalitech.models.Product;
+import com.amalitech.utils.ListHarvester;
+import com.amalitech.utils.ProductCatalog;
+import com.amalitech.utils.UiSnapshot;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
+import org.w3c.dom.Element;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.interactions.PointerInput;
 import org.openqa.selenium.interactions.Sequence;
 import org.openqa.selenium.Point;
+import org.openqa.selenium.Dimension;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ProductsPage extends BasePage {
 
@@ -23,6 +30,15 @@ public class ProductsPage extends BasePage {
     private final String REMOVE_BUTTON = "test-REMOVE";
     private final String CHECKOUT_BUTTON = "test-CHECKOUT";
     private final String MENU_BUTTON = "new UiSelector().className(\"android.widget.ImageView\").instance(0)";
+    private final String MENU_LOGOUT_OPTION = "new UiSelector().description(\"test-LOGOUT\")";
+    private final String CART_TITLE = "new UiSelector().text(\"YOUR CART\")";
+    private final String CHECKOUT_INFO_TITLE = "new UiSelector().text(\"CHECKOUT: YOUR INFORMATION\")";
+
+    // Accessibility IDs of a product card and its cells
+    private final String PRODUCT_ITEM = "test-Item";
+    private final String PRODUCT_TITLE = "test-Item title";
+    private final String PRODUCT_PRICE = "test-Price";
+    private static final int MAX_HARVEST_SCROLLS = 10;
 
     public ProductsPage(AndroidDriver driver) {
         super(driver);
@@ -32,7 +48,6 @@ public class ProductsPage extends BasePage {
      * Wait for products page to load
      */
     public void waitForProductsPageToLoad() {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(15));
         wait.until(ExpectedConditions.presenceOfElementLocated(
                 AppiumBy.androidUIAutomator(PRODUCTS_TITLE)
         ));
@@ -54,6 +69,7 @@ public class ProductsPage extends BasePage {
             WebElement titleElement = findByUIAutomator(PRODUCTS_TITLE);
             return titleElement.getText();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return "PRODUCTS";
         }
     }
@@ -62,89 +78,102 @@ public class ProductsPage extends BasePage {
      * Get products count
      */
     public int getProductsCount() {
-        return 6; // Sauce Labs app has 6 products
+        return getProductCatalog().size();
     }
 
     /**
      * Click on first product to view it
      */
     public void clickFirstProduct() {
-        try {
-            WebElement firstProduct = findByUIAutomator(FIRST_PRODUCT_IMAGE);
-            firstProduct.click();
-            Thread.sleep(1000);
-            System.out.println("Clicked on first product");
-        } catch (Exception e) {
-            System.err.println("Failed to click first product: " + e.getMessage());
-        }
+        action("clickFirstProduct", () -> {
+            try {
+                clickByUiSelector(FIRST_PRODUCT_IMAGE);
+                waitForUiSelector(ADD_TO_CART_BUTTON);
+                System.out.println("Clicked on first product");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to click first product: " + e.getMessage());
+            }
+        });
     }
 
     /**
      * Add first item to cart using the correct sequence
      */
     public void addFirstItemToCart() {
-        try {
-            // First click on the product image to navigate to product details
-            clickFirstProduct();
-
-            // Then click the + button to add to cart
-            WebElement addButton = findByUIAutomator(ADD_TO_CART_BUTTON);
-            addButton.click();
-            Thread.sleep(1000);
-            System.out.println("Added first item to cart");
-        } catch (Exception e) {
-            System.err.println("Failed to add first item to cart: " + e.getMessage());
-        }
+        action("addFirstItemToCart", () -> {
+            try {
+                // First click on the product image to navigate to product details
+                clickFirstProduct();
+
+                // Then click the + button to add to cart
+                clickByUiSelector(ADD_TO_CART_BUTTON);
+                System.out.println("Added first item to cart");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to add first item to cart: " + e.getMessage());
+            }
+        });
     }
 
     /**
      * Add multiple items by clicking + button multiple times
      */
     public void addItemToCart(int quantity) {
-        try {
-            // Navigate to first product
-            clickFirstProduct();
+        action("addItemToCart", () -> {
+            try {
+                // Navigate to first product
+                clickFirstProduct();
 
-            // Click + button multiple times
-            for (int i = 0; i < quantity; i++) {
+                // Tap + button multiple times in one action sequence
                 WebElement addButton = findByUIAutomator(ADD_TO_CART_BUTTON);
-                addButton.click();
-                Thread.sleep(500);
+                tapRepeatedly(addButton, quantity);
+                System.out.println("Added " + quantity + " items to cart");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to add items to cart: " + e.getMessage());
             }
-            System.out.println("Added " + quantity + " items to cart");
-        } catch (Exception e) {
-            System.err.println("Failed to add items to cart: " + e.getMessage());
-        }
+        });
     }
 
     /**
      * Add second item to cart
      */
     public void addSecondItemToCart() {
-        try {
-            // For second item, we need to navigate back and select another product
-            // For now, just add another instance of the same product
-            WebElement addButton = findByUIAutomator(ADD_TO_CART_BUTTON);
-            addButton.click();
-            Thread.sleep(1000);
-            System.out.println("Added second item to cart");
-        } catch (Exception e) {
-            System.err.println("Failed to add second item to cart: " + e.getMessage());
-        }
+        action("addSecondItemToCart", () -> {
+            try {
+                // For second item, we need to navigate back and select another product
+                // For now, just add another instance of the same product
+                clickByUiSelector(ADD_TO_CART_BUTTON);
+                System.out.println("Added second item to cart");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to add second item to cart: " + e.getMessage());
+            }
+        });
     }
 
     /**
      * Click cart icon to navigate to cart
      */
     public void clickCartIcon() {
-        try {
-            WebElement cartIcon = findByUIAutomator(CART_ICON);
-            cartIcon.click();
-            Thread.sleep(2000);
-            System.out.println("Navigated to cart");
-        } catch (Exception e) {
-            System.err.println("Failed to navigate to cart: " + e.getMessage());
-        }
+        action("clickCartIcon", () -> {
+            try {
+                clickByUiSelector(CART_ICON);
+                waitForUiSelector(CART_TITLE);
+                System.out.println("Navigated to cart");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to navigate to cart: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Tap the cart icon without waiting afterwards, as the trigger of a measured screen transition
+     */
+    public void tapCartIcon() {
+        action("tapCartIcon", () -> clickByUiSelector(CART_ICON));
     }
 
     /**
@@ -158,14 +187,16 @@ public class ProductsPage extends BasePage {
      * Click hamburger menu
      */
     public void clickHamburgerMenu() {
-        try {
-            WebElement menuButton = findByUIAutomator(MENU_BUTTON);
-            menuButton.click();
-            Thread.sleep(1000);
-            System.out.println("Opened hamburger menu");
-        } catch (Exception e) {
-            System.err.println("Failed to open menu: " + e.getMessage());
-        }
+        action("clickHamburgerMenu", () -> {
+            try {
+                clickByUiSelector(MENU_BUTTON);
+                waitForUiSelector(MENU_LOGOUT_OPTION);
+                System.out.println("Opened hamburger menu");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to open menu: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -185,6 +216,7 @@ public class ProductsPage extends BasePage {
             );
             return addButtons.size();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return 0;
         }
     }
@@ -199,6 +231,7 @@ public class ProductsPage extends BasePage {
             );
             return removeButtons.size();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return 0;
         }
     }
@@ -207,32 +240,116 @@ public class ProductsPage extends BasePage {
      * Get product name by index
      */
     public String getProductNameByIndex(int index) {
-        return "Sauce Labs Product " + (index + 1);
+        return getProductCatalog().get(index).getName();
     }
 
     /**
      * Get product price by index
      */
     public String getProductPriceByIndex(int index) {
-        String[] prices = {"$7.99", "$9.99", "$15.99", "$49.99", "$29.99", "$19.99"};
-        if (index < prices.length) {
-            return prices[index];
+        return getProductCatalog().get(index).getPriceText();
+    }
+
+    /**
+     * Get the product catalog of the installed app build, harvesting it only on first use
+     */
+    public ProductCatalog getProductCatalog() {
+        return ProductCatalog.getOrHarvest(ProductCatalog.resolveAppVersion(driver), this::harvestProducts);
+    }
+
+    /**
+     * Read every product card, scrolling down until a window adds nothing new,
+     * then scroll back to the top of the grid. Cart rows share the cards' content-desc, so this
+     * fails rather than returning a list that was not read from the products screen.
+     */
+    public List<Product> harvestProducts() {
+        return action("harvestProducts", () -> {
+            waitForProductsPageToLoad();
+            List<Product> products = productHarvester().harvestAll();
+            if (!UiSnapshot.capture(driver).containsText("PRODUCTS")) {
+                throw new IllegalStateException("Left the products screen while harvesting "
+                        + products.size() + " products");
+            }
+            return products;
+        });
+    }
+
+    /**
+     * Lazily stream product cards; scrolling stops as soon as the consumer stops pulling.
+     * Close the stream to scroll back to the top.
+     */
+    public Stream<Product> streamProducts() {
+        return productHarvester().stream();
+    }
+
+    private ListHarvester<Product> productHarvester() {
+        return new ListHarvester<>(() -> UiSnapshot.capture(driver), this::parseVisibleProducts,
+                Product::getName, () -> performSwipe(new Point(540, 1500), new Point(540, 700)))
+                .restoreWith(() -> performSwipe(new Point(540, 700), new Point(540, 1500)))
+                .maxScrolls(MAX_HARVEST_SCROLLS);
+    }
+
+    /**
+     * Parse the product cards visible in one page-source snapshot
+     */
+    private List<Product> parseVisibleProducts(UiSnapshot snapshot) {
+        List<Product> products = new ArrayList<>();
+        for (Element card : snapshot.findByContentDesc(PRODUCT_ITEM)) {
+            String name = firstText(card, PRODUCT_TITLE);
+            String price = firstText(card, PRODUCT_PRICE);
+            List<String> texts = UiSnapshot.texts(card);
+            if (name == null) {
+                name = texts.stream().filter(text -> !text.startsWith("$") && !text.equals("ADD TO CART")
+                        && !text.equals("REMOVE")).findFirst().orElse(null);
+            }
+            if (price == null) {
+                price = texts.stream().filter(text -> text.startsWith("$")).findFirst().orElse(null);
+            }
+            if (name != null && price != null) {
+                products.add(new Product(name, price));
+            }
+        }
+        return products;
+    }
+
+    private String firstText(Element card, String contentDesc) {
+        for (Element cell : UiSnapshot.findDescendantsByContentDesc(card, contentDesc)) {
+            List<String> texts = UiSnapshot.texts(cell);
+            if (!texts.isEmpty()) {
+                return texts.get(0);
+            }
         }
-        return "$9.99";
+        return null;
+    }
+
+    /**
+     * Fling the products grid vertically over the middle half of the screen, failing if the
+     * gesture is rejected
+     * @param towardsEnd swipe up to move towards the end of the grid, otherwise back to the start
+     * @param gestureTime time from touch down to release; shorter flings faster
+     */
+    public void flingGrid(boolean towardsEnd, Duration gestureTime) {
+        Dimension size = driver.manage().window().getSize();
+        Point lower = new Point(size.getWidth() / 2, size.getHeight() * 3 / 4);
+        Point upper = new Point(size.getWidth() / 2, size.getHeight() / 4);
+        swipe(towardsEnd ? lower : upper, towardsEnd ? upper : lower, gestureTime);
     }
 
     /**
      * Scroll to view all products
      */
     public void scrollToViewAllProducts() {
-        try {
-            Point start = new Point(540, 1500);
-            Point end = new Point(540, 500);
-            performSwipe(start, end);
-            Thread.sleep(1000);
-        } catch (Exception e) {
-            System.err.println("Failed to scroll: " + e.getMessage());
-        }
+        action("scrollToViewAllProducts", () -> {
+            try {
+                Point start = new Point(540, 1500);
+                Point end = new Point(540, 500);
+                performSwipe(start, end);
+                waitForScreenToSettle();
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to scroll: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -243,6 +360,7 @@ public class ProductsPage extends BasePage {
             WebElement productsTitle = findByUIAutomator(PRODUCTS_TITLE);
             return productsTitle.isDisplayed();
         } catch (Exception e) {
+            rethrowIfFatal(e);
             return false;
         }
     }
@@ -251,30 +369,43 @@ public class ProductsPage extends BasePage {
      * Remove items from cart
      */
     public void removeItemsFromCart(int quantity) {
-        try {
-            for (int i = 0; i < quantity; i++) {
-                WebElement removeButton = findByAccessibilityId(REMOVE_BUTTON);
-                removeButton.click();
-                Thread.sleep(1000);
+        action("removeItemsFromCart", () -> {
+            try {
+                // Re-find after every removal, since the remaining rows move up, and wait for the
+                // row to go so the next tap does not land on a row that is still sliding
+                int removed = 0;
+                while (removed < quantity) {
+                    List<WebElement> removeButtons = driver.findElements(AppiumBy.accessibilityId(REMOVE_BUTTON));
+                    if (removeButtons.isEmpty()) {
+                        break;
+                    }
+                    removeButtons.get(0).click();
+                    wait.until(ExpectedConditions.numberOfElementsToBeLessThan(
+                            AppiumBy.accessibilityId(REMOVE_BUTTON), removeButtons.size()));
+                    removed++;
+                }
+                System.out.println("Removed " + removed + " of " + quantity + " items from cart");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to remove items from cart: " + e.getMessage());
             }
-            System.out.println("Removed " + quantity + " items from cart");
-        } catch (Exception e) {
-            System.err.println("Failed to remove items from cart: " + e.getMessage());
-        }
+        });
     }
 
     /**
      * Proceed to checkout
      */
     public void proceedToCheckout() {
-        try {
-            WebElement checkoutButton = findByAccessibilityId(CHECKOUT_BUTTON);
-            checkoutButton.click();
-            Thread.sleep(2000);
-            System.out.println("Proceeded to checkout");
-        } catch (Exception e) {
-            System.err.println("Failed to proceed to checkout: " + e.getMessage());
-        }
+        action("proceedToCheckout", () -> {
+            try {
+                clickByAccessibilityId(CHECKOUT_BUTTON);
+                waitForUiSelector(CHECKOUT_INFO_TITLE);
+                System.out.println("Proceeded to checkout");
+            } catch (Exception e) {
+                failAction(e);
+                System.err.println("Failed to proceed to checkout: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -282,18 +413,23 @@ public class ProductsPage extends BasePage {
      */
     public void performSwipe(Point start, Point end) {
         try {
-            final var finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-            var swipe = new Sequence(finger, 1);
-            swipe.addAction(finger.createPointerMove(Duration.ofMillis(0),
-                    PointerInput.Origin.viewport(), start.getX(), start.getY()));
-            swipe.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
-            swipe.addAction(finger.createPointerMove(Duration.ofMillis(1000),
-                    PointerInput.Origin.viewport(), end.getX(), end.getY()));
-            swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-            driver.perform(Arrays.asList(swipe));
+            swipe(start, end, Duration.ofMillis(1000));
             System.out.println("Performed swipe gesture");
         } catch (Exception e) {
+            failAction(e);
             System.err.println("Failed to perform swipe: " + e.getMessage());
         }
     }
+
+    private void swipe(Point start, Point end, Duration gestureTime) {
+        final var finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        var swipe = new Sequence(finger, 1);
+        swipe.addAction(finger.createPointerMove(Duration.ofMillis(0),
+                PointerInput.Origin.viewport(), start.getX(), start.getY()));
+        swipe.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        swipe.addAction(finger.createPointerMove(gestureTime,
+                PointerInput.Origin.viewport(), end.getX(), end.getY()));
+        swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        driver.perform(Arrays.asList(swipe));
+    }
 }
\ No newline at end of file
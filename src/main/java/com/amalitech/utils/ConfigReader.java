@@ -1,40 +1,46 @@
 package com.amalitech.utils;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
+import java.time.Duration;
 
+/**
+ * Static access to the current {@link ConfigSnapshot}
+ */
 public class ConfigReader {
 
-    private static final Logger logger = LogManager.getLogger(ConfigReader.class);
-    private static Properties properties = new Properties();
+    public static final String WAIT_TIMEOUT_DEFAULT = "wait.timeout.default";
+    public static final String WAIT_TIMEOUT_SHORT = "wait.timeout.short";
+    public static final String WAIT_TIMEOUT_LONG = "wait.timeout.long";
+    public static final String WAIT_TIMEOUT_IMPLICIT = "wait.timeout.implicit";
+    public static final String TEST_RETRY_COUNT = "test.retry.count";
 
-    static {
-        loadProperties();
+    public static String getProperty(String key) {
+        return ConfigSnapshot.current().getString(key);
     }
 
-    private static void loadProperties() {
-        try (InputStream inputStream = ConfigReader.class.getClassLoader().getResourceAsStream("config.properties")) {
-            if (inputStream != null) {
-                properties.load(inputStream);
-                logger.info("Configuration properties loaded from classpath");
-            } else {
-                logger.warn("Config file not found in classpath, using default values");
-            }
-        } catch (IOException e) {
-            logger.error("Failed to load configuration properties", e);
-        }
+    public static String getProperty(String key, String defaultValue) {
+        return ConfigSnapshot.current().getString(key, defaultValue);
     }
 
-    public static String getProperty(String key) {
-        return properties.getProperty(key);
+    public static int getInt(String key, int defaultValue) {
+        return ConfigSnapshot.current().getInt(key, defaultValue);
     }
 
-    public static String getProperty(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+    public static long getLong(String key, long defaultValue) {
+        return ConfigSnapshot.current().getLong(key, defaultValue);
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return ConfigSnapshot.current().getBoolean(key, defaultValue);
+    }
+
+    public static Duration getDuration(String key, Duration defaultValue) {
+        return ConfigSnapshot.current().getDuration(key, defaultValue);
+    }
+
+    /**
+     * Default explicit wait, from wait.timeout.default
+     */
+    public static Duration getDefaultTimeout() {
+        return getDuration(WAIT_TIMEOUT_DEFAULT, Duration.ofSeconds(15));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,302 @@
+package com.amalitech.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable, typed view of the test configuration.
+ * Layers are merged in order, later layers winning:
+ * <ol>
+ *     <li>config.properties on the classpath</li>
+ *     <li>profile files config-&lt;profile&gt;.properties, from the classpath or the working directory</li>
+ *     <li>environment variables, e.g. WAIT_TIMEOUT_DEFAULT overrides wait.timeout.default</li>
+ *     <li>system properties, e.g. -Dwait.timeout.default=20</li>
+ * </ol>
+ * Environment variables and system properties only override keys declared in a file.
+ * Profiles come from config.profile (system property, CONFIG_PROFILE or the file itself) and
+ * fall back to environment; several can be listed comma-separated, e.g. "ci,DUK-AL20".
+ * Ints, booleans and durations are parsed once when the snapshot is built, so lookups are
+ * plain reads of immutable maps.
+ */
+public final class ConfigSnapshot {
+
+    private static final Logger logger = LogManager.getLogger(ConfigSnapshot.class);
+
+    public static final String BASE_FILE = "config.properties";
+    public static final String PROFILE_KEY = "config.profile";
+
+    private static volatile ConfigSnapshot current;
+
+    private final Map<String, String> values;
+    private final Map<String, Integer> ints;
+    private final Map<String, Long> longs;
+    private final Map<String, Boolean> booleans;
+    private final Map<String, Duration> durations;
+
+    private ConfigSnapshot(Map<String, String> values) {
+        Map<String, Integer> parsedInts = new HashMap<>();
+        Map<String, Long> parsedLongs = new HashMap<>();
+        Map<String, Boolean> parsedBooleans = new HashMap<>();
+        Map<String, Duration> parsedDurations = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue().trim();
+            Long number = parseLong(value);
+            if (number != null) {
+                parsedLongs.put(entry.getKey(), number);
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    parsedInts.put(entry.getKey(), number.intValue());
+                }
+            }
+            if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+                parsedBooleans.put(entry.getKey(), Boolean.parseBoolean(value));
+            }
+            Duration duration = parseDuration(value);
+            if (duration != null) {
+                parsedDurations.put(entry.getKey(), duration);
+            }
+        }
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        this.ints = Collections.unmodifiableMap(parsedInts);
+        this.longs = Collections.unmodifiableMap(parsedLongs);
+        this.booleans = Collections.unmodifiableMap(parsedBooleans);
+        this.durations = Collections.unmodifiableMap(parsedDurations);
+    }
+
+    /**
+     * The snapshot for this JVM, built on first use
+     */
+    public static ConfigSnapshot current() {
+        ConfigSnapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (ConfigSnapshot.class) {
+                snapshot = current;
+                if (snapshot == null) {
+                    snapshot = load(System.getenv(), System.getProperties());
+                    current = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuild the snapshot from all layers, e.g. after changing system properties.
+     * Readers holding the previous snapshot keep a consistent view.
+     */
+    public static ConfigSnapshot reload() {
+        ConfigSnapshot snapshot = load(System.getenv(), System.getProperties());
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Build a snapshot from the classpath files and the given environment and system properties
+     */
+    public static ConfigSnapshot load(Map<String, String> environment, Properties systemProperties) {
+        Map<String, String> merged = new LinkedHashMap<>();
+        if (!readClasspath(BASE_FILE, merged)) {
+            logger.warn("Config file not found in classpath, using default values");
+        }
+
+        String profiles = firstNonBlank(systemProperties.getProperty(PROFILE_KEY),
+                environment.get(toEnvName(PROFILE_KEY)),
+                merged.get(PROFILE_KEY),
+                merged.get("environment"));
+        if (profiles != null) {
+            for (String profile : profiles.split(",")) {
+                applyProfile(profile.trim(), merged);
+            }
+        }
+
+        // Environment and system properties only override keys declared in a file, so unrelated
+        // variables such as PATH or java.version never leak into the configuration
+        for (String key : merged.keySet().toArray(new String[0])) {
+            String override = environment.get(toEnvName(key));
+            if (override != null) {
+                merged.put(key, override);
+            }
+        }
+        for (String key : merged.keySet().toArray(new String[0])) {
+            String override = systemProperties.getProperty(key);
+            if (override != null) {
+                merged.put(key, override);
+            }
+        }
+
+        logger.info("Configuration loaded (" + merged.size() + " keys, profiles: " + profiles + ")");
+        return new ConfigSnapshot(merged);
+    }
+
+    /**
+     * Build a snapshot from explicit values, without reading any layer
+     */
+    public static ConfigSnapshot of(Map<String, String> values) {
+        return new ConfigSnapshot(values);
+    }
+
+    public String getString(String key) {
+        return values.get(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Integer value = ints.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Long value = longs.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Boolean value = booleans.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Duration value. Plain numbers are seconds; "ms", "s", "m" and "h" suffixes are accepted, e.g.
+     * 500ms or 4h, as is ISO-8601 such as PT1H30M. The default applies only to a missing or blank
+     * value: one that cannot be parsed is rejected rather than silently replaced.
+     * @throws IllegalArgumentException if the value is not a duration
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        Duration value = durations.get(key);
+        if (value != null) {
+            return value;
+        }
+        String raw = values.get(key);
+        if (raw != null && !raw.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid duration for " + key + ": '" + raw
+                    + "' (expected e.g. 500ms, 30s, 5m, 4h or PT1H30M)");
+        }
+        return defaultValue;
+    }
+
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * All resolved keys and values
+     */
+    public Map<String, String> asMap() {
+        return values;
+    }
+
+    private static void applyProfile(String profile, Map<String, String> merged) {
+        if (profile.isEmpty()) {
+            return;
+        }
+        String fileName = "config-" + profile + ".properties";
+        if (readClasspath(fileName, merged)) {
+            return;
+        }
+        Path path = Paths.get(fileName);
+        if (Files.isRegularFile(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                Properties properties = new Properties();
+                properties.load(reader);
+                putAll(properties, merged);
+                logger.info("Applied config profile from " + path.toAbsolutePath());
+            } catch (IOException e) {
+                logger.error("Failed to read config profile " + path, e);
+            }
+        } else {
+            logger.debug("No config file for profile '" + profile + "'");
+        }
+    }
+
+    private static boolean readClasspath(String resource, Map<String, String> merged) {
+        try (InputStream in = ConfigSnapshot.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                return false;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            putAll(properties, merged);
+            logger.debug("Applied config layer " + resource);
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to load configuration properties from " + resource, e);
+            return false;
+        }
+    }
+
+    private static void putAll(Properties properties, Map<String, String> merged) {
+        for (String key : properties.stringPropertyNames()) {
+            merged.put(key, properties.getProperty(key));
+        }
+    }
+
+    /**
+     * wait.timeout.default -> WAIT_TIMEOUT_DEFAULT
+     */
+    static String toEnvName(String key) {
+        return key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_');
+    }
+
+    private static String firstNonBlank(String... candidates) {
+        for (String candidate : candidates) {
+            if (candidate != null && !candidate.trim().isEmpty()) {
+                return candidate.trim();
+            }
+        }
+        return null;
+    }
+
+    private static Long parseLong(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Duration parseDuration(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        try {
+            if (lower.startsWith("p")) {
+                return Duration.parse(value);
+            }
+            if (lower.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(lower.substring(0, lower.length() - 2).trim()));
+            }
+            if (lower.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(lower.substring(0, lower.length() - 1).trim()));
+            }
+            if (lower.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(lower.substring(0, lower.length() - 1).trim()));
+            }
+            if (lower.endsWith("h")) {
+                return Duration.ofHours(Long.parseLong(lower.substring(0, lower.length() - 1).trim()));
+            }
+            return Duration.ofSeconds(Long.parseLong(lower));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.amalitech.utils;
+
+import com.amalitech.evidence.CommandLog;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.w3c.dom.Element;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills a form of text fields keyed by accessibility ID.
+ * Fields are resolved from one page-source snapshot and one element lookup,
+ * and values are set with mobile: replaceElementValue where the server supports it.
+ */
+public class FormFiller {
+
+    private static final Logger logger = LogManager.getLogger(FormFiller.class);
+
+    private final AndroidDriver driver;
+    private final WebDriverWait wait;
+    private volatile boolean replaceValueSupported = true;
+
+    public FormFiller(AndroidDriver driver) {
+        this.driver = driver;
+        this.wait = new WebDriverWait(driver, ConfigReader.getDefaultTimeout());
+    }
+
+    /**
+     * Fill all fields of a form and return the time it took
+     * @param formName name used in the timing log line
+     * @param valuesByAccessibilityId field accessibility ID to value, in any order
+     * @return fill duration
+     */
+    public Duration fill(String formName, Map<String, String> valuesByAccessibilityId) {
+        long start = System.nanoTime();
+
+        UiSnapshot snapshot = UiSnapshot.capture(driver);
+        Map<String, WebElement> fields = resolveFields(snapshot, new ArrayList<>(valuesByAccessibilityId.keySet()));
+
+        for (Map.Entry<String, String> entry : valuesByAccessibilityId.entrySet()) {
+            Element node = snapshot.findFirstByContentDesc(entry.getKey());
+            String currentText = node != null ? node.getAttribute("text") : null;
+            if (entry.getValue().equals(currentText)) {
+                continue;
+            }
+            boolean empty = node != null && UiSnapshot.isEmptyInput(node);
+            setValue(fields.get(entry.getKey()), entry.getValue(), empty);
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        CommandLog.record("fill form '" + formName + "' " + valuesByAccessibilityId.keySet());
+        logger.info("Filled form '" + formName + "' (" + valuesByAccessibilityId.size()
+                + " fields) in " + elapsed.toMillis() + " ms");
+        return elapsed;
+    }
+
+    /**
+     * Set the value of a single field whose current content is unknown
+     */
+    public void setValue(WebElement element, String value) {
+        setValue(element, value, false);
+    }
+
+    private void setValue(WebElement element, String value, boolean knownEmpty) {
+        if (replaceValueSupported && element instanceof RemoteWebElement) {
+            try {
+                driver.replaceElementValue((RemoteWebElement) element, value);
+                return;
+            } catch (UnsupportedCommandException e) {
+                logger.warn("mobile: replaceElementValue not supported, falling back to sendKeys");
+                replaceValueSupported = false;
+            } catch (WebDriverException e) {
+                if (e.getMessage() == null || !e.getMessage().contains("replaceElementValue")) {
+                    throw e;
+                }
+                logger.warn("mobile: replaceElementValue rejected, falling back to sendKeys");
+                replaceValueSupported = false;
+            }
+        }
+        if (!knownEmpty) {
+            element.clear();
+        }
+        element.sendKeys(value);
+    }
+
+    /**
+     * Resolve all fields with a single XPath lookup, matched against snapshot document order.
+     * Falls back to one wait per field if the snapshot and lookup disagree.
+     */
+    private Map<String, WebElement> resolveFields(UiSnapshot snapshot, List<String> accessibilityIds) {
+        Map<String, WebElement> fields = new HashMap<>();
+
+        List<Element> nodes = snapshot.allElements();
+        List<String> documentOrder = new ArrayList<>();
+        for (Element node : nodes) {
+            String desc = node.getAttribute("content-desc");
+            if (accessibilityIds.contains(desc) && !documentOrder.contains(desc)) {
+                documentOrder.add(desc);
+            }
+        }
+
+        if (documentOrder.size() == accessibilityIds.size()) {
+            List<WebElement> found = driver.findElements(AppiumBy.xpath(unionXPath(accessibilityIds)));
+            if (found.size() == documentOrder.size()) {
+                for (int i = 0; i < found.size(); i++) {
+                    fields.put(documentOrder.get(i), found.get(i));
+                }
+                return fields;
+            }
+        }
+
+        logger.debug("Snapshot lookup incomplete, resolving fields one by one");
+        for (String accessibilityId : accessibilityIds) {
+            fields.put(accessibilityId, wait.until(ExpectedConditions.presenceOfElementLocated(
+                    AppiumBy.accessibilityId(accessibilityId))));
+        }
+        return fields;
+    }
+
+    private static String unionXPath(List<String> accessibilityIds) {
+        StringBuilder xpath = new StringBuilder("//*[");
+        for (int i = 0; i < accessibilityIds.size(); i++) {
+            if (i > 0) {
+                xpath.append(" or ");
+            }
+            String id = accessibilityIds.get(i);
+            String quote = id.contains("'") ? "\"" : "'";
+            xpath.append("@content-desc=").append(quote).append(id).append(quote);
+        }
+        return xpath.append("]").toString();
+    }
+}
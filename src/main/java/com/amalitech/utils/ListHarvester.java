@@ -0,0 +1,146 @@
+package com.amalitech.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Collects the items of a scrollable list window by window.
+ * Each window is parsed from a single page-source snapshot, items already seen are dropped by key,
+ * and scrolling stops as soon as a window contributes nothing new. Items are exposed as a lazy
+ * stream, so the next scroll only happens when a consumer asks for more.
+ */
+public class ListHarvester<T> {
+
+    private static final int DEFAULT_MAX_SCROLLS = 10;
+
+    private final Supplier<UiSnapshot> snapshotSource;
+    private final Function<UiSnapshot, List<T>> windowParser;
+    private final Function<T, ?> keyExtractor;
+    private final Runnable scrollForward;
+
+    private Runnable scrollBack;
+    private Predicate<UiSnapshot> endOfList = snapshot -> false;
+    private int maxScrolls = DEFAULT_MAX_SCROLLS;
+
+    /**
+     * @param snapshotSource captures the current screen, e.g. {@code () -> UiSnapshot.capture(driver)}
+     * @param windowParser extracts the visible items from one snapshot, in display order
+     * @param keyExtractor stable identity of an item across windows, e.g. product name
+     * @param scrollForward scrolls the list by less than one screen so windows overlap
+     */
+    public ListHarvester(Supplier<UiSnapshot> snapshotSource, Function<UiSnapshot, List<T>> windowParser,
+                         Function<T, ?> keyExtractor, Runnable scrollForward) {
+        this.snapshotSource = snapshotSource;
+        this.windowParser = windowParser;
+        this.keyExtractor = keyExtractor;
+        this.scrollForward = scrollForward;
+    }
+
+    /**
+     * Scroll back once per forward scroll when the stream is closed
+     */
+    public ListHarvester<T> restoreWith(Runnable scrollBack) {
+        this.scrollBack = scrollBack;
+        return this;
+    }
+
+    /**
+     * Stop scrolling once a window shows the end of the list, e.g. a footer button
+     */
+    public ListHarvester<T> stopWhen(Predicate<UiSnapshot> endOfList) {
+        this.endOfList = endOfList;
+        return this;
+    }
+
+    public ListHarvester<T> maxScrolls(int maxScrolls) {
+        this.maxScrolls = maxScrolls;
+        return this;
+    }
+
+    /**
+     * Lazy stream of distinct items. Close it (try-with-resources) to restore the scroll position.
+     */
+    public Stream<T> stream() {
+        WindowSpliterator spliterator = new WindowSpliterator();
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::restore);
+    }
+
+    /**
+     * Harvest the whole list and restore the scroll position
+     */
+    public List<T> harvestAll() {
+        try (Stream<T> items = stream()) {
+            return items.collect(Collectors.toList());
+        }
+    }
+
+    private class WindowSpliterator extends Spliterators.AbstractSpliterator<T> {
+
+        private final Deque<T> pending = new ArrayDeque<>();
+        private final Set<Object> seenKeys = new HashSet<>();
+        private int scrolls;
+        private boolean started;
+        private boolean exhausted;
+
+        WindowSpliterator() {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (pending.isEmpty() && !exhausted) {
+                loadNextWindow();
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            action.accept(pending.poll());
+            return true;
+        }
+
+        private void loadNextWindow() {
+            if (started) {
+                if (scrolls >= maxScrolls) {
+                    exhausted = true;
+                    return;
+                }
+                scrollForward.run();
+                scrolls++;
+            }
+            started = true;
+
+            UiSnapshot window = snapshotSource.get();
+            int added = 0;
+            for (T item : windowParser.apply(window)) {
+                if (seenKeys.add(keyExtractor.apply(item))) {
+                    pending.add(item);
+                    added++;
+                }
+            }
+            if (added == 0 || endOfList.test(window)) {
+                exhausted = true;
+            }
+        }
+
+        void restore() {
+            if (scrollBack != null) {
+                for (int i = 0; i < scrolls; i++) {
+                    scrollBack.run();
+                }
+            }
+            scrolls = 0;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.amalitech.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * All-pairs (pairwise) combination generator.
+ * Produces a small set of rows in which every value of every factor appears together with
+ * every value of every other factor at least once. Uses a greedy AETG-style search; the
+ * same domains and seed always give the same rows.
+ */
+public class PairwiseGenerator {
+
+    private static final int CANDIDATES_PER_ROW = 30;
+
+    private final long seed;
+
+    public PairwiseGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generate a covering set of rows
+     * @param domains factor name to its possible values, in column order
+     * @return rows as factor name to value, in the same column order
+     */
+    public List<Map<String, String>> generate(Map<String, List<String>> domains) {
+        List<String> factors = new ArrayList<>(domains.keySet());
+        List<List<String>> values = new ArrayList<>();
+        for (String factor : factors) {
+            List<String> domain = domains.get(factor);
+            if (domain == null || domain.isEmpty()) {
+                throw new IllegalArgumentException("Factor '" + factor + "' has no values");
+            }
+            values.add(domain);
+        }
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int[] row : generateIndexes(values)) {
+            Map<String, String> named = new LinkedHashMap<>();
+            for (int f = 0; f < factors.size(); f++) {
+                named.put(factors.get(f), values.get(f).get(row[f]));
+            }
+            rows.add(Collections.unmodifiableMap(named));
+        }
+        return rows;
+    }
+
+    /**
+     * Generate rows and project them onto DataProvider rows in column order
+     */
+    public Object[][] generateRows(Map<String, List<String>> domains) {
+        List<Map<String, String>> rows = generate(domains);
+        Object[][] data = new Object[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            data[i] = rows.get(i).values().toArray();
+        }
+        return data;
+    }
+
+    private List<int[]> generateIndexes(List<List<String>> values) {
+        int factorCount = values.size();
+        int[] sizes = new int[factorCount];
+        for (int f = 0; f < factorCount; f++) {
+            sizes[f] = values.get(f).size();
+        }
+
+        List<int[]> rows = new ArrayList<>();
+        if (factorCount == 1) {
+            for (int v = 0; v < sizes[0]; v++) {
+                rows.add(new int[]{v});
+            }
+            return rows;
+        }
+
+        PairSpace pairs = new PairSpace(sizes);
+        Random random = new Random(seed);
+        while (pairs.uncoveredCount() > 0) {
+            int[] best = null;
+            int bestGain = -1;
+            for (int c = 0; c < CANDIDATES_PER_ROW; c++) {
+                int[] candidate = buildCandidate(pairs, sizes, random);
+                int gain = pairs.gain(candidate);
+                if (gain > bestGain) {
+                    best = candidate;
+                    bestGain = gain;
+                }
+            }
+            pairs.cover(best);
+            rows.add(best);
+        }
+        return rows;
+    }
+
+    /**
+     * Start from an uncovered pair, then fill the remaining factors in random order,
+     * each with the value that covers the most new pairs against those already chosen
+     */
+    private int[] buildCandidate(PairSpace pairs, int[] sizes, Random random) {
+        int factorCount = sizes.length;
+        int[] row = new int[factorCount];
+        Arrays.fill(row, -1);
+
+        int[] seedPair = pairs.randomUncovered(random);
+        row[seedPair[0]] = seedPair[1];
+        row[seedPair[2]] = seedPair[3];
+
+        List<Integer> order = new ArrayList<>();
+        for (int f = 0; f < factorCount; f++) {
+            if (row[f] < 0) {
+                order.add(f);
+            }
+        }
+        Collections.shuffle(order, random);
+
+        for (int f : order) {
+            int bestValue = 0;
+            int bestGain = -1;
+            int offset = random.nextInt(sizes[f]);
+            for (int k = 0; k < sizes[f]; k++) {
+                int v = (offset + k) % sizes[f];
+                int gain = 0;
+                for (int other = 0; other < factorCount; other++) {
+                    if (other != f && row[other] >= 0 && !pairs.isCovered(f, v, other, row[other])) {
+                        gain++;
+                    }
+                }
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestValue = v;
+                }
+            }
+            row[f] = bestValue;
+        }
+        return row;
+    }
+
+    /**
+     * Bit set over every (factor a, value a, factor b, value b) pair with a < b
+     */
+    private static final class PairSpace {
+
+        private final int[] sizes;
+        private final int[][] offsets;
+        private final BitSet covered;
+        private final int total;
+
+        PairSpace(int[] sizes) {
+            this.sizes = sizes;
+            this.offsets = new int[sizes.length][sizes.length];
+            int next = 0;
+            for (int a = 0; a < sizes.length; a++) {
+                for (int b = a + 1; b < sizes.length; b++) {
+                    offsets[a][b] = next;
+                    next += sizes[a] * sizes[b];
+                }
+            }
+            this.total = next;
+            this.covered = new BitSet(total);
+        }
+
+        private int index(int fa, int va, int fb, int vb) {
+            if (fa > fb) {
+                return index(fb, vb, fa, va);
+            }
+            return offsets[fa][fb] + va * sizes[fb] + vb;
+        }
+
+        boolean isCovered(int fa, int va, int fb, int vb) {
+            return covered.get(index(fa, va, fb, vb));
+        }
+
+        int uncoveredCount() {
+            return total - covered.cardinality();
+        }
+
+        int gain(int[] row) {
+            int gain = 0;
+            for (int a = 0; a < row.length; a++) {
+                for (int b = a + 1; b < row.length; b++) {
+                    if (!covered.get(index(a, row[a], b, row[b]))) {
+                        gain++;
+                    }
+                }
+            }
+            return gain;
+        }
+
+        void cover(int[] row) {
+            for (int a = 0; a < row.length; a++) {
+                for (int b = a + 1; b < row.length; b++) {
+                    covered.set(index(a, row[a], b, row[b]));
+                }
+            }
+        }
+
+        /**
+         * Pick an uncovered pair as {factor a, value a, factor b, value b}
+         */
+        int[] randomUncovered(Random random) {
+            int skip = random.nextInt(uncoveredCount());
+            int bit = covered.nextClearBit(0);
+            for (int i = 0; i < skip; i++) {
+                bit = covered.nextClearBit(bit + 1);
+            }
+            for (int a = 0; a < sizes.length; a++) {
+                for (int b = a + 1; b < sizes.length; b++) {
+                    int local = bit - offsets[a][b];
+                    if (local >= 0 && local < sizes[a] * sizes[b]) {
+                        return new int[]{a, local / sizes[b], b, local % sizes[b]};
+                    }
+                }
+            }
+            throw new IllegalStateException("No uncovered pair at bit " + bit);
+        }
+    }
+}
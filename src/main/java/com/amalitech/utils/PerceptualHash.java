@@ -0,0 +1,71 @@
+package com.amalitech.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 64-bit difference hash (dHash) of an image.
+ * The image is shrunk to a 9x8 grayscale grid and each bit records whether a cell is brighter
+ * than its right neighbour, so small rendering differences such as a blinking cursor or a clock
+ * in the status bar change only a few bits.
+ */
+public final class PerceptualHash {
+
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 8;
+
+    private PerceptualHash() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static long dHash(BufferedImage image) {
+        double[][] gray = shrink(image);
+        long hash = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH - 1; x++) {
+                hash <<= 1;
+                if (gray[y][x] > gray[y][x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Number of differing bits, 0 for identical frames and up to 64
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    /**
+     * Average luminance of each grid cell. Cells are sampled on a stride so large screenshots
+     * cost a few thousand pixel reads rather than millions.
+     */
+    private static double[][] shrink(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[][] gray = new double[HEIGHT][WIDTH];
+        for (int cy = 0; cy < HEIGHT; cy++) {
+            int y0 = cy * height / HEIGHT;
+            int y1 = Math.max(y0 + 1, (cy + 1) * height / HEIGHT);
+            for (int cx = 0; cx < WIDTH; cx++) {
+                int x0 = cx * width / WIDTH;
+                int x1 = Math.max(x0 + 1, (cx + 1) * width / WIDTH);
+                int stepX = Math.max(1, (x1 - x0) / 8);
+                int stepY = Math.max(1, (y1 - y0) / 8);
+                double sum = 0;
+                int count = 0;
+                for (int y = y0; y < y1; y += stepY) {
+                    for (int x = x0; x < x1; x += stepX) {
+                        int rgb = image.getRGB(x, y);
+                        sum += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+                        count++;
+                    }
+                }
+                gray[cy][cx] = sum / count;
+            }
+        }
+        return gray;
+    }
+}
@@ -0,0 +1,161 @@
+package com.amalitech.utils;
+
+import com.amalitech.models.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.appium.java_client.android.AndroidDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Product list of one app build, harvested from the device once and then served
+ * from an in-memory and on-disk cache keyed by app version.
+ */
+public class ProductCatalog {
+
+    private static final Logger logger = LogManager.getLogger(ProductCatalog.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Path CACHE_DIR = Paths.get("target", "product-catalog");
+    private static final String UNKNOWN_VERSION = "unknown";
+
+    private static final Map<String, ProductCatalog> MEMORY_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, String> VERSION_BY_SESSION = new ConcurrentHashMap<>();
+
+    private final String appVersion;
+    private final List<Product> products;
+
+    private ProductCatalog(String appVersion, List<Product> products) {
+        this.appVersion = appVersion;
+        this.products = Collections.unmodifiableList(new ArrayList<>(products));
+    }
+
+    /**
+     * Return the catalog for an app version from memory, then disk, and only
+     * harvest it from the device when neither cache has it
+     * @param appVersion app build identifier, see {@link #resolveAppVersion(AndroidDriver)}
+     * @param harvester reads the full product list from the device
+     */
+    public static ProductCatalog getOrHarvest(String appVersion, Supplier<List<Product>> harvester) {
+        ProductCatalog catalog = MEMORY_CACHE.get(appVersion);
+        if (catalog != null) {
+            return catalog;
+        }
+        synchronized (MEMORY_CACHE) {
+            catalog = MEMORY_CACHE.get(appVersion);
+            if (catalog != null) {
+                return catalog;
+            }
+            List<Product> products = readFromDisk(appVersion);
+            if (products != null) {
+                logger.info("Loaded " + products.size() + " products for app version " + appVersion + " from disk cache");
+            } else {
+                products = harvester.get();
+                logger.info("Harvested " + products.size() + " products for app version " + appVersion);
+                if (products.isEmpty()) {
+                    // Nothing on screen to harvest; do not cache an empty catalog
+                    return new ProductCatalog(appVersion, products);
+                }
+                if (!UNKNOWN_VERSION.equals(appVersion)) {
+                    writeToDisk(appVersion, products);
+                }
+            }
+            catalog = new ProductCatalog(appVersion, products);
+            MEMORY_CACHE.put(appVersion, catalog);
+            return catalog;
+        }
+    }
+
+    /**
+     * Identify the installed app build: app.version from config if set,
+     * otherwise versionName/versionCode from dumpsys (needs the adb_shell server feature)
+     */
+    public static String resolveAppVersion(AndroidDriver driver) {
+        String configured = ConfigReader.getProperty("app.version", "");
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        String sessionKey = String.valueOf(driver.getSessionId());
+        return VERSION_BY_SESSION.computeIfAbsent(sessionKey, key -> {
+            String appPackage = ConfigReader.getProperty("app.package", "com.swaglabsmobileapp");
+            try {
+                Map<String, Object> args = Map.of("command", "dumpsys", "args", List.of("package", appPackage));
+                String output = String.valueOf(driver.executeScript("mobile: shell", args));
+                Matcher name = Pattern.compile("versionName=(\\S+)").matcher(output);
+                Matcher code = Pattern.compile("versionCode=(\\d+)").matcher(output);
+                if (name.find()) {
+                    return name.group(1) + (code.find() ? "-" + code.group(1) : "");
+                }
+            } catch (Exception e) {
+                logger.warn("Could not read app version, product catalog will not be cached on disk: " + e.getMessage());
+            }
+            return UNKNOWN_VERSION;
+        });
+    }
+
+    private static Path cacheFile(String appVersion) {
+        return CACHE_DIR.resolve("products-" + appVersion.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+    }
+
+    private static List<Product> readFromDisk(String appVersion) {
+        Path file = cacheFile(appVersion);
+        if (UNKNOWN_VERSION.equals(appVersion) || !Files.exists(file)) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(file.toFile(), new TypeReference<List<Product>>() { });
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable product catalog cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeToDisk(String appVersion, List<Product> products) {
+        Path file = cacheFile(appVersion);
+        try {
+            Files.createDirectories(CACHE_DIR);
+            Path temp = Files.createTempFile(CACHE_DIR, "products", ".tmp");
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), products);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write product catalog cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop all in-memory catalogs, e.g. after installing a different build
+     */
+    public static void clearMemoryCache() {
+        MEMORY_CACHE.clear();
+        VERSION_BY_SESSION.clear();
+    }
+
+    public String getAppVersion() {
+        return appVersion;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    public Product get(int index) {
+        return products.get(index);
+    }
+}
@@ -0,0 +1,207 @@
+package com.amalitech.utils;
+
+import com.amalitech.evidence.AppCrashedException;
+import com.amalitech.evidence.CommandLog;
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.InvalidElementStateException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy for element actions.
+ * Failures are classified by cause: stale references are re-resolved by locator,
+ * non-interactable elements are waited on with jittered backoff, and a dead session fails fast.
+ * Missing elements are not retried because the resolver has already waited for them, and no action
+ * starts once the {@link CrashWatcher} has seen the app crash.
+ */
+public class RetryPolicy {
+
+    private static final Logger logger = LogManager.getLogger(RetryPolicy.class);
+
+    /**
+     * Why an element action failed, and therefore how to recover
+     */
+    public enum FailureCause {
+        STALE_ELEMENT(true),
+        NOT_INTERACTABLE(true),
+        NOT_FOUND(false),
+        SESSION_DEAD(false),
+        OTHER(true);
+
+        private final boolean retriable;
+
+        FailureCause(boolean retriable) {
+            this.retriable = retriable;
+        }
+
+        public boolean isRetriable() {
+            return retriable;
+        }
+    }
+
+    // The registry's counters, so the totals are exported as counters without a copy to keep in sync
+    private static final Map<FailureCause, LongAdder> FAILURES = new EnumMap<>(FailureCause.class);
+    private static final LongAdder RECOVERIES =
+            MetricsRegistry.getInstance().counter("element_action_recoveries_total");
+
+    static {
+        for (FailureCause cause : FailureCause.values()) {
+            FAILURES.put(cause, MetricsRegistry.getInstance().counter("element_action_failures_total",
+                    "cause", cause.name().toLowerCase()));
+        }
+    }
+
+    private static final RetryPolicy DEFAULT = new RetryPolicy(3, Duration.ofMillis(25), Duration.ofMillis(400));
+
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public static RetryPolicy defaultPolicy() {
+        return DEFAULT;
+    }
+
+    /**
+     * Run an action against an element, re-resolving it through the resolver on every attempt
+     * @param actionName short description used in logs
+     * @param resolver finds the element, typically by locator
+     * @param action the interaction to perform
+     * @return the action result
+     */
+    public <T> T execute(String actionName, Supplier<WebElement> resolver, Function<WebElement, T> action) {
+        return execute(actionName, resolver, action, true);
+    }
+
+    /**
+     * Run an action against an element reference that cannot be re-resolved.
+     * Stale references are not retried since retrying cannot fix them.
+     */
+    public <T> T execute(String actionName, WebElement element, Function<WebElement, T> action) {
+        return execute(actionName, () -> element, action, false);
+    }
+
+    private <T> T execute(String actionName, Supplier<WebElement> resolver,
+                          Function<WebElement, T> action, boolean canResolve) {
+        CrashWatcher.throwIfCrashed();
+        RuntimeException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                T result = action.apply(resolver.get());
+                if (attempt > 1) {
+                    RECOVERIES.increment();
+                    logger.debug(actionName + " recovered on attempt " + attempt);
+                }
+                CommandLog.record(attempt > 1 ? actionName + " (attempt " + attempt + ")" : actionName);
+                return result;
+            } catch (RuntimeException e) {
+                FailureCause cause = classify(e);
+                FAILURES.get(cause).increment();
+                lastFailure = e;
+
+                boolean retriable = cause.isRetriable()
+                        && !(cause == FailureCause.STALE_ELEMENT && !canResolve);
+                if (!retriable || attempt == maxAttempts) {
+                    break;
+                }
+                logger.debug(actionName + " failed with " + cause + " on attempt " + attempt + ", retrying");
+                if (cause != FailureCause.STALE_ELEMENT && !backoff(attempt)) {
+                    break;
+                }
+            }
+        }
+        CommandLog.record(actionName + " failed: " + classify(lastFailure)
+                + " (" + lastFailure.getClass().getSimpleName() + ")");
+        throw lastFailure;
+    }
+
+    /**
+     * Map an exception to its recovery class
+     */
+    public static FailureCause classify(Throwable failure) {
+        if (failure instanceof StaleElementReferenceException) {
+            return FailureCause.STALE_ELEMENT;
+        }
+        if (failure instanceof ElementNotInteractableException
+                || failure instanceof ElementClickInterceptedException
+                || failure instanceof InvalidElementStateException) {
+            return FailureCause.NOT_INTERACTABLE;
+        }
+        if (failure instanceof NoSuchElementException || failure instanceof TimeoutException) {
+            return FailureCause.NOT_FOUND;
+        }
+        if (failure instanceof NoSuchSessionException
+                || failure instanceof AppCrashedException
+                || failure instanceof SessionNotCreatedException
+                || failure instanceof UnreachableBrowserException) {
+            return FailureCause.SESSION_DEAD;
+        }
+        if (failure instanceof WebDriverException && failure.getMessage() != null) {
+            String message = failure.getMessage();
+            if (message.contains("session is either terminated or not started")
+                    || message.contains("instrumentation process is not running")) {
+                return FailureCause.SESSION_DEAD;
+            }
+        }
+        return FailureCause.OTHER;
+    }
+
+    /**
+     * Sleep for an exponentially growing, fully jittered delay
+     * @return false if the thread was interrupted
+     */
+    private boolean backoff(int attempt) {
+        long ceiling = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << (attempt - 1));
+        long delay = ThreadLocalRandom.current().nextLong(baseDelay.toMillis() / 2, Math.max(ceiling, 1) + 1);
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Failure counts per cause since the JVM started
+     */
+    public static Map<FailureCause, Long> getFailureCounts() {
+        Map<FailureCause, Long> counts = new EnumMap<>(FailureCause.class);
+        for (Map.Entry<FailureCause, LongAdder> entry : FAILURES.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Number of actions that succeeded after at least one retry
+     */
+    public static long getRecoveryCount() {
+        return RECOVERIES.sum();
+    }
+}
@@ -0,0 +1,85 @@
+package com.amalitech.utils;
+
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.SessionId;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cheap "has the screen changed" signal, per session.
+ * {@link com.amalitech.metrics.TimedCommandExecutor} marks a session changed on every command that
+ * can change what is displayed (clicks, typing, W3C actions, back, app lifecycle and gesture
+ * scripts); consumers remember the generation they last saw and compare, without any device call.
+ * A session that does not go through that executor is never tracked, and nothing should be
+ * assumed unchanged for it.
+ */
+public final class ScreenChangeTracker {
+
+    // Key of drivers without a session id, such as test doubles
+    private static final String NO_SESSION = "";
+    private static final Map<String, State> SESSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Generation of a session's screen and when it last changed
+     */
+    public static final class State {
+        private final long generation;
+        private final long changedNanos;
+
+        private State(long generation, long changedNanos) {
+            this.generation = generation;
+            this.changedNanos = changedNanos;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * System.nanoTime() of the last change
+         */
+        public long getChangedNanos() {
+            return changedNanos;
+        }
+    }
+
+    private ScreenChangeTracker() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Record that the screen of a session may have changed
+     */
+    public static void markChanged(String sessionId) {
+        long now = System.nanoTime();
+        SESSIONS.merge(key(sessionId), new State(1, now),
+                (previous, ignored) -> new State(previous.generation + 1, now));
+    }
+
+    /**
+     * Current state of a session, or null if it is not tracked
+     */
+    public static State current(String sessionId) {
+        return SESSIONS.get(key(sessionId));
+    }
+
+    /**
+     * Stop tracking a session that has been quit
+     */
+    public static void removeSession(String sessionId) {
+        SESSIONS.remove(key(sessionId));
+    }
+
+    /**
+     * Session id of a driver, or null if it has none
+     */
+    public static String sessionOf(Object driver) {
+        SessionId sessionId = driver instanceof RemoteWebDriver ? ((RemoteWebDriver) driver).getSessionId() : null;
+        return sessionId != null ? sessionId.toString() : null;
+    }
+
+    private static String key(String sessionId) {
+        return sessionId != null ? sessionId : NO_SESSION;
+    }
+}
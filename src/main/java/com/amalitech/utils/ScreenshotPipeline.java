@@ -0,0 +1,463 @@
+package com.amalitech.utils;
+
+import com.amalitech.metrics.Timeline;
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import io.qameta.allure.model.StepResult;
+import io.qameta.allure.model.WithAttachments;
+import io.qameta.allure.model.WithSteps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Screenshot capture that keeps the test thread off the slow path.
+ * The test thread only fetches the encoded screenshot from the server; decoding, writing under
+ * report.screenshots.path and attaching to Allure happen on a small bounded executor.
+ * When the executor is saturated, step screenshots are dropped and failure screenshots
+ * wait briefly for a free slot, so evidence never adds seconds to a failing test. Failure
+ * screenshots are taken through {@link #captureFailure}, whose result tells the evidence bundle
+ * when the file is on disk.
+ * <p>
+ * With deduplication on, a step screenshot is not requested at all while the session has sent no
+ * screen-changing command since the previous one (see {@link ScreenChangeTracker}). The previous
+ * screenshot only counts if it was taken once the screen had settled after the change before it,
+ * so a screen that keeps updating after a tap is captured again. Frames that are taken are
+ * compared by perceptual hash in the background; a near-duplicate is stored as a link to the
+ * previous image on disk and its Allure attachment points at the previous attachment.
+ */
+public class ScreenshotPipeline {
+
+    private static final Logger logger = LogManager.getLogger(ScreenshotPipeline.class);
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G'};
+    private static final Duration FAILURE_SLOT_WAIT = Duration.ofMillis(500);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final long MAX_UNCHANGED_AGE_NANOS = Duration.ofSeconds(10).toNanos();
+    private static final Duration DEFAULT_SETTLE = Duration.ofSeconds(1);
+
+    /**
+     * Why the screenshot is taken, which decides what happens under back-pressure
+     */
+    public enum Kind {
+        FAILURE,
+        STEP
+    }
+
+    private static volatile ScreenshotPipeline instance;
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int capacity;
+    private final Semaphore slots;
+    private final ThreadPoolExecutor executor;
+    private final int dedupThreshold;
+    private final long settleNanos;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    // Test-thread view of each session's last step capture, for the cheap change check
+    private final Map<String, StepCapture> lastSteps = new ConcurrentHashMap<>();
+
+    // Background view of the last frame written, guarded by frameLock
+    private final Object frameLock = new Object();
+    private Long lastHash;
+    private Path lastFrame;
+    private String lastAttachmentSource;
+
+    private static final class StepCapture {
+        private final long generation;
+        private final long nanos;
+        private final boolean settled;
+        private final Path target;
+
+        private StepCapture(long generation, long nanos, boolean settled, Path target) {
+            this.generation = generation;
+            this.nanos = nanos;
+            this.settled = settled;
+            this.target = target;
+        }
+    }
+
+    /**
+     * @param directory where screenshots are written
+     * @param workers background threads doing decode and I/O
+     * @param queueCapacity screenshots allowed to wait for a worker
+     * @param enabled false turns every capture into a no-op
+     */
+    public ScreenshotPipeline(Path directory, int workers, int queueCapacity, boolean enabled) {
+        this(directory, workers, queueCapacity, enabled, -1);
+    }
+
+    /**
+     * @param dedupThreshold max dHash distance (0-64) treated as the same frame, negative to disable dedup
+     */
+    public ScreenshotPipeline(Path directory, int workers, int queueCapacity, boolean enabled, int dedupThreshold) {
+        this(directory, workers, queueCapacity, enabled, dedupThreshold, DEFAULT_SETTLE);
+    }
+
+    /**
+     * @param settle how long after a screen-changing command a step screenshot may still show the
+     *               screen updating, and so is not reused for the next step
+     */
+    public ScreenshotPipeline(Path directory, int workers, int queueCapacity, boolean enabled, int dedupThreshold,
+                              Duration settle) {
+        this.directory = directory;
+        this.enabled = enabled;
+        this.dedupThreshold = dedupThreshold;
+        this.settleNanos = settle.toNanos();
+        this.capacity = workers + queueCapacity;
+        this.slots = new Semaphore(capacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "screenshot-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Shared pipeline configured from report.screenshots.*
+     */
+    public static ScreenshotPipeline getInstance() {
+        ScreenshotPipeline pipeline = instance;
+        if (pipeline == null) {
+            synchronized (ScreenshotPipeline.class) {
+                pipeline = instance;
+                if (pipeline == null) {
+                    pipeline = new ScreenshotPipeline(
+                            Paths.get(ConfigReader.getProperty("report.screenshots.path", "screenshots/")),
+                            2, 8, ConfigReader.getBoolean("report.screenshots.enabled", true),
+                            ConfigReader.getBoolean("report.screenshots.dedup", true)
+                                    ? ConfigReader.getInt("report.screenshots.dedup.threshold", 4) : -1,
+                            ConfigReader.getDuration("report.screenshots.dedup.settle", DEFAULT_SETTLE));
+                    instance = pipeline;
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Capture a screenshot and hand it to the background writers
+     * @param driver session to capture
+     * @param name screenshot name, used for the file and the Allure attachment
+     * @param kind failure or step, see {@link Kind}
+     * @return the path the screenshot will be written to, the previous step screenshot if nothing
+     *         has changed since, or null if it was skipped
+     */
+    public Path capture(TakesScreenshot driver, String name, Kind kind) {
+        return capture(driver, name, kind, new CompletableFuture<>());
+    }
+
+    /**
+     * Capture a failure screenshot. Only fetching it from the server happens on the calling thread.
+     * @return completes with the written file once a background writer has stored it, or with
+     *         null if the screenshot was skipped or could not be written
+     */
+    public CompletableFuture<Path> captureFailure(TakesScreenshot driver, String name) {
+        CompletableFuture<Path> stored = new CompletableFuture<>();
+        if (capture(driver, name, Kind.FAILURE, stored) == null) {
+            stored.complete(null);
+        }
+        return stored;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private Path capture(TakesScreenshot driver, String name, Kind kind, CompletableFuture<Path> stored) {
+        if (!enabled || driver == null) {
+            return null;
+        }
+        try (Timeline.Span ignored = Timeline.begin("screenshot", name)) {
+            return captureOnTestThread(driver, name, kind, stored);
+        }
+    }
+
+    private Path captureOnTestThread(TakesScreenshot driver, String name, Kind kind, CompletableFuture<Path> stored) {
+        String session = ScreenChangeTracker.sessionOf(driver);
+        ScreenChangeTracker.State screen = ScreenChangeTracker.current(session);
+        StepCapture lastStep = lastSteps.get(stepKey(session));
+        if (kind == Kind.STEP && isUnchanged(screen, lastStep)) {
+            unchanged.increment();
+            logger.debug("Screen unchanged, reusing " + lastStep.target + " for '" + name + "'");
+            return lastStep.target;
+        }
+        if (!acquireSlot(kind)) {
+            dropped.increment();
+            logger.warn("Screenshot writers busy, dropped " + kind.name().toLowerCase() + " screenshot '" + name + "'");
+            return null;
+        }
+
+        String encoded;
+        try {
+            encoded = driver.getScreenshotAs(OutputType.BASE64);
+        } catch (RuntimeException e) {
+            slots.release();
+            logger.error("Failed to capture screenshot '" + name + "'", e);
+            return null;
+        }
+
+        Path target = directory.resolve(fileName(name));
+        String attachmentSource = prepareAttachment(name);
+        String testCaseUuid = Allure.getLifecycle().getCurrentTestCase().orElse(null);
+        boolean allowDuplicate = kind == Kind.STEP;
+        if (kind == Kind.STEP && screen != null) {
+            long now = System.nanoTime();
+            lastSteps.put(stepKey(session), new StepCapture(screen.getGeneration(), now,
+                    now - screen.getChangedNanos() >= settleNanos, target));
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    stored.complete(process(encoded, target, attachmentSource, testCaseUuid, allowDuplicate)
+                            ? target : null);
+                } finally {
+                    // Only takes effect if process threw
+                    stored.complete(null);
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            dropped.increment();
+            logger.error("Failed to queue screenshot '" + name + "'", e);
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * Wait until every queued screenshot is written
+     * @return false if the timeout expired first
+     */
+    public boolean drain(Duration timeout) {
+        try {
+            if (slots.tryAcquire(capacity, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                slots.release(capacity);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.warn("Screenshot writers did not finish within " + timeout.toMillis() + " ms");
+        return false;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Step screenshots skipped because no page action happened since the previous one
+     */
+    public long getUnchangedCount() {
+        return unchanged.sum();
+    }
+
+    /**
+     * Frames stored as a reference to the previous image
+     */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Forget the last step screenshot of a session that has been quit
+     */
+    public void removeSession(String sessionId) {
+        lastSteps.remove(stepKey(sessionId));
+    }
+
+    private static String stepKey(String sessionId) {
+        return sessionId != null ? sessionId : "";
+    }
+
+    private boolean isUnchanged(ScreenChangeTracker.State screen, StepCapture lastStep) {
+        return dedupThreshold >= 0
+                && screen != null
+                && lastStep != null
+                && lastStep.settled
+                && screen.getGeneration() == lastStep.generation
+                && System.nanoTime() - lastStep.nanos < MAX_UNCHANGED_AGE_NANOS;
+    }
+
+    private boolean acquireSlot(Kind kind) {
+        if (kind == Kind.STEP) {
+            return slots.tryAcquire();
+        }
+        try {
+            return slots.tryAcquire(FAILURE_SLOT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Reserve the Allure attachment on the test thread, so it lands on the right test or step
+     */
+    private static String prepareAttachment(String name) {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        if (!lifecycle.getCurrentTestCaseOrStep().isPresent()) {
+            return null;
+        }
+        return lifecycle.prepareAttachment(name, "image/png", ".png");
+    }
+
+    /**
+     * @return whether the screenshot, or a link to an identical previous one, was stored
+     */
+    private boolean process(String encoded, Path target, String attachmentSource,
+                            String testCaseUuid, boolean allowDuplicate) {
+        try {
+            byte[] png = Base64.getMimeDecoder().decode(encoded);
+            if (!isPng(png)) {
+                logger.warn("Screenshot " + target.getFileName() + " is not a PNG image");
+            }
+            Long hash = dedupThreshold >= 0 ? hash(png) : null;
+            Files.createDirectories(target.toAbsolutePath().getParent());
+
+            synchronized (frameLock) {
+                if (allowDuplicate && hash != null && lastHash != null
+                        && PerceptualHash.distance(hash, lastHash) <= dedupThreshold
+                        && (attachmentSource == null
+                        || relinkAttachment(testCaseUuid, attachmentSource, lastAttachmentSource))) {
+                    if (!linkToLastFrame(target)) {
+                        writeFile(target, png);
+                    }
+                    duplicates.increment();
+                    logger.info("Screenshot " + target.getFileName() + " matches " + lastFrame.getFileName()
+                            + ", stored as a reference");
+                    return true;
+                }
+                lastHash = hash;
+                lastFrame = target;
+                lastAttachmentSource = attachmentSource;
+            }
+
+            writeFile(target, png);
+            if (attachmentSource != null) {
+                Allure.getLifecycle().writeAttachment(attachmentSource, new ByteArrayInputStream(png));
+            }
+            written.increment();
+            logger.info("Screenshot captured: " + target);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to write screenshot " + target, e);
+            return false;
+        }
+    }
+
+    private static void writeFile(Path target, byte[] png) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, png);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Store the frame as a relative symbolic link to the previous frame in the same directory.
+     * Must be called with frameLock held.
+     */
+    private boolean linkToLastFrame(Path target) {
+        try {
+            Files.createSymbolicLink(target, lastFrame.getFileName());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Cannot link " + target.getFileName() + " to previous frame: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Point an attachment reserved on the test thread at an already written attachment.
+     * Only succeeds while the test case has not been written out yet.
+     */
+    private static boolean relinkAttachment(String testCaseUuid, String source, String previousSource) {
+        if (testCaseUuid == null || previousSource == null) {
+            return false;
+        }
+        AtomicBoolean relinked = new AtomicBoolean();
+        Allure.getLifecycle().updateTestCase(testCaseUuid,
+                testCase -> relinked.set(relink(testCase, source, previousSource)));
+        return relinked.get();
+    }
+
+    private static <T extends WithAttachments & WithSteps> boolean relink(T container, String source,
+                                                                           String previousSource) {
+        for (Attachment attachment : container.getAttachments()) {
+            if (source.equals(attachment.getSource())) {
+                attachment.setSource(previousSource);
+                return true;
+            }
+        }
+        for (StepResult step : container.getSteps()) {
+            if (relink(step, source, previousSource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Perceptual hash of a PNG, or null if it cannot be decoded
+     */
+    private static Long hash(byte[] png) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            return image != null ? PerceptualHash.dHash(image) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPng(byte[] data) {
+        if (data.length < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (data[i] != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + System.currentTimeMillis()
+                + "_" + SEQUENCE.incrementAndGet() + ".png";
+    }
+}
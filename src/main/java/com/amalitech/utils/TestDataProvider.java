@@ -1,4 +1,215 @@
 package com.amalitech.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.annotations.DataProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Test data loaded from JSON files on the classpath.
+ * Files are read once with Jackson's streaming parser and cached per file; each top-level
+ * array of flat objects becomes a named section of records, and each top-level object of
+ * string arrays becomes a named set of field-value domains for pairwise generation.
+ */
 public class TestDataProvider {
+
+    private static final Logger logger = LogManager.getLogger(TestDataProvider.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Map<String, DataFile> CACHE = new ConcurrentHashMap<>();
+    private static final long DEFAULT_PAIRWISE_SEED = 20240601L;
+
+    public static final String DEFAULT_FILE = "testdata/testdata.json";
+    public static final String LOGIN_USERS = "loginUsers";
+    public static final String CHECKOUT_INFO = "checkoutInfo";
+    public static final String LOGIN_PAIRWISE = "loginPairwise";
+    public static final String CHECKOUT_PAIRWISE = "checkoutPairwise";
+    public static final String LOGIN_DOMAINS = "loginDomains";
+    public static final String CHECKOUT_DOMAINS = "checkoutDomains";
+
+    // TestNG instantiates classes it finds while scanning packages, so this must not throw
+    private TestDataProvider() {
+    }
+
+    /**
+     * Login matrix: username, password, expected error ("" when login should succeed)
+     */
+    @DataProvider(name = LOGIN_USERS, parallel = true)
+    public static Object[][] loginUsers() {
+        return toRows(getRecords(LOGIN_USERS), "username", "password", "expectedError");
+    }
+
+    /**
+     * Checkout form data: first name, last name, zip code
+     */
+    @DataProvider(name = CHECKOUT_INFO, parallel = true)
+    public static Object[][] checkoutInfo() {
+        return toRows(getRecords(CHECKOUT_INFO), "firstName", "lastName", "zipCode");
+    }
+
+    /**
+     * Pairwise login matrix: username, password, entry mode ("form" or "fields")
+     */
+    @DataProvider(name = LOGIN_PAIRWISE, parallel = true)
+    public static Object[][] loginPairwise() {
+        return new PairwiseGenerator(getPairwiseSeed()).generateRows(getDomains(LOGIN_DOMAINS));
+    }
+
+    /**
+     * Pairwise checkout form matrix: first name, last name, zip code
+     */
+    @DataProvider(name = CHECKOUT_PAIRWISE, parallel = true)
+    public static Object[][] checkoutPairwise() {
+        return new PairwiseGenerator(getPairwiseSeed()).generateRows(getDomains(CHECKOUT_DOMAINS));
+    }
+
+    /**
+     * Seed for pairwise generation, from testdata.pairwise.seed so a run can be reproduced
+     */
+    public static long getPairwiseSeed() {
+        return ConfigReader.getLong("testdata.pairwise.seed", DEFAULT_PAIRWISE_SEED);
+    }
+
+    /**
+     * Records of a section in the default test data file
+     */
+    public static List<Map<String, String>> getRecords(String section) {
+        return getRecords(DEFAULT_FILE, section);
+    }
+
+    /**
+     * Records of a section in a classpath JSON file
+     */
+    public static List<Map<String, String>> getRecords(String resource, String section) {
+        List<Map<String, String>> records = CACHE.computeIfAbsent(resource, TestDataProvider::load).records.get(section);
+        if (records == null) {
+            throw new IllegalArgumentException("No section '" + section + "' in " + resource);
+        }
+        return records;
+    }
+
+    /**
+     * Field-value domains of a section in the default test data file
+     */
+    public static Map<String, List<String>> getDomains(String section) {
+        return getDomains(DEFAULT_FILE, section);
+    }
+
+    /**
+     * Field-value domains of a section in a classpath JSON file, in field order
+     */
+    public static Map<String, List<String>> getDomains(String resource, String section) {
+        Map<String, List<String>> domains = CACHE.computeIfAbsent(resource, TestDataProvider::load).domains.get(section);
+        if (domains == null) {
+            throw new IllegalArgumentException("No domain section '" + section + "' in " + resource);
+        }
+        return domains;
+    }
+
+    /**
+     * Project records onto DataProvider rows with the given column order
+     */
+    public static Object[][] toRows(List<Map<String, String>> records, String... columns) {
+        Object[][] rows = new Object[records.size()][columns.length];
+        for (int i = 0; i < records.size(); i++) {
+            for (int j = 0; j < columns.length; j++) {
+                rows[i][j] = records.get(i).get(columns[j]);
+            }
+        }
+        return rows;
+    }
+
+    private static DataFile load(String resource) {
+        try (InputStream in = TestDataProvider.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Test data file not found on classpath: " + resource);
+            }
+            DataFile file = parse(in);
+            logger.info("Loaded test data sections " + file.records.keySet()
+                    + " and domains " + file.domains.keySet() + " from " + resource);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read test data " + resource, e);
+        }
+    }
+
+    private static DataFile parse(InputStream in) throws IOException {
+        DataFile file = new DataFile();
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Test data must be a JSON object of sections");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    List<Map<String, String>> records = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        records.add(Collections.unmodifiableMap(parseRecord(parser)));
+                    }
+                    file.records.put(section, Collections.unmodifiableList(records));
+                } else if (token == JsonToken.START_OBJECT) {
+                    file.domains.put(section, Collections.unmodifiableMap(parseDomains(parser)));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return file;
+    }
+
+    private static Map<String, List<String>> parseDomains(JsonParser parser) throws IOException {
+        Map<String, List<String>> domains = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            List<String> values = new ArrayList<>();
+            JsonToken value;
+            while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                } else {
+                    values.add(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                }
+            }
+            domains.put(field, Collections.unmodifiableList(values));
+        }
+        return domains;
+    }
+
+    private static Map<String, String> parseRecord(JsonParser parser) throws IOException {
+        Map<String, String> record = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            } else {
+                record.put(field, value == JsonToken.VALUE_NULL ? null : parser.getText());
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Parsed sections of one test data file
+     */
+    private static final class DataFile {
+        private final Map<String, List<Map<String, String>>> records = new LinkedHashMap<>();
+        private final Map<String, Map<String, List<String>>> domains = new LinkedHashMap<>();
+    }
 }
@@ -0,0 +1,166 @@
+package com.amalitech.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed copy of the UiAutomator2 page source.
+ * One getPageSource() call answers many queries without further device round trips.
+ */
+public class UiSnapshot {
+
+    private static volatile int lastCaptureHash;
+
+    private final String pageSource;
+    private final Document document;
+
+    private UiSnapshot(String pageSource, Document document) {
+        this.pageSource = pageSource;
+        this.document = document;
+    }
+
+    /**
+     * Fetch the current page source and parse it
+     */
+    public static UiSnapshot capture(AndroidDriver driver) {
+        String pageSource = driver.getPageSource();
+        lastCaptureHash = pageSource.hashCode();
+        return parse(pageSource);
+    }
+
+    /**
+     * Hash of the most recently captured page source, to tell later whether the screen moved on
+     */
+    public static int getLastCaptureHash() {
+        return lastCaptureHash;
+    }
+
+    /**
+     * Parse a page source string
+     */
+    public static UiSnapshot parse(String pageSource) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(new InputSource(new StringReader(pageSource)));
+            return new UiSnapshot(pageSource, document);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse page source", e);
+        }
+    }
+
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    /**
+     * All nodes in document order
+     */
+    public List<Element> allElements() {
+        NodeList nodes = document.getElementsByTagName("*");
+        List<Element> elements = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            elements.add((Element) nodes.item(i));
+        }
+        return elements;
+    }
+
+    /**
+     * Nodes whose content-desc (accessibility ID) matches, in document order
+     */
+    public List<Element> findByContentDesc(String contentDesc) {
+        List<Element> matches = new ArrayList<>();
+        for (Element element : allElements()) {
+            if (contentDesc.equals(element.getAttribute("content-desc"))) {
+                matches.add(element);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * First node with the given content-desc, or null
+     */
+    public Element findFirstByContentDesc(String contentDesc) {
+        List<Element> matches = findByContentDesc(contentDesc);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Nodes whose text attribute matches exactly
+     */
+    public List<Element> findByText(String text) {
+        List<Element> matches = new ArrayList<>();
+        for (Element element : allElements()) {
+            if (text.equals(element.getAttribute("text"))) {
+                matches.add(element);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Check whether any node carries the given text
+     */
+    public boolean containsText(String text) {
+        return !findByText(text).isEmpty();
+    }
+
+    /**
+     * Descendants of a node with the given content-desc, in document order
+     */
+    public static List<Element> findDescendantsByContentDesc(Element root, String contentDesc) {
+        List<Element> matches = new ArrayList<>();
+        NodeList nodes = root.getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            if (contentDesc.equals(element.getAttribute("content-desc"))) {
+                matches.add(element);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Non-empty text values of a node and its descendants, in document order
+     */
+    public static List<String> texts(Element root) {
+        List<String> texts = new ArrayList<>();
+        collectTexts(root, texts);
+        return texts;
+    }
+
+    private static void collectTexts(Node node, List<String> texts) {
+        if (node instanceof Element) {
+            String text = ((Element) node).getAttribute("text");
+            if (!text.isEmpty()) {
+                texts.add(text);
+            }
+        }
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            collectTexts(children.item(i), texts);
+        }
+    }
+
+    /**
+     * Check if an input node holds no user value (empty text or only its hint)
+     */
+    public static boolean isEmptyInput(Element element) {
+        String text = element.getAttribute("text");
+        return text.isEmpty() || text.equals(element.getAttribute("hint"));
+    }
+}
@@ -1,8 +1,8 @@
 package com.amalitech.utils;
 
+import com.amalitech.metrics.Timeline;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
-import java.time.Duration;
 
 public class WaitUtils {
 
@@ -11,11 +11,11 @@ public class WaitUtils {
 
     public WaitUtils(AndroidDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        this.wait = new WebDriverWait(driver, ConfigReader.getDefaultTimeout());
     }
 
     public void waitForPageLoad() {
-        try {
+        try (Timeline.Span ignored = Timeline.begin("sleep", "WaitUtils.waitForPageLoad")) {
             Thread.sleep(2000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -23,7 +23,7 @@ public class WaitUtils {
     }
 
     public void waitForElement(int seconds) {
-        try {
+        try (Timeline.Span ignored = Timeline.begin("sleep", "WaitUtils.waitForElement")) {
             Thread.sleep(seconds * 1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -31,7 +31,7 @@ public class WaitUtils {
     }
 
     public void hardWait(int seconds) {
-        try {
+        try (Timeline.Span ignored = Timeline.begin("sleep", "WaitUtils.hardWait")) {
             Thread.sleep(seconds * 1000);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -0,0 +1,119 @@
+package com.amalitech.evidence;
+
+import io.appium.java_client.appmanagement.ApplicationState;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CrashWatcherTest {
+
+    private static final String APP = "com.swaglabsmobileapp";
+
+    @Test(description = "A fatal exception counts only when its process is the app under test")
+    public void testFatalExceptionOfAppOnly() {
+        try (CrashWatcher watcher = new CrashWatcher(APP, () -> ApplicationState.RUNNING_IN_FOREGROUND,
+                Duration.ofMinutes(1))) {
+            watcher.onLogLine("1700000000.100  900  900 E AndroidRuntime: FATAL EXCEPTION: main");
+            watcher.onLogLine("1700000000.100  900  900 E AndroidRuntime: Process: com.android.systemui, PID: 900");
+            Assert.assertNull(watcher.getCrash(), "Another app's crash must not fire");
+
+            watcher.onLogLine("1700000001.200 4242 4242 E AndroidRuntime: FATAL EXCEPTION: main");
+            watcher.onLogLine("1700000001.200 4242 4242 E AndroidRuntime: Process: " + APP + ", PID: 4242");
+
+            CrashWatcher.Crash crash = watcher.getCrash();
+            Assert.assertNotNull(crash);
+            Assert.assertEquals(crash.getSource(), "logcat");
+            Assert.assertTrue(crash.getCause().contains("FATAL EXCEPTION"));
+            Assert.assertTrue(crash.getCause().contains(APP));
+        }
+    }
+
+    @Test(description = "An ANR reported by ActivityManager for the app fires")
+    public void testAnr() {
+        try (CrashWatcher watcher = new CrashWatcher(APP, () -> ApplicationState.RUNNING_IN_FOREGROUND,
+                Duration.ofMinutes(1))) {
+            watcher.onLogLine("1700000000.100  600  700 E ActivityManager: ANR in com.android.launcher3");
+            Assert.assertNull(watcher.getCrash());
+
+            watcher.onLogLine("1700000002.000  600  700 E ActivityManager: ANR in " + APP + " (" + APP + "/.MainActivity)");
+            Assert.assertTrue(watcher.getCrash().getCause().startsWith("1700000002.000"));
+        }
+    }
+
+    @Test(description = "The app stopping interrupts a wait in progress instead of letting it time out")
+    public void testAppStateInterruptsWait() throws Exception {
+        AtomicReference<ApplicationState> state = new AtomicReference<>(ApplicationState.RUNNING_IN_FOREGROUND);
+        try (CrashWatcher watcher = new CrashWatcher(APP, state::get, Duration.ofMillis(20))) {
+            watcher.start();
+            CountDownLatch waiting = new CountDownLatch(1);
+            AtomicLong waitedMillis = new AtomicLong(-1);
+            Thread test = new Thread(() -> {
+                watcher.watch(Thread.currentThread());
+                long start = System.nanoTime();
+                waiting.countDown();
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    waitedMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                watcher.unwatch();
+            });
+            test.start();
+            Assert.assertTrue(waiting.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Assert.assertNull(watcher.getCrash(), "A running app is not a crash");
+
+            state.set(ApplicationState.NOT_RUNNING);
+            test.join(5_000);
+
+            Assert.assertFalse(test.isAlive());
+            Assert.assertTrue(waitedMillis.get() >= 0 && waitedMillis.get() < 5_000, "Waited " + waitedMillis + " ms");
+            Assert.assertEquals(watcher.getCrash().getSource(), "app state");
+            Assert.assertTrue(watcher.getCrash().getCause().contains("NOT_RUNNING"));
+        }
+    }
+
+    @Test(description = "An intentional stop while suspended is not a crash, a later one is")
+    public void testSuspendedStopIsNotACrash() throws Exception {
+        AtomicReference<ApplicationState> state = new AtomicReference<>(ApplicationState.RUNNING_IN_FOREGROUND);
+        try (CrashWatcher watcher = new CrashWatcher(APP, state::get, Duration.ofMillis(10))) {
+            watcher.start();
+            Thread.sleep(50);
+            try (CrashWatcher.Suspension ignored = watcher.suspend()) {
+                state.set(ApplicationState.NOT_RUNNING);
+                Thread.sleep(100);
+            }
+            Thread.sleep(100);
+            Assert.assertNull(watcher.getCrash(), "Not yet seen running again after the stop");
+
+            state.set(ApplicationState.RUNNING_IN_FOREGROUND);
+            Thread.sleep(100);
+            state.set(ApplicationState.NOT_RUNNING);
+            Thread.sleep(100);
+            Assert.assertNotNull(watcher.getCrash(), "A stop outside the suspension still fires");
+        }
+    }
+
+    @Test(description = "Crash lines are picked up from a logcat stream as they arrive")
+    public void testDetectsCrashFromLogcatStream() throws Exception {
+        String script = "printf '1700000000.000 4242 4250 I SwagLabs: opening cart\\n'; "
+                + "printf '1700000001.000 4242 4242 E AndroidRuntime: FATAL EXCEPTION: main\\n'; "
+                + "printf '1700000001.000 4242 4242 E AndroidRuntime: Process: " + APP + ", PID: 4242\\n'; "
+                + "printf '1700000001.000 4242 4242 E AndroidRuntime: java.lang.NullPointerException\\n'";
+        try (CrashWatcher watcher = new CrashWatcher(APP, () -> ApplicationState.RUNNING_IN_FOREGROUND,
+                Duration.ofMinutes(1))) {
+            LogcatStreamer streamer = new LogcatStreamer(Arrays.asList("sh", "-c", script), 4096);
+            watcher.streamLogcat(streamer);
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            Assert.assertNotNull(watcher.getCrash());
+            Assert.assertTrue(watcher.getCrash().getCause().contains("PID: 4242"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.amalitech.evidence;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class FailureEvidenceCollectorTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    private static Map<String, String> readZip(Path bundle) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(bundle))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Evidence is fetched in parallel and bundled with the commands of the failing test")
+    public void testBundleContents() throws Exception {
+        FailureEvidenceCollector collector = new FailureEvidenceCollector(tempDirectories.create("evidence"));
+        CommandLog.record("before the test");
+        collector.testStarted("CartTest.testRemoveButtons");
+        CommandLog.record("click test-REMOVE");
+
+        // Each source waits for the others, which only completes if they run concurrently
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Path bundle = collector.collect("CartTest.testRemoveButtons", new AssertionError("cart not empty"),
+                () -> awaitOthers(allStarted, "<hierarchy/>"),
+                () -> awaitOthers(allStarted, new byte[]{1, 2, 3}),
+                () -> awaitOthers(allStarted, Arrays.asList("E AndroidRuntime: boom")))
+                .get(10, TimeUnit.SECONDS);
+
+        Map<String, String> entries = readZip(bundle);
+        Assert.assertEquals(entries.get("page-source.xml"), "<hierarchy/>");
+        Assert.assertTrue(entries.containsKey("screenshot.png"));
+        Assert.assertEquals(entries.get("logcat.txt"), "E AndroidRuntime: boom");
+        Assert.assertTrue(entries.get("summary.txt").contains("cart not empty"));
+        Assert.assertTrue(entries.get("commands.txt").contains("click test-REMOVE"));
+        Assert.assertFalse(entries.get("commands.txt").contains("before the test"));
+    }
+
+    @Test(description = "A failing evidence source is recorded as an error and the rest is still bundled")
+    public void testFailingSource() throws Exception {
+        FailureEvidenceCollector collector = new FailureEvidenceCollector(tempDirectories.create("evidence"));
+        collector.testStarted("CheckoutTest.testCheckoutFormValidation");
+
+        Path bundle = collector.collect("CheckoutTest.testCheckoutFormValidation", null,
+                () -> {
+                    throw new IllegalStateException("session gone");
+                },
+                null,
+                () -> Arrays.asList("I ActivityManager: ok"))
+                .get(10, TimeUnit.SECONDS);
+
+        Map<String, String> entries = readZip(bundle);
+        Assert.assertTrue(entries.get("page-source.error.txt").contains("session gone"));
+        Assert.assertFalse(entries.containsKey("screenshot.png"));
+        Assert.assertEquals(entries.get("logcat.txt"), "I ActivityManager: ok");
+    }
+
+    @Test(description = "The failing test's thread does not wait for slow evidence sources")
+    public void testCollectReturnsBeforeSourcesFinish() throws Exception {
+        FailureEvidenceCollector collector = new FailureEvidenceCollector(tempDirectories.create("evidence"));
+        collector.testStarted("ProductTest.testSortByPrice");
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Path> bundle = collector.collect("ProductTest.testSortByPrice", null,
+                () -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "<hierarchy/>";
+                },
+                null, null);
+
+        Assert.assertFalse(bundle.isDone(), "The bundle waits for the page source in the background");
+        release.countDown();
+        Assert.assertTrue(collector.drain(Duration.ofSeconds(10)));
+        Assert.assertEquals(readZip(bundle.get()).get("page-source.xml"), "<hierarchy/>");
+    }
+
+    private static <T> T awaitOthers(CountDownLatch allStarted, T value) {
+        allStarted.countDown();
+        try {
+            if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Evidence sources did not run in parallel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
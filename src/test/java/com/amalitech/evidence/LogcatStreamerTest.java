@@ -0,0 +1,100 @@
+package com.amalitech.evidence;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LogcatStreamerTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    /**
+     * A local process printing 20 epoch-format logcat lines, one per second of log time from 1700000000,
+     * with a stack trace continuation after the crash line
+     */
+    private static List<String> fakeLogcat() {
+        String script = "i=0; while [ $i -lt 20 ]; do "
+                + "printf '%d.%03d  4242  4250 I SwagLabs: line %d\\n' $((1700000000 + i)) 0 $i; "
+                + "if [ $i -eq 10 ]; then "
+                + "printf '%d.500  4242  4242 E AndroidRuntime: FATAL EXCEPTION: main\\n' $((1700000000 + i)); "
+                + "printf '\\tat com.swaglabsmobileapp.MainActivity.onCreate\\n'; fi; "
+                + "i=$((i + 1)); done";
+        return Arrays.asList("sh", "-c", script);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Only lines inside the time window are returned, with their continuations")
+    public void testTimeWindowedSlice() throws Exception {
+        try (LogcatStreamer streamer = new LogcatStreamer(fakeLogcat(), 64 * 1024)) {
+            streamer.start();
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            List<String> slice = streamer.slice(1_700_000_009_000L, 1_700_000_011_000L);
+
+            Assert.assertEquals(slice.size(), 5, String.join("\n", slice));
+            Assert.assertTrue(slice.get(0).endsWith("line 9"));
+            Assert.assertTrue(slice.get(2).contains("FATAL EXCEPTION"));
+            Assert.assertTrue(slice.get(3).contains("MainActivity.onCreate"), "Continuation follows its line");
+            Assert.assertTrue(slice.get(4).endsWith("line 11"));
+        }
+    }
+
+    @Test(description = "The ring buffer keeps only the newest output and drops the line cut by the wrap")
+    public void testRingBufferStaysBounded() throws Exception {
+        try (LogcatStreamer streamer = new LogcatStreamer(fakeLogcat(), 200)) {
+            streamer.start();
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            List<String> lines = streamer.lines();
+
+            Assert.assertTrue(streamer.getBytesReceived() > 200);
+            Assert.assertTrue(lines.size() < 20);
+            Assert.assertTrue(lines.get(lines.size() - 1).endsWith("line 19"));
+            for (String line : lines) {
+                Assert.assertTrue(line.trim().startsWith("17000000"), "Partial line kept: " + line);
+            }
+        }
+    }
+
+    @Test(description = "A restarted stream appends to the same buffer, as after an app relaunch")
+    public void testRestartKeepsBuffer() throws Exception {
+        try (LogcatStreamer streamer = new LogcatStreamer(
+                Arrays.asList("sh", "-c", "printf '1700000000.000  4242  4242 I SwagLabs: old pid\\n'"), 64 * 1024)) {
+            streamer.start();
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            streamer.restart(Arrays.asList("sh", "-c", "printf '1700000005.000  5151  5151 I SwagLabs: new pid\\n'"));
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            List<String> lines = streamer.lines();
+            Assert.assertEquals(lines.size(), 2, lines.toString());
+            Assert.assertTrue(lines.get(0).endsWith("old pid"));
+            Assert.assertTrue(lines.get(1).endsWith("new pid"));
+        }
+    }
+
+    @Test(description = "A failure flushes just the window to disk")
+    public void testFlush() throws Exception {
+        Path file = tempDirectories.create("logcat").resolve("CartTest.testRemoveButtons.log");
+        try (LogcatStreamer streamer = new LogcatStreamer(fakeLogcat(), 64 * 1024)) {
+            streamer.start();
+            Assert.assertTrue(streamer.awaitEnd(10, TimeUnit.SECONDS));
+
+            int written = streamer.flush(file, 1_700_000_018_000L, Long.MAX_VALUE);
+
+            Assert.assertEquals(written, 2);
+            Assert.assertEquals(Files.readAllLines(file).size(), 2);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.amalitech.listeners;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.evidence.LogcatStreamer;
+import com.amalitech.metrics.FlightRecording;
+import com.amalitech.metrics.MetricsExporter;
+import com.amalitech.metrics.MetricsRegistry;
+import com.amalitech.metrics.ScreenTransitions;
+import com.amalitech.metrics.Timeline;
+import com.amalitech.metrics.TimelineReport;
+import com.amalitech.utils.ConfigReader;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Counts finished tests per device and exports the {@link MetricsRegistry} periodically
+ * while the suite runs, with a final write when it finishes. The step timeline is rendered as an
+ * HTML flame chart at the end, and with jfr.enabled the whole suite is also captured in one
+ * flight recording. Screen transition percentiles are logged per device at the end.
+ */
+public class MetricsListener implements IInvokedMethodListener, ISuiteListener {
+
+    private static final Logger logger = LogManager.getLogger(MetricsListener.class);
+
+    private final long startNanos = System.nanoTime();
+    private MetricsExporter exporter;
+    private FlightRecording recording;
+
+    @Override
+    public void onStart(ISuite suite) {
+        Timeline.setEnabled(ConfigReader.getBoolean("timeline.enabled", true));
+        ScreenTransitions.setPollInterval(ConfigReader.getDuration("transition.poll.interval", Duration.ofMillis(50)));
+        if (ConfigReader.getBoolean("jfr.enabled", false)) {
+            try {
+                recording = FlightRecording.start(Paths.get(ConfigReader.getProperty("jfr.dir", "target/jfr")),
+                        ConfigReader.getProperty("jfr.settings", "profile"));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not start flight recording: " + e.getMessage());
+            }
+        }
+        if (ConfigReader.getBoolean("metrics.export.enabled", true)) {
+            exporter = new MetricsExporter(MetricsRegistry.getInstance(),
+                    Paths.get(ConfigReader.getProperty("metrics.export.dir", "target/metrics")),
+                    ConfigReader.getDuration("metrics.export.interval", Duration.ofSeconds(15)));
+            exporter.start();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        String device = BaseTest.getDriver() != null ? LogcatStreamer.deviceId(BaseTest.getDriver()) : null;
+        String deviceLabel = device != null ? device : "none";
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.counter("tests_completed_total", "device", deviceLabel, "status", status(result)).increment();
+        registry.counter("tests_completed_device_total", "device", deviceLabel).increment();
+        registry.gauge("tests_per_hour", () -> {
+            double hours = (System.nanoTime() - startNanos) / 3.6e12;
+            return hours > 0 ? registry.counter("tests_completed_device_total", "device", deviceLabel).sum() / hours : 0;
+        }, "device", deviceLabel);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        String transitions = ScreenTransitions.summary();
+        if (!transitions.isEmpty()) {
+            logger.info("Screen transition latency:" + System.lineSeparator() + transitions);
+        }
+        if (exporter != null) {
+            exporter.close();
+            exporter = null;
+        }
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (Timeline.isEnabled()) {
+            Path report = Paths.get(ConfigReader.getProperty("timeline.report.path", "target/timeline/timeline.html"));
+            try {
+                new TimelineReport(Timeline.entries()).write(report);
+                logger.info("Run timeline written to " + report.toAbsolutePath());
+            } catch (IOException e) {
+                logger.warn("Could not write run timeline: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String status(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "passed";
+            case ITestResult.FAILURE:
+                return "failed";
+            case ITestResult.SKIP:
+                return "skipped";
+            default:
+                return "other";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.amalitech.listeners;
+
+import com.amalitech.evidence.AppCrashedException;
+import com.amalitech.metrics.MetricsRegistry;
+import com.amalitech.utils.ConfigReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+
+/**
+ * Retries a failed {@link Retryable} test up to test.retry.count times.
+ * App crashes are not retried: they are defects in the app, not flakiness in the test.
+ */
+public class RetryAnalyzer implements IRetryAnalyzer {
+
+    private static final Logger logger = LogManager.getLogger(RetryAnalyzer.class);
+
+    private int retries;
+
+    @Override
+    public boolean retry(ITestResult result) {
+        if (result.getThrowable() instanceof AppCrashedException) {
+            return false;
+        }
+        int maxRetries = ConfigReader.getInt(ConfigReader.TEST_RETRY_COUNT, 0);
+        if (retries < maxRetries) {
+            retries++;
+            MetricsRegistry.getInstance().counter("test_retries_total").increment();
+            logger.warn("Retrying " + result.getName() + " (" + retries + "/" + maxRetries + ")");
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package com.amalitech.listeners;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a test class or method into {@link RetryAnalyzer}; tests without it run once.
+ * Meant for device journeys that can fail on a slow screen, not for unit tests or benchmarks,
+ * whose failures a retry would only hide.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Retryable {
+}
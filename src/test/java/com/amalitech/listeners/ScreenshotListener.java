@@ -1,4 +1,36 @@
 package com.amalitech.listeners;
 
-public class ScreenshotListener {
+import com.amalitech.evidence.FailureEvidenceCollector;
+import com.amalitech.utils.ScreenshotPipeline;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+import java.time.Duration;
+
+/**
+ * Waits for pending step screenshots after each test and at the end of the suite.
+ * Draining in afterInvocation keeps the Allure test case open until deduplicated attachments
+ * are relinked. Failure screenshots are part of the evidence bundle collected by {@link TestListener};
+ * bundles still being written are waited for at the end of the suite.
+ */
+public class ScreenshotListener implements IInvokedMethodListener, ISuiteListener {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration TEST_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (method.isTestMethod()) {
+            ScreenshotPipeline.getInstance().drain(TEST_DRAIN_TIMEOUT);
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        ScreenshotPipeline.getInstance().drain(DRAIN_TIMEOUT);
+        FailureEvidenceCollector.getInstance().drain(DRAIN_TIMEOUT);
+    }
 }
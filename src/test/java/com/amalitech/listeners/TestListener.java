@@ -1,4 +1,174 @@
 package com.amalitech.listeners;
 
-public class TestListener {
+import com.amalitech.base.BaseTest;
+import com.amalitech.evidence.AppCrashedException;
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.evidence.FailureEvidenceCollector;
+import com.amalitech.metrics.CommandStats;
+import com.amalitech.metrics.ResourceSampler;
+import com.amalitech.metrics.TestEvent;
+import com.amalitech.metrics.Timeline;
+import com.amalitech.metrics.TimedCommandExecutor;
+import io.qameta.allure.Allure;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IAnnotationTransformer;
+import org.testng.IClassListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestClass;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.annotations.ITestAnnotation;
+import org.testng.internal.annotations.DisabledRetryAnalyzer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestListener implements IAnnotationTransformer, IInvokedMethodListener, IClassListener {
+
+    private static final Logger logger = LogManager.getLogger(TestListener.class);
+
+    // Test classes whose shared state was lost to an app crash, with the reason for skipping;
+    // cleared when the class finishes, since its next <test> block builds that state afresh
+    private final Map<Class<?>, String> crashedClasses = new ConcurrentHashMap<>();
+    private final ThreadLocal<TestEvent> testEvents = new ThreadLocal<>();
+    private final ThreadLocal<Timeline.Span> spans = new ThreadLocal<>();
+
+    /**
+     * Attach the configured retry analyzer to {@link Retryable} tests that do not declare their own
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        Class<?> owner = testMethod != null ? testMethod.getDeclaringClass() : testClass;
+        boolean retryable = (testMethod != null && testMethod.isAnnotationPresent(Retryable.class))
+                || (owner != null && owner.isAnnotationPresent(Retryable.class));
+        if (retryable && (annotation.getRetryAnalyzerClass() == null
+                || annotation.getRetryAnalyzerClass() == DisabledRetryAnalyzer.class)) {
+            annotation.setRetryAnalyzer(RetryAnalyzer.class);
+        }
+    }
+
+    /**
+     * Skip tests that depend on a crashed session, then start watching the test thread for crashes
+     */
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) {
+            spans.set(Timeline.begin("setup", testId(result)));
+            ResourceSampler.setTest(testId(result));
+            return;
+        }
+        CrashWatcher watcher = CrashWatcher.current();
+        if (watcher != null && watcher.getCrash() != null) {
+            // Crashed outside a test, e.g. in a configuration method: this test's setup is gone too
+            String reason = "App crashed before " + testId(result) + ": " + watcher.getCrash();
+            BaseTest.recycleSession();
+            throw new SkipException(reason);
+        }
+        String reason = crashedClasses.get(result.getTestClass().getRealClass());
+        if (reason != null) {
+            throw new SkipException(reason);
+        }
+        if (watcher != null) {
+            watcher.watch(Thread.currentThread());
+        }
+        FailureEvidenceCollector.getInstance().testStarted(testId(result));
+        TimedCommandExecutor.startTest();
+        TestEvent event = new TestEvent();
+        event.begin();
+        testEvents.set(event);
+        spans.set(Timeline.begin("test", testId(result)));
+        ResourceSampler.setTest(testId(result));
+    }
+
+    /**
+     * Start the evidence bundle for failed tests while the Allure test case is still open; it is
+     * written in the background.
+     * A test during which the app crashed fails with the crash as its cause, and the session is
+     * recycled once the evidence is taken.
+     */
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        Timeline.Span span = spans.get();
+        spans.remove();
+        if (span != null) {
+            span.close();
+        }
+        ResourceSampler.setTest(null);
+        if (!method.isTestMethod()) {
+            return;
+        }
+        attachCommandLatency(testId(result), TimedCommandExecutor.finishTest());
+        CrashWatcher watcher = CrashWatcher.current();
+        CrashWatcher.Crash crash = watcher != null ? watcher.unwatch() : null;
+        if (crash != null && !(result.getThrowable() instanceof AppCrashedException)) {
+            result.setThrowable(new AppCrashedException(crash, result.getThrowable()));
+            result.setStatus(ITestResult.FAILURE);
+        }
+        if (result.getStatus() == ITestResult.FAILURE) {
+            FailureEvidenceCollector.getInstance().collect(BaseTest.getDriver(), testId(result), result.getThrowable());
+        } else {
+            FailureEvidenceCollector.getInstance().testFinished();
+        }
+        commitTestEvent(testId(result), result.getStatus());
+        if (crash != null) {
+            if (sharesClassState(result.getMethod().getTestClass())) {
+                crashedClasses.put(result.getTestClass().getRealClass(),
+                        "Skipped: app crashed in " + testId(result) + ": " + crash);
+            }
+            logger.error("App crashed in " + testId(result) + ": " + crash);
+            BaseTest.recycleSession();
+        }
+    }
+
+    /**
+     * Forget a crash once its class is done, so the class runs again in later test blocks of the suite
+     */
+    @Override
+    public void onAfterClass(ITestClass testClass) {
+        crashedClasses.remove(testClass.getRealClass());
+    }
+
+    private void commitTestEvent(String testId, int status) {
+        TestEvent event = testEvents.get();
+        testEvents.remove();
+        if (event != null && event.shouldCommit()) {
+            event.test = testId;
+            event.status = status == ITestResult.SUCCESS ? "passed" : status == ITestResult.FAILURE ? "failed" : "skipped";
+            event.commit();
+        }
+    }
+
+    private static void attachCommandLatency(String testId, CommandStats commands) {
+        if (commands == null || commands.isEmpty()) {
+            return;
+        }
+        String summary = commands.summary();
+        logger.debug("Command latency for " + testId + ":" + System.lineSeparator() + summary);
+        if (Allure.getLifecycle().getCurrentTestCaseOrStep().isPresent()) {
+            Allure.addAttachment("Command latency", "text/plain", summary, ".txt");
+        }
+    }
+
+    /**
+     * Whether the tests of a class build on state set up once for the class, beyond the session
+     * created by BaseTest, and so cannot continue on a new session
+     */
+    private static boolean sharesClassState(ITestClass testClass) {
+        for (ITestNGMethod beforeClass : testClass.getBeforeClassMethods()) {
+            if (beforeClass.getConstructorOrMethod().getDeclaringClass() != BaseTest.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String testId(ITestResult result) {
+        return result.getTestClass().getRealClass().getSimpleName() + "." + result.getName();
+    }
 }
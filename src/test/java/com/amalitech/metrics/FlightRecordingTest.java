@@ -0,0 +1,85 @@
+package com.amalitech.metrics;
+
+import com.amalitech.base.BasePage;
+import com.amalitech.utils.TempDirectories;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class FlightRecordingTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    /**
+     * Page object without a session, for actions that make no driver calls
+     */
+    private static final class OfflinePage extends BasePage {
+
+        private OfflinePage() {
+            super(null);
+        }
+
+        int countItems() {
+            return action("countItems", () -> 3);
+        }
+
+        void failToAddItem() {
+            action("failToAddItem", () -> {
+                throw new IllegalStateException("no add button");
+            });
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Page actions, sessions and tests land in one recording file")
+    public void testEventsAreRecorded() throws Exception {
+        Path directory = tempDirectories.create("jfr");
+        OfflinePage page = new OfflinePage();
+        Path file;
+        try (FlightRecording recording = FlightRecording.start(directory, "default")) {
+            file = recording.getFile();
+            TestEvent test = new TestEvent();
+            test.begin();
+            Assert.assertEquals(page.countItems(), 3);
+            Assert.assertThrows(IllegalStateException.class, page::failToAddItem);
+            SessionQuitEvent quit = new SessionQuitEvent();
+            quit.sessionId = "session-1";
+            quit.reason = "teardown";
+            quit.commit();
+            test.test = "FlightRecordingTest.testEventsAreRecorded";
+            test.status = "passed";
+            test.commit();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.amalitech."))
+                .collect(Collectors.toList());
+        List<String> actions = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.amalitech.PageAction"))
+                .map(event -> event.getString("page") + "." + event.getString("action") + ":" + event.getBoolean("failed"))
+                .collect(Collectors.toList());
+
+        Assert.assertTrue(actions.contains("OfflinePage.countItems:false"), actions.toString());
+        Assert.assertTrue(actions.contains("OfflinePage.failToAddItem:true"), actions.toString());
+        Assert.assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.amalitech.SessionQuit")
+                && "teardown".equals(event.getString("reason"))));
+        Assert.assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.amalitech.Test")));
+    }
+
+    @Test(description = "Without a recording, events are disabled")
+    public void testDisabledWithoutRecording() {
+        PageActionEvent event = new PageActionEvent();
+        event.begin();
+        Assert.assertFalse(event.shouldCommit());
+    }
+}
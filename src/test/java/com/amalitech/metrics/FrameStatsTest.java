@@ -0,0 +1,74 @@
+package com.amalitech.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FrameStatsTest {
+
+    private static final String GFXINFO = String.join("\n",
+            "Applications Graphics Acceleration Info:",
+            "Uptime: 3145821 Realtime: 3145821",
+            "",
+            "** Graphics info for pid 4821 [com.swaglabsmobileapp] **",
+            "",
+            "Stats since: 3140012345678ns",
+            "Total frames rendered: 240",
+            "Janky frames: 18 (7.50%)",
+            "Janky frames (legacy): 31 (12.92%)",
+            "50th percentile: 9ms",
+            "90th percentile: 17ms",
+            "95th percentile: 23ms",
+            "99th percentile: 41ms",
+            "Number Missed Vsync: 4",
+            "HISTOGRAM: 5ms=12 6ms=30 7ms=41",
+            "50th gpu percentile: 4ms",
+            "90th gpu percentile: 6ms",
+            "",
+            "Window: com.swaglabsmobileapp/com.swaglabsmobileapp.MainActivity",
+            "Stats since: 3140012345678ns",
+            "Total frames rendered: 200",
+            "Janky frames: 15 (7.50%)",
+            "50th percentile: 8ms",
+            "90th percentile: 16ms");
+
+    @Test(description = "The process summary is read and the per-window and GPU sections ignored")
+    public void testParsesProcessSummary() {
+        FrameStats stats = FrameStats.parse(GFXINFO);
+        Assert.assertEquals(stats.getFrames(), 240);
+        Assert.assertEquals(stats.getJankyFrames(), 18);
+        Assert.assertEquals(stats.getJankPercent(), 7.5, 1e-9);
+        Assert.assertEquals(stats.getPercentiles().keySet().toString(), "[50, 90, 95, 99]");
+        Assert.assertEquals(stats.getPercentile(50), Duration.ofMillis(9));
+        Assert.assertEquals(stats.getPercentile(99), Duration.ofMillis(41));
+        Assert.assertNull(stats.getPercentile(75));
+    }
+
+    @Test(description = "Output without frames yields zero jank instead of failing")
+    public void testEmptyOutput() {
+        FrameStats stats = FrameStats.parse("No process found for: com.swaglabsmobileapp");
+        Assert.assertEquals(stats.getFrames(), 0);
+        Assert.assertEquals(stats.getJankPercent(), 0.0);
+        Assert.assertTrue(stats.getPercentiles().isEmpty());
+    }
+
+    @Test(description = "Runs are collected into per-speed frame time samples and jank ratios")
+    public void testCollectPerSpeed() {
+        Map<String, List<Duration>> samples = new LinkedHashMap<>();
+        Map<String, List<Double>> ratios = new LinkedHashMap<>();
+        ScrollBenchmark.collect(ScrollBenchmark.Speed.FAST, Arrays.asList(FrameStats.parse(GFXINFO),
+                new FrameStats(100, 5, Map.of(50, Duration.ofMillis(7), 90, Duration.ofMillis(12)))), samples, ratios);
+
+        Assert.assertEquals(new ArrayList<>(samples.keySet()).toString(),
+                "[fast p50_frame, fast p90_frame, fast p95_frame, fast p99_frame]");
+        Assert.assertEquals(samples.get("fast p90_frame"), Arrays.asList(Duration.ofMillis(17), Duration.ofMillis(12)));
+        Assert.assertEquals(samples.get("fast p99_frame"), Arrays.asList(Duration.ofMillis(41)));
+        Assert.assertEquals(ratios.get("fast jank_pct"), Arrays.asList(7.5, 5.0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LatencyBaselineTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    private static List<Duration> millis(double... values) {
+        List<Duration> samples = new ArrayList<>();
+        for (double value : values) {
+            samples.add(Duration.ofNanos(Math.round(value * 1e6)));
+        }
+        return samples;
+    }
+
+    private static LatencyBaseline baseline(List<Duration> cold, List<Duration> warm) {
+        Map<String, List<Duration>> samples = new LinkedHashMap<>();
+        samples.put("cold interactive", cold);
+        samples.put("warm interactive", warm);
+        return new LatencyBaseline(Collections.singletonMap("device", "emulator-5554"), samples);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Samples and attributes survive a write and read")
+    public void testRoundTrip() throws Exception {
+        Path file = tempDirectories.create("baseline").resolve("baselines/startup-emulator-5554.json");
+        baseline(millis(812.5, 790, 845), millis(301.25, 298)).write(file);
+
+        LatencyBaseline read = LatencyBaseline.read(file);
+        Assert.assertEquals(read.getAttributes().get("device"), "emulator-5554");
+        Assert.assertEquals(read.getSamples().keySet().toString(), "[cold interactive, warm interactive]");
+        Assert.assertEquals(read.getSamples().get("cold interactive"), millis(812.5, 790, 845));
+        Assert.assertEquals(read.getSamples().get("warm interactive"), millis(301.25, 298));
+    }
+
+    @Test(description = "Only a significant slowdown beyond the tolerance is a regression")
+    public void testRegressionNeedsSignificanceAndTolerance() {
+        LatencyBaseline recorded = baseline(millis(800, 810, 820, 830, 840, 850), millis(300, 305, 310, 315, 320, 325));
+
+        List<LatencyBaseline.Check> checks = recorded.compare(
+                baseline(millis(1000, 1010, 1020, 1030, 1040, 1050), millis(326, 328, 330, 332, 334, 336)), 0.10, 0.05);
+        Assert.assertEquals(checks.size(), 2);
+        Assert.assertTrue(checks.get(0).isRegressed(), checks.get(0).toString());
+        Assert.assertEquals(checks.get(0).getMedianChange(), 0.244, 0.01);
+        Assert.assertTrue(checks.get(1).getComparison().isSlower(0.05), "A 6% shift is still detected");
+        Assert.assertFalse(checks.get(1).isRegressed(), "but stays within the 10% tolerance");
+
+        List<LatencyBaseline.Check> noisy = recorded.compare(
+                baseline(millis(700, 1100, 750, 1200, 800, 900), millis(300)), 0.10, 0.05);
+        Assert.assertFalse(noisy.get(0).isRegressed(), "A slower median without significance is noise");
+    }
+
+    @Test(description = "Summary statistics of the exact samples")
+    public void testSampleStats() {
+        SampleStats stats = new SampleStats(millis(400, 100, 300, 200, 1000));
+        Assert.assertEquals(stats.getCount(), 5);
+        Assert.assertEquals(stats.getMin(), Duration.ofMillis(100));
+        Assert.assertEquals(stats.getMedian(), Duration.ofMillis(300));
+        Assert.assertEquals(stats.getPercentile(90), Duration.ofMillis(1000));
+        Assert.assertEquals(stats.getMean(), Duration.ofMillis(400));
+        Assert.assertEquals(stats.getStandardDeviation().toMillis(), 353);
+        Assert.assertTrue(stats.toRow("cold interactive").startsWith("cold interactive"));
+        Assert.assertEquals(new SampleStats(new ArrayList<>()).getMedian(), Duration.ZERO);
+    }
+
+    @Test(description = "Ratios survive a write and read and regress only beyond the absolute tolerance")
+    public void testRatios() throws Exception {
+        Map<String, List<Double>> ratios = new LinkedHashMap<>();
+        ratios.put("fast jank_pct", List.of(4.0, 5.5, 5.0));
+        Path file = tempDirectories.create("baseline").resolve("scroll.json");
+        new LatencyBaseline(Collections.emptyMap(), Collections.emptyMap(), ratios).write(file);
+
+        LatencyBaseline recorded = LatencyBaseline.read(file);
+        Assert.assertEquals(recorded.getRatios(), ratios);
+
+        List<LatencyBaseline.RatioCheck> within = recorded.compareRatios(new LatencyBaseline(Collections.emptyMap(),
+                Collections.emptyMap(), Map.of("fast jank_pct", List.of(6.0, 7.5, 6.5, 9.0))), 2.0);
+        Assert.assertEquals(within.get(0).getCurrentMedian(), 7.0, 1e-9);
+        Assert.assertFalse(within.get(0).isRegressed(), within.get(0).toString());
+
+        List<LatencyBaseline.RatioCheck> beyond = recorded.compareRatios(new LatencyBaseline(Collections.emptyMap(),
+                Collections.emptyMap(), Map.of("fast jank_pct", List.of(7.5, 8.0, 7.0))), 2.0);
+        Assert.assertTrue(beyond.get(0).isRegressed(), beyond.get(0).toString());
+    }
+}
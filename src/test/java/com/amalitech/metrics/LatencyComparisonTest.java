@@ -0,0 +1,81 @@
+package com.amalitech.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LatencyComparisonTest {
+
+    private static List<Duration> millis(long... values) {
+        List<Duration> samples = new ArrayList<>();
+        for (long value : values) {
+            samples.add(Duration.ofMillis(value));
+        }
+        return samples;
+    }
+
+    @Test(description = "Fully separated small samples use the exact distribution")
+    public void testExactPValue() {
+        LatencyComparison comparison = LatencyComparison.compare("LOGIN -> PRODUCTS",
+                millis(610, 620, 630, 640, 650), millis(3110, 3120, 3130, 3140, 3150));
+
+        Assert.assertEquals(comparison.getU(), 25.0);
+        Assert.assertEquals(comparison.getPValue(), 2.0 / 252, 1e-12);
+        Assert.assertEquals(comparison.getShift(), Duration.ofMillis(2500));
+        Assert.assertEquals(comparison.getDeltaPercentile(0), Duration.ofMillis(2460));
+        Assert.assertEquals(comparison.getDeltaPercentile(100), Duration.ofMillis(2540));
+        Assert.assertEquals(comparison.getProbabilitySlower(), 1.0);
+        Assert.assertTrue(comparison.isSlower(0.05));
+
+        LatencyComparison tooFew = LatencyComparison.compare("CART -> CHECKOUT", millis(1, 2, 3), millis(4, 5, 6));
+        Assert.assertEquals(tooFew.getPValue(), 0.1, 1e-12, "3 against 3 can never reach 0.05");
+        Assert.assertFalse(tooFew.isSignificant(0.05));
+    }
+
+    @Test(description = "Interleaved samples are not significant and faster candidates are not slower")
+    public void testNoDifferenceAndFaster() {
+        LatencyComparison same = LatencyComparison.compare("PRODUCTS -> CART",
+                millis(100, 300, 500, 700, 900), millis(200, 400, 600, 800, 1000));
+        Assert.assertTrue(same.getPValue() > 0.5, "p=" + same.getPValue());
+        Assert.assertFalse(same.isSignificant(0.05));
+
+        LatencyComparison faster = LatencyComparison.compare("PRODUCTS -> CART",
+                millis(900, 910, 920, 930, 940, 950), millis(100, 110, 120, 130, 140, 150));
+        Assert.assertTrue(faster.isSignificant(0.05));
+        Assert.assertFalse(faster.isSlower(0.05));
+        Assert.assertTrue(faster.getShift().isNegative());
+    }
+
+    @Test(description = "Ties switch to the normal approximation with tie correction")
+    public void testTiesUseNormalApproximation() {
+        LatencyComparison comparison = LatencyComparison.compare("CHECKOUT: OVERVIEW -> CHECKOUT: COMPLETE",
+                millis(10, 10, 20, 20, 30), millis(20, 30, 30, 40, 40));
+
+        Assert.assertEquals(comparison.getU(), 22.0);
+        // mean 12.5, variance 25/12 * (11 - 60/90) = 21.5278, z = (9.5 - 0.5) / 4.6398 = 1.9397
+        Assert.assertEquals(comparison.getPValue(), 0.05241, 1e-4);
+        Assert.assertEquals(LatencyComparison.compare("same", millis(5, 5, 5), millis(5, 5)).getPValue(), 1.0);
+    }
+
+    @Test(description = "The report has one row per step and marks the result")
+    public void testTable() {
+        String table = LatencyComparison.table(Arrays.asList(
+                LatencyComparison.compare("LOGIN -> PRODUCTS", millis(600, 610, 620, 630, 640), millis(3100, 3110, 3120, 3130, 3140)),
+                LatencyComparison.compare("PRODUCTS -> CART", millis(100, 300, 500), millis(200, 400, 600))), 0.05);
+
+        String[] lines = table.split(System.lineSeparator());
+        Assert.assertEquals(lines.length, 3);
+        Assert.assertTrue(lines[0].startsWith("step"));
+        Assert.assertTrue(lines[1].startsWith("LOGIN -> PRODUCTS") && lines[1].endsWith("SLOWER"), lines[1]);
+        Assert.assertTrue(lines[2].endsWith("same"), lines[2]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testEmptySamplesRejected() {
+        LatencyComparison.compare("LOGIN -> PRODUCTS", millis(100), new ArrayList<>());
+    }
+}
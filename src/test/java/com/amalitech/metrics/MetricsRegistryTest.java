@@ -0,0 +1,89 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class MetricsRegistryTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    private static MetricsRegistry sampleRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        for (int millis = 1; millis <= 100; millis++) {
+            registry.recordTime("wait_duration_seconds", Duration.ofMillis(millis), "outcome", "met");
+        }
+        registry.counter("tests_completed_total", "device", "emulator-5554", "status", "passed").add(3);
+        registry.gauge("tests_per_hour", () -> 42.5, "device", "emulator-5554");
+        registry.recordTime("appium_command_duration_seconds", Duration.ofMillis(250),
+                "command", "findElement by accessibility id");
+        return registry;
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Timers export as Prometheus summaries in seconds, counters and gauges as samples")
+    public void testPrometheusFormat() {
+        List<String> lines = Arrays.asList(sampleRegistry().toPrometheus().split("\n"));
+
+        Assert.assertTrue(lines.contains("# TYPE wait_duration_seconds summary"));
+        Assert.assertTrue(lines.contains("wait_duration_seconds_count{outcome=\"met\"} 100"));
+        Assert.assertTrue(lines.contains("wait_duration_seconds_sum{outcome=\"met\"} 5.05"), lines.toString());
+        String median = lines.stream().filter(line -> line.startsWith("wait_duration_seconds{outcome=\"met\",quantile=\"0.5\"}"))
+                .findFirst().orElseThrow(AssertionError::new);
+        Assert.assertEquals(Double.parseDouble(median.substring(median.lastIndexOf(' ') + 1)), 0.050, 0.001);
+        Assert.assertTrue(lines.contains("# TYPE tests_completed_total counter"));
+        Assert.assertTrue(lines.contains("tests_completed_total{device=\"emulator-5554\",status=\"passed\"} 3"));
+        Assert.assertTrue(lines.contains("tests_per_hour{device=\"emulator-5554\"} 42.5"));
+    }
+
+    @Test(description = "Influx lines escape tag values and type counters as integers")
+    public void testInfluxLineProtocol() {
+        String influx = sampleRegistry().toInfluxLineProtocol(1_700_000_000_000L);
+
+        Assert.assertTrue(influx.contains(
+                "appium_command_duration_seconds,command=findElement\\ by\\ accessibility\\ id count=1i,"), influx);
+        Assert.assertTrue(influx.contains("tests_completed_total,device=emulator-5554,status=passed value=3i 1700000000000000000\n"));
+        Assert.assertTrue(influx.contains("tests_per_hour,device=emulator-5554 value=42.5 1700000000000000000\n"));
+    }
+
+    @Test(description = "A metric name cannot change type")
+    public void testTypeConflict() {
+        MetricsRegistry registry = sampleRegistry();
+        Assert.assertThrows(IllegalArgumentException.class, () -> registry.counter("tests_per_hour", "device", "emulator-5554"));
+    }
+
+    @Test(description = "The exporter writes both files in place without leaving temporary files")
+    public void testExporterWritesAtomically() throws Exception {
+        Path directory = tempDirectories.create("metrics");
+        MetricsRegistry registry = sampleRegistry();
+        try (MetricsExporter exporter = new MetricsExporter(registry, directory, Duration.ofMillis(50))) {
+            exporter.start();
+            registry.counter("test_retries_total").increment();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!Files.exists(directory.resolve(MetricsExporter.INFLUX_FILE)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+
+        String prometheus = new String(Files.readAllBytes(directory.resolve(MetricsExporter.PROMETHEUS_FILE)),
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(prometheus.contains("test_retries_total 1\n"));
+        Assert.assertTrue(Files.exists(directory.resolve(MetricsExporter.INFLUX_FILE)));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(files.count(), 2L);
+        }
+    }
+}
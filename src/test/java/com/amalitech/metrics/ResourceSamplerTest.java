@@ -0,0 +1,192 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ResourceSamplerTest {
+
+    private static final String PACKAGE = "com.swaglabsmobileapp";
+
+    private static final String CPUINFO = "Load: 3.1 / 2.9 / 2.7\n"
+            + "CPU usage from 5012ms to 12ms ago:\n"
+            + "  14% 812/system_server: 9% user + 5% kernel\n"
+            + "  7.5% 4321/com.swaglabsmobileapp: 5.2% user + 2.3% kernel / faults: 120 minor\n"
+            + "  0.4% 4400/com.swaglabsmobileapp:remote: 0.4% user + 0% kernel\n";
+
+    private static String meminfo(long pss) {
+        return "** MEMINFO in pid 4321 [com.swaglabsmobileapp] **\n"
+                + "                   Pss  Private  Private  SwapPss     Heap     Heap     Heap\n"
+                + "  Native Heap    20480    20400        0        0    32768    28000     4768\n"
+                + "        TOTAL    " + pss + "    90000     1200        0    60000    50000    10000\n"
+                + " App Summary\n"
+                + "           Java Heap:    16384\n"
+                + "         Native Heap:    20400\n"
+                + "           TOTAL:   " + pss + "       TOTAL SWAP PSS:        0\n";
+    }
+
+    private static String gfxinfo(long total, long janky) {
+        return "Applications Graphics Acceleration Info:\n"
+                + "** Graphics info for pid 4321 [com.swaglabsmobileapp] **\n"
+                + "Stats since: 1234567ns\n"
+                + "Total frames rendered: " + total + "\n"
+                + "Janky frames: " + janky + " (5.00%)\n"
+                + "50th percentile: 9ms\n";
+    }
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanUp() {
+        ResourceSampler.bind(null);
+        tempDirectories.deleteAll();
+    }
+
+    private static Function<List<String>, String> device(AtomicInteger round) {
+        return args -> {
+            switch (args.get(1)) {
+                case "cpuinfo":
+                    return CPUINFO;
+                case "meminfo":
+                    return meminfo(100_000 + round.get() * 1_000L);
+                default:
+                    return gfxinfo(1000 + round.get() * 120L, 50 + round.get() * 6L);
+            }
+        };
+    }
+
+    @Test(description = "dumpsys output is parsed into tagged samples with per-interval frame counts")
+    public void testSamplesAreParsedAndTagged() throws Exception {
+        Path file = tempDirectories.create("resources").resolve("resources.csv");
+        AtomicInteger round = new AtomicInteger();
+        ResourceSampler sampler = new ResourceSampler(PACKAGE, device(round), Duration.ofHours(1), file);
+
+        ResourceSampler.Sample first = sampler.sample();
+        Assert.assertEquals(first.getCpuPercent(), 7.5);
+        Assert.assertEquals(first.getPssKb(), 100_000);
+        Assert.assertEquals(first.getJavaHeapKb(), 16384);
+        Assert.assertEquals(first.getNativeHeapKb(), 20400);
+        Assert.assertEquals(first.getFrames(), 0, "The first sample has no interval yet");
+
+        ResourceSampler.bind(sampler);
+        ResourceSampler.setTest("CartTest.testCartPageDisplay");
+        String previous = ResourceSampler.setStep("CartPage.removeFirstItem");
+        round.set(1);
+        ResourceSampler.Sample second = sampler.sample();
+        ResourceSampler.setStep(previous);
+        Assert.assertEquals(second.getTest(), "CartTest.testCartPageDisplay");
+        Assert.assertEquals(second.getStep(), "CartPage.removeFirstItem");
+        Assert.assertEquals(second.getFrames(), 120);
+        Assert.assertEquals(second.getJankyFrames(), 6);
+    }
+
+    @Test(description = "Samples stream to CSV on the sampler thread and the memory trend is summarised")
+    public void testBackgroundSamplingWritesCsv() throws Exception {
+        Path file = tempDirectories.create("resources").resolve("nested/resources.csv");
+        AtomicInteger round = new AtomicInteger();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        Function<List<String>, String> shell = device(round);
+        ResourceSampler sampler = new ResourceSampler(PACKAGE, args -> {
+            threads.add(Thread.currentThread().getName());
+            if ("gfxinfo".equals(args.get(1))) {
+                round.incrementAndGet();
+            }
+            return shell.apply(args);
+        }, Duration.ofMillis(20), file);
+
+        ResourceSampler.bind(sampler);
+        ResourceSampler.setTest("LoginTest.testValidLogin, \"standard\"");
+        sampler.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (round.get() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        sampler.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.get(0), "epoch_ms,test,step,cpu_pct,pss_kb,java_heap_kb,native_heap_kb,frames,janky_frames");
+        Assert.assertTrue(lines.size() >= 5, lines.toString());
+        Assert.assertTrue(lines.get(1).contains(",\"LoginTest.testValidLogin, \"\"standard\"\"\",,7.5,"), lines.get(1));
+        Assert.assertTrue(threads.stream().allMatch("resource-sampler"::equals), threads.toString());
+        Assert.assertTrue(sampler.getPssSlopeKbPerMinute() > 0, "PSS grows by 1 MB per sample");
+        Assert.assertTrue(sampler.summary().startsWith((lines.size() - 1) + " samples, PSS 100000 -> "), sampler.summary());
+    }
+
+    @Test(description = "Each thread tags the samples of the sampler of its own session")
+    public void testTagsFollowTheThreadsSampler() throws Exception {
+        Path directory = tempDirectories.create("resources");
+        ResourceSampler first = new ResourceSampler(PACKAGE, device(new AtomicInteger()), Duration.ofHours(1),
+                directory.resolve("first.csv"));
+        ResourceSampler second = new ResourceSampler(PACKAGE, device(new AtomicInteger()), Duration.ofHours(1),
+                directory.resolve("second.csv"));
+
+        ResourceSampler.bind(first);
+        ResourceSampler.setTest("LoginTest.testLoginWithTestData");
+        Thread other = new Thread(() -> {
+            ResourceSampler.bind(second);
+            ResourceSampler.setTest("LoginTest.testLoginPairwise");
+            ResourceSampler.setStep("LoginPage.login");
+        });
+        other.start();
+        other.join(5000);
+
+        Assert.assertSame(ResourceSampler.current(), first);
+        Assert.assertEquals(first.sample().getTest(), "LoginTest.testLoginWithTestData");
+        Assert.assertEquals(first.sample().getStep(), "");
+        Assert.assertEquals(second.sample().getTest(), "LoginTest.testLoginPairwise");
+        Assert.assertEquals(second.sample().getStep(), "LoginPage.login");
+    }
+
+    @Test(description = "No background samples are taken while the sampler is paused")
+    public void testPauseStopsSampling() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Function<List<String>, String> shell = device(new AtomicInteger());
+        ResourceSampler sampler = new ResourceSampler(PACKAGE, args -> {
+            calls.incrementAndGet();
+            return shell.apply(args);
+        }, Duration.ofMillis(10), tempDirectories.create("resources").resolve("resources.csv"));
+
+        try {
+            ResourceSampler.Pause pause = sampler.pause();
+            sampler.start();
+            Thread.sleep(100);
+            Assert.assertEquals(calls.get(), 0, "Paused before the first sample");
+
+            pause.close();
+            pause.close();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (calls.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(calls.get() > 0, "Sampling resumes once the pause is closed");
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test(description = "Counters that restart are counted from zero instead of going negative")
+    public void testFrameCounterReset() throws Exception {
+        long[] totals = {5000, 5100, 40};
+        AtomicInteger round = new AtomicInteger();
+        ResourceSampler sampler = new ResourceSampler(PACKAGE, args -> "gfxinfo".equals(args.get(1))
+                ? gfxinfo(totals[round.get()], 0) : "", Duration.ofHours(1),
+                tempDirectories.create("resources").resolve("resources.csv"));
+
+        sampler.sample();
+        round.set(1);
+        Assert.assertEquals(sampler.sample().getFrames(), 100);
+        round.set(2);
+        Assert.assertEquals(sampler.sample().getFrames(), 40);
+        Assert.assertEquals(sampler.getLatest().getPssKb(), 0, "Missing meminfo reads as zero");
+    }
+}
@@ -0,0 +1,104 @@
+package com.amalitech.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+public class ScreenTransitionsTest {
+
+    @BeforeMethod
+    public void reset() {
+        ScreenTransitions.clear();
+        ScreenTransitions.setDevice("emulator-5554");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void clear() {
+        ScreenTransitions.clear();
+        ScreenTransitions.setDevice(null);
+    }
+
+    @Test(description = "A measurement spans the trigger and the wait, and page waits poll faster meanwhile")
+    public void testMeasureSpansTriggerAndWait() {
+        Assert.assertNull(ScreenTransitions.activePollInterval());
+        Duration latency = ScreenTransitions.measure("LOGIN", "PRODUCTS",
+                () -> sleep(20),
+                () -> {
+                    Assert.assertEquals(ScreenTransitions.activePollInterval(), ScreenTransitions.getPollInterval());
+                    sleep(30);
+                });
+
+        Assert.assertTrue(latency.toMillis() >= 50, "Measured " + latency);
+        Assert.assertNull(ScreenTransitions.activePollInterval());
+        Assert.assertEquals(ScreenTransitions.transition("LOGIN", "PRODUCTS", "emulator-5554").getCount(), 1);
+        Assert.assertEquals(ScreenTransitions.transition("LOGIN", "PRODUCTS").getCount(), 1);
+    }
+
+    @Test(description = "Percentiles aggregate per device and across devices")
+    public void testPercentilesPerDevice() {
+        for (int millis = 1; millis <= 100; millis++) {
+            ScreenTransitions.record("CART", "CHECKOUT: INFORMATION", Duration.ofMillis(millis * 10L));
+        }
+        ScreenTransitions.setDevice("emulator-5556");
+        ScreenTransitions.record("CART", "CHECKOUT: INFORMATION", Duration.ofSeconds(5));
+
+        ScreenTransitions.Transition first = ScreenTransitions.transition("CART", "CHECKOUT: INFORMATION", "emulator-5554");
+        Assert.assertEquals(first.getCount(), 100);
+        Assert.assertEquals(first.getP50().toMillis(), 500, 10);
+        Assert.assertEquals(first.getP95().toMillis(), 950, 16);
+        Assert.assertEquals(first.getP99().toMillis(), 990, 16);
+        Assert.assertEquals(ScreenTransitions.transition("CART", "CHECKOUT: INFORMATION").getMax(), Duration.ofSeconds(5));
+        Assert.assertEquals(ScreenTransitions.all().size(), 2);
+        Assert.assertTrue(ScreenTransitions.summary().contains("CART->CHECKOUT: INFORMATION on emulator-5556: n=1"));
+    }
+
+    @Test(description = "SLO assertions fail with the measured percentiles")
+    public void testSloAssertion() {
+        ScreenTransitions.record("LOGIN", "PRODUCTS", Duration.ofMillis(800));
+        ScreenTransitions.record("LOGIN", "PRODUCTS", Duration.ofMillis(1800));
+        ScreenTransitions.Transition transition = ScreenTransitions.transition("LOGIN", "PRODUCTS");
+
+        transition.assertPercentileBelow(50, Duration.ofMillis(1500));
+        try {
+            transition.assertPercentileBelow(95, Duration.ofMillis(1500));
+            Assert.fail("p95 of 1800 ms should miss a 1500 ms SLO");
+        } catch (AssertionError e) {
+            Assert.assertTrue(e.getMessage().startsWith("SLO missed: LOGIN->PRODUCTS on all p95 17")
+                    && e.getMessage().contains("ms >= 1500 ms"),
+                    e.getMessage());
+        }
+        try {
+            ScreenTransitions.transition("LOGIN", "CART").assertPercentileBelow(95, Duration.ofMillis(1500));
+            Assert.fail("An unmeasured transition cannot meet its SLO");
+        } catch (AssertionError e) {
+            Assert.assertTrue(e.getMessage().startsWith("No measurements"), e.getMessage());
+        }
+    }
+
+    @Test(description = "A timed-out wait fails the measurement and records nothing")
+    public void testFailedWaitIsNotRecorded() {
+        try {
+            ScreenTransitions.measure("LOGIN", "PRODUCTS", ScreenTransitions::waitFailed, ScreenTransitions::waitFailed);
+            Assert.fail("A swallowed wait timeout should fail the measurement");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Screen PRODUCTS was not detected after leaving LOGIN");
+        }
+        Assert.assertEquals(ScreenTransitions.transition("LOGIN", "PRODUCTS").getCount(), 0);
+        Assert.assertNull(ScreenTransitions.activePollInterval());
+
+        ScreenTransitions.measure("OVERVIEW", "COMPLETE", ScreenTransitions::waitFailed, () -> { });
+        Assert.assertEquals(ScreenTransitions.transition("OVERVIEW", "COMPLETE").getCount(), 1,
+                "A wait the trigger recovered from does not fail the measurement");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
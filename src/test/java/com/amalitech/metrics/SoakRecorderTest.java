@@ -0,0 +1,75 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SoakRecorderTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Every iteration becomes a CSV row; failed ones stay out of the latency series")
+    public void testRowsAndSeries() throws Exception {
+        Path file = tempDirectories.create("soak").resolve("soak/soak-emulator-5554.csv");
+        AtomicLong appKb = new AtomicLong(-1);
+        try (SoakRecorder recorder = new SoakRecorder("emulator-5554", Arrays.asList("login", "logout"),
+                appKb::get, false, file)) {
+            recorder.time("login", () -> { });
+            recorder.time("logout", () -> { });
+            recorder.endIteration(true);
+
+            appKb.set(150_000);
+            recorder.time("login", () -> { });
+            Assert.assertThrows(IllegalStateException.class,
+                    () -> recorder.time("logout", () -> { throw new IllegalStateException("menu not found"); }));
+            recorder.endIteration(false);
+
+            Assert.assertEquals(recorder.getIterations(), 2);
+            Assert.assertEquals(recorder.getFailures(), 1);
+            Assert.assertEquals(recorder.getSeries().get("login_ms").size(), 1);
+            Assert.assertEquals(recorder.getSeries().get(SoakRecorder.APP_PSS), List.of(150_000.0));
+            Assert.assertEquals(recorder.getSeries().get(SoakRecorder.JVM_HEAP).size(), 2);
+            Assert.assertEquals(recorder.trends().size(), 5);
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        Assert.assertEquals(lines.get(0), "epoch_ms,iteration,succeeded,login_ms,logout_ms,"
+                + "app_pss_kb,jvm_heap_used_kb,jvm_threads");
+        Assert.assertEquals(lines.size(), 3);
+        String[] first = lines.get(1).split(",", -1);
+        Assert.assertEquals(first[1], "1");
+        Assert.assertEquals(first[2], "true");
+        Assert.assertEquals(first[5], "", "Unknown app memory is left blank");
+        String[] second = lines.get(2).split(",", -1);
+        Assert.assertEquals(second[2], "false");
+        Assert.assertEquals(second[5], "150000");
+    }
+
+    @Test(description = "A series that keeps rising is marked in the report")
+    public void testReportMarksGrowth() {
+        AtomicLong appKb = new AtomicLong(100_000);
+        SoakRecorder recorder = new SoakRecorder("emulator-5554", Arrays.asList("login"),
+                () -> appKb.getAndAdd(2_000), false, null);
+        for (int i = 0; i < 20; i++) {
+            recorder.time("login", () -> { });
+            recorder.endIteration(true);
+        }
+        String report = recorder.report(0.01, 0.10, 10);
+        Assert.assertTrue(report.startsWith("emulator-5554: 20 iterations, 0 failed"), report);
+        Assert.assertTrue(report.contains("app_pss_kb: n=20 S=190"), report);
+        Assert.assertTrue(report.lines().anyMatch(line -> line.startsWith("app_pss_kb") && line.endsWith("GROWING")),
+                report);
+    }
+}
@@ -0,0 +1,60 @@
+package com.amalitech.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+public class StageTimingsTest {
+
+    @Test(description = "Stages keep execution order and add up to the total")
+    public void testStagesSumToTotal() {
+        StageTimings timings = new StageTimings("stage-timings-order");
+        timings.record("info", Duration.ofMillis(812));
+        timings.time("overview", () -> { });
+        timings.record("complete", Duration.ofMillis(640));
+
+        Assert.assertEquals(timings.getStages().keySet().toArray(), new String[]{"info", "overview", "complete"});
+        Duration sum = Duration.ZERO;
+        for (Duration stage : timings.getStages().values()) {
+            sum = sum.plus(stage);
+        }
+        Assert.assertEquals(timings.getTotal(), sum);
+        Assert.assertTrue(timings.toString().startsWith("flow=stage-timings-order info_ms=812 overview_ms="),
+                timings.toString());
+    }
+
+    @Test(description = "A failing stage is still recorded and the failure is rethrown")
+    public void testFailingStageIsRecorded() {
+        StageTimings timings = new StageTimings("stage-timings-failure");
+        IllegalStateException failure = new IllegalStateException("overview never loaded");
+
+        try {
+            timings.time("overview", () -> {
+                throw failure;
+            });
+            Assert.fail("The stage failure should propagate");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(e, failure);
+        }
+        Assert.assertNotNull(timings.getStage("overview"), "The failed stage keeps its duration");
+    }
+
+    @Test(description = "Every stage is exported to screen_transition_duration_seconds by flow and stage")
+    public void testStagesAreExported() {
+        StageTimings timings = new StageTimings("stage-timings-export");
+        timings.record("info", Duration.ofMillis(250));
+        timings.record("info", Duration.ofMillis(750));
+
+        LatencyHistogram histogram = MetricsRegistry.getInstance()
+                .timer("screen_transition_duration_seconds", "flow", "stage-timings-export", "stage", "info");
+        Assert.assertEquals(histogram.getCount(), 2);
+        Assert.assertEquals(histogram.getTotalMicros(), 1_000_000);
+        List<String> lines = Arrays.asList(MetricsRegistry.getInstance().toPrometheus().split("\n"));
+        Assert.assertTrue(lines.contains(
+                "screen_transition_duration_seconds_count{flow=\"stage-timings-export\",stage=\"info\"} 2"),
+                "Exported with flow and stage labels");
+    }
+}
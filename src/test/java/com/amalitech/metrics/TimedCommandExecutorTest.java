@@ -0,0 +1,176 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.ScreenChangeTracker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TimedCommandExecutorTest {
+
+    private static final String SESSION = "stub-session";
+    private static final String PAGE_SOURCE = "<hierarchy><android.widget.TextView text=\"PRODUCTS\"/></hierarchy>";
+
+    private HttpServer server;
+    private TimedCommandExecutor executor;
+
+    /**
+     * Minimal W3C endpoint: new session, a slow findElement, page source and a missing element
+     */
+    @BeforeClass
+    public void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/session", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            exchange.getRequestBody().readAllBytes();
+            if (path.equals("/session")) {
+                respond(exchange, 200, "{\"value\":{\"sessionId\":\"" + SESSION
+                        + "\",\"capabilities\":{\"platformName\":\"Android\"}}}");
+            } else if (path.endsWith("/element")) {
+                sleep(40);
+                respond(exchange, 200, "{\"value\":{\"element-6066-11e4-a52e-4f735466cecf\":\"e1\"}}");
+            } else if (path.endsWith("/elements")) {
+                respond(exchange, 404, "{\"value\":{\"error\":\"no such element\",\"message\":\"none\",\"stacktrace\":\"\"}}");
+            } else if (path.endsWith("/source")) {
+                respond(exchange, 200, "{\"value\":\"" + PAGE_SOURCE.replace("\"", "\\\"") + "\"}");
+            } else {
+                respond(exchange, 200, "{\"value\":null}");
+            }
+        });
+        server.start();
+        executor = new TimedCommandExecutor(new URL("http://127.0.0.1:" + server.getAddress().getPort()));
+        executor.execute(new Command(null, DriverCommand.NEW_SESSION(
+                new ImmutableCapabilities("platformName", "Android", "appium:automationName", "UiAutomator2"))));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStubServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Command findElement(String using, String value) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("using", using);
+        parameters.put("value", value);
+        return new Command(new SessionId(SESSION), DriverCommand.FIND_ELEMENT, parameters);
+    }
+
+    @Test(description = "Element lookups are timed per locator strategy and session")
+    public void testRecordsPerSessionAndStrategy() {
+        for (int i = 0; i < 5; i++) {
+            executor.execute(findElement("accessibility id", "test-Username"));
+        }
+        executor.execute(findElement("-android uiautomator", "new UiSelector().text(\"PRODUCTS\")"));
+
+        CommandStats session = TimedCommandExecutor.forSession(SESSION);
+        Assert.assertNotNull(session);
+        Assert.assertNotNull(session.get(DriverCommand.NEW_SESSION));
+
+        CommandStats.Entry byId = session.get("findElement by accessibility id");
+        Assert.assertTrue(byId.getLatency().getCount() >= 5);
+        Assert.assertTrue(byId.getLatency().getPercentileMicros(50) >= 40_000,
+                "p50 " + byId.getLatency().getPercentileMicros(50) + " us should include the server delay");
+        Assert.assertTrue(byId.getPayloadBytes() > 0);
+        Assert.assertEquals(session.get("findElement by -android uiautomator").getLatency().getCount(), 1);
+    }
+
+    @Test(description = "A test summary holds only its thread's commands, with response payloads and errors")
+    public void testPerTestSummary() throws InterruptedException {
+        executor.execute(findElement("accessibility id", "test-Username"));
+        TimedCommandExecutor.startTest();
+        executor.execute(new Command(new SessionId(SESSION), DriverCommand.GET_PAGE_SOURCE));
+        Thread background = new Thread(() ->
+                executor.execute(new Command(new SessionId(SESSION), DriverCommand.GET_PAGE_SOURCE)));
+        background.start();
+        background.join();
+        Response missing = executor.execute(new Command(new SessionId(SESSION), DriverCommand.FIND_ELEMENTS,
+                findElement("id", "missing").getParameters()));
+        CommandStats test = TimedCommandExecutor.finishTest();
+
+        Assert.assertNotEquals(missing.getState(), "success");
+        Assert.assertNull(test.get("findElement by accessibility id"));
+        Assert.assertEquals(test.get(DriverCommand.GET_PAGE_SOURCE).getPayloadBytes(), PAGE_SOURCE.length());
+        Assert.assertEquals(test.get(DriverCommand.GET_PAGE_SOURCE).getLatency().getCount(), 1,
+                "Commands from other threads stay out of the test's summary");
+        Assert.assertEquals(test.get("findElements by id").getErrors(), 1);
+        Assert.assertTrue(test.summary().contains("getPageSource"));
+        Assert.assertNull(TimedCommandExecutor.finishTest());
+    }
+
+    @Test(description = "Percentiles stay within the histogram's precision")
+    public void testHistogramPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 100_000);
+        Assert.assertEquals(histogram.getMaxMicros(), 100_000);
+        Assert.assertEquals(histogram.getPercentileMicros(50), 50_000, 50_000 * 0.016);
+        Assert.assertEquals(histogram.getPercentileMicros(99), 99_000, 99_000 * 0.016);
+        Assert.assertEquals(histogram.getPercentileMicros(100), 100_000, 100_000 * 0.016);
+        Assert.assertEquals(histogram.getMeanMicros(), 50_000.5, 0.001);
+        for (long value : new long[]{0, 127, 128, 1_000, 65_535, 1L << 30}) {
+            long representative = LatencyHistogram.representative(LatencyHistogram.index(value));
+            Assert.assertEquals(representative, value, value / 64.0 + 1, "value " + value);
+        }
+    }
+
+    @Test(description = "Clicks and gesture scripts mark the session's screen changed, reads do not")
+    public void testScreenChangingCommandsMarkSession() {
+        executor.execute(new Command(new SessionId(SESSION), DriverCommand.CLICK_ELEMENT,
+                Collections.singletonMap("id", "e1")));
+        ScreenChangeTracker.State afterClick = ScreenChangeTracker.current(SESSION);
+        Assert.assertNotNull(afterClick, "A click should start tracking the session");
+
+        executor.execute(new Command(new SessionId(SESSION), DriverCommand.GET_PAGE_SOURCE));
+        executor.execute(script("mobile: shell"));
+        Assert.assertEquals(ScreenChangeTracker.current(SESSION).getGeneration(), afterClick.getGeneration());
+
+        executor.execute(script("mobile: swipeGesture"));
+        Assert.assertEquals(ScreenChangeTracker.current(SESSION).getGeneration(), afterClick.getGeneration() + 1);
+        Assert.assertNull(ScreenChangeTracker.current("other-session"), "Other sessions are tracked separately");
+    }
+
+    private static Command script(String script) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("script", script);
+        parameters.put("args", Collections.emptyList());
+        return new Command(new SessionId(SESSION), DriverCommand.EXECUTE_SCRIPT, parameters);
+    }
+}
@@ -0,0 +1,108 @@
+package com.amalitech.metrics;
+
+import com.amalitech.utils.TempDirectories;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimelineTest {
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    private static Timeline.Entry entry(String lane, String category, String name, long startMillis, long millis,
+                                        int depth) {
+        return new Timeline.Entry(lane, lane + "-thread", category, name, startMillis * 1000, millis * 1000, depth);
+    }
+
+    @BeforeMethod
+    public void enable() {
+        Timeline.clear();
+        Timeline.setEnabled(true);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void disable() {
+        Timeline.setEnabled(false);
+        Timeline.clear();
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Spans nest per thread and carry the thread's lane; unlaned threads are not recorded")
+    public void testNestingAndLanes() throws Exception {
+        Thread device = new Thread(() -> {
+            try (Timeline.Span setup = Timeline.begin("setup", "CartTest.setUp")) {
+                Timeline.setLane("emulator-5556");
+            }
+            try (Timeline.Span test = Timeline.begin("test", "CartTest.testRemoveButtons")) {
+                try (Timeline.Span action = Timeline.begin("action", "CartPage.removeFirstItem")) {
+                    try (Timeline.Span command = Timeline.begin("command", "findElement by -android uiautomator")) {
+                        Thread.sleep(5);
+                    }
+                    Thread.sleep(20);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        device.start();
+        device.join();
+        try (Timeline.Span unlaned = Timeline.begin("sleep", "WaitUtils.hardWait")) {
+            Assert.assertNotNull(unlaned);
+        }
+
+        List<Timeline.Entry> entries = Timeline.entries();
+        Assert.assertEquals(entries.size(), 4, "The span on the thread without a lane is dropped");
+        Assert.assertEquals(entries.get(0).getName(), "CartTest.setUp");
+        Assert.assertEquals(entries.get(0).getLane(), "emulator-5556", "Setup takes the lane it set");
+        Timeline.Entry command = entries.get(1);
+        Assert.assertEquals(command.getName(), "findElement by -android uiautomator");
+        Assert.assertEquals(command.getDepth(), 2);
+        Assert.assertEquals(command.getLane(), "emulator-5556");
+        Assert.assertEquals(entries.get(3).getDepth(), 0);
+
+        TimelineReport.StepSummary action = new TimelineReport(entries).getTopSteps(10).stream()
+                .filter(step -> step.getName().equals("CartPage.removeFirstItem")).findFirst().orElseThrow(AssertionError::new);
+        Assert.assertTrue(action.getSelfMicros() >= 20_000, "Sleep inside the action is self time");
+        Assert.assertTrue(action.getSelfMicros() <= action.getTotalMicros() - command.getDurationMicros());
+    }
+
+    @Test(description = "Lane idle time is the gap between top-level spans")
+    public void testLaneIdleTime() {
+        TimelineReport report = new TimelineReport(Arrays.asList(
+                entry("emulator-5554", "setup", "CheckoutTest.setupCheckoutOnce", 0, 4_000, 0),
+                entry("emulator-5554", "action", "LoginPage.login", 100, 1_000, 1),
+                entry("emulator-5554", "test", "CheckoutTest.testFillCheckoutInformation", 6_000, 2_000, 0),
+                entry("emulator-5556", "test", "CartTest.testCartPageDisplay", 0, 10_000, 0)));
+
+        List<TimelineReport.LaneSummary> lanes = report.getLanes();
+        Assert.assertEquals(lanes.get(0).getLane(), "emulator-5554");
+        Assert.assertEquals(lanes.get(0).getWallMicros(), 8_000_000);
+        Assert.assertEquals(lanes.get(0).getIdleMicros(), 2_000_000);
+        Assert.assertEquals(lanes.get(1).getIdleMicros(), 0);
+        TimelineReport.StepSummary setup = report.getTopSteps(10).stream()
+                .filter(step -> step.getName().equals("CheckoutTest.setupCheckoutOnce")).findFirst().get();
+        Assert.assertEquals(setup.getSelfMicros(), 3_000_000);
+    }
+
+    @Test(description = "The report is one HTML file with the spans inlined")
+    public void testWritesSelfContainedHtml() throws Exception {
+        Path file = tempDirectories.create("timeline").resolve("timeline.html");
+        new TimelineReport(Arrays.asList(
+                entry("emulator-5554", "wait", "presence of </script><b>", 0, 50, 0),
+                entry("emulator-5554", "gesture", "actions", 60, 1_000, 0))).write(file);
+
+        String html = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assert.assertTrue(html.startsWith("<!DOCTYPE html>"));
+        Assert.assertTrue(html.contains("const spans = [[\"emulator-5554\""));
+        Assert.assertEquals(html.indexOf("</script><b>"), -1, "Span names must not end the script");
+        Assert.assertTrue(html.contains("presence of &lt;/script&gt;&lt;b&gt;"));
+        Assert.assertFalse(html.contains("src=\"http"), "No external resources");
+    }
+}
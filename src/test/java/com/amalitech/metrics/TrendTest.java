@@ -0,0 +1,58 @@
+package com.amalitech.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TrendTest {
+
+    private static double[] noisyLine(int n, double start, double slope, double noise, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = start + slope * i + (random.nextDouble() - 0.5) * noise;
+        }
+        return values;
+    }
+
+    @Test(description = "Mann-Kendall S and p-value match a hand-computed series with ties")
+    public void testStatisticWithTies() {
+        Trend trend = Trend.of("series", new double[]{1, 2, 2, 3, 5});
+        Assert.assertEquals(trend.getS(), 9);
+        // var = (5*4*15 - 2*1*9) / 18 = 15.667, z = 8 / 3.958 = 2.021
+        Assert.assertEquals(trend.getPValue(), 0.0216, 0.001);
+        Assert.assertEquals(trend.getSlope(), 1.0, 1e-9);
+    }
+
+    @Test(description = "Slow memory creep under noise is flagged as growing")
+    public void testCreepIsGrowing() {
+        Trend trend = Trend.of("app_pss_kb", noisyLine(60, 150_000, 500, 8_000, 7));
+        Assert.assertTrue(trend.getPValue() < 0.01, trend.toString());
+        Assert.assertEquals(trend.getSlope(), 500, 150);
+        Assert.assertEquals(trend.getRelativeGrowth(), 0.197, 0.06);
+        Assert.assertTrue(trend.isGrowing(0.01, 0.10, 10), trend.toString());
+        Assert.assertFalse(trend.isGrowing(0.01, 0.50, 10), "Growth below the tolerance is accepted");
+    }
+
+    @Test(description = "Flat noise with an outlier spike is not a trend")
+    public void testNoiseIsNotGrowing() {
+        double[] values = noisyLine(60, 150_000, 0, 8_000, 11);
+        values[59] = 400_000;
+        Trend trend = Trend.of("app_pss_kb", values);
+        Assert.assertFalse(trend.isGrowing(0.01, 0.10, 10), trend.toString());
+        Assert.assertEquals(trend.getRelativeGrowth(), 0, 0.05);
+    }
+
+    @Test(description = "Short, constant and falling series are never growing")
+    public void testEdgeCases() {
+        Assert.assertFalse(Trend.of("short", new double[]{1, 2, 3, 4, 5}).isGrowing(0.05, 0.1, 10));
+        Trend constant = Trend.of("threads", new double[]{40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40, 40});
+        Assert.assertEquals(constant.getPValue(), 1.0);
+        Assert.assertFalse(constant.isGrowing(0.05, 0.1, 10));
+        Trend falling = Trend.of("falling", noisyLine(30, 1000, -10, 5, 3));
+        Assert.assertTrue(falling.getS() < 0);
+        Assert.assertFalse(falling.isGrowing(0.05, 0.1, 10));
+        Assert.assertEquals(Trend.of("empty", new double[0]).getCount(), 0);
+    }
+}
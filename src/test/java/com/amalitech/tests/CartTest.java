@@ -1,6 +1,9 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
+import com.amalitech.models.CartDiff;
+import com.amalitech.models.CartSnapshot;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.pages.CartPage;
@@ -11,6 +14,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+@Retryable
 public class CartTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -20,10 +24,10 @@ public class CartTest extends BaseTest {
 
     @BeforeClass
     public void setUpClass() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        cartPage = new CartPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // One-time setup to get to cart page
         setupCartOnce();
@@ -64,14 +68,14 @@ public class CartTest extends BaseTest {
 
         try {
             // Verify QTY column is visible
-            WebElement qtyHeader = driver.findElement(
+            WebElement qtyHeader = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"QTY\")")
             );
             Assert.assertTrue(qtyHeader.isDisplayed(), "QTY header should be visible");
             System.out.println("✓ QTY header found");
 
             // Verify DESCRIPTION column is visible
-            WebElement descHeader = driver.findElement(
+            WebElement descHeader = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"DESCRIPTION\")")
             );
             Assert.assertTrue(descHeader.isDisplayed(), "DESCRIPTION header should be visible");
@@ -79,7 +83,7 @@ public class CartTest extends BaseTest {
 
             // Verify product names are visible
             try {
-                WebElement product1 = driver.findElement(
+                WebElement product1 = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Sauce Labs\")")
                 );
                 Assert.assertTrue(product1.isDisplayed(), "Product name should be visible");
@@ -90,7 +94,7 @@ public class CartTest extends BaseTest {
 
             // Verify prices are visible
             try {
-                WebElement price = driver.findElement(
+                WebElement price = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().textContains(\"$\")")
                 );
                 Assert.assertTrue(price.isDisplayed(), "Price should be visible");
@@ -128,14 +132,14 @@ public class CartTest extends BaseTest {
             System.out.println("✓ Found " + removeButtonCount + " REMOVE buttons for " + initialCount + " items");
 
             // Test clicking a REMOVE button
+            CartSnapshot before = cartPage.captureCartSnapshot();
             boolean removeSuccess = cartPage.removeFirstItem();
             Assert.assertTrue(removeSuccess, "Should successfully remove item");
-            waitUtils.hardWait(2);
 
-            // Verify item was removed
-            int newCount = cartPage.getCartItemsCount();
-            Assert.assertTrue(newCount < initialCount, "Item count should decrease after removal");
-            System.out.println("✓ Item removed successfully. Count: " + initialCount + " → " + newCount);
+            // Verify exactly one item was removed
+            CartDiff diff = before.diff(cartPage.captureCartSnapshot());
+            Assert.assertTrue(diff.isSingleItemRemoved(), "Exactly one item should be removed: " + diff);
+            System.out.println("✓ Item removed successfully: " + diff.getRemoved());
 
             System.out.println("Remove buttons test PASSED!");
 
@@ -165,7 +169,7 @@ public class CartTest extends BaseTest {
 
             // Verify cart icon in header
             try {
-                WebElement cartIconHeader = driver.findElement(
+                WebElement cartIconHeader = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(3)")
                 );
                 Assert.assertTrue(cartIconHeader.isDisplayed(), "Cart icon should be in header");
@@ -231,9 +235,9 @@ public class CartTest extends BaseTest {
             waitUtils.hardWait(3);
 
             // Login directly
-            WebElement usernameField = driver.findElement(AppiumBy.accessibilityId("test-Username"));
-            WebElement passwordField = driver.findElement(AppiumBy.accessibilityId("test-Password"));
-            WebElement loginButton = driver.findElement(AppiumBy.accessibilityId("test-LOGIN"));
+            WebElement usernameField = getDriver().findElement(AppiumBy.accessibilityId("test-Username"));
+            WebElement passwordField = getDriver().findElement(AppiumBy.accessibilityId("test-Password"));
+            WebElement loginButton = getDriver().findElement(AppiumBy.accessibilityId("test-LOGIN"));
 
             usernameField.clear();
             usernameField.sendKeys("standard_user");
@@ -243,7 +247,7 @@ public class CartTest extends BaseTest {
             waitUtils.hardWait(3);
 
             // Navigate to product and add items
-            WebElement productImage = driver.findElement(
+            WebElement productImage = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(4)")
             );
             productImage.click();
@@ -251,7 +255,7 @@ public class CartTest extends BaseTest {
 
             // Add 2 items to cart
             for (int i = 0; i < 2; i++) {
-                WebElement addButton = driver.findElement(
+                WebElement addButton = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().text(\"+\").instance(0)")
                 );
                 addButton.click();
@@ -259,7 +263,7 @@ public class CartTest extends BaseTest {
             }
 
             // Navigate to cart
-            WebElement cartIcon = driver.findElement(
+            WebElement cartIcon = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(3)")
             );
             cartIcon.click();
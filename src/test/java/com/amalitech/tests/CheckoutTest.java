@@ -1,10 +1,13 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
+import com.amalitech.metrics.Timeline;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.pages.CartPage;
 import com.amalitech.pages.CheckoutPage;
+import com.amalitech.utils.TestDataProvider;
 import com.amalitech.utils.WaitUtils;
 import io.appium.java_client.AppiumBy;
 import org.openqa.selenium.WebElement;
@@ -12,6 +15,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+@Retryable
 public class CheckoutTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -22,14 +26,16 @@ public class CheckoutTest extends BaseTest {
 
     @BeforeClass
     public void setUpClass() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        cartPage = new CartPage(driver);
-        checkoutPage = new CheckoutPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // One-time setup to get to checkout information page
-        setupCheckoutOnce();
+        try (Timeline.Span ignored = Timeline.begin("setup", "CheckoutTest.setupCheckoutOnce")) {
+            setupCheckoutOnce();
+        }
     }
 
     @Test(description = "Test checkout information page displays correctly")
@@ -38,7 +44,7 @@ public class CheckoutTest extends BaseTest {
 
         try {
             // Verify checkout information page title
-            WebElement checkoutTitle = driver.findElement(
+            WebElement checkoutTitle = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"CHECKOUT: INFORMATION\")")
             );
             Assert.assertTrue(checkoutTitle.isDisplayed(), "Checkout information title should be visible");
@@ -58,18 +64,21 @@ public class CheckoutTest extends BaseTest {
         }
     }
 
-    @Test(description = "Test filling checkout information with Emmanuel Arhu details")
-    public void testFillCheckoutInformation() {
+    @Test(description = "Test filling checkout information from test data",
+            dataProvider = TestDataProvider.CHECKOUT_INFO, dataProviderClass = TestDataProvider.class)
+    public void testFillCheckoutInformation(String firstName, String lastName, String zipCode) {
         System.out.println("Starting fill checkout information test...");
 
         try {
-            // Fill with Emmanuel's information
-            checkoutPage.fillShippingInfo("Emmanuel", "Arhu", "0233");
-            System.out.println("✓ Successfully filled shipping information: Emmanuel Arhu, 0233");
+            CheckoutPage checkoutPage = checkoutPageForRow();
+
+            // Fill with the information from test data
+            checkoutPage.fillShippingInfo(firstName, lastName, zipCode);
+            System.out.println("✓ Successfully filled shipping information: " + firstName + " " + lastName + ", " + zipCode);
 
             // Verify fields were filled (optional validation)
             try {
-                WebElement firstNameField = driver.findElement(AppiumBy.accessibilityId("test-First Name"));
+                WebElement firstNameField = getDriver().findElement(AppiumBy.accessibilityId("test-First Name"));
                 String firstNameValue = firstNameField.getText();
                 System.out.println("✓ First name field contains: " + firstNameValue);
             } catch (Exception e) {
@@ -85,28 +94,47 @@ public class CheckoutTest extends BaseTest {
         }
     }
 
+    @Test(description = "Test filling checkout information across the pairwise field matrix",
+            dataProvider = TestDataProvider.CHECKOUT_PAIRWISE, dataProviderClass = TestDataProvider.class)
+    public void testFillCheckoutInformationPairwise(String firstName, String lastName, String zipCode) {
+        System.out.println("Starting pairwise checkout information test: '" + firstName + "', '"
+                + lastName + "', '" + zipCode + "'");
+
+        CheckoutPage checkoutPage = checkoutPageForRow();
+        checkoutPage.fillShippingInfo(firstName, lastName, zipCode);
+
+        Assert.assertTrue(checkoutPage.isCheckoutInformationPageDisplayed(),
+                "Should stay on checkout information page after filling the form");
+        if (!firstName.isEmpty()) {
+            String firstNameValue = getDriver().findElement(AppiumBy.accessibilityId("test-First Name")).getText();
+            Assert.assertEquals(firstNameValue, firstName, "First name field should hold the entered value");
+        }
+
+        System.out.println("Pairwise checkout information test PASSED!");
+    }
+
     @Test(description = "Test checkout information form validation")
     public void testCheckoutFormValidation() {
         System.out.println("Starting checkout form validation test...");
 
         try {
             // Verify First Name field
-            WebElement firstNameField = driver.findElement(AppiumBy.accessibilityId("test-First Name"));
+            WebElement firstNameField = getDriver().findElement(AppiumBy.accessibilityId("test-First Name"));
             Assert.assertTrue(firstNameField.isDisplayed(), "First Name field should be visible");
             System.out.println("✓ First Name field found");
 
             // Verify Last Name field
-            WebElement lastNameField = driver.findElement(AppiumBy.accessibilityId("test-Last Name"));
+            WebElement lastNameField = getDriver().findElement(AppiumBy.accessibilityId("test-Last Name"));
             Assert.assertTrue(lastNameField.isDisplayed(), "Last Name field should be visible");
             System.out.println("✓ Last Name field found");
 
             // Verify Zip/Postal Code field
-            WebElement zipField = driver.findElement(AppiumBy.accessibilityId("test-Zip/Postal Code"));
+            WebElement zipField = getDriver().findElement(AppiumBy.accessibilityId("test-Zip/Postal Code"));
             Assert.assertTrue(zipField.isDisplayed(), "Zip/Postal Code field should be visible");
             System.out.println("✓ Zip/Postal Code field found");
 
             // Verify Continue button
-            WebElement continueButton = driver.findElement(AppiumBy.accessibilityId("test-CONTINUE"));
+            WebElement continueButton = getDriver().findElement(AppiumBy.accessibilityId("test-CONTINUE"));
             Assert.assertTrue(continueButton.isDisplayed(), "Continue button should be visible");
             System.out.println("✓ Continue button found");
 
@@ -125,16 +153,16 @@ public class CheckoutTest extends BaseTest {
 
         try {
             // Verify we're on the correct page
-            WebElement checkoutTitle = driver.findElement(
+            WebElement checkoutTitle = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"CHECKOUT: INFORMATION\")")
             );
             Assert.assertTrue(checkoutTitle.isDisplayed(), "Should be on checkout information page");
 
             // Verify page has expected elements
-            boolean hasFirstName = driver.findElement(AppiumBy.accessibilityId("test-First Name")).isDisplayed();
-            boolean hasLastName = driver.findElement(AppiumBy.accessibilityId("test-Last Name")).isDisplayed();
-            boolean hasZipCode = driver.findElement(AppiumBy.accessibilityId("test-Zip/Postal Code")).isDisplayed();
-            boolean hasContinue = driver.findElement(AppiumBy.accessibilityId("test-CONTINUE")).isDisplayed();
+            boolean hasFirstName = getDriver().findElement(AppiumBy.accessibilityId("test-First Name")).isDisplayed();
+            boolean hasLastName = getDriver().findElement(AppiumBy.accessibilityId("test-Last Name")).isDisplayed();
+            boolean hasZipCode = getDriver().findElement(AppiumBy.accessibilityId("test-Zip/Postal Code")).isDisplayed();
+            boolean hasContinue = getDriver().findElement(AppiumBy.accessibilityId("test-CONTINUE")).isDisplayed();
 
             System.out.println("=== CHECKOUT INFORMATION PAGE SUMMARY ===");
             System.out.println("Page Title: " + checkoutTitle.getText());
@@ -165,9 +193,9 @@ public class CheckoutTest extends BaseTest {
 
         try {
             // Clear fields first
-            WebElement firstNameField = driver.findElement(AppiumBy.accessibilityId("test-First Name"));
-            WebElement lastNameField = driver.findElement(AppiumBy.accessibilityId("test-Last Name"));
-            WebElement zipField = driver.findElement(AppiumBy.accessibilityId("test-Zip/Postal Code"));
+            WebElement firstNameField = getDriver().findElement(AppiumBy.accessibilityId("test-First Name"));
+            WebElement lastNameField = getDriver().findElement(AppiumBy.accessibilityId("test-Last Name"));
+            WebElement zipField = getDriver().findElement(AppiumBy.accessibilityId("test-Zip/Postal Code"));
 
             // Clear all fields
             firstNameField.clear();
@@ -201,54 +229,68 @@ public class CheckoutTest extends BaseTest {
     }
 
     /**
-     * One-time setup to get to checkout information page
+     * Checkout page of the session this row runs on, on the checkout information page. Class
+     * setup only prepares the first device; rows on other devices get there here.
+     */
+    private CheckoutPage checkoutPageForRow() {
+        CheckoutPage page = new CheckoutPage(getDriver());
+        if (!page.isCheckoutInformationPageDisplayed()) {
+            try (Timeline.Span ignored = Timeline.begin("setup", "CheckoutTest.setupCheckoutOnce")) {
+                setupCheckoutOnce();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * One-time setup to get to checkout information page, on this thread's session
      */
     private void setupCheckoutOnce() {
         try {
             System.out.println("Setting up checkout for testing...");
 
             // Wait for app to load
-            waitUtils.hardWait(3);
+            getWaitUtils().hardWait(3);
 
             // Login directly
-            WebElement usernameField = driver.findElement(AppiumBy.accessibilityId("test-Username"));
-            WebElement passwordField = driver.findElement(AppiumBy.accessibilityId("test-Password"));
-            WebElement loginButton = driver.findElement(AppiumBy.accessibilityId("test-LOGIN"));
+            WebElement usernameField = getDriver().findElement(AppiumBy.accessibilityId("test-Username"));
+            WebElement passwordField = getDriver().findElement(AppiumBy.accessibilityId("test-Password"));
+            WebElement loginButton = getDriver().findElement(AppiumBy.accessibilityId("test-LOGIN"));
 
             usernameField.clear();
             usernameField.sendKeys("standard_user");
             passwordField.clear();
             passwordField.sendKeys("secret_sauce");
             loginButton.click();
-            waitUtils.hardWait(3);
+            getWaitUtils().hardWait(3);
 
             // Navigate to product and add item
-            WebElement productImage = driver.findElement(
+            WebElement productImage = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(4)")
             );
             productImage.click();
-            waitUtils.hardWait(1);
+            getWaitUtils().hardWait(1);
 
             // Add item to cart
-            WebElement addButton = driver.findElement(
+            WebElement addButton = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"+\").instance(0)")
             );
             addButton.click();
-            waitUtils.hardWait(1);
+            getWaitUtils().hardWait(1);
 
             // Navigate to cart
-            WebElement cartIcon = driver.findElement(
+            WebElement cartIcon = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(3)")
             );
             cartIcon.click();
-            waitUtils.hardWait(2);
+            getWaitUtils().hardWait(2);
 
             // Proceed to checkout (with scroll if needed)
-            cartPage.proceedToCheckout();
-            waitUtils.hardWait(2);
+            new CartPage(getDriver()).proceedToCheckout();
+            getWaitUtils().hardWait(2);
 
             // Verify we're on checkout information page
-            WebElement checkoutTitle = driver.findElement(
+            WebElement checkoutTitle = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"CHECKOUT: INFORMATION\")")
             );
             Assert.assertTrue(checkoutTitle.isDisplayed(), "Should be on checkout information page");
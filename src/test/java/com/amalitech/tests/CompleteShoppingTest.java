@@ -1,6 +1,7 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.pages.CheckoutPage;
@@ -14,6 +15,7 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import java.time.Duration;
 
+@Retryable
 public class CompleteShoppingTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -22,9 +24,9 @@ public class CompleteShoppingTest extends BaseTest {
 
     @BeforeMethod
     public void setUp() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        checkoutPage = new CheckoutPage(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
 
         // Wait for app to load
         try {
@@ -79,7 +81,7 @@ public class CompleteShoppingTest extends BaseTest {
             Assert.assertTrue(productsPage.isProductsPageDisplayed(), "Should be back on products page");
 
             // Step 12: Verify product elements are visible
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+            WebDriverWait wait = new WebDriverWait(getDriver(), Duration.ofSeconds(10));
 
             // Check for product image
             WebElement productImage = wait.until(ExpectedConditions.presenceOfElementLocated(
@@ -1,6 +1,8 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
+import com.amalitech.metrics.StageTimings;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.pages.CartPage;
@@ -12,6 +14,10 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
+import java.util.Map;
+
+@Retryable
 public class EndToEndTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -22,11 +28,11 @@ public class EndToEndTest extends BaseTest {
 
     @BeforeMethod
     public void setUp() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        cartPage = new CartPage(driver);
-        checkoutPage = new CheckoutPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // Wait for app to load
         waitUtils.hardWait(3);
@@ -81,13 +87,13 @@ public class EndToEndTest extends BaseTest {
 
         try {
             // Verify PRODUCTS title is visible
-            WebElement productsTitle = driver.findElement(
+            WebElement productsTitle = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"PRODUCTS\")")
             );
             Assert.assertTrue(productsTitle.isDisplayed(), "Products title should be visible");
 
             // Click on product image (instance 4 as per your sequence)
-            WebElement productImage = driver.findElement(
+            WebElement productImage = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(4)")
             );
             productImage.click();
@@ -95,7 +101,7 @@ public class EndToEndTest extends BaseTest {
 
             // Add items by clicking + button 3 times
             for (int i = 0; i < 3; i++) {
-                WebElement addButton = driver.findElement(
+                WebElement addButton = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().text(\"+\").instance(0)")
                 );
                 addButton.click();
@@ -115,27 +121,27 @@ public class EndToEndTest extends BaseTest {
 
         try {
             // Click cart icon (instance 3 as per your sequence)
-            WebElement cartIcon = driver.findElement(
+            WebElement cartIcon = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(3)")
             );
             cartIcon.click();
             waitUtils.hardWait(2);
 
             // Verify we're on cart page
-            WebElement cartTitle = driver.findElement(
+            WebElement cartTitle = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"YOUR CART\")")
             );
             Assert.assertTrue(cartTitle.isDisplayed(), "Should be on cart page");
 
             // Verify description is visible
-            WebElement description = driver.findElement(
+            WebElement description = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"DESCRIPTION\")")
             );
             Assert.assertTrue(description.isDisplayed(), "Description should be visible");
 
             // Remove 2 items (clicking REMOVE button twice)
             for (int i = 0; i < 2; i++) {
-                WebElement removeButton = driver.findElement(
+                WebElement removeButton = getDriver().findElement(
                         AppiumBy.androidUIAutomator("new UiSelector().description(\"test-REMOVE\").instance(0)")
                 );
                 removeButton.click();
@@ -155,22 +161,18 @@ public class EndToEndTest extends BaseTest {
 
         try {
             // Click checkout button
-            WebElement checkoutButton = driver.findElement(AppiumBy.accessibilityId("test-CHECKOUT"));
+            WebElement checkoutButton = getDriver().findElement(AppiumBy.accessibilityId("test-CHECKOUT"));
             checkoutButton.click();
-            waitUtils.hardWait(2);
-
-            // Fill checkout information
-            checkoutPage.fillShippingInfo("Emmanuel", "Arhu", "0233");
-            checkoutPage.clickContinue();
-            waitUtils.hardWait(2);
 
-            // Complete the purchase
-            checkoutPage.clickFinish();
-            waitUtils.hardWait(2);
-
-            // Return to home
-            checkoutPage.clickBackHome();
-            waitUtils.hardWait(2);
+            // Fill information, finish the purchase and return home, timing each stage
+            StageTimings timings = checkoutPage.completeCheckoutWithTimings("Emmanuel", "Arhu", "0233");
+            Assert.assertEquals(timings.getStages().size(), 4, "All checkout stages should be timed");
+            Duration stageSum = Duration.ZERO;
+            for (Map.Entry<String, Duration> stage : timings.getStages().entrySet()) {
+                Assert.assertTrue(stage.getValue().toNanos() > 0, "Stage " + stage.getKey() + " should take time");
+                stageSum = stageSum.plus(stage.getValue());
+            }
+            Assert.assertEquals(stageSum, timings.getTotal(), "Stages should add up to the checkout total");
 
             // Verify we're back on products page
             Assert.assertTrue(productsPage.isProductsPageDisplayed(), "Should be back on products page");
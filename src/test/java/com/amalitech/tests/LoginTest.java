@@ -1,9 +1,11 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
 import com.amalitech.constants.AppConstants;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
+import com.amalitech.utils.TestDataProvider;
 import io.appium.java_client.AppiumBy;
 import io.qameta.allure.*;
 import org.apache.logging.log4j.LogManager;
@@ -15,16 +17,18 @@ import org.testng.annotations.Test;
 
 @Epic("Swag Labs Mobile Application")
 @Feature("User Authentication")
+@Retryable
 public class LoginTest extends BaseTest {
 
     private static final Logger logger = LogManager.getLogger(LoginTest.class);
-    private LoginPage loginPage;
-    private ProductsPage productsPage;
+    // Per thread: data-driven rows run in parallel, each on its own device
+    private final ThreadLocal<LoginPage> loginPages = new ThreadLocal<>();
+    private final ThreadLocal<ProductsPage> productsPages = new ThreadLocal<>();
 
     @BeforeMethod
     public void setupPages() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
+        loginPages.set(new LoginPage(getDriver()));
+        productsPages.set(new ProductsPage(getDriver()));
 
         // Ensure we're on login page before each test
         ensureOnLoginPage();
@@ -39,17 +43,17 @@ public class LoginTest extends BaseTest {
         logger.info("Starting valid login test");
 
         // Verify login page is displayed
-        Assert.assertTrue(loginPage.isLoginPageDisplayed(),
+        Assert.assertTrue(loginPage().isLoginPageDisplayed(),
                 "Login page should be displayed");
 
         // Perform login with valid credentials
-        loginPage.loginWithStandardUser();
+        loginPage().loginWithStandardUser();
 
         // Verify successful login
-        productsPage.waitForProductsPageToLoad();
-        Assert.assertTrue(productsPage.isProductsPageDisplayed(),
+        productsPage().waitForProductsPageToLoad();
+        Assert.assertTrue(productsPage().isProductsPageDisplayed(),
                 "Products page should be displayed after successful login");
-        Assert.assertEquals(productsPage.getProductsPageTitle(), AppConstants.PRODUCTS_PAGE_TITLE,
+        Assert.assertEquals(productsPage().getProductsPageTitle(), AppConstants.PRODUCTS_PAGE_TITLE,
                 "Products page title should match expected value");
 
         logger.info("Valid login test completed successfully");
@@ -67,8 +71,8 @@ public class LoginTest extends BaseTest {
         logger.info("Starting locked out user login test");
 
         // Clear any existing data and perform login with locked user
-        loginPage.clearAllFields();
-        loginPage.loginWithLockedOutUser();
+        loginPage().clearAllFields();
+        loginPage().loginWithLockedOutUser();
 
         // Wait for error message to appear
         try {
@@ -83,15 +87,15 @@ public class LoginTest extends BaseTest {
         Assert.assertTrue(lockedOutMessageVisible, "Specific locked out error message should be displayed");
 
         // Also verify through LoginPage method
-        Assert.assertTrue(loginPage.isErrorMessageDisplayed(),
+        Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
                 "Error message should be displayed for locked out user");
 
-        String errorMessage = loginPage.getErrorMessage();
+        String errorMessage = loginPage().getErrorMessage();
         Assert.assertTrue(errorMessage.contains("locked out") || errorMessage.contains("Sorry"),
                 "Error message should indicate user is locked out. Actual: " + errorMessage);
 
         // Verify still on login page
-        Assert.assertTrue(loginPage.isLoginPageDisplayed(),
+        Assert.assertTrue(loginPage().isLoginPageDisplayed(),
                 "Should still be on login page after failed login");
 
         logger.info("Locked out user login test completed successfully");
@@ -106,8 +110,8 @@ public class LoginTest extends BaseTest {
         logger.info("Starting invalid credentials login test");
 
         // Clear fields and enter invalid credentials
-        loginPage.clearAllFields();
-        loginPage.login("invalid_user", "invalid_password");
+        loginPage().clearAllFields();
+        loginPage().login("invalid_user", "invalid_password");
 
         // Wait for error message to appear
         try {
@@ -122,15 +126,15 @@ public class LoginTest extends BaseTest {
         Assert.assertTrue(invalidMessageVisible, "Specific invalid credentials error message should be displayed");
 
         // Also verify through LoginPage method
-        Assert.assertTrue(loginPage.isErrorMessageDisplayed(),
+        Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
                 "Error message should be displayed for invalid credentials");
 
-        String errorMessage = loginPage.getErrorMessage();
+        String errorMessage = loginPage().getErrorMessage();
         Assert.assertTrue(errorMessage.contains("do not match") || errorMessage.contains("invalid"),
                 "Error message should indicate credentials don't match. Actual: " + errorMessage);
 
         // Verify still on login page
-        Assert.assertTrue(loginPage.isLoginPageDisplayed(),
+        Assert.assertTrue(loginPage().isLoginPageDisplayed(),
                 "Should still be on login page after failed login");
 
         logger.info("Invalid credentials login test completed successfully");
@@ -145,9 +149,9 @@ public class LoginTest extends BaseTest {
         logger.info("Starting empty username login test");
 
         // Clear fields and enter only password
-        loginPage.clearAllFields();
-        loginPage.enterPassword(AppConstants.PASSWORD);
-        loginPage.clickLoginButton();
+        loginPage().clearAllFields();
+        loginPage().enterPassword(AppConstants.PASSWORD);
+        loginPage().clickLoginButton();
 
         // Wait for error message
         try {
@@ -157,10 +161,10 @@ public class LoginTest extends BaseTest {
         }
 
         // Verify error message is displayed
-        Assert.assertTrue(loginPage.isErrorMessageDisplayed(),
+        Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
                 "Error message should be displayed for empty username");
 
-        String errorMessage = loginPage.getErrorMessage();
+        String errorMessage = loginPage().getErrorMessage();
         Assert.assertTrue(errorMessage.contains("required") || errorMessage.contains("Username"),
                 "Error message should indicate username is required. Actual: " + errorMessage);
 
@@ -176,9 +180,9 @@ public class LoginTest extends BaseTest {
         logger.info("Starting empty password login test");
 
         // Clear fields and enter only username
-        loginPage.clearAllFields();
-        loginPage.enterUsername(AppConstants.STANDARD_USER);
-        loginPage.clickLoginButton();
+        loginPage().clearAllFields();
+        loginPage().enterUsername(AppConstants.STANDARD_USER);
+        loginPage().clickLoginButton();
 
         // Wait for error message
         try {
@@ -188,10 +192,10 @@ public class LoginTest extends BaseTest {
         }
 
         // Verify error message is displayed
-        Assert.assertTrue(loginPage.isErrorMessageDisplayed(),
+        Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
                 "Error message should be displayed for empty password");
 
-        String errorMessage = loginPage.getErrorMessage();
+        String errorMessage = loginPage().getErrorMessage();
         Assert.assertTrue(errorMessage.contains("required") || errorMessage.contains("Password"),
                 "Error message should indicate password is required. Actual: " + errorMessage);
 
@@ -207,12 +211,12 @@ public class LoginTest extends BaseTest {
         logger.info("Starting problem user login test");
 
         // Clear fields and login with problem user
-        loginPage.clearAllFields();
-        loginPage.loginWithProblemUser();
+        loginPage().clearAllFields();
+        loginPage().loginWithProblemUser();
 
         // Problem user should be able to login
-        productsPage.waitForProductsPageToLoad();
-        Assert.assertTrue(productsPage.isProductsPageDisplayed(),
+        productsPage().waitForProductsPageToLoad();
+        Assert.assertTrue(productsPage().isProductsPageDisplayed(),
                 "Products page should be displayed after problem user login");
 
         // Note: Problem user might have issues with product images or other functionality
@@ -233,21 +237,113 @@ public class LoginTest extends BaseTest {
         logger.info("Starting login page elements validation test");
 
         // Verify all login page elements
-        Assert.assertTrue(loginPage.isUsernameFieldDisplayed(),
+        Assert.assertTrue(loginPage().isUsernameFieldDisplayed(),
                 "Username field should be displayed");
-        Assert.assertTrue(loginPage.isPasswordFieldDisplayed(),
+        Assert.assertTrue(loginPage().isPasswordFieldDisplayed(),
                 "Password field should be displayed");
-        Assert.assertTrue(loginPage.isLoginButtonDisplayed(),
+        Assert.assertTrue(loginPage().isLoginButtonDisplayed(),
                 "Login button should be displayed");
 
         // Verify login page image is present
         String loginImageSelector = "new UiSelector().className(\"android.widget.ImageView\").instance(1)";
-        Assert.assertTrue(loginPage.isElementDisplayedByUiSelector(loginImageSelector),
+        Assert.assertTrue(loginPage().isElementDisplayedByUiSelector(loginImageSelector),
                 "Login page image should be displayed");
 
         logger.info("Login page elements validation completed successfully");
     }
 
+    @Test(priority = 8, description = "Verify login outcome for every user in the test data matrix",
+            dataProvider = TestDataProvider.LOGIN_USERS, dataProviderClass = TestDataProvider.class)
+    @Story("Data-driven Login")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Test verifies the login outcome for each username/password combination in testdata.json")
+    public void testLoginWithTestData(String username, String password, String expectedError) {
+
+        logger.info("Starting data-driven login test for user: '" + username + "'");
+
+        loginPage().clearAllFields();
+        loginPage().login(username, password);
+
+        if (expectedError.isEmpty()) {
+            productsPage().waitForProductsPageToLoad();
+            Assert.assertTrue(productsPage().isProductsPageDisplayed(),
+                    "Products page should be displayed after login as " + username);
+            performLogout();
+        } else {
+            Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
+                    "Error message should be displayed for user '" + username + "'");
+            String errorMessage = loginPage().getErrorMessage();
+            Assert.assertTrue(errorMessage.contains(expectedError),
+                    "Expected error '" + expectedError + "'. Actual: " + errorMessage);
+        }
+
+        logger.info("Data-driven login test completed for user: '" + username + "'");
+    }
+
+    @Test(priority = 9, description = "Verify login outcome across the pairwise username/password/entry mode matrix",
+            dataProvider = TestDataProvider.LOGIN_PAIRWISE, dataProviderClass = TestDataProvider.class)
+    @Story("Data-driven Login")
+    @Severity(SeverityLevel.NORMAL)
+    @Description("Test verifies the login outcome for a pairwise covering set of login inputs from testdata.json")
+    public void testLoginPairwise(String username, String password, String entryMode) {
+
+        logger.info("Starting pairwise login test for user: '" + username + "', entry mode: " + entryMode);
+
+        loginPage().clearAllFields();
+        if ("fields".equals(entryMode)) {
+            if (!username.isEmpty()) {
+                loginPage().enterUsername(username);
+            }
+            if (!password.isEmpty()) {
+                loginPage().enterPassword(password);
+            }
+            loginPage().clickLoginButton();
+        } else {
+            loginPage().login(username, password);
+        }
+
+        String expectedError = expectedLoginError(username, password);
+        if (expectedError.isEmpty()) {
+            productsPage().waitForProductsPageToLoad();
+            Assert.assertTrue(productsPage().isProductsPageDisplayed(),
+                    "Products page should be displayed after login as " + username);
+            performLogout();
+        } else {
+            Assert.assertTrue(loginPage().isErrorMessageDisplayed(),
+                    "Error message should be displayed for user '" + username + "'");
+            String errorMessage = loginPage().getErrorMessage();
+            Assert.assertTrue(errorMessage.contains(expectedError),
+                    "Expected error '" + expectedError + "'. Actual: " + errorMessage);
+        }
+
+        logger.info("Pairwise login test completed for user: '" + username + "'");
+    }
+
+    private LoginPage loginPage() {
+        return loginPages.get();
+    }
+
+    private ProductsPage productsPage() {
+        return productsPages.get();
+    }
+
+    // Expected login error for generated rows, in the order the app validates the form
+    private String expectedLoginError(String username, String password) {
+        if (username.isEmpty()) {
+            return "Username is required";
+        }
+        if (password.isEmpty()) {
+            return "Password is required";
+        }
+        if (!AppConstants.PASSWORD.equals(password) || "invalid_user".equals(username)) {
+            return "Username and password do not match any user in this service.";
+        }
+        if (AppConstants.LOCKED_OUT_USER.equals(username)) {
+            return "Sorry, this user has been locked out.";
+        }
+        return "";
+    }
+
     // Helper method to ensure we're on login page
     private void ensureOnLoginPage() {
         try {
@@ -255,24 +351,24 @@ public class LoginTest extends BaseTest {
             Thread.sleep(2000);
 
             // If we can't find login elements, try to navigate to login
-            if (!loginPage.isLoginPageDisplayed()) {
+            if (!loginPage().isLoginPageDisplayed()) {
                 System.out.println("Not on login page, attempting to navigate...");
 
                 // Try to open menu and logout if we're logged in
                 try {
-                    WebElement menuButton = driver.findElement(
+                    WebElement menuButton = getDriver().findElement(
                             AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(1)")
                     );
                     menuButton.click();
                     Thread.sleep(1000);
 
-                    WebElement logoutButton = driver.findElement(
+                    WebElement logoutButton = getDriver().findElement(
                             AppiumBy.androidUIAutomator("new UiSelector().text(\"LOGOUT\")")
                     );
                     logoutButton.click();
                     Thread.sleep(2000);
 
-                    loginPage.waitForLoginPageToLoad();
+                    loginPage().waitForLoginPageToLoad();
                     System.out.println("Successfully navigated to login page");
                 } catch (Exception e) {
                     System.out.println("Could not navigate to login page: " + e.getMessage());
@@ -291,14 +387,14 @@ public class LoginTest extends BaseTest {
             System.out.println("Performing logout...");
 
             // Open hamburger menu
-            WebElement menuButton = driver.findElement(
+            WebElement menuButton = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(1)")
             );
             menuButton.click();
             Thread.sleep(1000);
 
             // Click logout
-            WebElement logoutButton = driver.findElement(
+            WebElement logoutButton = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"LOGOUT\")")
             );
             logoutButton.click();
@@ -314,7 +410,7 @@ public class LoginTest extends BaseTest {
     // Helper method to check if element is visible
     private boolean isElementVisible(String uiSelector) {
         try {
-            WebElement element = driver.findElement(AppiumBy.androidUIAutomator(uiSelector));
+            WebElement element = getDriver().findElement(AppiumBy.androidUIAutomator(uiSelector));
             return element.isDisplayed();
         } catch (Exception e) {
             return false;
@@ -1,6 +1,7 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.pages.MenuPage;
@@ -11,6 +12,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+@Retryable
 public class LogoutTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -20,10 +22,10 @@ public class LogoutTest extends BaseTest {
 
     @BeforeMethod
     public void setUp() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        menuPage = new MenuPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        menuPage = new MenuPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // Wait for app to load
         waitUtils.hardWait(3);
@@ -114,7 +116,7 @@ public class LogoutTest extends BaseTest {
 
         try {
             // Click hamburger menu using the selector you provided
-            WebElement menuButton = driver.findElement(
+            WebElement menuButton = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().className(\"android.widget.ImageView\").instance(1)")
             );
             menuButton.click();
@@ -141,7 +143,7 @@ public class LogoutTest extends BaseTest {
 
         try {
             // Click on LOGOUT option
-            WebElement logoutButton = driver.findElement(
+            WebElement logoutButton = getDriver().findElement(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"LOGOUT\")")
             );
             logoutButton.click();
@@ -194,7 +196,7 @@ public class LogoutTest extends BaseTest {
 
     private boolean isElementVisible(String uiSelector) {
         try {
-            WebElement element = driver.findElement(AppiumBy.androidUIAutomator(uiSelector));
+            WebElement element = getDriver().findElement(AppiumBy.androidUIAutomator(uiSelector));
             return element.isDisplayed();
         } catch (Exception e) {
             return false;
@@ -203,7 +205,7 @@ public class LogoutTest extends BaseTest {
 
     private boolean isElementVisibleByAccessibilityId(String accessibilityId) {
         try {
-            WebElement element = driver.findElement(AppiumBy.accessibilityId(accessibilityId));
+            WebElement element = getDriver().findElement(AppiumBy.accessibilityId(accessibilityId));
             return element.isDisplayed();
         } catch (Exception e) {
             return false;
@@ -0,0 +1,110 @@
+package com.amalitech.tests;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.metrics.LatencyComparison;
+import com.amalitech.pages.CartPage;
+import com.amalitech.pages.CheckoutPage;
+import com.amalitech.pages.LoginPage;
+import com.amalitech.pages.MenuPage;
+import com.amalitech.pages.ProductsPage;
+import com.amalitech.utils.ConfigReader;
+import io.qameta.allure.Allure;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the login-to-checkout journey as the standard user and as performance_glitch_user and
+ * compares the latency of every screen transition between them.
+ * Journeys alternate between the two users, so drift in the device or the server over the run
+ * affects both samples alike. The glitch user is slow by design, so this is also a check that
+ * the timing instrumentation detects slowness at all.
+ */
+public class PerformanceUserTest extends BaseTest {
+
+    private LoginPage loginPage;
+    private ProductsPage productsPage;
+    private CartPage cartPage;
+    private CheckoutPage checkoutPage;
+    private MenuPage menuPage;
+
+    @BeforeMethod
+    public void setUp() {
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
+        menuPage = new MenuPage(getDriver());
+
+        loginPage.navigateToLoginIfNeeded();
+    }
+
+    @Test(description = "Per-step latency of performance_glitch_user against the standard user")
+    public void testGlitchUserLatencyRegression() {
+        String standardUser = ConfigReader.getProperty("test.username.standard", "standard_user");
+        String glitchUser = ConfigReader.getProperty("test.username.performance", "performance_glitch_user");
+        int runs = ConfigReader.getInt("perf.regression.runs", 10);
+        double alpha = Double.parseDouble(ConfigReader.getProperty("perf.regression.alpha", "0.05"));
+
+        Map<String, List<Duration>> standard = new LinkedHashMap<>();
+        Map<String, List<Duration>> glitch = new LinkedHashMap<>();
+        for (int run = 1; run <= runs; run++) {
+            System.out.println("Journey " + run + " of " + runs);
+            runJourney(standardUser, standard);
+            runJourney(glitchUser, glitch);
+        }
+
+        List<LatencyComparison> comparisons = new ArrayList<>();
+        for (String step : standard.keySet()) {
+            comparisons.add(LatencyComparison.compare(step, standard.get(step),
+                    glitch.getOrDefault(step, new ArrayList<>())));
+        }
+        String table = LatencyComparison.table(comparisons, alpha);
+        System.out.println("Latency of " + glitchUser + " against " + standardUser + ":" + System.lineSeparator() + table);
+        Allure.addAttachment("Latency delta - " + glitchUser, "text/plain", table, ".txt");
+
+        boolean slowerDetected = comparisons.stream().anyMatch(comparison -> comparison.isSlower(alpha));
+        Assert.assertTrue(slowerDetected, "No step was significantly slower for " + glitchUser
+                + " at alpha " + alpha + ":" + System.lineSeparator() + table);
+    }
+
+    /**
+     * Login, add an item, check out and log out again, timing every screen transition
+     */
+    private void runJourney(String username, Map<String, List<Duration>> samples) {
+        loginPage.waitForLoginPage();
+        loginPage.enterCredentials(username, ConfigReader.getProperty("test.password", "secret_sauce"));
+        time(samples, "LOGIN", "PRODUCTS", loginPage::clickLoginButton, productsPage::waitForProductsPageToLoad);
+
+        productsPage.addFirstItemToCart();
+        time(samples, "PRODUCTS", "CART", productsPage::tapCartIcon, cartPage::waitForCartPageToLoad);
+        time(samples, "CART", "CHECKOUT: INFORMATION",
+                cartPage::clickCheckoutButton, checkoutPage::waitForCheckoutInformationPageToLoad);
+
+        checkoutPage.fillShippingInfo(ConfigReader.getProperty("test.first.name", "John"),
+                ConfigReader.getProperty("test.last.name", "Doe"), ConfigReader.getProperty("test.zip.code", "12345"));
+        time(samples, "CHECKOUT: INFORMATION", "CHECKOUT: OVERVIEW",
+                checkoutPage::clickContinue, checkoutPage::waitForCheckoutOverviewPageToLoad);
+
+        checkoutPage.scrollToFinish();
+        time(samples, "CHECKOUT: OVERVIEW", "CHECKOUT: COMPLETE",
+                checkoutPage::clickFinish, checkoutPage::waitForCheckoutCompletePageToLoad);
+        time(samples, "CHECKOUT: COMPLETE", "PRODUCTS",
+                checkoutPage::clickBackHome, productsPage::waitForProductsPageToLoad);
+
+        menuPage.openMenu();
+        menuPage.logout();
+    }
+
+    private void time(Map<String, List<Duration>> samples, String from, String to,
+                      Runnable trigger, Runnable waitForTarget) {
+        Duration latency = loginPage.timeTransition(from, to, trigger, waitForTarget);
+        samples.computeIfAbsent(from + " -> " + to, step -> new ArrayList<>()).add(latency);
+    }
+}
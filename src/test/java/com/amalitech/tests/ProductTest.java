@@ -1,6 +1,7 @@
 package com.amalitech.tests;
 
 import com.amalitech.base.BaseTest;
+import com.amalitech.listeners.Retryable;
 import com.amalitech.pages.LoginPage;
 import com.amalitech.pages.ProductsPage;
 import com.amalitech.utils.WaitUtils;
@@ -15,6 +16,7 @@ import org.testng.annotations.Test;
 import java.time.Duration;
 import java.util.Arrays;
 
+@Retryable
 public class ProductTest extends BaseTest {
 
     private LoginPage loginPage;
@@ -23,9 +25,9 @@ public class ProductTest extends BaseTest {
 
     @BeforeClass
     public void setUpClass() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // One-time setup to login and get to products page
         setupOnce();
@@ -84,9 +86,9 @@ public class ProductTest extends BaseTest {
             System.out.println("Performing login...");
 
             // Direct login without navigation
-            WebElement usernameField = driver.findElement(AppiumBy.accessibilityId("test-Username"));
-            WebElement passwordField = driver.findElement(AppiumBy.accessibilityId("test-Password"));
-            WebElement loginButton = driver.findElement(AppiumBy.accessibilityId("test-LOGIN"));
+            WebElement usernameField = getDriver().findElement(AppiumBy.accessibilityId("test-Username"));
+            WebElement passwordField = getDriver().findElement(AppiumBy.accessibilityId("test-Password"));
+            WebElement loginButton = getDriver().findElement(AppiumBy.accessibilityId("test-LOGIN"));
 
             usernameField.clear();
             usernameField.sendKeys("standard_user");
@@ -248,7 +250,7 @@ public class ProductTest extends BaseTest {
             swipe.addAction(finger.createPointerMove(Duration.ofMillis(1000),
                     PointerInput.Origin.viewport(), end.getX(), end.getY()));
             swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-            driver.perform(Arrays.asList(swipe));
+            getDriver().perform(Arrays.asList(swipe));
             System.out.println("✓ Performed swipe gesture");
         } catch (Exception e) {
             System.err.println("Failed to perform swipe: " + e.getMessage());
@@ -257,7 +259,7 @@ public class ProductTest extends BaseTest {
 
     private boolean isElementVisible(String uiSelector) {
         try {
-            WebElement element = driver.findElement(AppiumBy.androidUIAutomator(uiSelector));
+            WebElement element = getDriver().findElement(AppiumBy.androidUIAutomator(uiSelector));
             boolean isDisplayed = element.isDisplayed();
             return isDisplayed;
         } catch (Exception e) {
@@ -9,14 +9,14 @@ public class QuickTest extends BaseTest {
 
     @Test
     public void testBasicSetup() {
-        LoginPage loginPage = new LoginPage(driver);
+        LoginPage loginPage = new LoginPage(getDriver());
 
         // Wait for app to load
-        waitUtils.hardWait(3);
+        getWaitUtils().hardWait(3);
 
         // Basic verification that everything is working
-        System.out.println("Driver initialized: " + (driver != null));
-        System.out.println("WaitUtils initialized: " + (waitUtils != null));
+        System.out.println("Driver initialized: " + (getDriver() != null));
+        System.out.println("WaitUtils initialized: " + (getWaitUtils() != null));
         System.out.println("Constants accessible: " + AppConstants.STANDARD_USER);
 
         // Try basic page interaction
@@ -0,0 +1,98 @@
+package com.amalitech.tests;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.metrics.ScreenTransitions;
+import com.amalitech.pages.CartPage;
+import com.amalitech.pages.CheckoutPage;
+import com.amalitech.pages.LoginPage;
+import com.amalitech.pages.MenuPage;
+import com.amalitech.pages.ProductsPage;
+import com.amalitech.utils.ConfigReader;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+/**
+ * Repeats key screen transitions and asserts their latency SLOs on this device.
+ * Runs and limits come from transition.runs and slo.transition.*.
+ */
+public class ScreenTransitionTest extends BaseTest {
+
+    private static final String LOGIN = "LOGIN";
+    private static final String PRODUCTS = "PRODUCTS";
+    private static final String CART = "CART";
+    private static final String CHECKOUT_INFORMATION = "CHECKOUT: INFORMATION";
+
+    private LoginPage loginPage;
+    private ProductsPage productsPage;
+    private CartPage cartPage;
+    private CheckoutPage checkoutPage;
+    private MenuPage menuPage;
+    private int runs;
+
+    @BeforeMethod
+    public void setUp() {
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
+        menuPage = new MenuPage(getDriver());
+        runs = ConfigReader.getInt("transition.runs", 5);
+
+        loginPage.navigateToLoginIfNeeded();
+    }
+
+    @Test(description = "Tap LOGIN until PRODUCTS is visible stays within its SLO")
+    public void testLoginToProductsLatency() {
+        for (int run = 1; run <= runs; run++) {
+            loginPage.waitForLoginPage();
+            loginPage.enterCredentials(ConfigReader.getProperty("test.username.standard", "standard_user"),
+                    ConfigReader.getProperty("test.password", "secret_sauce"));
+            Duration latency = loginPage.measureTransition(LOGIN, PRODUCTS,
+                    loginPage::clickLoginButton, productsPage::waitForProductsPageToLoad);
+            System.out.println("Run " + run + ": " + LOGIN + " -> " + PRODUCTS + " " + latency.toMillis() + " ms");
+
+            menuPage.openMenu();
+            menuPage.logout();
+        }
+
+        ScreenTransitions.Transition transition =
+                ScreenTransitions.transition(LOGIN, PRODUCTS, ScreenTransitions.getDevice());
+        System.out.println(transition);
+        transition.assertPercentileBelow(95,
+                ConfigReader.getDuration("slo.transition.login.products.p95", Duration.ofMillis(1500)));
+    }
+
+    @Test(description = "Tap CHECKOUT until CHECKOUT: INFORMATION is visible stays within its SLO")
+    public void testCartToCheckoutLatency() {
+        loginPage.loginWithStandardUser();
+        productsPage.waitForProductsPageToLoad();
+        productsPage.addFirstItemToCart();
+        productsPage.clickCartIcon();
+        cartPage.waitForCartPageToLoad();
+
+        try {
+            for (int run = 1; run <= runs; run++) {
+                Duration latency = cartPage.measureTransition(CART, CHECKOUT_INFORMATION,
+                        cartPage::clickCheckoutButton, checkoutPage::waitForCheckoutInformationPageToLoad);
+                System.out.println("Run " + run + ": " + CART + " -> " + CHECKOUT_INFORMATION + " "
+                        + latency.toMillis() + " ms");
+
+                checkoutPage.clickCancel();
+                cartPage.waitForCartPageToLoad();
+            }
+        } finally {
+            menuPage.openMenu();
+            // The menu stays open after a reset
+            menuPage.resetAppState();
+            menuPage.logout();
+        }
+
+        ScreenTransitions.Transition transition =
+                ScreenTransitions.transition(CART, CHECKOUT_INFORMATION, ScreenTransitions.getDevice());
+        System.out.println(transition);
+        transition.assertPercentileBelow(95,
+                ConfigReader.getDuration("slo.transition.cart.checkout.p95", Duration.ofMillis(1500)));
+    }
+}
@@ -0,0 +1,123 @@
+package com.amalitech.tests;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.evidence.LogcatStreamer;
+import com.amalitech.metrics.FrameStats;
+import com.amalitech.metrics.LatencyBaseline;
+import com.amalitech.metrics.SampleStats;
+import com.amalitech.metrics.ScrollBenchmark;
+import com.amalitech.pages.LoginPage;
+import com.amalitech.pages.ProductsPage;
+import com.amalitech.utils.ConfigReader;
+import com.amalitech.utils.ProductCatalog;
+import io.qameta.allure.Allure;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scroll jank benchmark of the Products grid. Each speed runs the same fling script several
+ * times; the janky frame percentage and the frame time percentiles of every run are written to
+ * target/scroll and compared against the device's committed baseline in scroll.baseline.dir; the
+ * test is skipped when the device has none. A run with scroll.baseline.update=true records a new
+ * baseline to target/scroll/baselines instead, to be copied into scroll.baseline.dir and committed.
+ */
+public class ScrollJankTest extends BaseTest {
+
+    private LoginPage loginPage;
+    private ProductsPage productsPage;
+
+    @BeforeMethod
+    public void setUp() {
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+
+        loginPage.navigateToLoginIfNeeded();
+        loginPage.loginWithStandardUser();
+        productsPage.waitForProductsPageToLoad();
+    }
+
+    @Test(description = "Flinging the products grid stays within the device's jank baseline")
+    public void testProductsGridScrollJank() throws IOException {
+        int runs = ConfigReader.getInt("scroll.runs", 5);
+        int flings = ConfigReader.getInt("scroll.flings", 6);
+        String appPackage = ConfigReader.getProperty("app.package", "com.swaglabsmobileapp");
+        ScrollBenchmark benchmark = new ScrollBenchmark(getDriver(), appPackage, productsPage::flingGrid, flings,
+                ConfigReader.getDuration("scroll.settle", Duration.ofMillis(800)));
+
+        Map<String, List<Duration>> samples = new LinkedHashMap<>();
+        Map<String, List<Double>> ratios = new LinkedHashMap<>();
+        StringBuilder report = new StringBuilder();
+        for (ScrollBenchmark.Speed speed : ScrollBenchmark.Speed.values()) {
+            List<FrameStats> results = benchmark.run(speed, runs);
+            ScrollBenchmark.collect(speed, results, samples, ratios);
+            for (int i = 0; i < results.size(); i++) {
+                report.append(speed).append(" run ").append(i + 1).append(": ").append(results.get(i))
+                        .append(System.lineSeparator());
+            }
+        }
+        report.append(System.lineSeparator()).append(SampleStats.header());
+        samples.forEach((metric, values) -> report.append(new SampleStats(values).toRow(metric)));
+
+        String device = String.valueOf(LogcatStreamer.deviceId(getDriver()));
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("device", device);
+        attributes.put("appVersion", ProductCatalog.resolveAppVersion(getDriver()));
+        attributes.put("runs", String.valueOf(runs));
+        attributes.put("flings", String.valueOf(flings));
+        LatencyBaseline current = new LatencyBaseline(attributes, samples, ratios);
+
+        String fileName = "scroll-products-" + device.replaceAll("[^A-Za-z0-9._-]", "_") + ".json";
+        current.write(Paths.get("target", "scroll", fileName));
+        Path baselineFile = Paths.get(ConfigReader.getProperty("scroll.baseline.dir", "src/test/resources/baselines"))
+                .resolve(fileName);
+
+        if (ConfigReader.getBoolean("scroll.baseline.update", false)) {
+            Path recorded = Paths.get("target", "scroll", "baselines", fileName);
+            current.write(recorded);
+            report.append(System.lineSeparator()).append("Baseline recorded to ").append(recorded)
+                    .append("; copy it to ").append(baselineFile).append(" and commit it to promote it");
+            publish(report.toString());
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            publish(report.toString());
+            throw new SkipException("No scroll baseline for " + device + " at " + baselineFile
+                    + "; record one with -Dscroll.baseline.update=true");
+        }
+
+        double tolerance = Double.parseDouble(ConfigReader.getProperty("scroll.regression.tolerance", "0.10"));
+        double alpha = Double.parseDouble(ConfigReader.getProperty("scroll.regression.alpha", "0.05"));
+        double jankTolerance = Double.parseDouble(ConfigReader.getProperty("scroll.jank.tolerance", "2.0"));
+        LatencyBaseline baseline = LatencyBaseline.read(baselineFile);
+        List<LatencyBaseline.Check> checks = baseline.compare(current, tolerance, alpha);
+        List<LatencyBaseline.RatioCheck> jankChecks = baseline.compareRatios(current, jankTolerance);
+        report.append(System.lineSeparator()).append("Against ").append(baselineFile).append(':');
+        for (LatencyBaseline.RatioCheck check : jankChecks) {
+            report.append(System.lineSeparator()).append(check);
+        }
+        for (LatencyBaseline.Check check : checks) {
+            report.append(System.lineSeparator()).append(check);
+        }
+        publish(report.toString());
+
+        Assert.assertTrue(jankChecks.stream().noneMatch(LatencyBaseline.RatioCheck::isRegressed)
+                        && checks.stream().noneMatch(LatencyBaseline.Check::isRegressed),
+                "Scrolling regressed against the baseline:" + System.lineSeparator() + report);
+    }
+
+    private static void publish(String report) {
+        System.out.println("Scroll jank benchmark:" + System.lineSeparator() + report);
+        Allure.addAttachment("Scroll jank benchmark", "text/plain", report, ".txt");
+    }
+}
@@ -17,7 +17,7 @@ public class SimpleLoginTest extends BaseTest {
 
     @BeforeMethod
     public void setUp() {
-        loginPage = new LoginPage(driver);
+        loginPage = new LoginPage(getDriver());
 
         // Wait for app to load and navigate to login if needed
         try {
@@ -43,7 +43,7 @@ public class SimpleLoginTest extends BaseTest {
             loginPage.login("standard_user", "secret_sauce");
 
             // Wait for products page to load
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+            WebDriverWait wait = new WebDriverWait(getDriver(), Duration.ofSeconds(10));
             WebElement productsTitle = wait.until(ExpectedConditions.presenceOfElementLocated(
                     AppiumBy.androidUIAutomator("new UiSelector().text(\"PRODUCTS\")")
             ));
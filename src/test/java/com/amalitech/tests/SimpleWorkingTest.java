@@ -16,9 +16,9 @@ public class SimpleWorkingTest extends BaseTest {
 
     @BeforeMethod
     public void setUp() {
-        loginPage = new LoginPage(driver);
-        productsPage = new ProductsPage(driver);
-        waitUtils = new WaitUtils(driver);
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        waitUtils = new WaitUtils(getDriver());
 
         // Wait for app to load
         try {
@@ -0,0 +1,184 @@
+package com.amalitech.tests;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.evidence.CrashWatcher;
+import com.amalitech.evidence.LogcatStreamer;
+import com.amalitech.metrics.SoakRecorder;
+import com.amalitech.metrics.Trend;
+import com.amalitech.pages.CartPage;
+import com.amalitech.pages.CheckoutPage;
+import com.amalitech.pages.LoginPage;
+import com.amalitech.pages.MenuPage;
+import com.amalitech.pages.ProductsPage;
+import com.amalitech.utils.ConfigReader;
+import io.qameta.allure.Allure;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Soak run: repeats the login, add to cart, cart, checkout and logout journey on this session's
+ * device until soak.duration has passed or soak.iterations journeys have run, whichever comes first.
+ * Every iteration is written to target/soak, and at the end each series is checked for a steady
+ * rise that points at a leak or a slowdown. A failed journey restarts the app, or starts a new
+ * session if the app crashed, and the run goes on until soak.max.consecutive.failures journeys in
+ * a row have failed.
+ * <p>
+ * Everything goes through the Appium session, so it runs unchanged against a local stand-in
+ * server; app memory is then simply not tracked when the resource sampler cannot reach a device.
+ */
+public class SoakTest extends BaseTest {
+
+    private static final List<String> STEPS = Arrays.asList("login", "add_to_cart", "cart", "checkout", "logout");
+
+    private LoginPage loginPage;
+    private ProductsPage productsPage;
+    private CartPage cartPage;
+    private CheckoutPage checkoutPage;
+    private MenuPage menuPage;
+
+    @BeforeMethod
+    public void setUp() {
+        createPages();
+        loginPage.navigateToLoginIfNeeded();
+    }
+
+    private void createPages() {
+        loginPage = new LoginPage(getDriver());
+        productsPage = new ProductsPage(getDriver());
+        cartPage = new CartPage(getDriver());
+        checkoutPage = new CheckoutPage(getDriver());
+        menuPage = new MenuPage(getDriver());
+    }
+
+    @Test(description = "Repeated end-to-end journeys show no growing latency, memory or threads")
+    public void testSoakEndToEndJourney() throws IOException {
+        Duration duration = ConfigReader.getDuration("soak.duration", Duration.ofMinutes(30));
+        int maxIterations = ConfigReader.getInt("soak.iterations", 0);
+        int maxConsecutiveFailures = ConfigReader.getInt("soak.max.consecutive.failures", 3);
+        String device = String.valueOf(LogcatStreamer.deviceId(getDriver()));
+        String fileName = "soak-" + device.replaceAll("[^A-Za-z0-9._-]", "_");
+        Path directory = Paths.get(ConfigReader.getProperty("soak.dir", "target/soak"));
+
+        try (SoakRecorder recorder = new SoakRecorder(device, STEPS, SoakRecorder::sampledAppMemoryKb,
+                ConfigReader.getBoolean("soak.gc.before.heap", true), directory.resolve(fileName + ".csv"))) {
+            long deadline = System.nanoTime() + duration.toNanos();
+            int consecutiveFailures = 0;
+            while (System.nanoTime() < deadline && (maxIterations <= 0 || recorder.getIterations() < maxIterations)) {
+                boolean succeeded = runJourney(recorder);
+                recorder.endIteration(succeeded);
+                consecutiveFailures = succeeded ? 0 : consecutiveFailures + 1;
+                System.out.println("Soak iteration " + recorder.getIterations() + (succeeded ? " passed" : " failed"));
+                if (consecutiveFailures >= maxConsecutiveFailures) {
+                    Assert.fail(consecutiveFailures + " soak iterations failed in a row on " + device
+                            + " after " + recorder.getIterations() + " iterations");
+                }
+            }
+
+            double alpha = Double.parseDouble(ConfigReader.getProperty("soak.trend.alpha", "0.01"));
+            double tolerance = Double.parseDouble(ConfigReader.getProperty("soak.trend.tolerance", "0.10"));
+            int minIterations = ConfigReader.getInt("soak.trend.min.iterations", 10);
+            String report = recorder.report(alpha, tolerance, minIterations);
+            List<String> growing = recorder.trends().stream()
+                    .filter(trend -> trend.isGrowing(alpha, tolerance, minIterations))
+                    .map(Trend::getSeries)
+                    .collect(Collectors.toList());
+
+            Files.createDirectories(directory);
+            Files.write(directory.resolve(fileName + "-trends.txt"), report.getBytes(StandardCharsets.UTF_8));
+            System.out.println("Soak trends:" + System.lineSeparator() + report);
+            Allure.addAttachment("Soak trends - " + device, "text/plain", report, ".txt");
+            if (recorder.getOutput() != null && Files.exists(recorder.getOutput())) {
+                Allure.addAttachment("Soak iterations - " + device, "text/csv",
+                        Files.readString(recorder.getOutput()), ".csv");
+            }
+
+            Assert.assertTrue(growing.isEmpty(), "Growing over the soak run: " + growing
+                    + System.lineSeparator() + report);
+        }
+    }
+
+    /**
+     * One journey, timing each step; on failure the app is restarted at the login screen
+     */
+    private boolean runJourney(SoakRecorder recorder) {
+        try {
+            recorder.time("login", () -> {
+                loginPage.waitForLoginPage();
+                loginPage.loginWithStandardUser();
+                productsPage.waitForProductsPageToLoad();
+            });
+            recorder.time("add_to_cart", productsPage::addFirstItemToCart);
+            recorder.time("cart", () -> {
+                productsPage.tapCartIcon();
+                cartPage.waitForCartPageToLoad();
+            });
+            recorder.time("checkout", () -> {
+                cartPage.clickCheckoutButton();
+                checkoutPage.waitForCheckoutInformationPageToLoad();
+                checkoutPage.completeCheckoutWithTimings(ConfigReader.getProperty("test.first.name", "John"),
+                        ConfigReader.getProperty("test.last.name", "Doe"),
+                        ConfigReader.getProperty("test.zip.code", "12345"));
+            });
+            recorder.time("logout", () -> {
+                menuPage.openMenu();
+                menuPage.logout();
+                loginPage.waitForLoginPage();
+            });
+            return true;
+        } catch (RuntimeException | AssertionError e) {
+            System.err.println("Soak journey failed: " + e.getMessage());
+            CrashWatcher watcher = CrashWatcher.current();
+            if (watcher != null && watcher.getCrash() != null) {
+                recoverFromCrash(watcher);
+            } else {
+                restartApp();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Restart the app at the login screen; the intentional stop is hidden from the crash watcher
+     */
+    private void restartApp() {
+        String appPackage = ConfigReader.getProperty("app.package", "com.swaglabsmobileapp");
+        try (CrashWatcher.Suspension ignored = CrashWatcher.suspendCurrent()) {
+            getDriver().terminateApp(appPackage);
+            getDriver().activateApp(appPackage);
+            loginPage.navigateToLoginIfNeeded();
+        } catch (RuntimeException e) {
+            System.err.println("Could not restart the app: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A recorded crash fails every later wait of its session, so continue on a new session,
+     * watched for crashes like the one the test started on
+     */
+    private void recoverFromCrash(CrashWatcher crashed) {
+        System.err.println("App crashed during the soak run: " + crashed.getCrash());
+        crashed.unwatch();
+        recycleSession();
+        CrashWatcher fresh = CrashWatcher.current();
+        if (fresh != null) {
+            fresh.watch(Thread.currentThread());
+        }
+        createPages();
+        try {
+            loginPage.navigateToLoginIfNeeded();
+        } catch (RuntimeException e) {
+            System.err.println("Could not reach the login screen on the new session: " + e.getMessage());
+        }
+    }
+}
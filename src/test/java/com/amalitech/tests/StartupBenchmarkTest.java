@@ -0,0 +1,89 @@
+package com.amalitech.tests;
+
+import com.amalitech.base.BaseTest;
+import com.amalitech.evidence.LogcatStreamer;
+import com.amalitech.metrics.LatencyBaseline;
+import com.amalitech.metrics.SampleStats;
+import com.amalitech.metrics.StartupBenchmark;
+import com.amalitech.utils.ConfigReader;
+import com.amalitech.utils.ProductCatalog;
+import io.qameta.allure.Allure;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold and warm start benchmark of SplashActivity up to the login screen.
+ * Results are written to target/startup and compared against the device's committed baseline in
+ * startup.baseline.dir; the test is skipped when the device has none. A run with
+ * startup.baseline.update=true records a new baseline to target/startup/baselines instead, to be
+ * copied into startup.baseline.dir and committed.
+ */
+public class StartupBenchmarkTest extends BaseTest {
+
+    @Test(description = "Cold and warm start times stay within the device baseline")
+    public void testColdAndWarmStartup() throws IOException {
+        int iterations = ConfigReader.getInt("startup.iterations", 10);
+        StartupBenchmark benchmark = StartupBenchmark.forLoginScreen(getDriver());
+
+        Map<String, List<Duration>> samples = new LinkedHashMap<>();
+        StartupBenchmark.samples(benchmark.run(StartupBenchmark.Mode.COLD, iterations), samples);
+        StartupBenchmark.samples(benchmark.run(StartupBenchmark.Mode.WARM, iterations), samples);
+
+        StringBuilder report = new StringBuilder(SampleStats.header());
+        samples.forEach((metric, values) -> report.append(new SampleStats(values).toRow(metric)));
+
+        String device = String.valueOf(LogcatStreamer.deviceId(getDriver()));
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("device", device);
+        attributes.put("appVersion", ProductCatalog.resolveAppVersion(getDriver()));
+        attributes.put("activity", ConfigReader.getProperty("app.activity", "com.swaglabsmobileapp/.SplashActivity"));
+        attributes.put("iterations", String.valueOf(iterations));
+        LatencyBaseline current = new LatencyBaseline(attributes, samples);
+
+        String fileName = "startup-" + device.replaceAll("[^A-Za-z0-9._-]", "_") + ".json";
+        current.write(Paths.get("target", "startup", fileName));
+        Path baselineFile = Paths.get(ConfigReader.getProperty("startup.baseline.dir", "src/test/resources/baselines"))
+                .resolve(fileName);
+
+        if (ConfigReader.getBoolean("startup.baseline.update", false)) {
+            Path recorded = Paths.get("target", "startup", "baselines", fileName);
+            current.write(recorded);
+            report.append(System.lineSeparator()).append("Baseline recorded to ").append(recorded)
+                    .append("; copy it to ").append(baselineFile).append(" and commit it to promote it");
+            publish(report.toString());
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            publish(report.toString());
+            throw new SkipException("No startup baseline for " + device + " at " + baselineFile
+                    + "; record one with -Dstartup.baseline.update=true");
+        }
+
+        double tolerance = Double.parseDouble(ConfigReader.getProperty("startup.regression.tolerance", "0.10"));
+        double alpha = Double.parseDouble(ConfigReader.getProperty("startup.regression.alpha", "0.05"));
+        List<LatencyBaseline.Check> checks = LatencyBaseline.read(baselineFile).compare(current, tolerance, alpha);
+        report.append(System.lineSeparator()).append("Against ").append(baselineFile).append(':');
+        for (LatencyBaseline.Check check : checks) {
+            report.append(System.lineSeparator()).append(check);
+        }
+        publish(report.toString());
+
+        Assert.assertTrue(checks.stream().noneMatch(LatencyBaseline.Check::isRegressed),
+                "Startup regressed against the baseline:" + System.lineSeparator() + report);
+    }
+
+    private static void publish(String report) {
+        System.out.println("Startup benchmark:" + System.lineSeparator() + report);
+        Allure.addAttachment("Startup benchmark", "text/plain", report, ".txt");
+    }
+}
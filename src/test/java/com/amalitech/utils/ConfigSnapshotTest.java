@@ -0,0 +1,66 @@
+package com.amalitech.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class ConfigSnapshotTest {
+
+    @Test(description = "Typed values are parsed from the classpath file")
+    public void testTypedValues() {
+        ConfigSnapshot config = ConfigSnapshot.load(Collections.emptyMap(), new Properties());
+
+        Assert.assertEquals(config.getDuration(ConfigReader.WAIT_TIMEOUT_DEFAULT, Duration.ZERO), Duration.ofSeconds(15));
+        Assert.assertEquals(config.getInt(ConfigReader.TEST_RETRY_COUNT, -1), 1);
+        Assert.assertTrue(config.getBoolean("capability.noReset", false));
+        Assert.assertEquals(config.getInt("device.name", 7), 7, "Non-numeric values fall back to the default");
+    }
+
+    @Test(description = "Profile, environment and system property layers override in order")
+    public void testLayerOrder() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("CONFIG_PROFILE", "ci");
+        environment.put("TEST_RETRY_COUNT", "3");
+        environment.put("WAIT_TIMEOUT_SHORT", "750ms");
+        environment.put("UNRELATED_VARIABLE", "ignored");
+        Properties system = new Properties();
+        system.setProperty("test.retry.count", "4");
+
+        ConfigSnapshot config = ConfigSnapshot.load(environment, system);
+
+        Assert.assertEquals(config.getDuration(ConfigReader.WAIT_TIMEOUT_DEFAULT, Duration.ZERO), Duration.ofSeconds(30),
+                "Profile file should override the base file");
+        Assert.assertEquals(config.getDuration(ConfigReader.WAIT_TIMEOUT_SHORT, Duration.ZERO), Duration.ofMillis(750),
+                "Environment should override the base file");
+        Assert.assertEquals(config.getInt(ConfigReader.TEST_RETRY_COUNT, -1), 4,
+                "System properties should override the environment");
+        Assert.assertFalse(config.contains("unrelated.variable"));
+    }
+
+    @Test(description = "Duration suffixes are understood")
+    public void testDurationFormats() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "2m");
+        values.put("b", "5s");
+        values.put("c", "bogus");
+        values.put("d", "4h");
+        values.put("e", "PT1H30M");
+        values.put("f", " ");
+        ConfigSnapshot config = ConfigSnapshot.of(values);
+
+        Assert.assertEquals(config.getDuration("a", Duration.ZERO), Duration.ofMinutes(2));
+        Assert.assertEquals(config.getDuration("b", Duration.ZERO), Duration.ofSeconds(5));
+        Assert.assertEquals(config.getDuration("d", Duration.ZERO), Duration.ofHours(4));
+        Assert.assertEquals(config.getDuration("e", Duration.ZERO), Duration.ofMinutes(90));
+        Assert.assertEquals(config.getDuration("f", Duration.ofSeconds(1)), Duration.ofSeconds(1));
+        Assert.assertEquals(config.getDuration("missing", Duration.ofSeconds(1)), Duration.ofSeconds(1));
+        IllegalArgumentException invalid = Assert.expectThrows(IllegalArgumentException.class,
+                () -> config.getDuration("c", Duration.ofSeconds(1)));
+        Assert.assertTrue(invalid.getMessage().contains("c: 'bogus'"), invalid.getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package com.amalitech.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ListHarvesterTest {
+
+    // Overlapping windows of a list of five rows, as a scrolling screen would show them
+    private static final List<List<String>> WINDOWS = Arrays.asList(
+            Arrays.asList("A", "B", "C"),
+            Arrays.asList("C", "D"),
+            Arrays.asList("D", "E"),
+            Arrays.asList("D", "E"));
+
+    private int position;
+    private int forwardScrolls;
+    private int backScrolls;
+
+    private ListHarvester<String> harvester() {
+        position = 0;
+        forwardScrolls = 0;
+        backScrolls = 0;
+        return new ListHarvester<>(() -> window(WINDOWS.get(position)), ListHarvesterTest::rows,
+                row -> row, () -> {
+                    position = Math.min(position + 1, WINDOWS.size() - 1);
+                    forwardScrolls++;
+                })
+                .restoreWith(() -> backScrolls++);
+    }
+
+    @Test(description = "Harvester drops rows seen in earlier windows and stops on a window with nothing new")
+    public void testHarvestAllDeduplicatesAndStops() {
+        List<String> rows = harvester().harvestAll();
+
+        Assert.assertEquals(rows, Arrays.asList("A", "B", "C", "D", "E"));
+        Assert.assertEquals(forwardScrolls, 3, "Should stop after the first window without new rows");
+        Assert.assertEquals(backScrolls, 3, "Should scroll back once per forward scroll");
+    }
+
+    @Test(description = "Harvester only scrolls as far as the consumer reads")
+    public void testStreamIsLazy() {
+        try (Stream<String> rows = harvester().stream()) {
+            Assert.assertEquals(rows.findFirst().orElse(null), "A");
+        }
+        Assert.assertEquals(forwardScrolls, 0, "First row is on the first window, no scroll needed");
+        Assert.assertEquals(backScrolls, 0);
+    }
+
+    @Test(description = "Harvester stops scrolling once the end-of-list marker is visible")
+    public void testStopWhenEndOfListVisible() {
+        List<String> rows = harvester().stopWhen(snapshot -> snapshot.containsText("D")).harvestAll();
+
+        Assert.assertEquals(rows, Arrays.asList("A", "B", "C", "D"));
+        Assert.assertEquals(forwardScrolls, 1);
+    }
+
+    private static UiSnapshot window(List<String> rows) {
+        String nodes = rows.stream()
+                .map(row -> "<node content-desc=\"row\" text=\"" + row + "\"/>")
+                .collect(Collectors.joining());
+        return UiSnapshot.parse("<hierarchy>" + nodes + "</hierarchy>");
+    }
+
+    private static List<String> rows(UiSnapshot snapshot) {
+        List<String> rows = new ArrayList<>();
+        for (Element row : snapshot.findByContentDesc("row")) {
+            rows.add(row.getAttribute("text"));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,60 @@
+package com.amalitech.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PairwiseGeneratorTest {
+
+    private static Map<String, List<String>> domains() {
+        Map<String, List<String>> domains = new LinkedHashMap<>();
+        domains.put("browser", Arrays.asList("a", "b", "c", "d"));
+        domains.put("os", Arrays.asList("x", "y", "z"));
+        domains.put("locale", Arrays.asList("en", "fr", "de"));
+        domains.put("network", Arrays.asList("wifi", "4g"));
+        return domains;
+    }
+
+    @Test(description = "Every value pair of every two factors appears in at least one row")
+    public void testAllPairsCovered() {
+        Map<String, List<String>> domains = domains();
+        List<Map<String, String>> rows = new PairwiseGenerator(7).generate(domains);
+
+        List<String> factors = Arrays.asList(domains.keySet().toArray(new String[0]));
+        for (int a = 0; a < factors.size(); a++) {
+            for (int b = a + 1; b < factors.size(); b++) {
+                for (String va : domains.get(factors.get(a))) {
+                    for (String vb : domains.get(factors.get(b))) {
+                        String fa = factors.get(a);
+                        String fb = factors.get(b);
+                        boolean covered = rows.stream()
+                                .anyMatch(row -> va.equals(row.get(fa)) && vb.equals(row.get(fb)));
+                        Assert.assertTrue(covered, "Missing pair " + fa + "=" + va + ", " + fb + "=" + vb);
+                    }
+                }
+            }
+        }
+        Assert.assertTrue(rows.size() < 4 * 3 * 3 * 2, "Pairwise set should be smaller than the full product");
+        Assert.assertTrue(rows.size() >= 4 * 3, "Pairwise set cannot be smaller than the two largest domains");
+    }
+
+    @Test(description = "The same seed gives the same rows")
+    public void testDeterministicForSeed() {
+        Object[][] first = new PairwiseGenerator(42).generateRows(domains());
+        Object[][] second = new PairwiseGenerator(42).generateRows(domains());
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first[0].length, 4, "Rows should have one column per factor");
+    }
+
+    @Test(description = "Factors without values are rejected", expectedExceptions = IllegalArgumentException.class)
+    public void testEmptyDomain() {
+        Map<String, List<String>> domains = new LinkedHashMap<>();
+        domains.put("empty", Arrays.asList());
+        new PairwiseGenerator(1).generate(domains);
+    }
+}
@@ -0,0 +1,52 @@
+package com.amalitech.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+public class PerceptualHashTest {
+
+    static BufferedImage screen(Color banner, boolean cursor) {
+        BufferedImage image = new BufferedImage(360, 640, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 360, 640);
+        g.setColor(banner);
+        g.fillRect(0, 0, 360, 120);
+        g.setColor(Color.DARK_GRAY);
+        for (int row = 0; row < 4; row++) {
+            g.fillRect(20 + row * 40, 160 + row * 110, 160, 80);
+        }
+        if (cursor) {
+            g.setColor(Color.BLACK);
+            g.fillRect(300, 600, 2, 12);
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Test(description = "Tiny rendering differences keep the hash within a few bits")
+    public void testNearDuplicate() {
+        long withCursor = PerceptualHash.dHash(screen(Color.RED, true));
+        long withoutCursor = PerceptualHash.dHash(screen(Color.RED, false));
+
+        Assert.assertTrue(PerceptualHash.distance(withCursor, withoutCursor) <= 4);
+    }
+
+    @Test(description = "A different screen moves the hash far away")
+    public void testDifferentScreen() {
+        BufferedImage inverted = screen(Color.RED, false);
+        for (int y = 0; y < inverted.getHeight(); y++) {
+            for (int x = 0; x < inverted.getWidth(); x++) {
+                inverted.setRGB(x, y, ~inverted.getRGB(x, y));
+            }
+        }
+
+        long original = PerceptualHash.dHash(screen(Color.RED, false));
+        Assert.assertTrue(PerceptualHash.distance(original, PerceptualHash.dHash(inverted)) > 10);
+        Assert.assertEquals(PerceptualHash.distance(original, original), 0);
+    }
+}
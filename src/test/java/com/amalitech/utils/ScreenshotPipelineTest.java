@@ -0,0 +1,181 @@
+package com.amalitech.utils;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScreenshotPipelineTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 1, 2, 3};
+
+    private final TempDirectories tempDirectories = new TempDirectories();
+
+    private static TakesScreenshot fakeDriver() {
+        return new TakesScreenshot() {
+            @Override
+            public <X> X getScreenshotAs(OutputType<X> target) {
+                return target.convertFromBase64Png(Base64.getEncoder().encodeToString(PNG));
+            }
+        };
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteTempDirectories() {
+        tempDirectories.deleteAll();
+    }
+
+    @Test(description = "Screenshots are decoded and written in the background")
+    public void testWritesScreenshot() throws Exception {
+        Path directory = tempDirectories.create("screenshots");
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(directory, 1, 2, true);
+
+        Path target = pipeline.capture(fakeDriver(), "Login test/valid", ScreenshotPipeline.Kind.STEP);
+
+        Assert.assertNotNull(target);
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        Assert.assertEquals(Files.readAllBytes(target), PNG);
+        Assert.assertFalse(target.getFileName().toString().contains("/"));
+        Assert.assertEquals(pipeline.getWrittenCount(), 1);
+    }
+
+    @Test(description = "Step screenshots are dropped instead of blocking when all slots are taken")
+    public void testBackPressureDropsSteps() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(tempDirectories.create("screenshots"), 1, 1, true);
+        List<Path> nested = new ArrayList<>();
+        AtomicInteger depth = new AtomicInteger();
+
+        // Each capture holds its slot while fetching the image, so capturing again from inside
+        // the fetch uses up both slots and the third capture has nowhere to go
+        TakesScreenshot reentrant = new TakesScreenshot() {
+            @Override
+            public <X> X getScreenshotAs(OutputType<X> target) {
+                int level = depth.incrementAndGet();
+                if (level <= 2) {
+                    nested.add(0, pipeline.capture(this, "nested" + level, ScreenshotPipeline.Kind.STEP));
+                }
+                return target.convertFromBase64Png(Base64.getEncoder().encodeToString(PNG));
+            }
+        };
+
+        Path outer = pipeline.capture(reentrant, "outer", ScreenshotPipeline.Kind.STEP);
+
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        Assert.assertNotNull(outer);
+        Assert.assertNotNull(nested.get(0));
+        Assert.assertNull(nested.get(1), "Third concurrent capture should be dropped");
+        Assert.assertEquals(pipeline.getDroppedCount(), 1);
+        Assert.assertEquals(pipeline.getWrittenCount(), 2);
+    }
+
+    @Test(description = "A failure screenshot reports when it has been written")
+    public void testCaptureFailureCompletesWhenWritten() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(tempDirectories.create("screenshots"), 1, 1, true);
+
+        Path written = pipeline.captureFailure(fakeDriver(), "Failure screenshot - CartTest")
+                .get(5, TimeUnit.SECONDS);
+
+        Assert.assertNotNull(written);
+        Assert.assertEquals(Files.readAllBytes(written), PNG);
+    }
+
+    @Test(description = "A disabled pipeline takes no screenshots")
+    public void testDisabled() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(tempDirectories.create("screenshots"), 1, 1, false);
+
+        Assert.assertNull(pipeline.capture(fakeDriver(), "step", ScreenshotPipeline.Kind.FAILURE));
+        Assert.assertNull(pipeline.captureFailure(fakeDriver(), "failure").get(5, TimeUnit.SECONDS));
+    }
+
+    private static TakesScreenshot showing(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        String encoded = Base64.getEncoder().encodeToString(png.toByteArray());
+        return new TakesScreenshot() {
+            @Override
+            public <X> X getScreenshotAs(OutputType<X> target) {
+                return target.convertFromBase64Png(encoded);
+            }
+        };
+    }
+
+    @Test(description = "Step screenshots are not requested again until a screen-changing command")
+    public void testUnchangedScreenIsNotCaptured() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(tempDirectories.create("screenshots"), 1, 2, true, 4,
+                Duration.ZERO);
+        TakesScreenshot driver = showing(PerceptualHashTest.screen(Color.RED, false));
+
+        ScreenChangeTracker.markChanged(null);
+        Path first = pipeline.capture(driver, "cart", ScreenshotPipeline.Kind.STEP);
+        Path second = pipeline.capture(driver, "cart again", ScreenshotPipeline.Kind.STEP);
+        ScreenChangeTracker.markChanged(null);
+        Path third = pipeline.capture(driver, "after tap", ScreenshotPipeline.Kind.STEP);
+
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        Assert.assertEquals(second, first, "Unchanged screen should reuse the previous screenshot");
+        Assert.assertNotEquals(third, first);
+        Assert.assertEquals(pipeline.getUnchangedCount(), 1);
+    }
+
+    @Test(description = "A screenshot taken while the screen may still be updating is not reused")
+    public void testUnsettledScreenIsCapturedAgain() throws Exception {
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(tempDirectories.create("screenshots"), 1, 2, true, 4,
+                Duration.ofMillis(200));
+        TakesScreenshot driver = showing(PerceptualHashTest.screen(Color.RED, false));
+
+        ScreenChangeTracker.markChanged(null);
+        Path first = pipeline.capture(driver, "right after tap", ScreenshotPipeline.Kind.STEP);
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        Thread.sleep(250);
+        Path second = pipeline.capture(driver, "settled", ScreenshotPipeline.Kind.STEP);
+        Path third = pipeline.capture(driver, "still settled", ScreenshotPipeline.Kind.STEP);
+
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        Assert.assertNotEquals(second, first, "The first frame may show the screen mid-transition");
+        Assert.assertEquals(third, second);
+    }
+
+    @Test(description = "Near-duplicate frames are stored as a reference to the previous image")
+    public void testNearDuplicateIsReferenced() throws Exception {
+        Path directory = tempDirectories.create("screenshots");
+        ScreenshotPipeline pipeline = new ScreenshotPipeline(directory, 1, 2, true, 4);
+
+        ScreenChangeTracker.markChanged(null);
+        Path first = pipeline.capture(showing(PerceptualHashTest.screen(Color.RED, true)), "one",
+                ScreenshotPipeline.Kind.STEP);
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        ScreenChangeTracker.markChanged(null);
+        Path second = pipeline.capture(showing(PerceptualHashTest.screen(Color.RED, false)), "two",
+                ScreenshotPipeline.Kind.STEP);
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+        ScreenChangeTracker.markChanged(null);
+        BufferedImage otherScreen = PerceptualHashTest.screen(Color.RED, false);
+        Graphics2D g = otherScreen.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 180, 640);
+        g.dispose();
+        Path third = pipeline.capture(showing(otherScreen), "three", ScreenshotPipeline.Kind.STEP);
+        Assert.assertTrue(pipeline.drain(Duration.ofSeconds(5)));
+
+        Assert.assertEquals(pipeline.getDuplicateCount(), 1);
+        Assert.assertEquals(pipeline.getWrittenCount(), 2);
+        Assert.assertTrue(Files.isSameFile(first, second), "Duplicate should resolve to the first image");
+        Assert.assertFalse(Files.isSymbolicLink(third));
+    }
+}
@@ -0,0 +1,48 @@
+package com.amalitech.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Temporary directories for a test class, deleted with everything in them by
+ * {@link #deleteAll()}, normally from an {@code @AfterMethod(alwaysRun = true)} method
+ */
+public final class TempDirectories {
+
+    private final List<Path> directories = new ArrayList<>();
+
+    public synchronized Path create(String prefix) throws IOException {
+        Path directory = Files.createTempDirectory(prefix);
+        directories.add(directory);
+        return directory;
+    }
+
+    /**
+     * Delete every directory created so far. Files that cannot be deleted, e.g. because a
+     * background writer still holds them, are left for the OS to clean up.
+     */
+    public synchronized void deleteAll() {
+        for (Path directory : directories) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(TempDirectories::deleteQuietly);
+            } catch (IOException | UncheckedIOException e) {
+                // Already gone, or changing while walked; nothing more to do for a temp directory
+            }
+        }
+        directories.clear();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Left behind in the temp directory
+        }
+    }
+}
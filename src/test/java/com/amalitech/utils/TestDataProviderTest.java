@@ -0,0 +1,67 @@
+package com.amalitech.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class TestDataProviderTest {
+
+    @Test(description = "Login matrix rows carry username, password and expected error in column order")
+    public void testLoginUsersRows() {
+        Object[][] rows = TestDataProvider.loginUsers();
+
+        Assert.assertTrue(rows.length > 0, "Login matrix should not be empty");
+        Assert.assertEquals(rows[0], new Object[]{"standard_user", "secret_sauce", ""});
+        for (Object[] row : rows) {
+            Assert.assertEquals(row.length, 3);
+            Assert.assertNotNull(row[2], "Every user needs an expected error, empty for success");
+        }
+    }
+
+    @Test(description = "Parsed records are cached per file")
+    public void testRecordsAreCached() {
+        List<Map<String, String>> first = TestDataProvider.getRecords(TestDataProvider.CHECKOUT_INFO);
+        List<Map<String, String>> second = TestDataProvider.getRecords(TestDataProvider.CHECKOUT_INFO);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(first.get(0).get("firstName"), "Emmanuel");
+    }
+
+    @Test(description = "Pairwise rows from the test data domains feed DataProviders")
+    public void testPairwiseDomains() {
+        Object[][] rows = TestDataProvider.checkoutPairwise();
+
+        Assert.assertTrue(rows.length > 0 && rows.length < 4 * 3 * 3);
+        for (Object[] row : rows) {
+            Assert.assertEquals(row.length, 3);
+        }
+        Assert.assertEquals(TestDataProvider.getDomains(TestDataProvider.LOGIN_DOMAINS).keySet(),
+                new LinkedHashSet<>(Arrays.asList("username", "password", "entryMode")));
+    }
+
+    @Test(description = "The pairwise seed can be overridden from the environment and system properties")
+    public void testPairwiseSeedOverrides() {
+        Properties systemProperties = new Properties();
+        Assert.assertEquals(ConfigSnapshot.load(Collections.emptyMap(), systemProperties)
+                .getLong("testdata.pairwise.seed", 0), 20240601L);
+
+        Map<String, String> environment = Collections.singletonMap("TESTDATA_PAIRWISE_SEED", "7");
+        Assert.assertEquals(ConfigSnapshot.load(environment, systemProperties)
+                .getLong("testdata.pairwise.seed", 0), 7L);
+
+        systemProperties.setProperty("testdata.pairwise.seed", "99");
+        Assert.assertEquals(ConfigSnapshot.load(environment, systemProperties)
+                .getLong("testdata.pairwise.seed", 0), 99L);
+    }
+
+    @Test(description = "Unknown sections are reported", expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownSection() {
+        TestDataProvider.getRecords("noSuchSection");
+    }
+}